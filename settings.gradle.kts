@@ -112,6 +112,9 @@ dependencyResolutionManagement {
             // PicoCLI
             version("picocli-version", "4.6.3")
 
+            // Compression
+            version("lz4-version", "1.8.0")
+
             // List of bundles provided for us. When applicable, favor using these over individual libraries.
             bundle("eclipse", listOf("eclipse-collections"))
             bundle("cryptography-core", listOf("lazysodium", "bc-provider", "bc-pkix"))
@@ -189,6 +192,8 @@ dependencyResolutionManagement {
             library("prometheus-httpserver", "io.prometheus", "simpleclient_httpserver").versionRef("prometheus-client")
             // PicoCLI Bundle
             library("picocli", "info.picocli", "picocli").versionRef("picocli-version")
+            // Compression
+            library("lz4", "org.lz4", "lz4-java").versionRef("lz4-version")
         }
 
         create("testLibs") {
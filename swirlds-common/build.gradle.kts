@@ -26,6 +26,7 @@ dependencies {
     api(project(":swirlds-cli"))
     implementation(libs.classgraph)
     implementation(libs.commons.codec)
+    implementation(libs.lz4)
     implementation(libs.bundles.picocli)
     implementation(libs.prometheus.httpserver) {
         exclude("io.prometheus", "simpleclient_tracer_otel")
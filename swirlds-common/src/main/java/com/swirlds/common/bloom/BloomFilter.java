@@ -24,6 +24,7 @@ import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * An implementation of a bloom filter. A bloom filter is a data structure that has similarities to
@@ -111,6 +112,15 @@ public class BloomFilter<T> implements SelfSerializable {
         this.hashBuffer = new long[hashCount];
     }
 
+    /**
+     * Get the total size of the bloom filter.
+     *
+     * @return the size of the bloom filter, in bits
+     */
+    public long getFilterSizeInBits() {
+        return filterSizeInBits;
+    }
+
     /**
      * Convenience method. Create a new buffer of the appropriate length to hold hashes.
      *
@@ -346,6 +356,62 @@ public class BloomFilter<T> implements SelfSerializable {
         hashProvider = in.readSerializable();
         hashCount = in.readInt();
         filterSizeInBits = in.readLong();
+        readFilter(in, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Deserialize a bloom filter that was received from an untrusted source. The hasher must be of
+     * the expected type, and the hash count and the size of the filter are checked before any
+     * memory is allocated for them.
+     *
+     * @param in the stream to read from
+     * @param version the version of the serialized data
+     * @param hasherConstructor creates a hasher of the type the filter must use
+     * @param maxHashCount the maximum number of hashes the filter may use
+     * @param maxFilterSizeInBits the maximum size of the filter, in bits
+     * @throws IOException if the filter could not be read, if it uses a different type of hasher,
+     *     or if it exceeds one of the limits
+     */
+    public void deserialize(
+            final SerializableDataInputStream in,
+            final int version,
+            final Supplier<? extends BloomHasher<T>> hasherConstructor,
+            final int maxHashCount,
+            final long maxFilterSizeInBits)
+            throws IOException {
+        final BloomHasher<T> hasher = hasherConstructor.get();
+        final long hasherClassId = in.readLong();
+        if (hasherClassId != hasher.getClassId()) {
+            throw new IOException("unexpected bloom filter hasher class ID " + hasherClassId);
+        }
+        hashProvider = in.readSerializable(false, () -> hasher);
+        if (hashProvider == null) {
+            throw new IOException("bloom filter has no hasher");
+        }
+        hashCount = in.readInt();
+        filterSizeInBits = in.readLong();
+        readFilter(in, maxHashCount, maxFilterSizeInBits);
+    }
+
+    /**
+     * Check the hash count and the size of the filter, then read the filter data.
+     *
+     * @param in the stream to read from
+     * @param maxHashCount the maximum number of hashes the filter may use
+     * @param maxFilterSizeInBits the maximum size of the filter, in bits
+     * @throws IOException if the filter could not be read, or if it exceeds one of the limits
+     */
+    private void readFilter(
+            final SerializableDataInputStream in,
+            final int maxHashCount,
+            final long maxFilterSizeInBits)
+            throws IOException {
+        if (hashCount <= 0 || hashCount > maxHashCount) {
+            throw new IOException("invalid bloom filter hash count " + hashCount);
+        }
+        if (filterSizeInBits <= 0 || filterSizeInBits > maxFilterSizeInBits) {
+            throw new IOException("invalid bloom filter size " + filterSizeInBits);
+        }
 
         final double byteCount = Math.ceil(filterSizeInBits * BITS_TO_BYTES);
         final double intCount = Math.ceil(byteCount / BYTES_PER_INT);
@@ -354,10 +420,13 @@ public class BloomFilter<T> implements SelfSerializable {
 
         filter = new int[arrayCount][];
 
-        for (int arrayIndex = 0; arrayIndex < arrayCount - 1; arrayIndex++) {
-            filter[arrayIndex] = in.readIntArray(MAX_ARRAY_SIZE);
+        for (int arrayIndex = 0; arrayIndex < arrayCount; arrayIndex++) {
+            final int arraySize = arrayIndex < arrayCount - 1 ? MAX_ARRAY_SIZE : lastArraySize;
+            filter[arrayIndex] = in.readIntArray(arraySize);
+            if (filter[arrayIndex] == null || filter[arrayIndex].length != arraySize) {
+                throw new IOException("bloom filter data does not match its size");
+            }
         }
-        filter[arrayCount - 1] = in.readIntArray(lastArraySize);
 
         hashBuffer = new long[hashCount];
     }
@@ -30,13 +30,26 @@ import com.swirlds.config.api.ConfigProperty;
  * @param roundsExpired Events this many rounds old are expired, and can be deleted from memory
  * @param coinFreq a coin round happens every coinFreq rounds during an election (every other one is
  *     all true)
+ * @param vectorizedStronglySee if true, find the witnesses each event strongly sees by comparing
+ *     primitive witness indices and adding up the stake for all members at once, rather than by
+ *     looking up every intermediate witness separately. Both give identical results.
+ * @param iterativeAncestors if true, when an event is added, first walk back through any of its
+ *     ancestors that are missing memoized consensus values using an explicit stack, and fill them
+ *     in oldest first. This keeps the recursion of the consensus functions shallow, no matter how
+ *     many unprocessed events arrive at once.
  */
 @ConfigData("consensus")
 public record ConsensusConfig(
         @ConfigProperty(defaultValue = ROUNDS_NON_ANCIENT_DEFAULT_VALUE) int roundsNonAncient,
         @ConfigProperty(defaultValue = ROUNDS_EXPIRED_DEFAULT_VALUE) int roundsExpired,
-        @ConfigProperty(defaultValue = COIN_FREQ_DEFAULT_VALUE) int coinFreq) {
+        @ConfigProperty(defaultValue = COIN_FREQ_DEFAULT_VALUE) int coinFreq,
+        @ConfigProperty(defaultValue = VECTORIZED_STRONGLY_SEE_DEFAULT_VALUE)
+                boolean vectorizedStronglySee,
+        @ConfigProperty(defaultValue = ITERATIVE_ANCESTORS_DEFAULT_VALUE)
+                boolean iterativeAncestors) {
     public static final String ROUNDS_NON_ANCIENT_DEFAULT_VALUE = "26";
     public static final String ROUNDS_EXPIRED_DEFAULT_VALUE = "500";
     public static final String COIN_FREQ_DEFAULT_VALUE = "12";
+    public static final String VECTORIZED_STRONGLY_SEE_DEFAULT_VALUE = "false";
+    public static final String ITERATIVE_ANCESTORS_DEFAULT_VALUE = "false";
 }
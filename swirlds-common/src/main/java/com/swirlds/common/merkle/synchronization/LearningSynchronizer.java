@@ -31,15 +31,22 @@ import com.swirlds.common.merkle.synchronization.internal.QueryResponse;
 import com.swirlds.common.merkle.synchronization.internal.ReconnectNodeCount;
 import com.swirlds.common.merkle.synchronization.streams.AsyncInputStream;
 import com.swirlds.common.merkle.synchronization.streams.AsyncOutputStream;
+import com.swirlds.common.merkle.synchronization.streams.CompressedStreams;
+import com.swirlds.common.merkle.synchronization.streams.StreamMultiplexer;
 import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import com.swirlds.common.merkle.synchronization.views.BulkLearnerTreeView;
 import com.swirlds.common.merkle.synchronization.views.CustomReconnectRoot;
 import com.swirlds.common.merkle.synchronization.views.LearnerTreeView;
+import com.swirlds.common.merkle.synchronization.views.PartitionedLearnerTreeView;
 import com.swirlds.common.merkle.synchronization.views.StandardLearnerTreeView;
 import com.swirlds.common.threading.manager.ThreadManager;
 import com.swirlds.common.threading.pool.StandardWorkGroup;
 import com.swirlds.logging.payloads.SynchronizationCompletePayload;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -53,13 +60,31 @@ public class LearningSynchronizer implements ReconnectNodeCount {
 
     private static final Logger logger = LogManager.getLogger(LearningSynchronizer.class);
 
-    /** Used to get data from the teacher. */
-    private final MerkleDataInputStream inputStream;
+    /** The stream from the teacher, before a compression codec has been negotiated. */
+    private final MerkleDataInputStream connectionInputStream;
 
-    /** Used to transmit data to the teacher. */
-    private final MerkleDataOutputStream outputStream;
+    /** The stream to the teacher, before a compression codec has been negotiated. */
+    private final MerkleDataOutputStream connectionOutputStream;
+
+    /** Used to get data from the teacher. Set once a compression codec has been negotiated. */
+    private MerkleDataInputStream inputStream;
+
+    /** Used to transmit data to the teacher. Set once a compression codec has been negotiated. */
+    private MerkleDataOutputStream outputStream;
+
+    /** The streams negotiated with the teacher. */
+    private CompressedStreams streams;
 
     private final Queue<MerkleNode> rootsToReceive;
+
+    /**
+     * Subtrees with custom views that have been received completely. Recorded in the checkpoint
+     * if the synchronization fails.
+     */
+    private final List<MerkleNode> receivedSubtrees = new ArrayList<>();
+
+    /** Subtrees received by earlier, failed attempts. May be null. */
+    private final ReconnectCheckpoint checkpoint;
     private final Deque<LearnerTreeView<?>> viewsToInitialize;
     private final Runnable breakConnection;
     /** The root of the merkle tree that resulted from the synchronization operation. */
@@ -94,11 +119,36 @@ public class LearningSynchronizer implements ReconnectNodeCount {
             final MerkleDataOutputStream out,
             final MerkleNode root,
             final Runnable breakConnection) {
+        this(threadManager, in, out, root, breakConnection, null);
+    }
+
+    /**
+     * Create a new learning synchronizer that can resume the work of earlier, failed attempts.
+     *
+     * @param threadManager responsible for managing thread lifecycles
+     * @param in the input stream
+     * @param out the output stream
+     * @param root the root of the tree
+     * @param breakConnection a method that breaks the connection. Used iff an exception is
+     *     encountered. Prevents deadlock if there is a thread stuck on a blocking IO operation that
+     *     will never finish due to a failure.
+     * @param checkpoint subtrees received by earlier attempts that may be reused. If this attempt
+     *     fails, the subtrees it received completely are added. Cleared if this attempt succeeds.
+     *     May be null.
+     */
+    public LearningSynchronizer(
+            final ThreadManager threadManager,
+            final MerkleDataInputStream in,
+            final MerkleDataOutputStream out,
+            final MerkleNode root,
+            final Runnable breakConnection,
+            final ReconnectCheckpoint checkpoint) {
 
         this.threadManager = throwArgNull(threadManager, "threadManager");
+        this.checkpoint = checkpoint;
 
-        inputStream = in;
-        outputStream = out;
+        connectionInputStream = in;
+        connectionOutputStream = out;
 
         rootsToReceive = new LinkedList<>();
         viewsToInitialize = new LinkedList<>();
@@ -114,6 +164,9 @@ public class LearningSynchronizer implements ReconnectNodeCount {
             initialize();
             hash();
             logStatistics();
+            if (checkpoint != null) {
+                checkpoint.clear();
+            }
         } catch (final InterruptedException ex) {
             logger.warn(RECONNECT.getMarker(), "synchronization interrupted");
             Thread.currentThread().interrupt();
@@ -122,11 +175,17 @@ public class LearningSynchronizer implements ReconnectNodeCount {
         } catch (final Exception ex) {
             abort();
             throw new MerkleSynchronizationException(ex);
+        } finally {
+            if (streams != null) {
+                streams.releaseCodecs();
+            }
         }
     }
 
     /** Attempt to free any and all resources that were acquired during the reconnect attempt. */
     private void abort() {
+        saveCheckpoint();
+
         logger.warn(RECONNECT.getMarker(), "deleting partially constructed tree");
         try {
             if (newRoot != null) {
@@ -140,16 +199,46 @@ public class LearningSynchronizer implements ReconnectNodeCount {
         }
     }
 
+    /**
+     * Record the subtrees that were received completely, so that a later attempt does not need to
+     * receive them again.
+     */
+    private void saveCheckpoint() {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            for (final MerkleNode subtree : receivedSubtrees) {
+                if (subtree.getHash() != null) {
+                    checkpoint.add(subtree);
+                }
+            }
+            logger.info(
+                    RECONNECT.getMarker(),
+                    "{} received subtree(s) checkpointed for the next reconnect attempt",
+                    checkpoint.size());
+        } catch (final Exception ex) {
+            logger.error(EXCEPTION.getMarker(), "exception thrown while saving checkpoint", ex);
+        }
+    }
+
     /** Receive the tree from the teacher. */
     private void receiveTree() throws InterruptedException {
         logger.info(RECONNECT.getMarker(), "synchronizing tree");
         final long start = System.currentTimeMillis();
 
+        streams =
+                CompressedStreams.negotiateAsLearner(connectionInputStream, connectionOutputStream);
+        inputStream = streams.getInputStream();
+        outputStream = streams.getOutputStream();
+
         while (!rootsToReceive.isEmpty()) {
             final MerkleNode root = receiveTree(rootsToReceive.remove());
             if (newRoot == null) {
                 // The first tree synchronized will contain the root of the tree as a whole
                 newRoot = root;
+            } else if (root != null) {
+                receivedSubtrees.add(root);
             }
         }
 
@@ -191,6 +280,7 @@ public class LearningSynchronizer implements ReconnectNodeCount {
 
     /** Log information about the synchronization. */
     private void logStatistics() {
+        streams.logStatistics();
         logger.info(
                 RECONNECT.getMarker(),
                 () ->
@@ -232,17 +322,33 @@ public class LearningSynchronizer implements ReconnectNodeCount {
                 root == null ? "(unknown)" : root.getClass().getName(),
                 root == null ? "[]" : root.getRoute());
 
-        final StandardWorkGroup workGroup =
-                new StandardWorkGroup(threadManager, WORK_GROUP_NAME, breakConnection);
-
         final LearnerTreeView<T> view;
         if (root == null || !root.hasCustomReconnectView()) {
-            view = (LearnerTreeView<T>) new StandardLearnerTreeView(root);
+            view = (LearnerTreeView<T>) new StandardLearnerTreeView(root, checkpoint);
         } else {
             assert root instanceof CustomReconnectRoot;
             view = ((CustomReconnectRoot<?, T>) root).buildLearnerView();
         }
 
+        if (view instanceof final BulkLearnerTreeView<T> bulkView) {
+            final MerkleNode bulkRoot = receiveBulk(bulkView);
+            if (bulkRoot != null) {
+                logger.info(RECONNECT.getMarker(), "received tree in bulk");
+                viewsToInitialize.addFirst(view);
+                return bulkRoot;
+            }
+        }
+
+        final StandardWorkGroup workGroup =
+                new StandardWorkGroup(threadManager, WORK_GROUP_NAME, breakConnection);
+
+        if (view instanceof final PartitionedLearnerTreeView<T> partitionedView) {
+            final List<LearnerTreeView<T>> partitions = readPartitioning(partitionedView);
+            if (!partitions.isEmpty()) {
+                return receivePartitionedTree(workGroup, view, partitions);
+            }
+        }
+
         final AsyncInputStream<Lesson<T>> in =
                 new AsyncInputStream<>(inputStream, workGroup, () -> new Lesson<>(view));
         final AsyncOutputStream<QueryResponse> out = buildOutputStream(workGroup, outputStream);
@@ -299,6 +405,138 @@ public class LearningSynchronizer implements ReconnectNodeCount {
         return view.getMerkleRoot(reconstructedRoot.get());
     }
 
+    /**
+     * Read the teacher's offer to send a tree in bulk, and receive the tree if the offer is
+     * accepted.
+     *
+     * @return the root of the received tree, or null if the tree is received node by node
+     */
+    private <T> MerkleNode receiveBulk(final BulkLearnerTreeView<T> view) {
+        try {
+            final MerkleNode received = view.receiveBulk(inputStream, outputStream);
+            outputStream.flush();
+            return received;
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to receive tree in bulk", e);
+        }
+    }
+
+    /**
+     * Read how the teacher split a tree into subtrees that are sent in parallel.
+     *
+     * @return the views of the subtrees, or an empty list if the tree is sent over a single stream
+     */
+    private <T> List<LearnerTreeView<T>> readPartitioning(
+            final PartitionedLearnerTreeView<T> view) {
+        try {
+            return view.partition(inputStream);
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to read tree partitioning", e);
+        }
+    }
+
+    /**
+     * Receive the subtrees of a partitioned tree in parallel. Each subtree has its own learner
+     * thread and its own logical stream, all multiplexed over the connection. The view of the tree
+     * as a whole is responsible for joining the subtrees.
+     *
+     * @param workGroup the work group for this tree
+     * @param view the view of the tree as a whole
+     * @param partitions the views of the subtrees
+     * @return the root of the reconstructed tree
+     */
+    private <T> MerkleNode receivePartitionedTree(
+            final StandardWorkGroup workGroup,
+            final LearnerTreeView<T> view,
+            final List<LearnerTreeView<T>> partitions)
+            throws InterruptedException {
+
+        logger.info(
+                RECONNECT.getMarker(),
+                "receiving tree over {} parallel streams",
+                partitions.size());
+
+        final StreamMultiplexer multiplexer =
+                new StreamMultiplexer(
+                        threadManager,
+                        inputStream,
+                        outputStream,
+                        partitions.size(),
+                        breakConnection);
+        final List<AsyncInputStream<Lesson<T>>> inputStreams = new ArrayList<>(partitions.size());
+
+        InterruptedException interruptException = null;
+        try {
+            view.startThreads(threadManager, workGroup);
+            multiplexer.start();
+
+            for (int index = 0; index < partitions.size(); index++) {
+                final LearnerTreeView<T> partition = partitions.get(index);
+
+                final AsyncInputStream<Lesson<T>> in =
+                        new AsyncInputStream<>(
+                                multiplexer.getInputStream(index),
+                                workGroup,
+                                () -> new Lesson<>(partition));
+                final AsyncOutputStream<QueryResponse> out =
+                        buildOutputStream(workGroup, multiplexer.getOutputStream(index));
+                inputStreams.add(in);
+
+                in.start();
+                out.start();
+
+                new LearnerThread<>(
+                                workGroup,
+                                threadManager,
+                                in,
+                                out,
+                                rootsToReceive,
+                                new AtomicReference<>(),
+                                partition,
+                                this)
+                        .start();
+            }
+
+            workGroup.waitForTermination();
+        } catch (
+                final InterruptedException
+                        e) { // NOSONAR: Exception is rethrown below after cleanup.
+            interruptException = e;
+            logger.warn(
+                    RECONNECT.getMarker(), "interrupted while waiting for work group termination");
+        }
+
+        if (interruptException != null || workGroup.hasExceptions()) {
+            inputStreams.forEach(AsyncInputStream::abort);
+            multiplexer.abort();
+            try {
+                view.close();
+            } catch (final Exception e) {
+                logger.error(EXCEPTION.getMarker(), "exception while closing failed view", e);
+            }
+
+            final MerkleNode merkleRoot = view.getMerkleRoot(null);
+            if (merkleRoot != null && merkleRoot.getReservationCount() == 0) {
+                logger.warn(RECONNECT.getMarker(), "deleting partially constructed subtree");
+                merkleRoot.release();
+            }
+            if (interruptException != null) {
+                throw interruptException;
+            }
+            throw new MerkleSynchronizationException("Synchronization failed with exceptions");
+        }
+
+        try {
+            multiplexer.finish();
+        } finally {
+            view.close();
+        }
+
+        viewsToInitialize.addFirst(view);
+
+        return view.getMerkleRoot(null);
+    }
+
     /**
      * Build the output stream. Exposed to allow unit tests to override implementation to simulate
      * latency.
@@ -310,25 +548,25 @@ public class LearningSynchronizer implements ReconnectNodeCount {
 
     /** {@inheritDoc} */
     @Override
-    public void incrementLeafCount() {
+    public synchronized void incrementLeafCount() {
         leafNodesReceived++;
     }
 
     /** {@inheritDoc} */
     @Override
-    public void incrementRedundantLeafCount() {
+    public synchronized void incrementRedundantLeafCount() {
         redundantLeafNodes++;
     }
 
     /** {@inheritDoc} */
     @Override
-    public void incrementInternalCount() {
+    public synchronized void incrementInternalCount() {
         internalNodesReceived++;
     }
 
     /** {@inheritDoc} */
     @Override
-    public void incrementRedundantInternalCount() {
+    public synchronized void incrementRedundantInternalCount() {
         redundantInternalNodes++;
     }
 }
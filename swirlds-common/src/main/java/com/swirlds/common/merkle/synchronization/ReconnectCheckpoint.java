@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization;
+
+import static com.swirlds.logging.LogMarker.RECONNECT;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.merkle.MerkleNode;
+import com.swirlds.common.merkle.route.MerkleRoute;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The progress a learner has confirmed during reconnect attempts that failed. When an attempt
+ * fails, every subtree with a custom view (e.g. a virtual map) that was received completely is
+ * recorded here by route, together with the data it has already flushed to disk. A later attempt
+ * against the same or a newer state reuses such a subtree in place of the corresponding subtree of
+ * its original state if its hash matches the hash the teacher reports for that route, and the
+ * teacher does not send it again.
+ *
+ * <p>Each recorded subtree holds a reservation, which is released by {@link #clear()}. A checkpoint
+ * should be cleared once a reconnect succeeds. This class is thread safe.
+ */
+public class ReconnectCheckpoint {
+
+    private static final Logger logger = LogManager.getLogger(ReconnectCheckpoint.class);
+
+    private final Map<MerkleRoute, MerkleNode> subtrees = new HashMap<>();
+
+    /**
+     * Record a subtree that has been received completely. The subtree must be hashed. If a
+     * different subtree was recorded for the same route it is replaced.
+     *
+     * @param subtree the root of the subtree
+     * @throws IllegalArgumentException if the subtree is not hashed
+     */
+    public synchronized void add(final MerkleNode subtree) {
+        if (subtree.getHash() == null) {
+            throw new IllegalArgumentException("only hashed subtrees can be checkpointed");
+        }
+
+        final MerkleRoute route = subtree.getRoute();
+        final MerkleNode previous = subtrees.get(route);
+        if (previous == subtree) {
+            return;
+        }
+
+        subtree.reserve();
+        subtrees.put(route, subtree);
+        if (previous != null) {
+            previous.release();
+        }
+        logger.info(RECONNECT.getMarker(), "checkpointed received subtree at route {}", route);
+    }
+
+    /**
+     * Get a recorded subtree that can be used at a route.
+     *
+     * @param route the route of the subtree in the tree being received
+     * @param hash the hash the teacher has for the node at the route
+     * @return the subtree, or null if no subtree is recorded for the route or if its hash does not
+     *     match
+     */
+    public synchronized MerkleNode getMatchingSubtree(final MerkleRoute route, final Hash hash) {
+        final MerkleNode subtree = subtrees.get(route);
+        if (subtree == null || !subtree.getHash().equals(hash)) {
+            return null;
+        }
+        return subtree;
+    }
+
+    /**
+     * Get the number of recorded subtrees.
+     *
+     * @return the number of subtrees
+     */
+    public synchronized int size() {
+        return subtrees.size();
+    }
+
+    /** Release and forget all recorded subtrees. */
+    public synchronized void clear() {
+        for (final MerkleNode subtree : subtrees.values()) {
+            subtree.release();
+        }
+        subtrees.clear();
+    }
+}
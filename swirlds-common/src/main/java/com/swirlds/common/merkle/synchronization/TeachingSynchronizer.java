@@ -26,13 +26,20 @@ import com.swirlds.common.merkle.synchronization.internal.QueryResponse;
 import com.swirlds.common.merkle.synchronization.internal.TeacherReceivingThread;
 import com.swirlds.common.merkle.synchronization.internal.TeacherSendingThread;
 import com.swirlds.common.merkle.synchronization.internal.TeacherSubtree;
+import com.swirlds.common.merkle.synchronization.settings.ReconnectSettingsFactory;
 import com.swirlds.common.merkle.synchronization.streams.AsyncInputStream;
 import com.swirlds.common.merkle.synchronization.streams.AsyncOutputStream;
+import com.swirlds.common.merkle.synchronization.streams.CompressedStreams;
+import com.swirlds.common.merkle.synchronization.streams.StreamMultiplexer;
 import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import com.swirlds.common.merkle.synchronization.views.BulkTeacherTreeView;
+import com.swirlds.common.merkle.synchronization.views.PartitionedTeacherTreeView;
 import com.swirlds.common.merkle.synchronization.views.TeacherTreeView;
 import com.swirlds.common.threading.manager.ThreadManager;
 import com.swirlds.common.threading.pool.StandardWorkGroup;
+import java.io.IOException;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
@@ -45,11 +52,17 @@ public class TeachingSynchronizer {
 
     private static final Logger logger = LogManager.getLogger(TeachingSynchronizer.class);
 
-    /** Used to get data from the listener. */
-    private final MerkleDataInputStream inputStream;
+    /** The stream from the learner, before a compression codec has been negotiated. */
+    private final MerkleDataInputStream connectionInputStream;
 
-    /** Used to transmit data to the listener. */
-    private final MerkleDataOutputStream outputStream;
+    /** The stream to the learner, before a compression codec has been negotiated. */
+    private final MerkleDataOutputStream connectionOutputStream;
+
+    /** Used to get data from the listener. Set once a compression codec has been negotiated. */
+    private MerkleDataInputStream inputStream;
+
+    /** Used to transmit data to the listener. Set once a compression codec has been negotiated. */
+    private MerkleDataOutputStream outputStream;
 
     /**
      * Subtrees that require reconnect using a custom view.
@@ -85,8 +98,8 @@ public class TeachingSynchronizer {
             final Runnable breakConnection) {
 
         this.threadManager = threadManager;
-        inputStream = in;
-        outputStream = out;
+        connectionInputStream = in;
+        connectionOutputStream = out;
 
         subtrees = new LinkedList<>();
         subtrees.add(new TeacherSubtree(root));
@@ -96,18 +109,30 @@ public class TeachingSynchronizer {
 
     /** Perform synchronization in the role of the teacher. */
     public void synchronize() throws InterruptedException {
+        CompressedStreams streams = null;
         try {
+            streams =
+                    CompressedStreams.negotiateAsTeacher(
+                            connectionInputStream, connectionOutputStream);
+            inputStream = streams.getInputStream();
+            outputStream = streams.getOutputStream();
+
             while (!subtrees.isEmpty()) {
                 try (final TeacherSubtree subtree = subtrees.remove()) {
                     subtree.getView().waitUntilReady();
                     sendTree(subtree.getRoot(), subtree.getView());
                 }
             }
+
+            streams.logStatistics();
         } finally {
             // If we crash, make sure to clean up any remaining subtrees.
             for (final TeacherSubtree subtree : subtrees) {
                 subtree.close();
             }
+            if (streams != null) {
+                streams.releaseCodecs();
+            }
         }
     }
 
@@ -120,6 +145,20 @@ public class TeachingSynchronizer {
                 root == null ? null : root.getClass().getName(),
                 root == null ? "[]" : root.getRoute());
 
+        if (view instanceof final BulkTeacherTreeView<T> bulkView && sendBulk(bulkView)) {
+            logger.info(RECONNECT.getMarker(), "finished sending tree in bulk");
+            return;
+        }
+
+        if (view instanceof final PartitionedTeacherTreeView<T> partitionedView) {
+            final List<TeacherTreeView<T>> partitions = partitionTree(partitionedView);
+            if (!partitions.isEmpty()) {
+                sendPartitionedTree(partitions);
+                logger.info(RECONNECT.getMarker(), "finished sending tree");
+                return;
+            }
+        }
+
         // A future improvement might be to reuse threads between subtrees.
         final StandardWorkGroup workGroup =
                 new StandardWorkGroup(threadManager, WORK_GROUP_NAME, breakConnection);
@@ -145,6 +184,97 @@ public class TeachingSynchronizer {
         logger.info(RECONNECT.getMarker(), "finished sending tree");
     }
 
+    /**
+     * Offer to send a tree in bulk, and send it if the learner accepts.
+     *
+     * @return true if the tree was sent in bulk
+     */
+    private <T> boolean sendBulk(final BulkTeacherTreeView<T> view) {
+        try {
+            final boolean sent = view.sendBulk(inputStream, outputStream);
+            outputStream.flush();
+            return sent;
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to send tree in bulk", e);
+        }
+    }
+
+    /**
+     * Split a tree into subtrees that are sent in parallel, and tell the learner how the tree was
+     * split.
+     *
+     * @return the views of the subtrees, or an empty list if the tree is sent over a single stream
+     */
+    private <T> List<TeacherTreeView<T>> partitionTree(final PartitionedTeacherTreeView<T> view) {
+        try {
+            final List<TeacherTreeView<T>> partitions =
+                    view.partition(
+                            ReconnectSettingsFactory.get().getParallelStreamCount(), outputStream);
+            outputStream.flush();
+            return partitions;
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to send tree partitioning", e);
+        }
+    }
+
+    /**
+     * Send the subtrees of a partitioned tree in parallel. Each subtree has its own sending and
+     * receiving threads and its own logical stream, all multiplexed over the connection.
+     */
+    private <T> void sendPartitionedTree(final List<TeacherTreeView<T>> partitions)
+            throws InterruptedException {
+        logger.info(
+                RECONNECT.getMarker(), "sending tree over {} parallel streams", partitions.size());
+
+        final StandardWorkGroup workGroup =
+                new StandardWorkGroup(threadManager, WORK_GROUP_NAME, breakConnection);
+        final StreamMultiplexer multiplexer =
+                new StreamMultiplexer(
+                        threadManager,
+                        inputStream,
+                        outputStream,
+                        partitions.size(),
+                        breakConnection);
+        multiplexer.start();
+
+        try {
+            for (int index = 0; index < partitions.size(); index++) {
+                final TeacherTreeView<T> partition = partitions.get(index);
+
+                final AsyncInputStream<QueryResponse> in =
+                        new AsyncInputStream<>(
+                                multiplexer.getInputStream(index), workGroup, QueryResponse::new);
+                final AsyncOutputStream<Lesson<T>> out =
+                        buildOutputStream(workGroup, multiplexer.getOutputStream(index));
+
+                in.start();
+                out.start();
+
+                final AtomicBoolean senderIsFinished = new AtomicBoolean(false);
+
+                new TeacherSendingThread<T>(
+                                workGroup, in, out, subtrees, partition, senderIsFinished)
+                        .start();
+                new TeacherReceivingThread<>(workGroup, in, partition, senderIsFinished).start();
+            }
+
+            workGroup.waitForTermination();
+        } catch (final InterruptedException e) {
+            multiplexer.abort();
+            throw e;
+        }
+
+        // The threads of all partitions are done, so their views can be closed
+        partitions.forEach(TeacherTreeView::close);
+
+        if (workGroup.hasExceptions()) {
+            multiplexer.abort();
+            throw new MerkleSynchronizationException("Synchronization failed with exceptions");
+        }
+
+        multiplexer.finish();
+    }
+
     /**
      * Build the output stream. Exposed to allow unit tests to override implementation to simulate
      * latency.
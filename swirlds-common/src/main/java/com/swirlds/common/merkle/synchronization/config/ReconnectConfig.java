@@ -47,6 +47,19 @@ import java.time.Duration;
  *     help another node to reconnect another time. This prevents a node from intentionally or
  *     unintentionally slowing another node down by continuously reconnecting with it. Time is
  *     measured starting from when a reconnect attempt is initialized.
+ * @param parallelStreamCount The maximum number of parallel streams used to send a single tree
+ *     that supports partitioned reconnect, such as a virtual map. The tree is split into at most
+ *     this many (rounded down to a power of two) disjoint subtrees that are synchronized
+ *     concurrently. If 1 then every tree is sent over a single stream.
+ * @param compression The compression offered (as a teacher) or accepted (as a learner) for the
+ *     data sent during reconnect. One of "none", "lz4" or "deflate". The teacher proposes its
+ *     codec and the learner accepts it unless its own setting is "none".
+ * @param bulkReconnectThreshold A learner whose copy of a virtual map has fewer leaves than this
+ *     fraction of the teacher's leaves asks for the map's data source files instead of its nodes.
+ *     If 0 then virtual maps are always sent node by node.
+ * @param leafHashFilterEnabled If true then a learner builds a bloom filter of the leaf hashes in
+ *     its copy of a virtual map, and uses it to skip reading leaves that cannot match the
+ *     teacher's leaves.
  */
 @ConfigData("reconnect")
 public record ReconnectConfig(
@@ -59,4 +72,8 @@ public record ReconnectConfig(
         @ConfigProperty(defaultValue = "true") boolean asyncStreams,
         @ConfigProperty(defaultValue = "10") int maxAckDelayMilliseconds,
         @ConfigProperty(defaultValue = "10") int maximumReconnectFailuresBeforeShutdown,
-        @ConfigProperty(defaultValue = "10m") Duration minimumTimeBetweenReconnects) {}
+        @ConfigProperty(defaultValue = "10m") Duration minimumTimeBetweenReconnects,
+        @ConfigProperty(defaultValue = "1") int parallelStreamCount,
+        @ConfigProperty(defaultValue = "none") String compression,
+        @ConfigProperty(defaultValue = "0") double bulkReconnectThreshold,
+        @ConfigProperty(defaultValue = "false") boolean leafHashFilterEnabled) {}
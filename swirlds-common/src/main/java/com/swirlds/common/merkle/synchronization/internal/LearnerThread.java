@@ -187,23 +187,46 @@ public class LearnerThread<T> {
                 originalChild = null;
             }
 
-            final Hash originalHash = view.getNodeHash(originalChild);
-
             final Hash teacherHash = queries.get(childIndex);
-            if (originalHash == null) {
-                exceptionRateLimiter.handle(
-                        new NullPointerException(),
-                        (error) ->
-                                logger.warn(
-                                        RECONNECT.getMarker(),
-                                        "originalHash for node {} is null",
-                                        originalChild));
+
+            final boolean originalIsCurrent;
+            if (view.mayHaveHash(originalChild, teacherHash)) {
+                final Hash originalHash = view.getNodeHash(originalChild);
+                if (originalHash == null) {
+                    exceptionRateLimiter.handle(
+                            new NullPointerException(),
+                            (error) ->
+                                    logger.warn(
+                                            RECONNECT.getMarker(),
+                                            "originalHash for node {} is null",
+                                            originalChild));
+                }
+                originalIsCurrent = originalHash != null && originalHash.equals(teacherHash);
+            } else {
+                // The view has ruled out a match without looking up the original hash
+                originalIsCurrent = false;
             }
-            final boolean nodeAlreadyPresent =
-                    originalHash != null && originalHash.equals(teacherHash);
+
+            // A subtree received by an earlier, failed attempt may be usable where the original
+            // tree is out of date
+            final T checkpointedChild =
+                    originalIsCurrent
+                            ? null
+                            : view.getCheckpointedChild(newParent, childIndex, teacherHash);
+            if (checkpointedChild != null) {
+                logger.info(
+                        RECONNECT.getMarker(),
+                        "reusing subtree received by an earlier reconnect attempt");
+            }
+
+            final boolean nodeAlreadyPresent = originalIsCurrent || checkpointedChild != null;
             out.sendAsync(new QueryResponse(nodeAlreadyPresent));
 
-            view.expectLessonFor(newParent, childIndex, originalChild, nodeAlreadyPresent);
+            view.expectLessonFor(
+                    newParent,
+                    childIndex,
+                    checkpointedChild == null ? originalChild : checkpointedChild,
+                    nodeAlreadyPresent);
             in.anticipateMessage();
         }
     }
@@ -73,4 +73,42 @@ public interface ReconnectSettings {
 
     /** The minimum time that must pass before a node is willing to help another to reconnect. */
     Duration getMinimumTimeBetweenReconnects();
+
+    /**
+     * The maximum number of parallel streams used to send a single tree that supports partitioned
+     * reconnect. Trees are split into at most this many (rounded down to a power of two) disjoint
+     * subtrees, each of which is synchronized by its own threads. If 1 then every tree is sent
+     * over a single stream.
+     */
+    default int getParallelStreamCount() {
+        return 1;
+    }
+
+    /**
+     * The compression this node offers (as a teacher) or accepts (as a learner) for the data sent
+     * during reconnect. One of "none", "lz4" or "deflate". The teacher proposes its codec and the
+     * learner accepts it unless its own setting is "none", in which case the data is sent
+     * uncompressed.
+     */
+    default String getCompression() {
+        return "none";
+    }
+
+    /**
+     * A learner whose copy of a virtual map has fewer leaves than this fraction of the teacher's
+     * leaves asks the teacher to send the map's data source files instead of its nodes. If 0 then
+     * virtual maps are always sent node by node.
+     */
+    default double getBulkReconnectThreshold() {
+        return 0;
+    }
+
+    /**
+     * If true then a learner builds a bloom filter of the leaf hashes in its copy of a virtual map
+     * from the map's data files, and uses it to skip reading leaves that cannot match the teacher's
+     * leaves.
+     */
+    default boolean isLeafHashFilterEnabled() {
+        return false;
+    }
 }
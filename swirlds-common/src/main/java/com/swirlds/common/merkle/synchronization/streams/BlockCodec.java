@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import java.io.IOException;
+
+/**
+ * Compresses and decompresses independent blocks of data. An instance may hold native resources
+ * and state between calls, so it must only be used by one stream.
+ */
+interface BlockCodec {
+
+    /**
+     * Compress a block.
+     *
+     * @param source the data to compress
+     * @param length the number of bytes of the data, starting at index 0
+     * @param destination the array to write the compressed data to, starting at index 0
+     * @return the number of compressed bytes, or -1 if the compressed data would not fit into the
+     *     destination
+     */
+    int compress(byte[] source, int length, byte[] destination);
+
+    /**
+     * Decompress a block.
+     *
+     * @param source the compressed data
+     * @param length the number of bytes of compressed data, starting at index 0
+     * @param destination the array to write the decompressed data to, starting at index 0
+     * @param decompressedLength the expected number of decompressed bytes
+     * @throws IOException if the data is corrupt or does not decompress to the expected length
+     */
+    void decompress(byte[] source, int length, byte[] destination, int decompressedLength)
+            throws IOException;
+
+    /**
+     * Release any native resources held by the codec. The codec must not be used afterwards.
+     * Calling this more than once has no effect.
+     */
+    default void release() {}
+}
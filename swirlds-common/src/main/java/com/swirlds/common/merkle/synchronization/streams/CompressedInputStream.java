@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import static com.swirlds.common.merkle.synchronization.streams.CompressedOutputStream.BLOCK_HEADER_SIZE;
+import static com.swirlds.common.merkle.synchronization.streams.CompressedOutputStream.MAX_BLOCK_SIZE;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the blocks written by a {@link CompressedOutputStream}. A block is only read from the
+ * underlying stream when the data it contains is needed, so this stream never reads beyond the
+ * data the peer has written.
+ *
+ * <p>This object is not thread safe.
+ */
+public class CompressedInputStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final SerializableDataInputStream inputStream;
+
+    private final BlockCodec codec;
+
+    private final byte[] block = new byte[MAX_BLOCK_SIZE];
+
+    private byte[] compressed = EMPTY;
+
+    private int position;
+
+    private int limit;
+
+    private long uncompressedByteCount;
+    private long compressedByteCount;
+
+    /**
+     * Create a new stream.
+     *
+     * @param inputStream the stream to read compressed blocks from
+     * @param compression the codec to use, must not be {@link ReconnectCompression#NONE}
+     */
+    public CompressedInputStream(
+            final SerializableDataInputStream inputStream,
+            final ReconnectCompression compression) {
+        this.inputStream = inputStream;
+        this.codec = compression.buildCodec();
+    }
+
+    /**
+     * Get the number of bytes read from the underlying stream, including block headers.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressedByteCount() {
+        return compressedByteCount;
+    }
+
+    /**
+     * Get the number of bytes the blocks read so far decompressed to.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getUncompressedByteCount() {
+        return uncompressedByteCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read() throws IOException {
+        if (position == limit) {
+            readBlock();
+        }
+        return block[position++] & 0xFF;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == limit) {
+            readBlock();
+        }
+        final int count = Math.min(length, limit - position);
+        System.arraycopy(block, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    /** Read and decompress the next block. Blocks until the block has been received. */
+    private void readBlock() throws IOException {
+        final int uncompressedLength = inputStream.readInt();
+        final int compressedLength = inputStream.readInt();
+        if (uncompressedLength <= 0 || uncompressedLength > MAX_BLOCK_SIZE) {
+            throw new IOException("invalid block length " + uncompressedLength);
+        }
+        if (compressedLength < 0 || compressedLength >= uncompressedLength) {
+            throw new IOException("invalid compressed block length " + compressedLength);
+        }
+
+        if (compressedLength == 0) {
+            inputStream.readFully(block, 0, uncompressedLength);
+            compressedByteCount += BLOCK_HEADER_SIZE + uncompressedLength;
+        } else {
+            if (compressed.length < compressedLength) {
+                compressed = new byte[MAX_BLOCK_SIZE];
+            }
+            inputStream.readFully(compressed, 0, compressedLength);
+            codec.decompress(compressed, compressedLength, block, uncompressedLength);
+            compressedByteCount += BLOCK_HEADER_SIZE + compressedLength;
+        }
+
+        uncompressedByteCount += uncompressedLength;
+        position = 0;
+        limit = uncompressedLength;
+    }
+
+    /**
+     * Release the native resources of the codec without closing the underlying stream. The stream
+     * must not be used afterwards.
+     */
+    void releaseCodec() {
+        codec.release();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        try {
+            inputStream.close();
+        } finally {
+            releaseCodec();
+        }
+    }
+}
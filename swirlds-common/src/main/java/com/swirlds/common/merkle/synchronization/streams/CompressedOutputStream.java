@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that compresses data in independent blocks. Data is buffered until a block is
+ * full or the stream is flushed, and each block is written as {@code
+ * [uncompressed length][compressed length][bytes]}. A compressed length of 0 means that the block
+ * did not get smaller when compressed and its bytes are written uncompressed.
+ *
+ * <p>Since every flush ends a block, a {@link CompressedInputStream} can read everything written
+ * before a flush without reading beyond it. Once the peer has read all of the data, the underlying
+ * stream can be used directly again.
+ *
+ * <p>This object is not thread safe.
+ */
+public class CompressedOutputStream extends OutputStream {
+
+    /** The maximum number of uncompressed bytes in a block. */
+    static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    /** The size of the header that precedes each block. */
+    static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final SerializableDataOutputStream outputStream;
+
+    private final BlockCodec codec;
+
+    private final byte[] buffer = new byte[MAX_BLOCK_SIZE];
+
+    /** Holds the compressed data of a block. */
+    private final byte[] compressed = new byte[MAX_BLOCK_SIZE];
+
+    private int count;
+
+    private long uncompressedByteCount;
+    private long compressedByteCount;
+
+    /**
+     * Create a new stream.
+     *
+     * @param outputStream the stream to write compressed blocks to
+     * @param compression the codec to use, must not be {@link ReconnectCompression#NONE}
+     */
+    public CompressedOutputStream(
+            final SerializableDataOutputStream outputStream,
+            final ReconnectCompression compression) {
+        this.outputStream = outputStream;
+        this.codec = compression.buildCodec();
+    }
+
+    /**
+     * Get the number of bytes written to this stream, before compression.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getUncompressedByteCount() {
+        return uncompressedByteCount;
+    }
+
+    /**
+     * Get the number of bytes written to the underlying stream, including block headers.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressedByteCount() {
+        return compressedByteCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final int b) throws IOException {
+        if (count == buffer.length) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+        uncompressedByteCount++;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        int position = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            if (count == buffer.length) {
+                writeBlock();
+            }
+            final int chunk = Math.min(remaining, buffer.length - count);
+            System.arraycopy(bytes, position, buffer, count, chunk);
+            count += chunk;
+            position += chunk;
+            remaining -= chunk;
+        }
+        uncompressedByteCount += length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        outputStream.flush();
+    }
+
+    /** Compress and write all buffered data as a single block. */
+    private void writeBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        final int compressedLength = codec.compress(buffer, count, compressed);
+        outputStream.writeInt(count);
+        if (compressedLength > 0 && compressedLength < count) {
+            outputStream.writeInt(compressedLength);
+            outputStream.write(compressed, 0, compressedLength);
+            compressedByteCount += BLOCK_HEADER_SIZE + compressedLength;
+        } else {
+            outputStream.writeInt(0);
+            outputStream.write(buffer, 0, count);
+            compressedByteCount += BLOCK_HEADER_SIZE + count;
+        }
+        count = 0;
+    }
+
+    /**
+     * Release the native resources of the codec without closing the underlying stream. The stream
+     * must not be used afterwards.
+     */
+    void releaseCodec() {
+        codec.release();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            try {
+                outputStream.close();
+            } finally {
+                releaseCodec();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import static com.swirlds.logging.LogMarker.RECONNECT;
+
+import com.swirlds.common.io.streams.MerkleDataInputStream;
+import com.swirlds.common.io.streams.MerkleDataOutputStream;
+import com.swirlds.common.merkle.synchronization.settings.ReconnectSettingsFactory;
+import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import java.io.IOException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The streams used for a reconnect after the teacher and the learner have agreed on a compression
+ * codec. The teacher proposes the codec from its {@link
+ * com.swirlds.common.merkle.synchronization.settings.ReconnectSettings#getCompression() settings},
+ * and the learner accepts it unless compression is disabled in its own settings or it does not
+ * know the codec, in which case the data is sent uncompressed.
+ *
+ * <p>Compression applies in both directions, and only to data written to the streams returned by
+ * {@link #getInputStream()} and {@link #getOutputStream()}. Once all data has been flushed and read
+ * the connection streams may be used directly again.
+ */
+public final class CompressedStreams {
+
+    private static final Logger logger = LogManager.getLogger(CompressedStreams.class);
+
+    private final ReconnectCompression compression;
+    private final MerkleDataInputStream inputStream;
+    private final MerkleDataOutputStream outputStream;
+
+    /** Null if the streams are not compressed. */
+    private final CompressedInputStream compressedInputStream;
+
+    /** Null if the streams are not compressed. */
+    private final CompressedOutputStream compressedOutputStream;
+
+    private CompressedStreams(
+            final ReconnectCompression compression,
+            final MerkleDataInputStream in,
+            final MerkleDataOutputStream out) {
+
+        this.compression = compression;
+        if (compression == ReconnectCompression.NONE) {
+            compressedInputStream = null;
+            compressedOutputStream = null;
+            inputStream = in;
+            outputStream = out;
+        } else {
+            compressedInputStream = new CompressedInputStream(in, compression);
+            compressedOutputStream = new CompressedOutputStream(out, compression);
+            inputStream = new MerkleDataInputStream(compressedInputStream);
+            outputStream = new MerkleDataOutputStream(compressedOutputStream);
+        }
+    }
+
+    /**
+     * Propose a codec to the learner and wrap the connection streams in the codec it accepts.
+     *
+     * @param in the stream to read from the learner
+     * @param out the stream to write to the learner
+     * @return the negotiated streams
+     * @throws MerkleSynchronizationException if the streams fail, or if the learner chooses a
+     *     codec that was not proposed
+     */
+    public static CompressedStreams negotiateAsTeacher(
+            final MerkleDataInputStream in, final MerkleDataOutputStream out) {
+
+        final ReconnectCompression proposed = getConfiguredCompression();
+        final ReconnectCompression accepted;
+        try {
+            out.writeInt(proposed.getId());
+            out.flush();
+            accepted = ReconnectCompression.fromId(in.readInt());
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to negotiate compression", e);
+        }
+
+        if (accepted != proposed && accepted != ReconnectCompression.NONE) {
+            throw new MerkleSynchronizationException(
+                    "learner accepted compression " + accepted + ", proposed " + proposed);
+        }
+
+        logger.info(
+                RECONNECT.getMarker(),
+                "proposed reconnect compression {}, learner accepted {}",
+                proposed,
+                accepted);
+        return new CompressedStreams(accepted, in, out);
+    }
+
+    /**
+     * Receive the codec proposed by the teacher, tell the teacher whether it is accepted, and wrap
+     * the connection streams in the accepted codec.
+     *
+     * @param in the stream to read from the teacher
+     * @param out the stream to write to the teacher
+     * @return the negotiated streams
+     * @throws MerkleSynchronizationException if the streams fail
+     */
+    public static CompressedStreams negotiateAsLearner(
+            final MerkleDataInputStream in, final MerkleDataOutputStream out) {
+
+        final ReconnectCompression accepted;
+        try {
+            final int proposedId = in.readInt();
+            final ReconnectCompression proposed = ReconnectCompression.fromId(proposedId);
+            if (proposed == null) {
+                logger.warn(
+                        RECONNECT.getMarker(),
+                        "teacher proposed unknown reconnect compression {}",
+                        proposedId);
+            }
+
+            accepted =
+                    proposed == null || getConfiguredCompression() == ReconnectCompression.NONE
+                            ? ReconnectCompression.NONE
+                            : proposed;
+            out.writeInt(accepted.getId());
+            out.flush();
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to negotiate compression", e);
+        }
+
+        logger.info(RECONNECT.getMarker(), "accepted reconnect compression {}", accepted);
+        return new CompressedStreams(accepted, in, out);
+    }
+
+    private static ReconnectCompression getConfiguredCompression() {
+        return ReconnectCompression.fromSetting(ReconnectSettingsFactory.get().getCompression());
+    }
+
+    /**
+     * Get the codec that was agreed on.
+     *
+     * @return the codec
+     */
+    public ReconnectCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the stream to read data from the peer.
+     *
+     * @return the input stream
+     */
+    public MerkleDataInputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Get the stream to write data to the peer.
+     *
+     * @return the output stream
+     */
+    public MerkleDataOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Get the number of bytes sent to the peer before compression.
+     *
+     * @return the number of bytes written, or 0 if the streams are not compressed
+     */
+    public long getBytesSentBeforeCompression() {
+        return compressedOutputStream == null
+                ? 0
+                : compressedOutputStream.getUncompressedByteCount();
+    }
+
+    /**
+     * Get the number of bytes sent to the peer after compression.
+     *
+     * @return the number of bytes written, or 0 if the streams are not compressed
+     */
+    public long getBytesSentAfterCompression() {
+        return compressedOutputStream == null ? 0 : compressedOutputStream.getCompressedByteCount();
+    }
+
+    /**
+     * Get the number of bytes received from the peer, after decompression.
+     *
+     * @return the number of bytes read, or 0 if the streams are not compressed
+     */
+    public long getBytesReceivedAfterDecompression() {
+        return compressedInputStream == null ? 0 : compressedInputStream.getUncompressedByteCount();
+    }
+
+    /**
+     * Get the number of bytes received from the peer, before decompression.
+     *
+     * @return the number of bytes read, or 0 if the streams are not compressed
+     */
+    public long getBytesReceivedBeforeDecompression() {
+        return compressedInputStream == null ? 0 : compressedInputStream.getCompressedByteCount();
+    }
+
+    /** Log the number of bytes sent and received before and after compression. */
+    public void logStatistics() {
+        if (compression == ReconnectCompression.NONE) {
+            return;
+        }
+        logger.info(
+                RECONNECT.getMarker(),
+                "reconnect compression {}: sent {} bytes compressed to {}, received {} bytes "
+                        + "decompressed to {}",
+                compression,
+                getBytesSentBeforeCompression(),
+                getBytesSentAfterCompression(),
+                getBytesReceivedBeforeDecompression(),
+                getBytesReceivedAfterDecompression());
+    }
+
+    /**
+     * Release the native resources of the codecs. The connection streams stay open, since the
+     * connection is reused after synchronization, but the streams returned by {@link
+     * #getInputStream()} and {@link #getOutputStream()} must not be used afterwards.
+     */
+    public void releaseCodecs() {
+        if (compressedInputStream != null) {
+            compressedInputStream.releaseCodec();
+        }
+        if (compressedOutputStream != null) {
+            compressedOutputStream.releaseCodec();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** A {@link BlockCodec} that uses Deflate. */
+final class DeflateBlockCodec implements BlockCodec {
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final Inflater inflater = new Inflater(true);
+
+    /** Receives any output beyond the expected length of a block. */
+    private final byte[] overflow = new byte[1];
+
+    /** {@inheritDoc} */
+    @Override
+    public int compress(final byte[] source, final int length, final byte[] destination) {
+        deflater.reset();
+        deflater.setInput(source, 0, length);
+        deflater.finish();
+
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == destination.length) {
+                return -1;
+            }
+            compressedLength +=
+                    deflater.deflate(
+                            destination, compressedLength, destination.length - compressedLength);
+        }
+        return compressedLength;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void decompress(
+            final byte[] source,
+            final int length,
+            final byte[] destination,
+            final int decompressedLength)
+            throws IOException {
+        inflater.reset();
+        inflater.setInput(source, 0, length);
+
+        int actualLength = 0;
+        try {
+            while (!inflater.finished()) {
+                final int count;
+                if (actualLength < decompressedLength) {
+                    count =
+                            inflater.inflate(
+                                    destination, actualLength, decompressedLength - actualLength);
+                } else {
+                    // Consume the end of the data. Any further output means the block is too long.
+                    count = inflater.inflate(overflow);
+                    if (count > 0) {
+                        throw new IOException("deflate block is longer than expected");
+                    }
+                }
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                actualLength += count;
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("corrupt deflate block", e);
+        }
+        if (!inflater.finished() || actualLength != decompressedLength) {
+            throw new IOException("deflate block does not match its expected length");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void release() {
+        // Deflater and Inflater hold native zlib memory that is only reclaimed by end()
+        deflater.end();
+        inflater.end();
+    }
+}
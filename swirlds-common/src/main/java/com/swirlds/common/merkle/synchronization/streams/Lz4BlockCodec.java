@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import java.io.IOException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/** A {@link BlockCodec} that uses LZ4. */
+final class Lz4BlockCodec implements BlockCodec {
+
+    private final LZ4Compressor compressor;
+
+    /** Data is received from a peer, so only the decompressor that validates its input is used. */
+    private final LZ4SafeDecompressor decompressor;
+
+    Lz4BlockCodec() {
+        final LZ4Factory factory = LZ4Factory.fastestInstance();
+        compressor = factory.fastCompressor();
+        decompressor = factory.safeDecompressor();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int compress(final byte[] source, final int length, final byte[] destination) {
+        try {
+            return compressor.compress(source, 0, length, destination, 0, destination.length);
+        } catch (final LZ4Exception e) {
+            // The compressed data is larger than the destination
+            return -1;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void decompress(
+            final byte[] source,
+            final int length,
+            final byte[] destination,
+            final int decompressedLength)
+            throws IOException {
+        final int actualLength;
+        try {
+            actualLength =
+                    decompressor.decompress(source, 0, length, destination, 0, decompressedLength);
+        } catch (final LZ4Exception e) {
+            throw new IOException("corrupt LZ4 block", e);
+        }
+        if (actualLength != decompressedLength) {
+            throw new IOException(
+                    "LZ4 block decompressed to "
+                            + actualLength
+                            + " bytes, expected "
+                            + decompressedLength);
+        }
+    }
+}
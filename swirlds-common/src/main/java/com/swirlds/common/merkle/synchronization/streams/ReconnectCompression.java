@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import java.util.Locale;
+
+/** The codecs that may be used to compress the data sent during reconnect. */
+public enum ReconnectCompression {
+    /** Data is sent uncompressed. */
+    NONE(0, "none"),
+    /** A fast codec with a moderate compression ratio. */
+    LZ4(1, "lz4"),
+    /** A slower codec with a better compression ratio than {@link #LZ4}. */
+    DEFLATE(2, "deflate");
+
+    private final int id;
+    private final String settingName;
+
+    ReconnectCompression(final int id, final String settingName) {
+        this.id = id;
+        this.settingName = settingName;
+    }
+
+    /**
+     * Get the ID that identifies this codec on the wire.
+     *
+     * @return the ID of the codec
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the name of this codec as used in the reconnect settings.
+     *
+     * @return the name of the codec
+     */
+    public String getSettingName() {
+        return settingName;
+    }
+
+    /**
+     * Look up a codec by the ID that identifies it on the wire.
+     *
+     * @param id the ID of the codec
+     * @return the codec, or null if no codec has the ID (e.g. if the peer runs a newer version)
+     */
+    public static ReconnectCompression fromId(final int id) {
+        for (final ReconnectCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Look up a codec by its name in the reconnect settings. Case is ignored, and a null or empty
+     * name means {@link #NONE}.
+     *
+     * @param settingName the name of the codec
+     * @return the codec
+     * @throws IllegalArgumentException if no codec has the name
+     */
+    public static ReconnectCompression fromSetting(final String settingName) {
+        if (settingName == null || settingName.isBlank()) {
+            return NONE;
+        }
+        final String name = settingName.trim().toLowerCase(Locale.ROOT);
+        for (final ReconnectCompression compression : values()) {
+            if (compression.settingName.equals(name)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("unknown reconnect compression: " + settingName);
+    }
+
+    /**
+     * Build a new codec instance that compresses or decompresses blocks. Must not be called on
+     * {@link #NONE}.
+     *
+     * @return a new codec instance, not shared with any other stream
+     */
+    BlockCodec buildCodec() {
+        return switch (this) {
+            case LZ4 -> new Lz4BlockCodec();
+            case DEFLATE -> new DeflateBlockCodec();
+            case NONE -> throw new IllegalStateException("no codec for uncompressed streams");
+        };
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.streams;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+import static com.swirlds.logging.LogMarker.RECONNECT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.synchronization.settings.ReconnectSettingsFactory;
+import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import com.swirlds.common.threading.manager.ThreadManager;
+import com.swirlds.common.threading.pool.StandardWorkGroup;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Carries several independent logical streams (channels) over a single pair of input and output
+ * streams. Data written to a channel is buffered and sent as a frame of {@code
+ * [channel][length][bytes]}. A background thread reads frames from the shared input stream and
+ * hands each one to the channel it was written for, so a slow reader on one channel does not
+ * require the other channels to be read in lockstep.
+ *
+ * <p>When a side has finished writing to all of its channels it calls {@link #finish()}. This sends
+ * a terminating frame and waits until the terminating frame of the peer has been read. Afterwards
+ * the shared streams are positioned exactly after the multiplexed data and may be used directly
+ * again.
+ */
+public class StreamMultiplexer {
+
+    private static final Logger logger = LogManager.getLogger(StreamMultiplexer.class);
+
+    private static final String WORK_GROUP_NAME = "stream-multiplexer";
+
+    /** The channel written in place of a channel ID to signal that no more frames will follow. */
+    private static final int END_OF_STREAMS = -1;
+
+    /** The maximum number of bytes a channel buffers before writing a frame. */
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    /** The maximum number of frames buffered for a channel that is not being read. */
+    private static final int CHANNEL_FRAME_CAPACITY = 256;
+
+    /** The amount of time a channel reader waits between checks for the end of the streams. */
+    private static final int POLL_INTERVAL_MS = 10;
+
+    /** The stream all frames are read from. */
+    private final SerializableDataInputStream inputStream;
+
+    /** The stream all frames are written to. Writers synchronize on this object. */
+    private final SerializableDataOutputStream outputStream;
+
+    private final ChannelInputStream[] inputChannels;
+    private final SerializableDataInputStream[] channelInputStreams;
+    private final SerializableDataOutputStream[] channelOutputStreams;
+
+    /** Manages the thread that reads frames. */
+    private final StandardWorkGroup workGroup;
+
+    /** The maximum amount of time to wait when reading from or supplying data to a channel. */
+    private final int timeoutMs;
+
+    /**
+     * Create a new multiplexer.
+     *
+     * @param threadManager responsible for managing thread lifecycles
+     * @param inputStream the stream to read frames from
+     * @param outputStream the stream to write frames to
+     * @param channelCount the number of channels
+     * @param breakConnection a method that breaks the connection. Used iff an exception is
+     *     encountered while reading frames.
+     */
+    public StreamMultiplexer(
+            final ThreadManager threadManager,
+            final SerializableDataInputStream inputStream,
+            final SerializableDataOutputStream outputStream,
+            final int channelCount,
+            final Runnable breakConnection) {
+
+        if (channelCount < 1) {
+            throw new IllegalArgumentException("at least one channel is required");
+        }
+
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+        this.timeoutMs = ReconnectSettingsFactory.get().getAsyncStreamTimeoutMilliseconds();
+        this.workGroup = new StandardWorkGroup(threadManager, WORK_GROUP_NAME, breakConnection);
+
+        inputChannels = new ChannelInputStream[channelCount];
+        channelInputStreams = new SerializableDataInputStream[channelCount];
+        channelOutputStreams = new SerializableDataOutputStream[channelCount];
+        for (int channel = 0; channel < channelCount; channel++) {
+            inputChannels[channel] = new ChannelInputStream();
+            channelInputStreams[channel] = new SerializableDataInputStream(inputChannels[channel]);
+            channelOutputStreams[channel] =
+                    new SerializableDataOutputStream(new ChannelOutputStream(channel));
+        }
+    }
+
+    /** Start the thread that reads frames from the input stream. */
+    public void start() {
+        workGroup.execute("demultiplexer", this::run);
+    }
+
+    /**
+     * Get the number of channels.
+     *
+     * @return the number of channels
+     */
+    public int getChannelCount() {
+        return inputChannels.length;
+    }
+
+    /**
+     * Get the stream that reads the data the peer wrote to a channel.
+     *
+     * @param channel the channel
+     * @return a stream that reads from the channel
+     */
+    public SerializableDataInputStream getInputStream(final int channel) {
+        return channelInputStreams[channel];
+    }
+
+    /**
+     * Get the stream that writes data to a channel. Each channel supports a single writing thread.
+     *
+     * @param channel the channel
+     * @return a stream that writes to the channel
+     */
+    public SerializableDataOutputStream getOutputStream(final int channel) {
+        return channelOutputStreams[channel];
+    }
+
+    /**
+     * Flush all channels, tell the peer that no more data will be written, and wait for the peer to
+     * do the same. Should only be called once every thread writing to a channel has finished.
+     *
+     * @throws InterruptedException if interrupted while waiting for the peer
+     * @throws MerkleSynchronizationException if frames could not be written or read
+     */
+    public void finish() throws InterruptedException {
+        try {
+            for (final SerializableDataOutputStream channel : channelOutputStreams) {
+                channel.flush();
+            }
+            synchronized (outputStream) {
+                outputStream.writeInt(END_OF_STREAMS);
+                outputStream.flush();
+            }
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to finish multiplexed streams", e);
+        }
+
+        workGroup.waitForTermination();
+        if (workGroup.hasExceptions()) {
+            throw new MerkleSynchronizationException("Demultiplexing failed with exceptions");
+        }
+    }
+
+    /**
+     * Stop reading frames after a failure. The shared input stream is closed, since the reading
+     * thread may be blocked waiting for data that will never arrive.
+     */
+    public void abort() {
+        try {
+            inputStream.close();
+        } catch (final IOException e) {
+            logger.error(EXCEPTION.getMarker(), "unable to close multiplexed input stream", e);
+        }
+
+        try {
+            workGroup.waitForTermination();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Read frames and hand them to their channels until the peer signals the end of the data. */
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final int channel = inputStream.readInt();
+                if (channel == END_OF_STREAMS) {
+                    return;
+                }
+                if (channel < 0 || channel >= inputChannels.length) {
+                    throw new MerkleSynchronizationException(
+                            "received frame for unknown channel " + channel);
+                }
+
+                final int length = inputStream.readInt();
+                if (length <= 0 || length > MAX_FRAME_SIZE) {
+                    throw new MerkleSynchronizationException("invalid frame length " + length);
+                }
+                final byte[] frame = new byte[length];
+                inputStream.readFully(frame);
+                inputChannels[channel].supply(frame);
+            }
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to read multiplexed frame", e);
+        } catch (final InterruptedException e) {
+            logger.warn(RECONNECT.getMarker(), "demultiplexer interrupted");
+            Thread.currentThread().interrupt();
+        } finally {
+            for (final ChannelInputStream channel : inputChannels) {
+                channel.endOfFrames();
+            }
+        }
+    }
+
+    /** The reading side of a channel. Frames are supplied by the demultiplexing thread. */
+    private final class ChannelInputStream extends InputStream {
+
+        private static final byte[] EMPTY = new byte[0];
+
+        private final BlockingQueue<byte[]> frames =
+                new LinkedBlockingQueue<>(CHANNEL_FRAME_CAPACITY);
+
+        /** Becomes true once no more frames will be supplied. */
+        private volatile boolean noMoreFrames;
+
+        private volatile boolean closed;
+
+        private byte[] frame = EMPTY;
+
+        private int position;
+
+        /** Called by the demultiplexing thread. */
+        void supply(final byte[] data) throws InterruptedException {
+            if (!frames.offer(data, timeoutMs, MILLISECONDS)) {
+                throw new MerkleSynchronizationException(
+                        "Timed out waiting for a channel to accept data");
+            }
+        }
+
+        /** Called by the demultiplexing thread once it has stopped reading frames. */
+        void endOfFrames() {
+            noMoreFrames = true;
+        }
+
+        /**
+         * Make the next frame the current one.
+         *
+         * @return false if there are no more frames
+         */
+        private boolean nextFrame() throws IOException {
+            final long deadline = System.currentTimeMillis() + timeoutMs;
+            while (true) {
+                if (closed) {
+                    throw new IOException("channel is closed");
+                }
+
+                final byte[] next;
+                try {
+                    next = frames.poll(POLL_INTERVAL_MS, MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while reading channel");
+                }
+
+                if (next != null) {
+                    frame = next;
+                    position = 0;
+                    return true;
+                }
+                if (noMoreFrames && frames.isEmpty()) {
+                    return false;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Timed out waiting for channel data");
+                }
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int read() throws IOException {
+            if (position == frame.length && !nextFrame()) {
+                return -1;
+            }
+            return frame[position++] & 0xFF;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == frame.length && !nextFrame()) {
+                return -1;
+            }
+            final int count = Math.min(length, frame.length - position);
+            System.arraycopy(frame, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /** The writing side of a channel. Data is buffered until a full frame is ready or a flush. */
+    private final class ChannelOutputStream extends OutputStream {
+
+        private final int channel;
+
+        private final byte[] buffer = new byte[MAX_FRAME_SIZE];
+
+        private int count;
+
+        ChannelOutputStream(final int channel) {
+            this.channel = channel;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(final int b) throws IOException {
+            if (count == buffer.length) {
+                writeFrame();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length)
+                throws IOException {
+            int position = offset;
+            int remaining = length;
+            while (remaining > 0) {
+                if (count == buffer.length) {
+                    writeFrame();
+                }
+                final int chunk = Math.min(remaining, buffer.length - count);
+                System.arraycopy(bytes, position, buffer, count, chunk);
+                count += chunk;
+                position += chunk;
+                remaining -= chunk;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void flush() throws IOException {
+            writeFrame();
+            synchronized (outputStream) {
+                outputStream.flush();
+            }
+        }
+
+        /** Write all buffered data as a single frame. */
+        private void writeFrame() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            synchronized (outputStream) {
+                outputStream.writeInt(channel);
+                outputStream.writeInt(count);
+                outputStream.write(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.views;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.MerkleNode;
+import java.io.IOException;
+
+/**
+ * A {@link LearnerTreeView} for a tree that the teacher can send in bulk, as a single serialized
+ * copy, instead of node by node. The teacher must use a {@link BulkTeacherTreeView} for the same
+ * tree.
+ *
+ * <p>If the tree is received in bulk then no learner thread uses this view, and it is responsible
+ * for releasing everything it would otherwise release in {@link #close()}.
+ *
+ * @param <T> the type of an object which signifies a merkle node
+ */
+public interface BulkLearnerTreeView<T> extends LearnerTreeView<T> {
+
+    /**
+     * Read the teacher's offer written by {@link BulkTeacherTreeView#sendBulk(
+     * SerializableDataInputStream, SerializableDataOutputStream)}, decide whether to accept it,
+     * and if so receive the tree. Called once, before the tree is partitioned or any lesson is
+     * received.
+     *
+     * @param in the stream to read the offer and the tree from
+     * @param out the stream to write the answer to
+     * @return the root of the received tree, or null if the tree must be received node by node
+     * @throws IOException if a problem is encountered with the streams
+     */
+    MerkleNode receiveBulk(SerializableDataInputStream in, SerializableDataOutputStream out)
+            throws IOException;
+}
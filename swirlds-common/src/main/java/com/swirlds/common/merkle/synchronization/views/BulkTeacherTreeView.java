@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.views;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@link TeacherTreeView} for a tree that can be sent to the learner in bulk, as a single
+ * serialized copy, instead of node by node. The learner decides whether the tree is sent in bulk,
+ * and must use a {@link BulkLearnerTreeView} for the same tree.
+ *
+ * @param <T> the type of an object which signifies a merkle node
+ */
+public interface BulkTeacherTreeView<T> extends TeacherTreeView<T> {
+
+    /**
+     * Offer to send the tree in bulk, and send it if the learner accepts. Called once, after
+     * {@link #waitUntilReady()} and before the tree is partitioned or any lesson is sent. Always
+     * exchanges data with the learner, even if the tree is then sent node by node.
+     *
+     * @param in the stream to read the learner's answer from
+     * @param out the stream to write the offer and the tree to
+     * @return true if the tree was sent in bulk and no lessons follow, false if the tree must be
+     *     sent node by node
+     * @throws IOException if a problem is encountered with the streams
+     */
+    boolean sendBulk(SerializableDataInputStream in, SerializableDataOutputStream out)
+            throws IOException;
+}
@@ -82,6 +82,20 @@ public interface LearnerTreeView<T>
      */
     T getChild(T parent, int childIndex);
 
+    /**
+     * Get a node received by an earlier, failed reconnect attempt that can be used as a child of a
+     * node in the new tree. Such a node is used in place of the child of the original tree if the
+     * original child does not have the hash the teacher has.
+     *
+     * @param parent the parent in the new tree
+     * @param childIndex the index of the child
+     * @param hash the hash of the child in the teacher's tree
+     * @return a node with the given hash, or null if there is no such node
+     */
+    default T getCheckpointedChild(final T parent, final int childIndex, final Hash hash) {
+        return null;
+    }
+
     /**
      * Get the hash of a node. If this view represents a tree that has null nodes within it, those
      * nodes should cause this method to return a {@link Cryptography#getNullHash() null hash}.
@@ -91,6 +105,20 @@ public interface LearnerTreeView<T>
      */
     Hash getNodeHash(T node);
 
+    /**
+     * Check if a node in the original tree may have a given hash. If this method returns false, the
+     * node is known to have a different hash, and its hash is not looked up with {@link
+     * #getNodeHash(Object)}. Views that can rule out a match more cheaply than by looking up the
+     * hash of the node may override this method.
+     *
+     * @param originalNode the node in the original tree, may be null
+     * @param hash the hash of the node in the teacher's tree
+     * @return false if the node definitely does not have the given hash, true if it may have it
+     */
+    default boolean mayHaveHash(final T originalNode, final Hash hash) {
+        return true;
+    }
+
     /**
      * Convert a merkle node that is the root of a subtree with a custom merkle view to the type
      * used by this view.
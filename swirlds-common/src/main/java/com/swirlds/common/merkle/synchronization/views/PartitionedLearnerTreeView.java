@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.views;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.threading.manager.ThreadManager;
+import com.swirlds.common.threading.pool.StandardWorkGroup;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link LearnerTreeView} for a tree that the teacher may split into disjoint subtrees, each of
+ * which is received over its own stream by its own thread. The teacher must use a {@link
+ * PartitionedTeacherTreeView} for the same tree.
+ *
+ * <p>When the tree is split, {@link #startThreads(ThreadManager, StandardWorkGroup)
+ * startThreads()} and {@link #close()} are called on this view once, by the synchronizer, while the
+ * views of the subtrees are used by the learner threads. This view is closed only after every
+ * thread in the work group has finished.
+ *
+ * @param <T> the type of an object which signifies a merkle node
+ */
+public interface PartitionedLearnerTreeView<T> extends LearnerTreeView<T> {
+
+    /**
+     * Read the partitioning written by {@link PartitionedTeacherTreeView#partition(int,
+     * com.swirlds.common.io.streams.SerializableDataOutputStream)} and split the tree the same way.
+     * Called once, before any lesson is received.
+     *
+     * @param in the stream to read the partitioning from
+     * @return views for each subtree in the order the teacher sends them, or an empty list if the
+     *     tree is received over a single stream using this view
+     * @throws IOException if a problem is encountered with the stream
+     */
+    List<LearnerTreeView<T>> partition(SerializableDataInputStream in) throws IOException;
+}
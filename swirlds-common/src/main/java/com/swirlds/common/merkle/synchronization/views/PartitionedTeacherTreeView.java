@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.merkle.synchronization.views;
+
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link TeacherTreeView} for a tree that can be split into disjoint subtrees, each of which is
+ * sent to the learner over its own stream by its own threads. The learner must use a {@link
+ * PartitionedLearnerTreeView} for the same tree.
+ *
+ * @param <T> the type of an object which signifies a merkle node
+ */
+public interface PartitionedTeacherTreeView<T> extends TeacherTreeView<T> {
+
+    /**
+     * Split the tree into disjoint subtrees, and write everything the learner's view needs to split
+     * its tree the same way. Called once, after {@link #waitUntilReady()} and before any lesson is
+     * sent. Always writes to the stream, even if the tree is not split.
+     *
+     * <p>Each returned view covers one subtree and is used by exactly one sending thread and one
+     * receiving thread. The views are not closed individually, this view is closed once all of
+     * them have finished. Subtrees may not contain the roots of trees with custom views.
+     *
+     * @param maxPartitions the maximum number of subtrees to split the tree into
+     * @param out the stream to write the partitioning to
+     * @return views for each subtree in the order the learner expects them, or an empty list if the
+     *     tree should be sent over a single stream using this view
+     * @throws IOException if a problem is encountered with the stream
+     */
+    List<TeacherTreeView<T>> partition(int maxPartitions, SerializableDataOutputStream out)
+            throws IOException;
+}
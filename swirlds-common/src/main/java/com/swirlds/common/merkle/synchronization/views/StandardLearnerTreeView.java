@@ -23,6 +23,7 @@ import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.merkle.MerkleInternal;
 import com.swirlds.common.merkle.MerkleNode;
+import com.swirlds.common.merkle.synchronization.ReconnectCheckpoint;
 import com.swirlds.common.merkle.synchronization.internal.ExpectedLesson;
 import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
 import java.io.IOException;
@@ -35,6 +36,9 @@ public class StandardLearnerTreeView implements LearnerTreeView<MerkleNode> {
 
     private final MerkleNode originalRoot;
 
+    /** Subtrees received by earlier reconnect attempts, may be null. */
+    private final ReconnectCheckpoint checkpoint;
+
     private final Queue<ExpectedLesson<MerkleNode>> expectedLessons;
     private final LinkedList<MerkleInternal> nodesToInitialize;
 
@@ -44,7 +48,18 @@ public class StandardLearnerTreeView implements LearnerTreeView<MerkleNode> {
      * @param root the root of the tree (or subtree)
      */
     public StandardLearnerTreeView(final MerkleNode root) {
+        this(root, null);
+    }
+
+    /**
+     * Create a new standard tree view out of an in-memory merkle tree (or subtree).
+     *
+     * @param root the root of the tree (or subtree)
+     * @param checkpoint subtrees received by earlier reconnect attempts that may be reused, or null
+     */
+    public StandardLearnerTreeView(final MerkleNode root, final ReconnectCheckpoint checkpoint) {
         this.originalRoot = root;
+        this.checkpoint = checkpoint;
         expectedLessons = new LinkedList<>();
         nodesToInitialize = new LinkedList<>();
     }
@@ -119,6 +134,16 @@ public class StandardLearnerTreeView implements LearnerTreeView<MerkleNode> {
         return parent.asInternal().getChild(childIndex);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public MerkleNode getCheckpointedChild(
+            final MerkleNode parent, final int childIndex, final Hash hash) {
+        if (checkpoint == null || parent == null) {
+            return null;
+        }
+        return checkpoint.getMatchingSubtree(parent.getRoute().extendRoute(childIndex), hash);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setChild(final MerkleNode parent, final int childIndex, final MerkleNode child) {
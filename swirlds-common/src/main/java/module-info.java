@@ -168,6 +168,7 @@ module com.swirlds.common {
     requires org.apache.commons.lang3;
     requires org.apache.commons.codec;
     requires info.picocli;
+    requires org.lz4.java;
 
     /* Jackson JSON */
     requires com.fasterxml.jackson.core;
@@ -17,6 +17,7 @@ plugins {
     id("com.swirlds.platform.conventions")
     id("com.swirlds.platform.library")
     id("com.swirlds.platform.maven-publish")
+    id("com.swirlds.platform.benchmark-conventions")
 }
 
 dependencies {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.merkledb.serialize.DataItemHeader;
+import com.swirlds.merkledb.serialize.DataItemSerializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares random read throughput of a {@link DataFileReader} reading through its file channel with
+ * one reading from a memory mapped buffer.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 5, time = 10)
+@BenchmarkMode(Mode.Throughput)
+public class DataFileReaderBench {
+    private static final int ITEM_COUNT = 2_000_000;
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    private Path tempDir;
+    private DataFileReader<long[]> reader;
+    private long[] dataLocations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("DataFileReaderBench");
+        final LongPairSerializer serializer = new LongPairSerializer();
+        final DataFileWriter<long[]> writer =
+                new DataFileWriter<>("bench", tempDir, 0, serializer, Instant.now(), false);
+        dataLocations = new long[ITEM_COUNT];
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            dataLocations[i] = writer.storeDataItem(new long[] {i, i * 31L});
+        }
+        final DataFileMetadata metadata = writer.finishWriting();
+        reader = new DataFileReader<>(writer.getPath(), serializer, metadata, memoryMapped);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        try (final Stream<Path> paths = Files.walk(tempDir)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] randomRead() throws IOException {
+        return reader.readDataItem(dataLocations[ThreadLocalRandom.current().nextInt(ITEM_COUNT)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long[] randomReadConcurrent() throws IOException {
+        return reader.readDataItem(dataLocations[ThreadLocalRandom.current().nextInt(ITEM_COUNT)]);
+    }
+
+    /** Simple fixed size serializer for a key and a value */
+    private static final class LongPairSerializer implements DataItemSerializer<long[]> {
+        @Override
+        public int getHeaderSize() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public DataItemHeader deserializeHeader(final ByteBuffer buffer) {
+            return new DataItemHeader(getSerializedSize(), buffer.getLong());
+        }
+
+        @Override
+        public long getCurrentDataVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return Long.BYTES * 2;
+        }
+
+        @Override
+        public int serialize(final long[] data, final SerializableDataOutputStream outputStream)
+                throws IOException {
+            outputStream.writeLong(data[0]);
+            outputStream.writeLong(data[1]);
+            return getSerializedSize();
+        }
+
+        @Override
+        public long[] deserialize(final ByteBuffer buffer, final long dataVersion) {
+            return new long[] {buffer.getLong(), buffer.getLong()};
+        }
+    }
+}
@@ -27,6 +27,7 @@ import com.swirlds.common.metrics.FunctionGauge;
 import com.swirlds.common.metrics.Metrics;
 import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.utility.Units;
+import com.swirlds.merkledb.cache.LeafRecordCache;
 import com.swirlds.merkledb.collections.HashList;
 import com.swirlds.merkledb.collections.HashListByteBuffer;
 import com.swirlds.merkledb.collections.LongList;
@@ -34,6 +35,7 @@ import com.swirlds.merkledb.collections.LongListDisk;
 import com.swirlds.merkledb.collections.LongListOffHeap;
 import com.swirlds.merkledb.files.DataFileCollection;
 import com.swirlds.merkledb.files.DataFileCommon;
+import com.swirlds.merkledb.files.DataFileIterator;
 import com.swirlds.merkledb.files.DataFileReader;
 import com.swirlds.merkledb.files.MemoryIndexDiskKeyValueStore;
 import com.swirlds.merkledb.files.VirtualInternalRecordSerializer;
@@ -57,12 +59,17 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.Objects;
@@ -78,6 +85,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
@@ -119,10 +127,13 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
     }
 
     /**
-     * The number of threads to use for merging thread pool. THIS IS ALWAYS 1. As merging is not
-     * designed for multiple merges happening concurrently.
+     * The number of threads to use for merging thread pool. THIS IS ALWAYS 1, unless stores are
+     * merged concurrently, then it is one per store, as each store is merged by its own task.
+     * Merging of a single store is not designed for multiple merges happening concurrently, so each
+     * store is only ever merged by one task.
      */
-    private static final int NUMBER_OF_MERGING_THREADS = 1;
+    private static final int NUMBER_OF_MERGING_THREADS =
+            settings.isConcurrentStoreMergingEnabled() ? 3 : 1;
 
     /** Virtual database instance that hosts this data source. */
     private final MerkleDb database;
@@ -180,26 +191,21 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
     /** Mixed disk and off-heap memory store for path to leaf key, hash and value */
     private final MemoryIndexDiskKeyValueStore<VirtualLeafRecord<K, V>> pathToHashKeyValue;
 
-    /**
-     * Cache size for reading virtual leaf records. Initialized in data source creation time from
-     * JasperDB settings. If the value is zero, leaf records cache isn't used.
-     */
-    private final int leafRecordCacheSize;
+    /** Serializer for the leaf records stored in {@link #pathToHashKeyValue} */
+    private final VirtualLeafRecordSerializer<K, V> leafRecordSerializer;
 
     /**
-     * Virtual leaf records cache. It's a simple array indexed by leaf keys % cache size. Cache
-     * eviction is not needed, as array size is fixed and can be configured in JasperDB settings.
-     * Index conflicts are resolved in a very straightforward way: whatever entry is read last, it's
-     * put to the cache.
+     * Virtual leaf records cache. Its size and admission and eviction policy are initialized in
+     * data source creation time from MerkleDb settings. If the size is zero, leaf records cache
+     * isn't used and this is null.
      */
-    @SuppressWarnings("rawtypes")
-    private final VirtualLeafRecord[] leafRecordCache;
+    private final LeafRecordCache<K, V> leafRecordCache;
 
     /** ScheduledThreadPool for executing merges */
     private final ScheduledThreadPoolExecutor mergingExecutor;
 
-    /** Future for scheduled merging thread */
-    private ScheduledFuture<?> mergingFuture = null;
+    /** Futures for scheduled merging tasks, empty if background compaction is not running */
+    private final List<ScheduledFuture<?>> mergingFutures = new ArrayList<>();
 
     /** Thread pool storing internal records */
     private final ExecutorService storeInternalExecutor;
@@ -224,7 +230,8 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
     private volatile KeyRange validLeafPathRange = INVALID_KEY_RANGE;
 
     /**
-     * A semaphore to sync data source snapshots and store compactions.
+     * Semaphores to sync data source snapshots and store compactions, one for each store, so stores
+     * can be merged concurrently. Snapshots acquire all of them, see {@link #pauseMerging()}.
      *
      * <p>One of the goals is to lock the snapshot thread as little as possible. Compaction can be
      * paused and resumed at any moment. That's why the semaphore is acquired for the whole run of
@@ -238,7 +245,9 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
      * can be updated to use the new file, some can point to old files, but since both old and new
      * files are in the snapshot, it shouldn't be a problem.
      */
-    private final Semaphore mergingPaused = new Semaphore(1);
+    private final Semaphore internalHashesMergingPaused = new Semaphore(1);
+    private final Semaphore keyToPathMergingPaused = new Semaphore(1);
+    private final Semaphore pathToHashKeyValueMergingPaused = new Semaphore(1);
 
     private MerkleDbStatistics statistics;
 
@@ -250,11 +259,16 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
 
     private final boolean compactionEnabled;
 
-    /** When was the last medium-sized merge, only touched from single merge thread. */
-    private Instant lastMediumMerge;
+    /**
+     * Merge schedules, with randomized initial merge times, so each node will do medium and full
+     * merges at random times. The first one is used when all stores are merged together, the others
+     * when stores are merged concurrently.
+     */
+    private final MergeSchedule mergeSchedule = new MergeSchedule();
 
-    /** When was the last full merge, only touched from single merge thread. */
-    private Instant lastFullMerge;
+    private final MergeSchedule internalHashesMergeSchedule = new MergeSchedule();
+    private final MergeSchedule keyToPathMergeSchedule = new MergeSchedule();
+    private final MergeSchedule pathToHashKeyValueMergeSchedule = new MergeSchedule();
 
     /** Paths to all database files and directories */
     private final MerkleDbPaths dbPaths;
@@ -371,8 +385,7 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         // data item serializers for internal/leaf file collections
         final VirtualInternalRecordSerializer internalRecordSerializer =
                 new VirtualInternalRecordSerializer();
-        final VirtualLeafRecordSerializer<K, V> leafRecordSerializer =
-                new VirtualLeafRecordSerializer<>(tableConfig);
+        leafRecordSerializer = new VirtualLeafRecordSerializer<>(tableConfig);
 
         // create path to disk location index
         final boolean forceIndexRebuilding = settings.isIndexRebuildingEnforced();
@@ -471,25 +484,15 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
                         pathToDiskLocationLeafNodes);
 
         // Leaf records cache
-        leafRecordCacheSize = settings.getLeafRecordCacheSize();
+        final int leafRecordCacheSize = settings.getLeafRecordCacheSize();
         leafRecordCache =
-                (leafRecordCacheSize > 0) ? new VirtualLeafRecord[leafRecordCacheSize] : null;
-
-        // compute initial merge periods to a randomized value of now +/- 50% of merge period. So
-        // each node will do
-        // medium and full merges at random times.
-        lastMediumMerge =
-                Instant.now()
-                        .minus(settings.getMediumMergePeriod() / 2, settings.getMergePeriodUnit())
-                        .plus(
-                                (long) (settings.getMediumMergePeriod() * Math.random()),
-                                settings.getMergePeriodUnit());
-        lastFullMerge =
-                Instant.now()
-                        .minus(settings.getFullMergePeriod() / 2, settings.getMergePeriodUnit())
-                        .plus(
-                                (long) (settings.getFullMergePeriod() * Math.random()),
-                                settings.getMergePeriodUnit());
+                (leafRecordCacheSize > 0)
+                        ? LeafRecordCache.create(
+                                settings.getLeafRecordCachePolicy(),
+                                leafRecordCacheSize,
+                                // statistics may be replaced later, see copyStatisticsFrom()
+                                () -> statistics.countLeafRecordCacheEviction())
+                        : null;
 
         // If merging is enabled start merging service
         if (this.compactionEnabled) {
@@ -516,25 +519,44 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
     @Override
     public void startBackgroundCompaction() {
         synchronized (mergingExecutor) {
-            if (mergingFuture == null || mergingFuture.isCancelled()) {
-                mergingFuture =
-                        mergingExecutor.scheduleAtFixedRate(
-                                this::doMerge,
-                                settings.getMergeActivatePeriod(),
-                                settings.getMergeActivatePeriod(),
-                                TimeUnit.SECONDS);
+            if (mergingFutures.isEmpty()) {
+                if (settings.isConcurrentStoreMergingEnabled()) {
+                    if (hasDiskStoreForInternalHashes) {
+                        scheduleMerge(this::doInternalHashesMerge);
+                    }
+                    if (!isLongKeyMode) {
+                        scheduleMerge(this::doKeyToPathMerge);
+                    }
+                    scheduleMerge(this::doPathToHashKeyValueMerge);
+                } else {
+                    scheduleMerge(this::doMerge);
+                }
             }
         }
     }
 
+    /**
+     * Schedule a merge task to run periodically on the merging executor.
+     *
+     * @param merge the merge task
+     */
+    private void scheduleMerge(final Runnable merge) {
+        mergingFutures.add(
+                mergingExecutor.scheduleAtFixedRate(
+                        merge,
+                        settings.getMergeActivatePeriod(),
+                        settings.getMergeActivatePeriod(),
+                        TimeUnit.SECONDS));
+    }
+
     /** Stop background compaction process, if it is running. */
     @Override
     public void stopBackgroundCompaction() {
         synchronized (mergingExecutor) {
-            if (mergingFuture != null) {
+            for (final ScheduledFuture<?> mergingFuture : mergingFutures) {
                 mergingFuture.cancel(true);
-                mergingFuture = null;
             }
+            mergingFutures.clear();
         }
     }
 
@@ -598,12 +620,17 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
      * #resumeMerging()}} is called.
      */
     void pauseMerging() {
-        mergingPaused.acquireUninterruptibly();
+        // always acquired in the same order
+        internalHashesMergingPaused.acquireUninterruptibly();
+        keyToPathMergingPaused.acquireUninterruptibly();
+        pathToHashKeyValueMergingPaused.acquireUninterruptibly();
     }
 
     /** Resumes previously stopped data file collection merging. */
     void resumeMerging() {
-        mergingPaused.release();
+        pathToHashKeyValueMergingPaused.release();
+        keyToPathMergingPaused.release();
+        internalHashesMergingPaused.release();
     }
 
     /**
@@ -696,18 +723,9 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         Objects.requireNonNull(key);
 
         final long path;
-        VirtualLeafRecord<K, V> cached = null;
-        int cacheIndex = -1;
-        if (leafRecordCache != null) {
-            cacheIndex = Math.abs(key.hashCode() % leafRecordCacheSize);
-            // No synchronization is needed here. Java guarantees (JLS 17.7) that reference writes
-            // are atomic, so we will never get corrupted objects from the array. The object may
-            // be overwritten in the cache in a different thread in parallel, but it isn't a
-            // problem as cached entry key is checked below anyway
-            cached = leafRecordCache[cacheIndex];
-        }
-        // If an entry is found in the cache, and entry key is the one requested
-        if ((cached != null) && key.equals(cached.getKey())) {
+        final VirtualLeafRecord<K, V> cached = getCachedLeafRecord(key);
+        // If an entry is found in the cache
+        if (cached != null) {
             // Some cache entries contain just key and path, but no value. If the value is there,
             // just return the cached entry. If not, at least make use of the path
             if (cached.getValue() != null) {
@@ -740,32 +758,87 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         // Go ahead and lookup the value.
         VirtualLeafRecord<K, V> leafRecord = pathToHashKeyValue.get(path);
 
-        // FUTURE WORK: once the reconnect key leak bug is fixed, this block should be removed
-        if (!leafRecord.getKey().equals(key)) {
-            if (settings.isReconnectKeyLeakMitigationEnabled()) {
-                logger.warn(
-                        MERKLE_DB.getMarker(),
-                        "leaked key {} encountered, mitigation is enabled",
-                        key);
-                return null;
-            } else {
-                logger.error(
-                        EXCEPTION.getMarker(),
-                        "leaked key {} encountered, mitigation is disabled, expect problems",
-                        key);
-            }
+        // FUTURE WORK: once the reconnect key leak bug is fixed, this check should be removed
+        if (isLeakedKeyToBeIgnored(key, leafRecord)) {
+            return null;
         }
 
         if (leafRecordCache != null) {
-            // No synchronization is needed here, see the comment above
             // A copy is returned to ensure cached value immutability.
-            leafRecordCache[cacheIndex] = leafRecord;
+            leafRecordCache.put(key, leafRecord);
             leafRecord = leafRecord.copy();
         }
 
         return leafRecord;
     }
 
+    /**
+     * Load leaf records for a batch of keys. Paths are looked up key by key, but leaf records are
+     * then read from disk in a single batch, grouped by data file and sorted by offset in file.
+     *
+     * @param keys the keys of the leaves to load records for
+     * @return list of loaded records, in the same order as keys, with nulls for keys not found
+     * @throws IOException If there was a problem reading records from db
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<VirtualLeafRecord<K, V>> loadLeafRecords(final Collection<K> keys)
+            throws IOException {
+        final List<VirtualLeafRecord<K, V>> leafRecords =
+                new ArrayList<>(Collections.nCopies(keys.size(), null));
+        // positions in the result list, keys and paths of the records to read from disk
+        final int[] positionsToRead = new int[keys.size()];
+        final List<K> keysToRead = new ArrayList<>(keys.size());
+        final long[] pathsToRead = new long[keys.size()];
+        int numToRead = 0;
+        int position = 0;
+        for (final K key : keys) {
+            Objects.requireNonNull(key);
+            final long path;
+            final VirtualLeafRecord<K, V> cached = getCachedLeafRecord(key);
+            if (cached != null) {
+                if (cached.getValue() != null) {
+                    // A copy is returned to ensure cached value immutability.
+                    leafRecords.set(position++, cached.copy());
+                    continue;
+                }
+                path = cached.getPath();
+            } else {
+                path =
+                        isLongKeyMode
+                                ? longKeyToPath.get(
+                                        ((VirtualLongKey) key).getKeyAsLong(), INVALID_PATH)
+                                : objectKeyToPath.get(key, INVALID_PATH);
+            }
+            if ((path != INVALID_PATH) && validLeafPathRange.withinRange(path)) {
+                positionsToRead[numToRead] = position;
+                keysToRead.add(key);
+                pathsToRead[numToRead] = path;
+                numToRead++;
+            }
+            position++;
+        }
+
+        final List<VirtualLeafRecord<K, V>> loaded =
+                pathToHashKeyValue.get(Arrays.copyOf(pathsToRead, numToRead));
+        for (int i = 0; i < numToRead; i++) {
+            statistics.cycleLeafByKeyReadsPerSecond();
+            final K key = keysToRead.get(i);
+            VirtualLeafRecord<K, V> leafRecord = loaded.get(i);
+            // FUTURE WORK: once the reconnect key leak bug is fixed, this check should be removed
+            if ((leafRecord == null) || isLeakedKeyToBeIgnored(key, leafRecord)) {
+                continue;
+            }
+            if (leafRecordCache != null) {
+                // A copy is returned to ensure cached value immutability.
+                leafRecordCache.put(key, leafRecord);
+                leafRecord = leafRecord.copy();
+            }
+            leafRecords.set(positionsToRead[i], leafRecord);
+        }
+        return leafRecords;
+    }
+
     /**
      * Load a leaf record by path
      *
@@ -784,6 +857,53 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         return pathToHashKeyValue.get(path);
     }
 
+    /**
+     * Load leaf records for a batch of paths. Records are read from disk grouped by data file and
+     * sorted by offset in file, rather than in the order of paths.
+     *
+     * @param paths the paths of the leaves to load records for
+     * @return list of loaded records, in the same order as paths
+     * @throws IOException If there was a problem reading records from db
+     */
+    @Override
+    public List<VirtualLeafRecord<K, V>> loadLeafRecordsByPath(final long[] paths)
+            throws IOException {
+        final KeyRange leafPathRange = this.validLeafPathRange;
+        for (final long path : paths) {
+            if (!leafPathRange.withinRange(path)) {
+                throw new IllegalArgumentException(
+                        "path (" + path + ") is not valid; must be in range " + leafPathRange);
+            }
+            statistics.cycleLeafByPathReadsPerSecond();
+        }
+        return pathToHashKeyValue.get(paths);
+    }
+
+    /**
+     * Check if a leaf record loaded for a key actually belongs to a different key, which is the
+     * case for keys leaked by reconnect. Leaked keys are logged.
+     *
+     * @param key the key the leaf record was loaded for
+     * @param leafRecord the loaded leaf record
+     * @return true if the key is leaked and the leaf record should not be returned, because leaked
+     *     key mitigation is enabled
+     */
+    private boolean isLeakedKeyToBeIgnored(final K key, final VirtualLeafRecord<K, V> leafRecord) {
+        if (leafRecord.getKey().equals(key)) {
+            return false;
+        }
+        if (settings.isReconnectKeyLeakMitigationEnabled()) {
+            logger.warn(
+                    MERKLE_DB.getMarker(), "leaked key {} encountered, mitigation is enabled", key);
+            return true;
+        }
+        logger.error(
+                EXCEPTION.getMarker(),
+                "leaked key {} encountered, mitigation is disabled, expect problems",
+                key);
+        return false;
+    }
+
     /**
      * Find the path of the given key
      *
@@ -797,15 +917,10 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         Objects.requireNonNull(key);
 
         // Check the cache first
-        int cacheIndex = -1;
-        if (leafRecordCache != null) {
-            cacheIndex = Math.abs(key.hashCode() % leafRecordCacheSize);
-            // No synchronization is needed here. See the comment in loadLeafRecord(key) above
-            final VirtualLeafRecord<K, V> cached = leafRecordCache[cacheIndex];
-            if (cached != null && key.equals(cached.getKey())) {
-                // Cached path may be a valid path or INVALID_PATH, both are legal here
-                return cached.getPath();
-            }
+        final VirtualLeafRecord<K, V> cached = getCachedLeafRecord(key);
+        if (cached != null) {
+            // Cached path may be a valid path or INVALID_PATH, both are legal here
+            return cached.getPath();
         }
 
         final long path =
@@ -815,7 +930,7 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
 
         if (leafRecordCache != null) {
             // Path may be INVALID_PATH here. Still needs to be cached (negative result)
-            leafRecordCache[cacheIndex] = new VirtualLeafRecord<K, V>(path, null, key, null);
+            leafRecordCache.put(key, new VirtualLeafRecord<>(path, null, key, null));
         }
 
         return path;
@@ -846,6 +961,29 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         return leafRecord == null ? null : leafRecord.getHash();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Reads the leaf data files one after the other, so the hashes of leaves that have been
+     * moved or deleted since their file was written are included as well.
+     */
+    @Override
+    public boolean forEachLeafHash(final Predicate<Hash> action) throws IOException {
+        for (final DataFileReader<VirtualLeafRecord<K, V>> file :
+                pathToHashKeyValue.getAllFullyWrittenFiles()) {
+            final long dataVersion = file.getMetadata().getSerializationVersion();
+            try (final DataFileIterator iterator = file.createIterator()) {
+                while (iterator.next()) {
+                    final ByteBuffer data = iterator.getDataItemData();
+                    if (!action.test(leafRecordSerializer.deserializeHash(data, dataVersion))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public VirtualInternalRecord loadInternalRecord(final long path, final boolean deserialize)
@@ -1207,9 +1345,11 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
 
     /**
      * Update all the file size and count statistics, called by save and merge as those are the only
-     * two places where files are added or removed.
+     * two places where files are added or removed. Synchronized as it is called by the flushing
+     * thread and, with concurrent store merging, by three merging threads, and each store's count
+     * and size statistics should be set from the same snapshot of its files.
      */
-    private void updateFileStats() {
+    private synchronized void updateFileStats() {
         if (internalHashStoreDisk != null) {
             final LongSummaryStatistics internalHashesFileSizeStats =
                     internalHashStoreDisk.getFilesSizeStatistics();
@@ -1421,33 +1561,45 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         }
     }
 
+    /**
+     * Get the record cached for the given key in virtual leaf record cache, and count the cache
+     * hit or miss, if the cache is enabled.
+     *
+     * @param key Virtual leaf record key
+     * @return the cached record, or null if the cache is disabled or no record is cached for the
+     *     key
+     */
+    private VirtualLeafRecord<K, V> getCachedLeafRecord(final K key) {
+        if (leafRecordCache == null) {
+            return null;
+        }
+        final VirtualLeafRecord<K, V> cached = leafRecordCache.get(key);
+        if (cached != null) {
+            statistics.countLeafRecordCacheHit();
+        } else {
+            statistics.countLeafRecordCacheMiss();
+        }
+        return cached;
+    }
+
     /**
      * Invalidates the given key in virtual leaf record cache, if the cache is enabled.
      *
      * <p>If the key is deleted, it's still updated in the cache. It means no record with the given
      * key exists in the data source, so further lookups for the key are skipped.
      *
-     * <p>Cache index is calculated as the key's hash code % cache size. The cache is only updated,
-     * if the current record at this index has the given key. If the key is different, no update is
-     * performed.
-     *
      * @param key Virtual leaf record key
      */
-    @SuppressWarnings("unchecked")
     private void invalidateReadCache(final K key) {
-        if (leafRecordCache == null) {
-            return;
-        }
-        final int cacheIndex = Math.abs(key.hashCode() % leafRecordCacheSize);
-        final VirtualLeafRecord<K, V> cached = leafRecordCache[cacheIndex];
-        if ((cached != null) && key.equals(cached.getKey())) {
-            leafRecordCache[cacheIndex] = null;
+        if (leafRecordCache != null) {
+            leafRecordCache.invalidate(key);
         }
     }
 
     /**
      * Start a Merge if needed, this is called by default every 30 seconds if a merge is not already
-     * running. This implements the logic for how often and with what files we merge.
+     * running. This implements the logic for how often and with what files we merge. All stores
+     * are merged one after another, with the same kind of merge.
      *
      * <p><b> IMPORTANT: This method is called on a thread that can be interrupted, so it needs to
      * gracefully stop when it is interrupted. </b>
@@ -1459,142 +1611,89 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
      * @return true if merging completed successfully, false if it was interrupted or an exception
      *     occurred.
      */
-    @SuppressWarnings({"rawtypes", "unchecked", "ConstantConditions"})
     boolean doMerge() {
-        try {
-            // calls to Instant.now() are expensive, so we only call it four times (or three if
-            // isLongKeyMode)
-            // rather than having separate "start" and "end" Instants for each of the two/three sub
-            // merges.
-            final Instant now = Instant.now(clock);
-            final Instant afterInternalHashStoreDiskMerge;
-            final Instant afterObjectKeyToPathMerge;
-            final Instant afterPathToHashKeyValueMerge;
-
-            UnaryOperator<List<DataFileReader>> filesToMergeFilter;
-            boolean isLargeMerge = false;
-            boolean isMediumMerge = false;
-            boolean isSmallMerge = false;
-            if (isTimeForFullMerge(now)) {
-                lastFullMerge = now;
-                /* Filter nothing during a full merge */
-                filesToMergeFilter = dataFileReaders -> dataFileReaders;
-                isLargeMerge = true;
-                logger.info(MERKLE_DB.getMarker(), "[{}] Starting Large Merge", tableName);
-            } else if (isTimeForMediumMerge(now)) {
-                lastMediumMerge = now;
-                filesToMergeFilter =
-                        DataFileCommon.newestFilesSmallerThan(
-                                settings.getMediumMergeCutoffMb(),
-                                settings.getMaxNumberOfFilesInMerge());
-                isMediumMerge = true;
-                logger.info(MERKLE_DB.getMarker(), "[{}] Starting Medium Merge", tableName);
-            } else {
-                filesToMergeFilter =
-                        DataFileCommon.newestFilesSmallerThan(
-                                settings.getSmallMergeCutoffMb(),
-                                settings.getMaxNumberOfFilesInMerge());
-                isSmallMerge = true;
-                logger.info(MERKLE_DB.getMarker(), "[{}] Starting Small Merge", tableName);
-            }
+        return runMerge(
+                () -> {
+                    final MergeType mergeType = nextMergeType(mergeSchedule, "");
+                    final UnaryOperator<List<DataFileReader>> filesToMergeFilter =
+                            createFilesToMergeFilter(mergeType);
+                    // we need to merge disk files for internal hashes if they exist and
+                    // pathToHashKeyValue store
+                    if (hasDiskStoreForInternalHashes) {
+                        mergeInternalHashesStore(filesToMergeFilter, mergeType);
+                    }
+                    // merge objectKeyToPath files
+                    if (!isLongKeyMode) {
+                        mergeKeyToPathStore(filesToMergeFilter, mergeType);
+                    }
+                    // now do main merge of pathToHashKeyValue store
+                    mergePathToHashKeyValueStore(filesToMergeFilter, mergeType);
+                });
+    }
 
-            // we need to merge disk files for internal hashes if they exist and pathToHashKeyValue
-            // store
-            if (hasDiskStoreForInternalHashes) {
-                // horrible hack to get around generics because file filters work on any type of
-                // DataFileReader
-                final UnaryOperator<List<DataFileReader<VirtualInternalRecord>>>
-                        internalRecordFileFilter =
-                                (UnaryOperator<List<DataFileReader<VirtualInternalRecord>>>)
-                                        ((Object) filesToMergeFilter);
-                internalHashStoreDisk.merge(
-                        internalRecordFileFilter,
-                        mergingPaused,
-                        settings.getMinNumberOfFilesInMerge());
-                afterInternalHashStoreDiskMerge = Instant.now(clock);
-            } else {
-                afterInternalHashStoreDiskMerge = now; // zero elapsed time
-            }
-            // merge objectKeyToPath files
-            if (isLongKeyMode) {
-                // third "now" is replaced by copying second "now"
-                afterObjectKeyToPathMerge = afterInternalHashStoreDiskMerge;
-            } else {
-                // horrible hack to get around generics because file filters work on any type of
-                // DataFileReader
-                final UnaryOperator<List<DataFileReader<Bucket<K>>>> bucketFileFilter =
-                        (UnaryOperator<List<DataFileReader<Bucket<K>>>>)
-                                ((Object) filesToMergeFilter);
-                objectKeyToPath.merge(
-                        bucketFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge());
-                // set third "now"
-                afterObjectKeyToPathMerge = Instant.now(clock);
-            }
-            // now do main merge of pathToHashKeyValue store
-            // horrible hack to get around generics because file filters work on any type of
-            // DataFileReader
-            final UnaryOperator<List<DataFileReader<VirtualLeafRecord<K, V>>>>
-                    leafRecordFileFilter =
-                            (UnaryOperator<List<DataFileReader<VirtualLeafRecord<K, V>>>>)
-                                    ((Object) filesToMergeFilter);
-            pathToHashKeyValue.merge(
-                    leafRecordFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge());
-            // set fourth "now"
-            afterPathToHashKeyValueMerge = Instant.now(clock);
-
-            // determine how long each of the sub-merges took.
-            final Duration firstMergeDuration =
-                    Duration.between(now, afterInternalHashStoreDiskMerge);
-            final Duration secondMergeDuration =
-                    Duration.between(afterInternalHashStoreDiskMerge, afterObjectKeyToPathMerge);
-            final Duration thirdMergeDuration =
-                    Duration.between(afterObjectKeyToPathMerge, afterPathToHashKeyValueMerge);
-
-            // update the 3 appropriate "Merge" statistics, based on
-            // isSmallMerge/isMediumMerge/isLargeMerge
-            if (isSmallMerge) {
-                if (hasDiskStoreForInternalHashes) {
-                    statistics.setInternalHashesStoreSmallMergeTime(
-                            firstMergeDuration.toSeconds()
-                                    + firstMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-                }
-                if (!isLongKeyMode) {
-                    statistics.setLeafKeyToPathStoreSmallMergeTime(
-                            secondMergeDuration.toSeconds()
-                                    + secondMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-                }
-                statistics.setLeafPathToHashKeyValueStoreSmallMergeTime(
-                        thirdMergeDuration.toSeconds()
-                                + thirdMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-            } else if (isMediumMerge) {
-                if (hasDiskStoreForInternalHashes) {
-                    statistics.setInternalHashesStoreMediumMergeTime(
-                            firstMergeDuration.toSeconds()
-                                    + firstMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-                }
-                if (!isLongKeyMode) {
-                    statistics.setLeafKeyToPathStoreMediumMergeTime(
-                            secondMergeDuration.toSeconds()
-                                    + secondMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-                }
-                statistics.setLeafPathToHashKeyValueStoreMediumMergeTime(
-                        thirdMergeDuration.toSeconds()
-                                + thirdMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-            } else if (isLargeMerge) {
-                if (hasDiskStoreForInternalHashes) {
-                    statistics.setInternalHashesStoreLargeMergeTime(
-                            firstMergeDuration.toSeconds()
-                                    + firstMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-                }
-                if (!isLongKeyMode) {
-                    statistics.setLeafKeyToPathStoreLargeMergeTime(
-                            secondMergeDuration.toSeconds()
-                                    + secondMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-                }
-                statistics.setLeafPathToHashKeyValueStoreLargeMergeTime(
-                        thirdMergeDuration.toSeconds()
-                                + thirdMergeDuration.getNano() * Units.NANOSECONDS_TO_SECONDS);
-            }
+    /**
+     * Start a merge of the internal hashes store if needed. This is used instead of {@link
+     * #doMerge()} when stores are merged concurrently, see {@link
+     * MerkleDbSettings#isConcurrentStoreMergingEnabled()}.
+     *
+     * @return true if merging completed successfully, false if it was interrupted or an exception
+     *     occurred.
+     */
+    boolean doInternalHashesMerge() {
+        return runMerge(
+                () -> {
+                    final MergeType mergeType =
+                            nextMergeType(internalHashesMergeSchedule, " of internal hashes");
+                    mergeInternalHashesStore(createFilesToMergeFilter(mergeType), mergeType);
+                });
+    }
+
+    /**
+     * Start a merge of the key to path store if needed. This is used instead of {@link #doMerge()}
+     * when stores are merged concurrently, see {@link
+     * MerkleDbSettings#isConcurrentStoreMergingEnabled()}.
+     *
+     * @return true if merging completed successfully, false if it was interrupted or an exception
+     *     occurred.
+     */
+    boolean doKeyToPathMerge() {
+        return runMerge(
+                () -> {
+                    final MergeType mergeType =
+                            nextMergeType(keyToPathMergeSchedule, " of key to path");
+                    mergeKeyToPathStore(createFilesToMergeFilter(mergeType), mergeType);
+                });
+    }
+
+    /**
+     * Start a merge of the path to hash, key and value store if needed. This is used instead of
+     * {@link #doMerge()} when stores are merged concurrently, see {@link
+     * MerkleDbSettings#isConcurrentStoreMergingEnabled()}.
+     *
+     * @return true if merging completed successfully, false if it was interrupted or an exception
+     *     occurred.
+     */
+    boolean doPathToHashKeyValueMerge() {
+        return runMerge(
+                () -> {
+                    final MergeType mergeType =
+                            nextMergeType(
+                                    pathToHashKeyValueMergeSchedule, " of path to hash key value");
+                    mergePathToHashKeyValueStore(createFilesToMergeFilter(mergeType), mergeType);
+                });
+    }
+
+    /**
+     * Run a merge, then update file statistics. Any exception is logged rather than thrown, as
+     * merges run on scheduled threads and a single exception would stop all future merges.
+     *
+     * @param merge the merge to run
+     * @return true if merging completed successfully, false if it was interrupted or an exception
+     *     occurred.
+     */
+    private boolean runMerge(final MergeAction merge) {
+        try {
+            merge.run();
             // update file stats (those statistics don't care about small vs medium vs large merge
             // size)
             updateFileStats();
@@ -1615,16 +1714,174 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
         }
     }
 
-    private boolean isTimeForFullMerge(final Instant startMerge) {
+    /**
+     * Work out what kind of merge is due for the given schedule, and record it as started.
+     *
+     * @param schedule the merge schedule of the stores to merge
+     * @param storeDescription description of the merged store for logging, empty for all stores
+     * @return the kind of merge to do
+     */
+    private MergeType nextMergeType(final MergeSchedule schedule, final String storeDescription) {
+        final Instant now = Instant.now(clock);
+        final MergeType mergeType;
+        if (isTimeForFullMerge(schedule, now)) {
+            schedule.lastFullMerge = now;
+            mergeType = MergeType.LARGE;
+        } else if (isTimeForMediumMerge(schedule, now)) {
+            schedule.lastMediumMerge = now;
+            mergeType = MergeType.MEDIUM;
+        } else {
+            mergeType = MergeType.SMALL;
+        }
+        final String garbageDriven =
+                ((mergeType != MergeType.SMALL) && settings.isGarbageDrivenMergeEnabled())
+                        ? "Garbage-Driven "
+                        : "";
+        logger.info(
+                MERKLE_DB.getMarker(),
+                "[{}] Starting {}{} Merge{}",
+                tableName,
+                garbageDriven,
+                mergeType.getLabel(),
+                storeDescription);
+        return mergeType;
+    }
+
+    /**
+     * Create the filter that chooses files to merge for the given kind of merge.
+     *
+     * @param mergeType the kind of merge
+     * @return filter to choose the files to merge
+     */
+    @SuppressWarnings("rawtypes")
+    private static UnaryOperator<List<DataFileReader>> createFilesToMergeFilter(
+            final MergeType mergeType) {
+        return switch (mergeType) {
+                /* Filter nothing during a full merge, unless there is too little garbage */
+            case LARGE -> settings.isGarbageDrivenMergeEnabled()
+                    ? DataFileCommon.allFilesWithEnoughGarbage(
+                            settings.getMinGarbageRatioForMerge())
+                    : dataFileReaders -> dataFileReaders;
+            case MEDIUM -> settings.isGarbageDrivenMergeEnabled()
+                    // merge the files with the most reclaimable space, rather than the newest ones
+                    ? DataFileCommon.filesWithMostGarbage(
+                            settings.getMinGarbageRatioForMerge(),
+                            settings.getMaxNumberOfFilesInMerge())
+                    : DataFileCommon.newestFilesSmallerThan(
+                            settings.getMediumMergeCutoffMb(),
+                            settings.getMaxNumberOfFilesInMerge());
+            case SMALL -> DataFileCommon.newestFilesSmallerThan(
+                    settings.getSmallMergeCutoffMb(), settings.getMaxNumberOfFilesInMerge());
+        };
+    }
+
+    /**
+     * Merge files of the internal hashes store and update its merge time statistic.
+     *
+     * @param filesToMergeFilter filter to choose the files to merge
+     * @param mergeType the kind of merge, for statistics
+     */
+    @SuppressWarnings("rawtypes")
+    private void mergeInternalHashesStore(
+            final UnaryOperator<List<DataFileReader>> filesToMergeFilter,
+            final MergeType mergeType)
+            throws IOException, InterruptedException {
+        final Instant start = Instant.now(clock);
+        internalHashStoreDisk.merge(
+                castFilesToMergeFilter(filesToMergeFilter),
+                internalHashesMergingPaused,
+                settings.getMinNumberOfFilesInMerge());
+        final double mergeTime = secondsSince(start);
+        switch (mergeType) {
+            case SMALL -> statistics.setInternalHashesStoreSmallMergeTime(mergeTime);
+            case MEDIUM -> statistics.setInternalHashesStoreMediumMergeTime(mergeTime);
+            case LARGE -> statistics.setInternalHashesStoreLargeMergeTime(mergeTime);
+        }
+    }
+
+    /**
+     * Merge files of the key to path store and update its merge time statistic.
+     *
+     * @param filesToMergeFilter filter to choose the files to merge
+     * @param mergeType the kind of merge, for statistics
+     */
+    @SuppressWarnings("rawtypes")
+    private void mergeKeyToPathStore(
+            final UnaryOperator<List<DataFileReader>> filesToMergeFilter,
+            final MergeType mergeType)
+            throws IOException, InterruptedException {
+        final Instant start = Instant.now(clock);
+        objectKeyToPath.merge(
+                castFilesToMergeFilter(filesToMergeFilter),
+                keyToPathMergingPaused,
+                settings.getMinNumberOfFilesInMerge());
+        final double mergeTime = secondsSince(start);
+        switch (mergeType) {
+            case SMALL -> statistics.setLeafKeyToPathStoreSmallMergeTime(mergeTime);
+            case MEDIUM -> statistics.setLeafKeyToPathStoreMediumMergeTime(mergeTime);
+            case LARGE -> statistics.setLeafKeyToPathStoreLargeMergeTime(mergeTime);
+        }
+    }
+
+    /**
+     * Merge files of the path to hash, key and value store and update its merge time statistic.
+     *
+     * @param filesToMergeFilter filter to choose the files to merge
+     * @param mergeType the kind of merge, for statistics
+     */
+    @SuppressWarnings("rawtypes")
+    private void mergePathToHashKeyValueStore(
+            final UnaryOperator<List<DataFileReader>> filesToMergeFilter,
+            final MergeType mergeType)
+            throws IOException, InterruptedException {
+        final Instant start = Instant.now(clock);
+        pathToHashKeyValue.merge(
+                castFilesToMergeFilter(filesToMergeFilter),
+                pathToHashKeyValueMergingPaused,
+                settings.getMinNumberOfFilesInMerge());
+        final double mergeTime = secondsSince(start);
+        switch (mergeType) {
+            case SMALL -> statistics.setLeafPathToHashKeyValueStoreSmallMergeTime(mergeTime);
+            case MEDIUM -> statistics.setLeafPathToHashKeyValueStoreMediumMergeTime(mergeTime);
+            case LARGE -> statistics.setLeafPathToHashKeyValueStoreLargeMergeTime(mergeTime);
+        }
+    }
+
+    /**
+     * Horrible hack to get around generics because file filters work on any type of
+     * DataFileReader.
+     *
+     * @param filesToMergeFilter filter for any type of DataFileReader
+     * @return the same filter, typed for readers of the given data type
+     * @param <D> data item type
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <D> UnaryOperator<List<DataFileReader<D>>> castFilesToMergeFilter(
+            final UnaryOperator<List<DataFileReader>> filesToMergeFilter) {
+        return (UnaryOperator<List<DataFileReader<D>>>) ((Object) filesToMergeFilter);
+    }
+
+    /**
+     * Get the time elapsed since the given instant, in seconds.
+     *
+     * @param start the start instant
+     * @return seconds since start, with nanosecond precision
+     */
+    private double secondsSince(final Instant start) {
+        final Duration duration = Duration.between(start, Instant.now(clock));
+        return duration.toSeconds() + duration.getNano() * Units.NANOSECONDS_TO_SECONDS;
+    }
+
+    private boolean isTimeForFullMerge(final MergeSchedule schedule, final Instant startMerge) {
         return startMerge
                 .minus(settings.getFullMergePeriod(), settings.getMergePeriodUnit())
-                .isAfter(lastFullMerge);
+                .isAfter(schedule.lastFullMerge);
     }
 
-    private boolean isTimeForMediumMerge(final Instant startMerge) {
+    private boolean isTimeForMediumMerge(final MergeSchedule schedule, final Instant startMerge) {
         return startMerge
                 .minus(settings.getMediumMergePeriod(), settings.getMergePeriodUnit())
-                .isAfter(lastMediumMerge);
+                .isAfter(schedule.lastMediumMerge);
     }
 
     /**
@@ -1635,4 +1892,60 @@ public final class MerkleDbDataSource<K extends VirtualKey<? super K>, V extends
     boolean isLongKeyMode() {
         return isLongKeyMode;
     }
+
+    /** The kinds of merges, which differ in what files they merge */
+    private enum MergeType {
+        SMALL("Small"),
+        MEDIUM("Medium"),
+        LARGE("Large");
+
+        private final String label;
+
+        MergeType(final String label) {
+            this.label = label;
+        }
+
+        /** Get the label used for this kind of merge in logs */
+        String getLabel() {
+            return label;
+        }
+    }
+
+    /** A merge of one or more stores, that may be interrupted */
+    @FunctionalInterface
+    private interface MergeAction {
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * When medium and full merges were last started, for a single store or for all stores merged
+     * together. Only touched from the merge thread of the stores.
+     */
+    private static final class MergeSchedule {
+        /** When was the last medium-sized merge */
+        private Instant lastMediumMerge;
+        /** When was the last full merge */
+        private Instant lastFullMerge;
+
+        /**
+         * Create a schedule with randomized last merge times of now +/- 50% of merge period. So
+         * each node will do medium and full merges at random times.
+         */
+        MergeSchedule() {
+            lastMediumMerge =
+                    Instant.now()
+                            .minus(
+                                    settings.getMediumMergePeriod() / 2,
+                                    settings.getMergePeriodUnit())
+                            .plus(
+                                    (long) (settings.getMediumMergePeriod() * Math.random()),
+                                    settings.getMergePeriodUnit());
+            lastFullMerge =
+                    Instant.now()
+                            .minus(settings.getFullMergePeriod() / 2, settings.getMergePeriodUnit())
+                            .plus(
+                                    (long) (settings.getFullMergePeriod() * Math.random()),
+                                    settings.getMergePeriodUnit());
+        }
+    }
 }
@@ -158,6 +158,25 @@ public class MerkleDbDataSourceBuilder<K extends VirtualKey<? super K>, V extend
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSnapshotTransferSupported() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VirtualDataSource<K, V> openSnapshot(final String label, final Path source) {
+        try {
+            // Like in copy(), the snapshot folder becomes the storage dir of a new database
+            // instance, which contains the snapshot data source only
+            final MerkleDb database = MerkleDb.getInstance(source);
+            return database.getDataSource(label, false);
+        } catch (final IOException z) {
+            throw new UncheckedIOException(z);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public long getClassId() {
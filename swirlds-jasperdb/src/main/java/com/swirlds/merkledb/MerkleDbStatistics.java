@@ -17,6 +17,7 @@ package com.swirlds.merkledb;
 
 import static com.swirlds.common.metrics.FloatFormats.FORMAT_9_6;
 
+import com.swirlds.common.metrics.Counter;
 import com.swirlds.common.metrics.DoubleGauge;
 import com.swirlds.common.metrics.IntegerGauge;
 import com.swirlds.common.metrics.Metrics;
@@ -54,6 +55,10 @@ public class MerkleDbStatistics {
     private SpeedometerMetric leafByKeyReadsPerSecond;
     private SpeedometerMetric leafByPathReadsPerSecond;
 
+    private Counter leafRecordCacheHits;
+    private Counter leafRecordCacheMisses;
+    private Counter leafRecordCacheEvictions;
+
     private IntegerGauge internalHashesStoreFileCount;
     private DoubleGauge internalHashesStoreTotalFileSizeInMB;
 
@@ -98,6 +103,12 @@ public class MerkleDbStatistics {
                         .withHalfLife(SPEEDOMETER_HALF_LIFE_IN_SECONDS));
     }
 
+    private static Counter buildCounter(
+            final Metrics metrics, final String name, final String description) {
+        return metrics.getOrCreate(
+                new Counter.Config(STAT_CATEGORY, name).withDescription(description));
+    }
+
     private static DoubleGauge buildDoubleGauge(
             final Metrics metrics, final String name, final String description) {
         return metrics.getOrCreate(
@@ -139,6 +150,21 @@ public class MerkleDbStatistics {
                         metrics,
                         "leafByPathReads/s_" + label,
                         "number of leaf by path reads per second for " + label);
+        leafRecordCacheHits =
+                buildCounter(
+                        metrics,
+                        "leafRecordCacheHits_" + label,
+                        "number of leaf record cache hits for " + label);
+        leafRecordCacheMisses =
+                buildCounter(
+                        metrics,
+                        "leafRecordCacheMisses_" + label,
+                        "number of leaf record cache misses for " + label);
+        leafRecordCacheEvictions =
+                buildCounter(
+                        metrics,
+                        "leafRecordCacheEvictions_" + label,
+                        "number of leaf records evicted from cache for " + label);
         internalHashesStoreFileCount =
                 metrics.getOrCreate(
                         new IntegerGauge.Config(STAT_CATEGORY, "internalHashFileCount_" + label)
@@ -277,6 +303,27 @@ public class MerkleDbStatistics {
         }
     }
 
+    /** Increment the LeafRecordCacheHits stat */
+    public void countLeafRecordCacheHit() {
+        if (leafRecordCacheHits != null) {
+            leafRecordCacheHits.increment();
+        }
+    }
+
+    /** Increment the LeafRecordCacheMisses stat */
+    public void countLeafRecordCacheMiss() {
+        if (leafRecordCacheMisses != null) {
+            leafRecordCacheMisses.increment();
+        }
+    }
+
+    /** Increment the LeafRecordCacheEvictions stat */
+    public void countLeafRecordCacheEviction() {
+        if (leafRecordCacheEvictions != null) {
+            leafRecordCacheEvictions.increment();
+        }
+    }
+
     /**
      * Set the current value for the InternalHashesStoreFileCount stat
      *
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.cache;
+
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+
+/**
+ * Leaf records cache that is a simple array indexed by leaf keys % cache size. Index conflicts are
+ * resolved in a very straightforward way: whatever entry is put last, it's put to the cache.
+ *
+ * <p>No synchronization is needed. Java guarantees (JLS 17.7) that reference writes are atomic, so
+ * we will never get corrupted objects from the array. The object may be overwritten in the cache
+ * in a different thread in parallel, but it isn't a problem as cached entry key is checked on every
+ * access anyway.
+ *
+ * @param <K> type for keys
+ * @param <V> type for values
+ */
+public final class DirectMappedLeafRecordCache<
+                K extends VirtualKey<? super K>, V extends VirtualValue>
+        implements LeafRecordCache<K, V> {
+
+    /** Cached records, indexed by key hash code % cache size */
+    private final VirtualLeafRecord<K, V>[] cache;
+
+    /** Called when a cached record is overwritten by a record for a different key */
+    private final Runnable evictionListener;
+
+    /**
+     * Create a new direct mapped leaf records cache.
+     *
+     * @param capacity the size of the cache array
+     * @param evictionListener called every time a cached record is evicted
+     */
+    @SuppressWarnings("unchecked")
+    public DirectMappedLeafRecordCache(final int capacity, final Runnable evictionListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.cache = new VirtualLeafRecord[capacity];
+        this.evictionListener = evictionListener;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VirtualLeafRecord<K, V> get(final K key) {
+        final VirtualLeafRecord<K, V> cached = cache[indexFor(key)];
+        return ((cached != null) && key.equals(cached.getKey())) ? cached : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put(final K key, final VirtualLeafRecord<K, V> leafRecord) {
+        final int index = indexFor(key);
+        final VirtualLeafRecord<K, V> previous = cache[index];
+        cache[index] = leafRecord;
+        if ((previous != null) && !key.equals(previous.getKey())) {
+            evictionListener.run();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidate(final K key) {
+        final int index = indexFor(key);
+        final VirtualLeafRecord<K, V> cached = cache[index];
+        if ((cached != null) && key.equals(cached.getKey())) {
+            cache[index] = null;
+        }
+    }
+
+    private int indexFor(final K key) {
+        return Math.abs(key.hashCode() % cache.length);
+    }
+}
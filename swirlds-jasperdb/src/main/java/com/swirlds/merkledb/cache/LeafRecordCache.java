@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.cache;
+
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+
+/**
+ * A size bounded cache of virtual leaf records by key, used by MerkleDb data sources to skip disk
+ * reads for frequently read leaves. Cached records may contain just a key and a path, but no value,
+ * when only the path for a key was looked up. The path may then be INVALID_PATH, which caches the
+ * fact that no leaf exists for the key.
+ *
+ * <p>Implementations must be thread safe. Cached records must not be modified by callers, they
+ * should return copies instead.
+ *
+ * @param <K> type for keys
+ * @param <V> type for values
+ */
+public interface LeafRecordCache<K extends VirtualKey<? super K>, V extends VirtualValue> {
+
+    /**
+     * Create a new leaf record cache.
+     *
+     * @param policy the cache admission and eviction policy
+     * @param capacity the maximum number of records to cache, must be positive
+     * @param evictionListener called every time a cached record is evicted to make room for
+     *     another one
+     * @return new empty cache
+     * @param <K> type for keys
+     * @param <V> type for values
+     */
+    static <K extends VirtualKey<? super K>, V extends VirtualValue> LeafRecordCache<K, V> create(
+            final LeafRecordCachePolicy policy,
+            final int capacity,
+            final Runnable evictionListener) {
+        return switch (policy) {
+            case DIRECT_MAPPED -> new DirectMappedLeafRecordCache<>(capacity, evictionListener);
+            case TINY_LFU -> new TinyLfuLeafRecordCache<>(capacity, evictionListener);
+        };
+    }
+
+    /**
+     * Get the cached record for a key.
+     *
+     * @param key the key to get record for
+     * @return the cached record, or null if there is no record cached for the key
+     */
+    VirtualLeafRecord<K, V> get(K key);
+
+    /**
+     * Cache a record for a key, replacing any record already cached for the key. Depending on the
+     * policy, the record may not be cached at all, or may evict another record.
+     *
+     * @param key the key to cache record for
+     * @param leafRecord the record to cache
+     */
+    void put(K key, VirtualLeafRecord<K, V> leafRecord);
+
+    /**
+     * Remove the cached record for a key, if any.
+     *
+     * @param key the key to remove record for
+     */
+    void invalidate(K key);
+}
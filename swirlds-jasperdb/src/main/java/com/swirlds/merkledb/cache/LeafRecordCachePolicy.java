@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.cache;
+
+/** Admission and eviction policies for {@link LeafRecordCache} */
+public enum LeafRecordCachePolicy {
+    /**
+     * A plain array indexed by key hash code modulo cache size. Whatever record is put last wins
+     * its slot, so two frequently read keys in the same slot keep evicting each other.
+     */
+    DIRECT_MAPPED,
+    /**
+     * Least recently used records are evicted, but only if a new record is estimated to be read
+     * more frequently than the record it would evict. See {@link TinyLfuLeafRecordCache}.
+     */
+    TINY_LFU
+}
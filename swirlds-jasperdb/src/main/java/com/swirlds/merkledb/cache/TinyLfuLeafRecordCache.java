@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.cache;
+
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Leaf records cache with a least recently used eviction policy and a TinyLFU admission policy.
+ * Access frequencies of all keys, cached or not, are estimated with a count-min sketch of 4-bit
+ * counters that are periodically halved, so old accesses age out. When the cache is full, a new
+ * record is only cached if its key is estimated to be accessed more frequently than the key of the
+ * least recently used record, which is then evicted. A burst of keys that are read just once can
+ * then not flush frequently read keys out of the cache.
+ *
+ * <p>To be used concurrently, the cache is split into segments by key hash code. Each segment has
+ * its own lock, records and frequency sketch. Reads never wait for the lock: records are looked up
+ * in a concurrent map, and the access is only recorded in the frequency sketch and the recency
+ * order if the lock is free. Under contention some accesses are not counted, which only makes
+ * frequency and recency estimates slightly less precise.
+ *
+ * @param <K> type for keys
+ * @param <V> type for values
+ */
+public final class TinyLfuLeafRecordCache<K extends VirtualKey<? super K>, V extends VirtualValue>
+        implements LeafRecordCache<K, V> {
+
+    /** The maximum number of segments, must be a power of two */
+    private static final int MAX_NUM_OF_SEGMENTS = 64;
+
+    /** The minimum capacity of a segment, fewer segments are used for small caches */
+    private static final int MIN_SEGMENT_CAPACITY = 1024;
+
+    /** Cache segments, indexed by key hash code */
+    private final Segment<K, V>[] segments;
+
+    /** Mask to get segment index from a spread key hash code */
+    private final int segmentMask;
+
+    /**
+     * Create a new TinyLFU leaf records cache.
+     *
+     * @param capacity the maximum number of records to cache
+     * @param evictionListener called every time a cached record is evicted
+     */
+    @SuppressWarnings("unchecked")
+    public TinyLfuLeafRecordCache(final int capacity, final Runnable evictionListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        final int numOfSegments =
+                Math.min(
+                        MAX_NUM_OF_SEGMENTS,
+                        Integer.highestOneBit(Math.max(1, capacity / MIN_SEGMENT_CAPACITY)));
+        segments = new Segment[numOfSegments];
+        // spread the capacity over all segments, the first segments get the remainder
+        for (int i = 0; i < numOfSegments; i++) {
+            final int segmentCapacity =
+                    (capacity / numOfSegments) + ((i < capacity % numOfSegments) ? 1 : 0);
+            segments[i] = new Segment<>(segmentCapacity, evictionListener);
+        }
+        segmentMask = numOfSegments - 1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VirtualLeafRecord<K, V> get(final K key) {
+        final int hash = spread(key.hashCode());
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put(final K key, final VirtualLeafRecord<K, V> leafRecord) {
+        final int hash = spread(key.hashCode());
+        segmentFor(hash).put(key, hash, leafRecord);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidate(final K key) {
+        segmentFor(spread(key.hashCode())).invalidate(key);
+    }
+
+    private Segment<K, V> segmentFor(final int hash) {
+        // upper bits select the segment, so they don't correlate with hash map buckets
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    /**
+     * Spread bits of a key hash code, as hash codes of keys are often poorly distributed.
+     *
+     * @param hashCode key hash code
+     * @return hash code with bits spread
+     */
+    private static int spread(final int hashCode) {
+        final int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A part of the cache. Writes are guarded by its own lock, reads are not.
+     *
+     * @param <K> type for keys
+     * @param <V> type for values
+     */
+    private static final class Segment<K extends VirtualKey<? super K>, V extends VirtualValue> {
+        /** Cached records, read without the lock and only modified under the lock */
+        private final ConcurrentHashMap<K, VirtualLeafRecord<K, V>> records;
+        /** Cached keys in access order, the least recently used key first, guarded by the lock */
+        private final LinkedHashMap<K, Boolean> accessOrder;
+        /** Estimated access frequencies of keys in this segment, guarded by the lock */
+        private final FrequencySketch sketch;
+        /** The maximum number of records in this segment */
+        private final int capacity;
+        /** Called when a record is evicted */
+        private final Runnable evictionListener;
+        /** Guards all modifications of this segment */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Segment(final int capacity, final Runnable evictionListener) {
+            final int initialCapacity = capacity * 4 / 3 + 1;
+            this.records = new ConcurrentHashMap<>(initialCapacity);
+            this.accessOrder = new LinkedHashMap<>(initialCapacity, 0.75f, true);
+            this.sketch = new FrequencySketch(capacity);
+            this.capacity = capacity;
+            this.evictionListener = evictionListener;
+        }
+
+        VirtualLeafRecord<K, V> get(final K key, final int hash) {
+            final VirtualLeafRecord<K, V> leafRecord = records.get(key);
+            // record the access only if nobody else holds the lock, readers never wait
+            if (lock.tryLock()) {
+                try {
+                    sketch.increment(hash);
+                    if (leafRecord != null) {
+                        // moves the key to the most recently used end
+                        accessOrder.get(key);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return leafRecord;
+        }
+
+        void put(final K key, final int hash, final VirtualLeafRecord<K, V> leafRecord) {
+            boolean evicted = false;
+            lock.lock();
+            try {
+                if (records.containsKey(key) || (records.size() < capacity)) {
+                    accessOrder.put(key, Boolean.TRUE);
+                    records.put(key, leafRecord);
+                    return;
+                }
+                final Iterator<K> iterator = accessOrder.keySet().iterator();
+                final K victim = iterator.next();
+                final int victimHash = spread(victim.hashCode());
+                if (sketch.frequency(hash) > sketch.frequency(victimHash)) {
+                    iterator.remove();
+                    records.remove(victim);
+                    accessOrder.put(key, Boolean.TRUE);
+                    records.put(key, leafRecord);
+                    evicted = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // the listener is called outside the lock, it may update metrics
+            if (evicted) {
+                evictionListener.run();
+            }
+        }
+
+        void invalidate(final K key) {
+            lock.lock();
+            try {
+                accessOrder.remove(key);
+                records.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters to estimate access frequencies of key hash codes. Each
+     * hash code is counted in 4 counters, selected by 4 different hash functions, and its frequency
+     * is the smallest of them. After a number of increments proportional to the cache capacity all
+     * counters are halved. Not thread safe, guarded by the segment lock.
+     */
+    private static final class FrequencySketch {
+        /** Seeds for the hash functions, one per counter for a hash code */
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        /** Mask to clear the upper bit of every 4-bit counter, after they are shifted right */
+        private static final long RESET_MASK = 0x7777777777777777L;
+        /** The maximum value of a 4-bit counter */
+        private static final int MAX_COUNT = 15;
+        /** Number of increments before counters are halved, per cached record */
+        private static final int SAMPLE_SIZE_PER_RECORD = 10;
+
+        /** Counters, 16 in each long */
+        private final long[] table;
+        /** Mask to get table index from a hash */
+        private final int tableMask;
+        /** Number of increments before all counters are halved */
+        private final int sampleSize;
+        /** Number of increments since counters were last halved */
+        private int increments;
+
+        FrequencySketch(final int capacity) {
+            final int tableSize = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+            table = new long[tableSize];
+            tableMask = tableSize - 1;
+            sampleSize = SAMPLE_SIZE_PER_RECORD * capacity;
+        }
+
+        int frequency(final int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final long h = indexHash(hash, i);
+                final int shift = ((int) h & 0xF) << 2;
+                frequency = Math.min(frequency, (int) ((table[tableIndex(h)] >>> shift) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(final int hash) {
+            boolean incremented = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final long h = indexHash(hash, i);
+                final int index = tableIndex(h);
+                final int shift = ((int) h & 0xF) << 2;
+                if (((table[index] >>> shift) & 0xF) < MAX_COUNT) {
+                    table[index] += 1L << shift;
+                    incremented = true;
+                }
+            }
+            if (incremented && (++increments >= sampleSize)) {
+                reset();
+            }
+        }
+
+        /** Halve all counters, so the sketch keeps track of recent frequencies */
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            increments /= 2;
+        }
+
+        private static long indexHash(final int hash, final int i) {
+            final long h = (hash + SEEDS[i]) * SEEDS[i];
+            return h ^ (h >>> 32);
+        }
+
+        private int tableIndex(final long indexHash) {
+            // the lowest 4 bits select the counter in a long, the next bits select the long
+            return (int) (indexHash >>> 4) & tableMask;
+        }
+    }
+}
@@ -16,10 +16,12 @@
 package com.swirlds.merkledb.files;
 
 import static com.swirlds.common.utility.Units.GIBIBYTES_TO_BYTES;
+import static com.swirlds.common.utility.Units.KIBIBYTES_TO_BYTES;
 import static com.swirlds.common.utility.Units.MEBIBYTES_TO_BYTES;
 import static com.swirlds.logging.LogMarker.EXCEPTION;
 import static com.swirlds.logging.LogMarker.MERKLE_DB;
 import static com.swirlds.merkledb.KeyRange.INVALID_KEY_RANGE;
+import static com.swirlds.merkledb.files.DataFileCommon.NON_EXISTENT_DATA_LOCATION;
 import static com.swirlds.merkledb.files.DataFileCommon.byteOffsetFromDataLocation;
 import static com.swirlds.merkledb.files.DataFileCommon.fileIndexFromDataLocation;
 import static com.swirlds.merkledb.files.DataFileCommon.isFullyWrittenDataFile;
@@ -117,6 +119,17 @@ public class DataFileCollection<D> implements Snapshotable {
                             Integer.MAX_VALUE);
     /** The number of times to retry index based reads */
     private static final int NUM_OF_READ_RETRIES = 5;
+    /**
+     * Budget for bytes written by merges, shared by all collections, so concurrent merges together
+     * can't starve flushes of disk bandwidth. Null if merge writes are unlimited.
+     */
+    private static final MergeWriteBudget MERGE_WRITE_BUDGET =
+            (settings.getMaxMergeWriteMbPerSecond() > 0)
+                    ? new MergeWriteBudget(
+                            settings.getMaxMergeWriteMbPerSecond() * (double) MEBIBYTES_TO_BYTES)
+                    : null;
+    /** Merge writes are accounted against the merge write budget in chunks of this many bytes */
+    private static final int MERGE_WRITE_THROTTLE_CHUNK_BYTES = 64 * KIBIBYTES_TO_BYTES;
 
     /** The directory to store data files */
     private final Path storeDir;
@@ -423,6 +436,7 @@ public class DataFileCollection<D> implements Snapshotable {
         }
         // while we still have data left to read
         long lastLowestKey = -1;
+        long bytesNotYetThrottled = 0;
         long[] thisRoundsKeys = new long[blockIterators.size()];
         long[] lastRoundsKeys = new long[blockIterators.size()];
         while (!blockIterators.isEmpty()) {
@@ -491,12 +505,18 @@ public class DataFileCollection<D> implements Snapshotable {
                         : "Fail, we should always be writing data with keys in ascending order.";
 
                 if (seen) {
+                    final ByteBuffer dataItemData = newestIteratorWithLowestKey.getDataItemData();
+                    bytesNotYetThrottled += dataItemData.remaining();
                     final long newDataLocation =
                             newFileWriter.writeCopiedDataItem(
                                     newestIteratorWithLowestKey
                                             .getMetadata()
                                             .getSerializationVersion(),
-                                    newestIteratorWithLowestKey.getDataItemData());
+                                    dataItemData);
+                    if (bytesNotYetThrottled >= MERGE_WRITE_THROTTLE_CHUNK_BYTES) {
+                        waitForMergeWriteBudget(bytesNotYetThrottled);
+                        bytesNotYetThrottled = 0;
+                    }
                     // check if newFile is full
                     if (movesMap.size() > MAX_DATA_FILE_NUM_ITEMS
                             || newFileWriter.getFileSizeEstimate()
@@ -622,6 +642,69 @@ public class DataFileCollection<D> implements Snapshotable {
         return addNewDataFileReader(activeDataFileWriter.getPath(), metadata);
     }
 
+    /**
+     * Record that the data item at the given location is no longer referenced by the index, as a
+     * newer item replaced it. This feeds the garbage estimates of data files used to decide what to
+     * merge. If the file has already been merged away, or the location is non-existent, this is a
+     * no-op.
+     *
+     * @param dataLocation the location of the replaced data item
+     */
+    public void dataItemObsoleted(final long dataLocation) {
+        if (dataLocation == NON_EXISTENT_DATA_LOCATION) {
+            return;
+        }
+        final ImmutableIndexedObjectList<DataFileReader<D>> currentIndexedFileList =
+                indexedFileList.get();
+        if (currentIndexedFileList == null) {
+            return;
+        }
+        final DataFileReader<D> file =
+                currentIndexedFileList.get(fileIndexFromDataLocation(dataLocation));
+        if (file != null) {
+            file.markDataItemObsolete();
+        }
+    }
+
+    /**
+     * Rebuild the counts of obsolete data items of all files from the index, as they are only kept
+     * in memory. A data item is live if the index entry of a key in the valid key range points at
+     * it, everything else in a file is garbage. This is called when the collection is loaded from
+     * existing files, after the index has been loaded or rebuilt, and takes a single pass over the
+     * valid key range of the index.
+     *
+     * @param index key-&gt;dataLocation index for the data items of this collection
+     */
+    public void rebuildObsoleteDataItemCounts(final LongList index) {
+        final ImmutableIndexedObjectList<DataFileReader<D>> currentIndexedFileList =
+                indexedFileList.get();
+        if (currentIndexedFileList == null) {
+            return;
+        }
+        final List<DataFileReader<D>> files = currentIndexedFileList.stream().toList();
+        final int maxFileIndex =
+                files.stream().mapToInt(DataFileReader::getIndex).max().orElse(-1);
+        final long[] liveDataItemCounts = new long[maxFileIndex + 1];
+        final KeyRange keyRange = validKeyRange;
+        if (keyRange != INVALID_KEY_RANGE) {
+            final long maxKey = Math.min(keyRange.getMaxValidKey(), index.size() - 1);
+            for (long key = Math.max(0, keyRange.getMinValidKey()); key <= maxKey; key++) {
+                final long dataLocation = index.get(key, NON_EXISTENT_DATA_LOCATION);
+                if (dataLocation != NON_EXISTENT_DATA_LOCATION) {
+                    final int fileIndex = fileIndexFromDataLocation(dataLocation);
+                    if (fileIndex < liveDataItemCounts.length) {
+                        liveDataItemCounts[fileIndex]++;
+                    }
+                }
+            }
+        }
+        for (final DataFileReader<D> file : files) {
+            final long dataItemCount = file.getMetadata().getDataItemCount();
+            file.setObsoleteDataItemCount(
+                    Math.max(0, dataItemCount - liveDataItemCounts[file.getIndex()]));
+        }
+    }
+
     /**
      * Read a data item from any file that has finished being written. This is not 100% thread safe
      * with concurrent merging, it is possible it will throw a ClosedChannelException or return
@@ -850,6 +933,19 @@ public class DataFileCollection<D> implements Snapshotable {
     // =================================================================================================================
     // Private API
 
+    /**
+     * Block until the global merge write budget allows the given number of bytes to be written,
+     * if merge writes are limited. No locks are held by merges while they wait here.
+     *
+     * @param bytes the number of bytes written
+     * @throws InterruptedException if the merge thread was interrupted while waiting
+     */
+    private static void waitForMergeWriteBudget(final long bytes) throws InterruptedException {
+        if (MERGE_WRITE_BUDGET != null) {
+            MERGE_WRITE_BUDGET.acquire(bytes);
+        }
+    }
+
     /** Finish a merge file and close it. */
     private void closeCurrentMergeFile(
             final DataFileWriter<D> newFileWriter,
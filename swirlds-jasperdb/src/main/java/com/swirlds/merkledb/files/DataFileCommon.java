@@ -139,6 +139,86 @@ public final class DataFileCommon {
         };
     }
 
+    /**
+     * Create a filter to return the run of files, contiguous in creation time, with the most
+     * estimated garbage bytes. Only runs of at least two files with a garbage ratio of at least
+     * minGarbageRatio are considered. Keeping the run contiguous preserves the requirement that
+     * merged files are always contiguous in order of time their data was created.
+     *
+     * @param minGarbageRatio the minimum ratio of estimated garbage bytes to total bytes of a run
+     * @param maxNumberOfFilesInMerge The maximum number of files to process in a single merge
+     * @return filter to filter list of files, it returns an empty list if no run has enough garbage
+     */
+    public static UnaryOperator<List<DataFileReader>> filesWithMostGarbage(
+            final double minGarbageRatio, final int maxNumberOfFilesInMerge) {
+        return dataFileReaders -> {
+            final List<DataFileReader> filesOldestFirst =
+                    dataFileReaders.stream()
+                            .sorted(DATA_FILE_READER_CREATION_TIME_COMPARATOR)
+                            .toList();
+            final int numFiles = filesOldestFirst.size();
+            int bestStart = 0;
+            int bestEnd = 0;
+            long bestGarbageBytes = 0;
+            for (int start = 0; start < numFiles; start++) {
+                long runSizeBytes = 0;
+                long runGarbageBytes = 0;
+                final int maxEnd = Math.min(numFiles, start + maxNumberOfFilesInMerge);
+                for (int end = start + 1; end <= maxEnd; end++) {
+                    final DataFileReader file = filesOldestFirst.get(end - 1);
+                    runSizeBytes += file.getSize();
+                    runGarbageBytes += file.getEstimatedGarbageBytes();
+                    if ((end - start >= 2)
+                            && (runGarbageBytes > bestGarbageBytes)
+                            && (runGarbageBytes >= runSizeBytes * minGarbageRatio)) {
+                        bestStart = start;
+                        bestEnd = end;
+                        bestGarbageBytes = runGarbageBytes;
+                    }
+                }
+            }
+            if (bestEnd > bestStart) {
+                logger.info(
+                        MERKLE_DB.getMarker(),
+                        "Found {} files with {} of estimated garbage to merge",
+                        bestEnd - bestStart,
+                        formatSizeBytes(bestGarbageBytes));
+            }
+            return filesOldestFirst.subList(bestStart, bestEnd);
+        };
+    }
+
+    /**
+     * Create a filter to return all files, but only if their estimated garbage ratio as a whole is
+     * at least minGarbageRatio. This lets full merges be skipped while rewriting every file would
+     * reclaim little space.
+     *
+     * @param minGarbageRatio the minimum ratio of estimated garbage bytes to total bytes of all
+     *     files
+     * @return filter to filter list of files, it returns an empty list if there is not enough
+     *     garbage
+     */
+    public static UnaryOperator<List<DataFileReader>> allFilesWithEnoughGarbage(
+            final double minGarbageRatio) {
+        return dataFileReaders -> {
+            long sizeBytes = 0;
+            long garbageBytes = 0;
+            for (final DataFileReader file : dataFileReaders) {
+                sizeBytes += file.getSize();
+                garbageBytes += file.getEstimatedGarbageBytes();
+            }
+            if ((sizeBytes == 0) || (garbageBytes < sizeBytes * minGarbageRatio)) {
+                return List.of();
+            }
+            logger.info(
+                    MERKLE_DB.getMarker(),
+                    "Found {} of estimated garbage in all {} files to merge",
+                    formatSizeBytes(garbageBytes),
+                    dataFileReaders.size());
+            return dataFileReaders;
+        };
+    }
+
     /**
      * Get path for file given prefix, index and parent directory. This standardizes out file naming
      * convention.
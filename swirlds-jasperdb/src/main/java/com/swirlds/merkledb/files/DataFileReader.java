@@ -15,12 +15,19 @@
  */
 package com.swirlds.merkledb.files;
 
+import static com.swirlds.merkledb.files.DataFileCommon.PAGE_SIZE;
+
 import com.swirlds.merkledb.collections.IndexedObject;
+import com.swirlds.merkledb.collections.LongList;
 import com.swirlds.merkledb.serialize.DataItemHeader;
 import com.swirlds.merkledb.serialize.DataItemSerializer;
+import com.swirlds.merkledb.settings.MerkleDbSettings;
+import com.swirlds.merkledb.settings.MerkleDbSettingsFactory;
 import com.swirlds.merkledb.utilities.MerkleDbFileUtils;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
@@ -28,16 +35,39 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import sun.misc.Unsafe;
 
 /**
  * The aim for a DataFileReader is to facilitate fast highly concurrent random reading of items from
  * a data file. It is designed to be used concurrently from many threads.
  *
+ * <p>If {@link MerkleDbSettings#isDataFileMemoryMappedReadsEnabled()} is set, the whole file is
+ * memory mapped when the reader is opened, which is safe as data files are immutable once fully
+ * written. Reads then deserialize from slices of the mapped buffer, with no system call and no
+ * copy, so data item serializers must not keep a reference to the buffer they are given. Each read
+ * holds a lease on the mapping, and the mapping is unmapped as soon as the reader is closed and the
+ * last read in progress has finished, rather than whenever the garbage collector gets to it.
+ *
  * @param <D> Data item type
  */
 @SuppressWarnings({"DuplicatedCode", "NullableProblems"})
 public final class DataFileReader<D>
         implements AutoCloseable, Comparable<DataFileReader<D>>, IndexedObject {
+    /** Access to sun.misc.Unsafe required to unmap memory mapped files */
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            final Field f = Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            UNSAFE = (Unsafe) f.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new InternalError(e);
+        }
+    }
+
     /** FileChannel's for each thread */
     private static final ThreadLocal<ByteBuffer> BUFFER_CACHE = new ThreadLocal<>();
     /** FileChannel's for each thread */
@@ -54,11 +84,30 @@ public final class DataFileReader<D>
      * from during that time.
      */
     private final AtomicBoolean fileAvailableForMerging = new AtomicBoolean(false);
+    /**
+     * The number of data items in this file that are no longer referenced by an index, because
+     * they were replaced by newer items or fell out of the valid key range. For files loaded from
+     * disk on startup it is rebuilt from the index, see {@link
+     * DataFileCollection#rebuildObsoleteDataItemCounts(LongList)}.
+     */
+    private final AtomicLong obsoleteDataItemCount = new AtomicLong(0);
     /**
      * The size of this file in bytes, cached as need it often, and it's constant as file is
      * immutable.
      */
     private final long fileSizeBytes;
+    /**
+     * The whole file mapped into memory if reads are memory mapped, otherwise null. It must only
+     * be accessed while holding a lease, as it is unmapped once all leases are released.
+     */
+    private final MappedByteBuffer mappedBuffer;
+    /**
+     * The number of leases on {@link #mappedBuffer}, one held by the reader itself until it is
+     * closed and one by each read in progress. Once it drops to zero it never goes up again.
+     */
+    private final AtomicInteger mappedBufferLeases = new AtomicInteger(1);
+    /** Flag for if this reader has been closed */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
 
     /**
      * Open an existing data file, reading the metadata from the file
@@ -72,7 +121,9 @@ public final class DataFileReader<D>
     }
 
     /**
-     * Open an existing data file, using the provided metadata
+     * Open an existing data file, using the provided metadata. Whether the file is memory mapped
+     * is taken from the settings the {@link MerkleDbSettingsFactory} holds at the time the reader
+     * is opened.
      *
      * @param path the path to the data file
      * @param dataItemSerializer Serializer for converting raw data to/from data items
@@ -83,6 +134,41 @@ public final class DataFileReader<D>
             final DataItemSerializer<D> dataItemSerializer,
             final DataFileMetadata metadata)
             throws IOException {
+        this(path, dataItemSerializer, metadata, MerkleDbSettingsFactory.get());
+    }
+
+    /**
+     * Open an existing data file, using the provided metadata and settings
+     *
+     * @param path the path to the data file
+     * @param dataItemSerializer Serializer for converting raw data to/from data items
+     * @param metadata the file's metadata to save loading from file
+     * @param settings the settings to decide if the file is memory mapped
+     */
+    public DataFileReader(
+            final Path path,
+            final DataItemSerializer<D> dataItemSerializer,
+            final DataFileMetadata metadata,
+            final MerkleDbSettings settings)
+            throws IOException {
+        this(path, dataItemSerializer, metadata, settings.isDataFileMemoryMappedReadsEnabled());
+    }
+
+    /**
+     * Open an existing data file, using the provided metadata
+     *
+     * @param path the path to the data file
+     * @param dataItemSerializer Serializer for converting raw data to/from data items
+     * @param metadata the file's metadata to save loading from file
+     * @param memoryMapped if true, map the file into memory and read data items from the mapped
+     *     buffer, unless the file is too big to be mapped in one buffer
+     */
+    public DataFileReader(
+            final Path path,
+            final DataItemSerializer<D> dataItemSerializer,
+            final DataFileMetadata metadata,
+            final boolean memoryMapped)
+            throws IOException {
         if (!Files.exists(path)) {
             throw new IllegalArgumentException(
                     "Tried to open a non existent data file [" + path.toAbsolutePath() + "].");
@@ -92,6 +178,10 @@ public final class DataFileReader<D>
         this.dataItemSerializer = dataItemSerializer;
         this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
         this.fileSizeBytes = this.fileChannel.size();
+        this.mappedBuffer =
+                (memoryMapped && (fileSizeBytes <= Integer.MAX_VALUE))
+                        ? fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSizeBytes)
+                        : null;
     }
 
     /**
@@ -123,6 +213,44 @@ public final class DataFileReader<D>
         return metadata.getIndex();
     }
 
+    /** Record that one more data item in this file is no longer referenced by an index */
+    public void markDataItemObsolete() {
+        obsoleteDataItemCount.incrementAndGet();
+    }
+
+    /**
+     * Set the number of data items in this file that are no longer referenced by an index, used
+     * when the count is rebuilt from an index on startup.
+     *
+     * @param count the number of obsolete data items
+     */
+    void setObsoleteDataItemCount(final long count) {
+        obsoleteDataItemCount.set(count);
+    }
+
+    /**
+     * Get the estimated ratio of garbage, data items that are no longer referenced, in this file.
+     *
+     * @return garbage ratio between 0 and 1
+     */
+    public double getGarbageRatio() {
+        final long dataItemCount = metadata.getDataItemCount();
+        if (dataItemCount <= 0) {
+            return 0;
+        }
+        return Math.min(1.0, (double) obsoleteDataItemCount.get() / dataItemCount);
+    }
+
+    /**
+     * Get the estimated number of bytes that would be reclaimed by merging this file. Data items
+     * are assumed to be of equal size.
+     *
+     * @return estimated garbage size in bytes
+     */
+    public long getEstimatedGarbageBytes() {
+        return (long) (fileSizeBytes * getGarbageRatio());
+    }
+
     /** Get the files metadata */
     public DataFileMetadata getMetadata() {
         return metadata;
@@ -169,6 +297,25 @@ public final class DataFileReader<D>
      * @throws ClosedChannelException if the data file was closed
      */
     public D readDataItem(final long dataLocation, final boolean deserialize) throws IOException {
+        if (mappedBuffer == null) {
+            return readDataItemUnleased(dataLocation, deserialize);
+        }
+        if (!acquireMappedBuffer()) {
+            throw new ClosedChannelException();
+        }
+        try {
+            return readDataItemUnleased(dataLocation, deserialize);
+        } finally {
+            releaseMappedBuffer();
+        }
+    }
+
+    /**
+     * Read data item bytes from file at dataLocation, without taking a lease on the mapped buffer.
+     * The caller must hold a lease if the file is memory mapped.
+     */
+    private D readDataItemUnleased(final long dataLocation, final boolean deserialize)
+            throws IOException {
         final long byteOffset = DataFileCommon.byteOffsetFromDataLocation(dataLocation);
         final int bytesToRead;
         if (dataItemSerializer.isVariableSize()) {
@@ -181,9 +328,16 @@ public final class DataFileReader<D>
             bytesToRead = dataItemSerializer.getSerializedSize();
         }
         final ByteBuffer data = read(byteOffset, bytesToRead);
-        return deserialize
-                ? dataItemSerializer.deserialize(data, metadata.getSerializationVersion())
-                : null;
+        if (!deserialize) {
+            if (data instanceof MappedByteBuffer) {
+                // a mapped slice is not read until used, so touch each page to load it
+                for (int i = 0; i < data.limit(); i += PAGE_SIZE) {
+                    data.get(i);
+                }
+            }
+            return null;
+        }
+        return dataItemSerializer.deserialize(data, metadata.getSerializationVersion());
     }
 
     /**
@@ -241,9 +395,39 @@ public final class DataFileReader<D>
         return fileChannel != null && fileChannel.isOpen();
     }
 
-    /** Close this data file, it can not be used once closed. */
+    /**
+     * Get if reads from this file are served from a memory mapped buffer.
+     *
+     * @return True if the file is memory mapped
+     */
+    public boolean isMemoryMapped() {
+        return mappedBuffer != null;
+    }
+
+    /**
+     * Get if the memory mapped buffer of this file has been unmapped, that is the file has been
+     * closed and no reads are in progress any more.
+     *
+     * @return True if the file was memory mapped and has been unmapped
+     */
+    boolean isUnmapped() {
+        return (mappedBuffer != null) && (mappedBufferLeases.get() == 0);
+    }
+
+    /**
+     * Close this data file, it can not be used once closed. If the file is memory mapped, it is
+     * unmapped once reads still in progress have finished.
+     */
     public void close() throws IOException {
-        fileChannel.close();
+        if (closed.compareAndSet(false, true)) {
+            try {
+                fileChannel.close();
+            } finally {
+                if (mappedBuffer != null) {
+                    releaseMappedBuffer();
+                }
+            }
+        }
     }
 
     // =================================================================================================================
@@ -256,12 +440,18 @@ public final class DataFileReader<D>
      *
      * @param byteOffsetInFile Offset to start reading at
      * @param bytesToRead Number of bytes to read
-     * @return ByteBuffer containing read data. This is a reused per thread buffer, so you can use
-     *     it till your thread calls read again.
+     * @return ByteBuffer containing read data. This is either a slice of the memory mapped file or
+     *     a reused per thread buffer, so you can use it till your thread calls read again.
      * @throws IOException if there was a problem reading
      * @throws ClosedChannelException if the file was closed
      */
     private ByteBuffer read(final long byteOffsetInFile, final int bytesToRead) throws IOException {
+        if (mappedBuffer != null) {
+            // a file that can be mapped is never bigger than Integer.MAX_VALUE bytes
+            final int bytesAvailable =
+                    (int) Math.max(0, Math.min(bytesToRead, fileSizeBytes - byteOffsetInFile));
+            return mappedBuffer.slice((int) byteOffsetInFile, bytesAvailable);
+        }
         // get or create cached buffer
         ByteBuffer buffer = BUFFER_CACHE.get();
         if (buffer == null || bytesToRead > buffer.capacity()) {
@@ -275,4 +465,27 @@ public final class DataFileReader<D>
         buffer.flip();
         return buffer;
     }
+
+    /**
+     * Take a lease on the mapped buffer, so it is not unmapped while it is read.
+     *
+     * @return true if a lease was taken, false if the file is closed and has been unmapped
+     */
+    private boolean acquireMappedBuffer() {
+        int leases = mappedBufferLeases.get();
+        while (leases > 0) {
+            if (mappedBufferLeases.compareAndSet(leases, leases + 1)) {
+                return true;
+            }
+            leases = mappedBufferLeases.get();
+        }
+        return false;
+    }
+
+    /** Release a lease on the mapped buffer, unmapping it if it was the last one */
+    private void releaseMappedBuffer() {
+        if (mappedBufferLeases.decrementAndGet() == 0) {
+            UNSAFE.invokeCleaner(mappedBuffer);
+        }
+    }
 }
@@ -17,6 +17,7 @@ package com.swirlds.merkledb.files;
 
 import static com.swirlds.logging.LogMarker.EXCEPTION;
 import static com.swirlds.logging.LogMarker.MERKLE_DB;
+import static com.swirlds.merkledb.files.DataFileCommon.NON_EXISTENT_DATA_LOCATION;
 import static com.swirlds.merkledb.files.DataFileCommon.dataLocationToString;
 import static com.swirlds.merkledb.files.DataFileCommon.fileIndexFromDataLocation;
 import static com.swirlds.merkledb.files.DataFileCommon.formatSizeBytes;
@@ -35,6 +36,10 @@ import com.swirlds.merkledb.serialize.DataItemSerializer;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.SortedSet;
@@ -131,6 +136,10 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
                         legacyStoreName,
                         dataItemSerializer,
                         combinedLoadedDataCallback);
+        // garbage counts are not saved with the files, so work them out again from the index
+        if (fileCollection.isLoadedFromExistingFiles()) {
+            fileCollection.rebuildObsoleteDataItemCounts(index);
+        }
     }
 
     /**
@@ -227,7 +236,13 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
     public void put(final long key, final D dataItem) throws IOException {
         long dataLocation = fileCollection.storeDataItem(dataItem);
         // store data location in index
+        final long oldDataLocation = index.get(key, NON_EXISTENT_DATA_LOCATION);
         index.put(key, dataLocation);
+        // the item we replaced, if any, is now garbage. If the key was outside the valid range, the
+        // item was already counted as garbage when the key fell out of the range
+        if (fileCollection.getValidKeyRange().withinRange(key)) {
+            fileCollection.dataItemObsoleted(oldDataLocation);
+        }
     }
 
     /**
@@ -239,8 +254,18 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
      */
     public void endWriting(final long minimumValidKey, final long maximumValidKey)
             throws IOException {
+        final KeyRange oldKeyRange = fileCollection.getValidKeyRange();
         final DataFileReader<D> dataFileReader =
                 fileCollection.endWriting(minimumValidKey, maximumValidKey);
+        // items for keys that are no longer in the valid range are deleted, so they are garbage
+        if (oldKeyRange != KeyRange.INVALID_KEY_RANGE) {
+            obsoleteKeys(
+                    oldKeyRange.getMinValidKey(),
+                    Math.min(oldKeyRange.getMaxValidKey(), minimumValidKey - 1));
+            obsoleteKeys(
+                    Math.max(oldKeyRange.getMinValidKey(), maximumValidKey + 1),
+                    oldKeyRange.getMaxValidKey());
+        }
         // we have updated all indexes so the data file can now be included in merges
         dataFileReader.setFileAvailableForMerging(true);
         logger.info(
@@ -252,6 +277,20 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
                 maximumValidKey);
     }
 
+    /**
+     * Record the items for all keys in a range as garbage, as the keys are no longer valid.
+     *
+     * @param firstKey the first key of the range, inclusive
+     * @param lastKey the last key of the range, inclusive, the range is empty if less than
+     *     firstKey
+     */
+    private void obsoleteKeys(final long firstKey, final long lastKey) {
+        final long maxKey = Math.min(lastKey, index.size() - 1);
+        for (long key = Math.max(0, firstKey); key <= maxKey; key++) {
+            fileCollection.dataItemObsoleted(index.get(key, NON_EXISTENT_DATA_LOCATION));
+        }
+    }
+
     /**
      * Get a value by reading it from disk.
      *
@@ -291,6 +330,41 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
         return fileCollection.readDataItemUsingIndex(index, key, deserialize);
     }
 
+    /**
+     * Get a batch of values by reading them from disk. Values are read in order of their data
+     * locations, rather than in order of the given keys, so all values from the same file are read
+     * together in ascending order of their offsets in the file. That turns a batch of random reads
+     * into a few mostly sequential scans.
+     *
+     * @param keys The keys to find and read values for
+     * @return list of values, in the same order as the given keys, with nulls for keys that were
+     *     not found
+     * @throws IOException If there was a problem reading the values from files
+     */
+    public List<D> get(final long[] keys) throws IOException {
+        final KeyRange keyRange = fileCollection.getValidKeyRange();
+        final long[] dataLocations = new long[keys.length];
+        final Integer[] readOrder = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            dataLocations[i] =
+                    keyRange.withinRange(keys[i])
+                            ? index.get(keys[i], NON_EXISTENT_DATA_LOCATION)
+                            : NON_EXISTENT_DATA_LOCATION;
+            readOrder[i] = i;
+        }
+        // data locations have the file index in the upper bits and the byte offset in the lower
+        // bits, so sorting by data location groups reads by file and sorts them by offset
+        Arrays.sort(readOrder, Comparator.comparingLong(i -> dataLocations[i]));
+        final List<D> values = new ArrayList<>(Collections.nCopies(keys.length, null));
+        for (final int i : readOrder) {
+            if (dataLocations[i] != NON_EXISTENT_DATA_LOCATION) {
+                // read via the index again, so reads are retried if the file was merged since
+                values.set(i, fileCollection.readDataItemUsingIndex(index, keys[i]));
+            }
+        }
+        return values;
+    }
+
     /**
      * Close all files being used
      *
@@ -305,6 +379,17 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
         fileCollection.snapshot(snapshotDirectory);
     }
 
+    /**
+     * Get all files of this store that have been fully written. The files may contain data items
+     * that have since been replaced or deleted, and a file may be deleted by a merge while it is
+     * being read.
+     *
+     * @return the files of this store
+     */
+    public List<DataFileReader<D>> getAllFullyWrittenFiles() {
+        return fileCollection.getAllFullyWrittenFiles();
+    }
+
     /**
      * Get statistics for sizes of all files
      *
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import static com.swirlds.common.utility.Units.SECONDS_TO_NANOSECONDS;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket limiting the rate bytes are written by merges, shared by all merges that run
+ * concurrently. The bucket refills at a fixed rate and holds at most one second of budget. A merge
+ * that asks for more bytes than are in the bucket takes them anyway, leaving the bucket in debt,
+ * and then sleeps for exactly as long as it takes the refill to pay that debt off. So there is no
+ * polling, and merges asking at the same time wait in turn, each for its own share.
+ */
+final class MergeWriteBudget {
+    /** Nanoseconds it takes to add one byte to the bucket */
+    private final double nanosPerByte;
+    /** The most bytes the bucket can hold, one second of budget */
+    private final double capacity;
+    /** Source of the current time in nanoseconds */
+    private final LongSupplier nanoTime;
+    /** Bytes currently in the bucket, negative if merges have taken more than was available */
+    private double availableBytes;
+    /** The time in nanoseconds the bucket was last refilled */
+    private long lastRefillNanos;
+
+    /**
+     * Create a new merge write budget, starting full.
+     *
+     * @param bytesPerSecond the number of bytes merges may write per second, on average
+     */
+    MergeWriteBudget(final double bytesPerSecond) {
+        this(bytesPerSecond, System::nanoTime);
+    }
+
+    /**
+     * Create a new merge write budget with the given time source, starting full.
+     *
+     * @param bytesPerSecond the number of bytes merges may write per second, on average
+     * @param nanoTime source of the current time in nanoseconds
+     */
+    MergeWriteBudget(final double bytesPerSecond, final LongSupplier nanoTime) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Merge write budget must be positive");
+        }
+        this.nanosPerByte = SECONDS_TO_NANOSECONDS / bytesPerSecond;
+        this.capacity = bytesPerSecond;
+        this.nanoTime = nanoTime;
+        this.availableBytes = capacity;
+        this.lastRefillNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Take bytes from the budget, waiting until the budget allows them to be written.
+     *
+     * @param bytes the number of bytes about to be written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire(final long bytes) throws InterruptedException {
+        final long waitNanos = reserve(bytes);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take bytes from the budget, without waiting.
+     *
+     * @param bytes the number of bytes about to be written
+     * @return how many nanoseconds the caller has to wait before writing them
+     */
+    synchronized long reserve(final long bytes) {
+        final long now = nanoTime.getAsLong();
+        availableBytes =
+                Math.min(capacity, availableBytes + (now - lastRefillNanos) / nanosPerByte);
+        lastRefillNanos = now;
+        availableBytes -= bytes;
+        return (availableBytes >= 0) ? 0 : (long) Math.ceil(-availableBytes * nanosPerByte);
+    }
+}
@@ -115,6 +115,20 @@ public class VirtualLeafRecordSerializer<K extends VirtualKey<? super K>, V exte
         return new VirtualLeafRecord<>(path, hash, key, value);
     }
 
+    /**
+     * Deserialize only the hash of a data item from a byte buffer, that was written with given
+     * data version. The key and value are not deserialized.
+     *
+     * @param buffer The buffer to read from
+     * @param dataVersion The serialization version the data item was written with
+     * @return Deserialized hash of the data item
+     */
+    public Hash deserializeHash(final ByteBuffer buffer, final long dataVersion) {
+        final int hashSerializationVersion = (int) (0x000000000000FFFFL & dataVersion);
+        deserializeHeader(buffer);
+        return byteBufferToHash(buffer, hashSerializationVersion);
+    }
+
     /**
      * Serialize a data item including header to the output stream returning the size of the data
      * written
@@ -29,6 +29,8 @@ import com.swirlds.virtualmap.VirtualKey;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -42,16 +44,23 @@ import org.apache.logging.log4j.Logger;
  *   <li><b>int</b> - Bucket index in map hash index
  *   <li><b>int</b> - Bucket size, total number of bytes taken by bucket including header
  *   <li><b>int</b> - Number of entries in this bucket
- *   <li><b>Entry[]</b> - array of entries
+ *   <li><b>KEY_HASHCODE_SIZE(int)[]</b> - array of key hash codes, one for each entry, sorted
+ *       ascending
+ *   <li><b>Entry[]</b> - array of entries, in the same order as key hash codes
  * </ul>
  *
  * <p>Each Entry contains:
  *
  * <ul>
- *   <li><b>KEY_HASHCODE_SIZE(int/long)</b> - key hash code
  *   <li><b>value</b> - the value of the key/value pair. It is here because it is fixed size
  *   <li><b>key data</b> - can be fixed size of entryKeySize or variable size
  * </ul>
+ *
+ * <p>Keeping hash codes sorted in a compact array at the front lets lookups binary search for a
+ * key hash code, and only deserialize keys with a matching hash code. Buckets written with the
+ * {@link BucketSerializer#ORIGINAL_BUCKET_SERIALIZATION_VERSION original} serialization version
+ * store the key hash code at the start of each entry instead, in insertion order. They are
+ * converted to the sorted layout when read, see {@link #convertFromOriginalLayout()}.
  */
 @SuppressWarnings("unused")
 public final class Bucket<K extends VirtualKey<? super K>> {
@@ -71,7 +80,10 @@ public final class Bucket<K extends VirtualKey<? super K>> {
     private static final int BUCKET_HEADER_SIZE =
             BUCKET_ENTRY_COUNT_OFFSET + BUCKET_ENTRY_COUNT_SIZE;
 
-    private static final int ENTRY_VALUE_OFFSET = KEY_HASHCODE_SIZE;
+    /** The offset of the key in an entry */
+    private static final int ENTRY_KEY_OFFSET = VALUE_SIZE;
+    /** The offset of the key in an entry in the original layout, after hash code and value */
+    private static final int ORIGINAL_ENTRY_KEY_OFFSET = KEY_HASHCODE_SIZE + VALUE_SIZE;
     /** Keep track of the largest bucket we have ever created for logging */
     private static final AtomicInteger LARGEST_SIZE_OF_BUCKET_CREATED = new AtomicInteger(0);
 
@@ -86,8 +98,18 @@ public final class Bucket<K extends VirtualKey<? super K>> {
      * @param keySerializer The serializer responsible for converting keys to/from bytes
      */
     Bucket(KeySerializer<K> keySerializer) {
+        this(keySerializer, DEFAULT_BUCKET_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new bucket with the given buffer size.
+     *
+     * @param keySerializer The serializer responsible for converting keys to/from bytes
+     * @param bucketBufferSize The initial size of the bucket buffer, in bytes
+     */
+    private Bucket(KeySerializer<K> keySerializer, int bucketBufferSize) {
         setKeySerializer(keySerializer);
-        bucketBuffer = ByteBuffer.allocate(DEFAULT_BUCKET_BUFFER_SIZE);
+        bucketBuffer = ByteBuffer.allocate(bucketBufferSize);
         setSize(BUCKET_HEADER_SIZE);
         setBucketIndex(-1);
         reusableDataFileOutputStream =
@@ -112,6 +134,22 @@ public final class Bucket<K extends VirtualKey<? super K>> {
         return this;
     }
 
+    /**
+     * Create a copy of this bucket that doesn't share its buffer with this bucket. The buffer of
+     * the copy is sized to fit the current bucket data. Buckets returned by {@link
+     * BucketSerializer#getReusableEmptyBucket()} are reused per thread, so a copy is needed when a
+     * bucket is updated on one thread and written to disk on another.
+     *
+     * @return a copy of this bucket
+     */
+    Bucket<K> copy() {
+        final int size = getSize();
+        final Bucket<K> copy = new Bucket<>(keySerializer, size);
+        System.arraycopy(bucketBuffer.array(), 0, copy.bucketBuffer.array(), 0, size);
+        copy.keySerializationVersion = keySerializationVersion;
+        return copy;
+    }
+
     /**
      * Change this bucket over to use new key serializer. It is a no-op if called with the same key
      * serializer we are configured with already.
@@ -215,40 +253,41 @@ public final class Bucket<K extends VirtualKey<? super K>> {
      */
     public void putValue(final int keyHashCode, final K key, final long value) {
         try {
-            // scan over all existing key/value entries and see if there is already one for this
-            // key. If there is
-            // then update it, otherwise we have at least worked out the entryOffset for the end of
-            // existing entries
-            // and can use that for appending a new entry if there is room
+            // search existing key/value entries and see if there is already one for this key. If
+            // there is then update it, otherwise we have at least worked out the index and offset
+            // where a new entry has to be inserted to keep entries sorted by key hash code
             final FindResult result = findEntryOffset(keyHashCode, key);
             // handle DELETE
             if (value == SPECIAL_DELETE_ME_VALUE) {
                 if (result.found) {
-                    final int entryCount = getBucketEntryCount();
                     final int currentSize = getSize();
                     // read the key size so we can calculate entry size
-                    final int entrySize =
-                            KEY_HASHCODE_SIZE + VALUE_SIZE + getKeySize(result.entryOffset);
-                    // check if not last entry
-                    if (result.entryIndex < (entryCount - 1)) {
-                        // move all entries after this one up
-                        final int offsetOfNextEntry = result.entryOffset + entrySize;
-                        final int sizeOfEntriesToMove = currentSize - offsetOfNextEntry;
-                        //  FUTURE WORK For Java 17 do this
-                        // https://github.com/swirlds/swirlds-platform/issues/4090
-                        // bucketBuffer.put(result.entryOffset,bucketBuffer,offsetOfNextEntry,sizeOfEntriesToMove);
-                        final byte[] bucketBytes = bucketBuffer.array();
-                        System.arraycopy(
-                                bucketBytes,
-                                offsetOfNextEntry,
-                                bucketBytes,
-                                result.entryOffset,
-                                sizeOfEntriesToMove);
-                    }
+                    final int entrySize = VALUE_SIZE + getKeySize(result.entryOffset);
+                    final byte[] bucketBytes = bucketBuffer.array();
+                    //  FUTURE WORK For Java 17 do this
+                    // https://github.com/swirlds/swirlds-platform/issues/4090
+                    // bucketBuffer.put(result.entryOffset,bucketBuffer,offsetOfNextEntry,sizeOfEntriesToMove);
+                    // remove the hash code, moving all following hash codes and entries before the
+                    // removed entry up
+                    final int hashCodeOffset = getHashCodeOffset(result.entryIndex);
+                    System.arraycopy(
+                            bucketBytes,
+                            hashCodeOffset + KEY_HASHCODE_SIZE,
+                            bucketBytes,
+                            hashCodeOffset,
+                            result.entryOffset - hashCodeOffset - KEY_HASHCODE_SIZE);
+                    // remove the entry, moving all entries after this one up
+                    final int offsetOfNextEntry = result.entryOffset + entrySize;
+                    System.arraycopy(
+                            bucketBytes,
+                            offsetOfNextEntry,
+                            bucketBytes,
+                            result.entryOffset - KEY_HASHCODE_SIZE,
+                            currentSize - offsetOfNextEntry);
                     // decrement count
                     decrementBucketEntryCount();
-                    // update size by removing entry size from size
-                    setSize(currentSize - entrySize);
+                    // update size by removing hash code and entry size from size
+                    setSize(currentSize - KEY_HASHCODE_SIZE - entrySize);
                     // we are done deleting
                     return;
                 } else {
@@ -264,38 +303,48 @@ public final class Bucket<K extends VirtualKey<? super K>> {
             }
             /* We have to serialize a variable-size key to a temp byte buffer to check
             if there is going to be enough room to store it in this bucket. */
+            final int keySizeBytes;
             if (keySerializer.isVariableSize()) {
                 reusableDataFileOutputStream.reset();
                 keySerializer.serialize(key, reusableDataFileOutputStream);
                 reusableDataFileOutputStream.flush();
-                final int keySizeBytes = reusableDataFileOutputStream.bytesWritten();
-                final int newSize =
-                        result.entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE + keySizeBytes;
-                ensureCapacity(newSize);
-                setSize(newSize);
-                // add a new entry
-                bucketBuffer.position(result.entryOffset);
-                bucketBuffer.putInt(keyHashCode);
-                bucketBuffer.putLong(value);
+                keySizeBytes = reusableDataFileOutputStream.bytesWritten();
+            } else {
+                keySizeBytes = keySerializer.getSerializedSize();
+            }
+            final int currentSize = getSize();
+            final int entrySize = VALUE_SIZE + keySizeBytes;
+            final int newSize = currentSize + KEY_HASHCODE_SIZE + entrySize;
+            ensureCapacity(newSize);
+            final byte[] bucketBytes = bucketBuffer.array();
+            // make room for the new entry, moving all entries after it down
+            System.arraycopy(
+                    bucketBytes,
+                    result.entryOffset,
+                    bucketBytes,
+                    result.entryOffset + KEY_HASHCODE_SIZE + entrySize,
+                    currentSize - result.entryOffset);
+            // make room for the new hash code, moving all following hash codes and entries before
+            // the new entry down
+            final int hashCodeOffset = getHashCodeOffset(result.entryIndex);
+            System.arraycopy(
+                    bucketBytes,
+                    hashCodeOffset,
+                    bucketBytes,
+                    hashCodeOffset + KEY_HASHCODE_SIZE,
+                    result.entryOffset - hashCodeOffset);
+            setSize(newSize);
+            // add a new entry
+            bucketBuffer.putInt(hashCodeOffset, keyHashCode);
+            bucketBuffer.position(result.entryOffset + KEY_HASHCODE_SIZE);
+            bucketBuffer.putLong(value);
+            if (keySerializer.isVariableSize()) {
                 reusableDataFileOutputStream.writeTo(bucketBuffer);
-                // increment count and update size
-                incrementBucketEntryCount();
             } else {
-                final int newSize =
-                        result.entryOffset
-                                + KEY_HASHCODE_SIZE
-                                + VALUE_SIZE
-                                + keySerializer.getSerializedSize();
-                ensureCapacity(newSize);
-                setSize(newSize);
-                // add a new entry
-                bucketBuffer.position(result.entryOffset);
-                bucketBuffer.putInt(keyHashCode);
-                bucketBuffer.putLong(value);
                 keySerializer.serialize(key, bucketBuffer);
-                // increment count
-                incrementBucketEntryCount();
             }
+            // increment count
+            incrementBucketEntryCount();
         } catch (IOException e) {
             logger.error(
                     EXCEPTION.getMarker(),
@@ -307,6 +356,75 @@ public final class Bucket<K extends VirtualKey<? super K>> {
         }
     }
 
+    /**
+     * Move all entries with key hash codes that match the target bucket index under the given mask
+     * to the target bucket. This is used when a bucket is split from its parent bucket after the
+     * number of buckets in the map has grown. Entries are copied as raw bytes, no keys are
+     * deserialized.
+     *
+     * @param target the bucket to move entries to, it must be empty and its bucket index must be
+     *     set
+     * @param keyHashMask the mask to apply to key hash codes before comparing them to the target
+     *     bucket index
+     * @return the number of entries moved
+     */
+    int moveEntries(final Bucket<K> target, final int keyHashMask) {
+        if (target.getBucketEntryCount() != 0) {
+            throw new IllegalArgumentException("Entries can only be moved to an empty bucket");
+        }
+        final int targetBucketIndex = target.getBucketIndex();
+        final int entryCount = getBucketEntryCount();
+        // read hash codes, entry offsets and sizes before anything is moved
+        final int[] keyHashCodes = new int[entryCount];
+        final int[] entrySizes = new int[entryCount];
+        int movedCount = 0;
+        int movedSize = 0;
+        int entryOffset = getHashCodeOffset(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            keyHashCodes[i] = getHashCode(i);
+            entrySizes[i] = VALUE_SIZE + getKeySize(entryOffset);
+            if ((keyHashCodes[i] & keyHashMask) == targetBucketIndex) {
+                movedCount++;
+                movedSize += entrySizes[i];
+            }
+            entryOffset += entrySizes[i];
+        }
+        if (movedCount == 0) {
+            return 0;
+        }
+        // entries are already sorted, so they can be laid out in the same order in both buckets
+        final int keptCount = entryCount - movedCount;
+        final int targetSize = getHashCodeOffset(movedCount) + movedSize;
+        target.ensureCapacity(targetSize);
+        final byte[] bucketBytes = bucketBuffer.array();
+        final byte[] targetBytes = target.bucketBuffer.array();
+        int readOffset = getHashCodeOffset(entryCount);
+        int keptIndex = 0;
+        int keptOffset = getHashCodeOffset(keptCount);
+        int movedIndex = 0;
+        int movedOffset = getHashCodeOffset(movedCount);
+        for (int i = 0; i < entryCount; i++) {
+            if ((keyHashCodes[i] & keyHashMask) == targetBucketIndex) {
+                target.bucketBuffer.putInt(getHashCodeOffset(movedIndex++), keyHashCodes[i]);
+                System.arraycopy(bucketBytes, readOffset, targetBytes, movedOffset, entrySizes[i]);
+                movedOffset += entrySizes[i];
+            } else {
+                // compact remaining entries, the kept hash code array is never longer than the
+                // original one and the kept entries never start later than the original ones
+                bucketBuffer.putInt(getHashCodeOffset(keptIndex++), keyHashCodes[i]);
+                System.arraycopy(bucketBytes, readOffset, bucketBytes, keptOffset, entrySizes[i]);
+                keptOffset += entrySizes[i];
+            }
+            readOffset += entrySizes[i];
+        }
+        target.keySerializationVersion = keySerializationVersion;
+        target.setBucketEntryCount(movedCount);
+        target.setSize(targetSize);
+        setBucketEntryCount(keptCount);
+        setSize(keptOffset);
+        return movedCount;
+    }
+
     /**
      * Fill this bucket with the data contained in the given ByteBuffer.
      *
@@ -318,6 +436,48 @@ public final class Bucket<K extends VirtualKey<? super K>> {
         bucketBuffer.rewind().put(dataBuffer);
     }
 
+    /**
+     * Convert the data of this bucket, filled with {@link #putAllData(ByteBuffer)} from a bucket
+     * written in the original layout, where each entry starts with its key hash code and entries
+     * are in insertion order, to the current sorted layout. The bucket size doesn't change, as
+     * each hash code just moves from its entry to the hash code array.
+     */
+    void convertFromOriginalLayout() {
+        final int entryCount = getBucketEntryCount();
+        if (entryCount == 0) {
+            return;
+        }
+        final int size = getSize();
+        final int[] keyHashCodes = new int[entryCount];
+        final int[] entryOffsets = new int[entryCount];
+        final int[] entrySizes = new int[entryCount];
+        final Integer[] sortedEntries = new Integer[entryCount];
+        int entryOffset = BUCKET_HEADER_SIZE;
+        for (int i = 0; i < entryCount; i++) {
+            keyHashCodes[i] = bucketBuffer.getInt(entryOffset);
+            entryOffsets[i] = entryOffset + KEY_HASHCODE_SIZE;
+            entrySizes[i] = VALUE_SIZE + getKeySizeAt(entryOffset + ORIGINAL_ENTRY_KEY_OFFSET);
+            sortedEntries[i] = i;
+            entryOffset = entryOffsets[i] + entrySizes[i];
+        }
+        // stable sort, so entries with the same hash code keep their order
+        Arrays.sort(sortedEntries, Comparator.comparingInt(i -> keyHashCodes[i]));
+        final byte[] originalBytes = Arrays.copyOf(bucketBuffer.array(), size);
+        final byte[] bucketBytes = bucketBuffer.array();
+        int writeOffset = getHashCodeOffset(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            final int entry = sortedEntries[i];
+            bucketBuffer.putInt(getHashCodeOffset(i), keyHashCodes[entry]);
+            System.arraycopy(
+                    originalBytes,
+                    entryOffsets[entry],
+                    bucketBytes,
+                    writeOffset,
+                    entrySizes[entry]);
+            writeOffset += entrySizes[entry];
+        }
+    }
+
     /**
      * Write the complete data bytes for this bucket to a output stream.
      *
@@ -353,35 +513,87 @@ public final class Bucket<K extends VirtualKey<? super K>> {
     }
 
     /**
-     * Find the offset in bucket for an entry matching the given key, if not found then just return
-     * the offset for the end of all entries.
+     * Find the offset in bucket for an entry matching the given key. Hash codes are binary searched
+     * first, so only keys with a matching hash code are compared. If not found then return the
+     * index and offset where an entry for the key should be inserted to keep entries sorted.
      *
      * @param keyHashCode hash code for the key to search for
      * @param key the key to search for
-     * @return either true and offset for found key entry or false and offset for end of all entries
-     *     in this bucket
+     * @return either true, index and offset for found key entry, or false, index and offset to
+     *     insert a new entry at
      * @throws IOException If there was a problem reading bucket
      */
     private FindResult findEntryOffset(final int keyHashCode, final K key) throws IOException {
         final int entryCount = getBucketEntryCount();
-        int entryOffset = BUCKET_HEADER_SIZE;
-        for (int i = 0; i < entryCount; i++) {
-            final int readHashCode = bucketBuffer.getInt(entryOffset);
-            if (readHashCode == keyHashCode) {
-                // now check the full key
-                bucketBuffer.position(entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE);
-                if (keySerializer.equals(bucketBuffer, keySerializationVersion, key)) {
-                    // yay! we found it
-                    return new FindResult(entryOffset, i, true);
-                }
+        // find the first entry with a hash code not less than the key hash code
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (getHashCode(mid) < keyHashCode) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int entryIndex = low;
+        if ((entryIndex == entryCount) || (getHashCode(entryIndex) != keyHashCode)) {
+            // no entry with a matching hash code, no need to look at any keys
+            return new FindResult(getEntryOffset(entryIndex), entryIndex, false);
+        }
+        int entryOffset = getEntryOffset(entryIndex);
+        while ((entryIndex < entryCount) && (getHashCode(entryIndex) == keyHashCode)) {
+            // now check the full key
+            bucketBuffer.position(entryOffset + ENTRY_KEY_OFFSET);
+            if (keySerializer.equals(bucketBuffer, keySerializationVersion, key)) {
+                // yay! we found it
+                return new FindResult(entryOffset, entryIndex, true);
             }
-            // now read the key size so we can jump
-            /* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3932 */
-            int keySize = getKeySize(entryOffset);
             // move to next entry
-            entryOffset += KEY_HASHCODE_SIZE + VALUE_SIZE + keySize;
+            entryOffset += VALUE_SIZE + getKeySize(entryOffset);
+            entryIndex++;
         }
-        return new FindResult(entryOffset, -1, false);
+        return new FindResult(entryOffset, entryIndex, false);
+    }
+
+    /**
+     * Get the offset of the key hash code for an entry in the hash code array
+     *
+     * @param entryIndex the index of the entry
+     * @return the offset of the entry hash code
+     */
+    private static int getHashCodeOffset(final int entryIndex) {
+        return BUCKET_HEADER_SIZE + (entryIndex * KEY_HASHCODE_SIZE);
+    }
+
+    /**
+     * Read the key hash code for an entry
+     *
+     * @param entryIndex the index of the entry
+     * @return the key hash code
+     */
+    private int getHashCode(final int entryIndex) {
+        return bucketBuffer.getInt(getHashCodeOffset(entryIndex));
+    }
+
+    /**
+     * Compute the offset of an entry. For fixed size keys this is a simple calculation, for
+     * variable size keys the sizes of all entries before it have to be read.
+     *
+     * @param entryIndex the index of the entry, may be equal to entry count to get the offset of
+     *     the end of all entries
+     * @return the offset to start of entry
+     */
+    private int getEntryOffset(final int entryIndex) {
+        final int entriesOffset = getHashCodeOffset(getBucketEntryCount());
+        if (!keySerializer.isVariableSize()) {
+            return entriesOffset + (entryIndex * (VALUE_SIZE + keySerializer.getSerializedSize()));
+        }
+        int entryOffset = entriesOffset;
+        for (int i = 0; i < entryIndex; i++) {
+            entryOffset += VALUE_SIZE + getKeySize(entryOffset);
+        }
+        return entryOffset;
     }
 
     /**
@@ -391,10 +603,21 @@ public final class Bucket<K extends VirtualKey<? super K>> {
      * @return the size of the key in bytes
      */
     private int getKeySize(final int entryOffset) {
+        return getKeySizeAt(entryOffset + ENTRY_KEY_OFFSET);
+    }
+
+    /**
+     * Read the size of a serialized key
+     *
+     * @param keyOffset the offset to start of key
+     * @return the size of the key in bytes
+     */
+    private int getKeySizeAt(final int keyOffset) {
         if (!keySerializer.isVariableSize()) {
             return keySerializer.getSerializedSize();
         }
-        bucketBuffer.position(entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE);
+        /* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3932 */
+        bucketBuffer.position(keyOffset);
         return keySerializer.deserializeKeySize(bucketBuffer);
     }
 
@@ -406,7 +629,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
      * @throws IOException If there was a problem reading or deserializing the key
      */
     private K getKey(int entryOffset) throws IOException {
-        bucketBuffer.position(entryOffset + Integer.BYTES);
+        bucketBuffer.position(entryOffset + ENTRY_KEY_OFFSET);
         return keySerializer.deserialize(bucketBuffer, keySerializationVersion);
     }
 
@@ -417,7 +640,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
      * @return the value stored in given entry
      */
     private long getValue(int entryOffset) {
-        return bucketBuffer.getLong(entryOffset + ENTRY_VALUE_OFFSET);
+        return bucketBuffer.getLong(entryOffset);
     }
 
     /**
@@ -427,7 +650,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
      * @param value the value to set for entry
      */
     private void setValue(int entryOffset, long value) {
-        bucketBuffer.putLong(entryOffset + ENTRY_VALUE_OFFSET, value);
+        bucketBuffer.putLong(entryOffset, value);
     }
 
     /** toString for debugging */
@@ -446,12 +669,11 @@ public final class Bucket<K extends VirtualKey<? super K>> {
                                 + size
                                 + "\n");
         try {
-            int entryOffset = BUCKET_HEADER_SIZE;
+            int entryOffset = getHashCodeOffset(entryCount);
             for (int i = 0; i < entryCount; i++) {
                 final int keySize = getKeySize(entryOffset);
-                bucketBuffer.position(entryOffset);
-                final int readHash = bucketBuffer.getInt();
-                final long value = bucketBuffer.getLong();
+                final int readHash = getHashCode(i);
+                final long value = getValue(entryOffset);
                 final K key = getKey(entryOffset);
                 sb.append(
                         "    ENTRY["
@@ -467,7 +689,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
                                 + " keySize="
                                 + keySize
                                 + "\n");
-                entryOffset += KEY_HASHCODE_SIZE + VALUE_SIZE + keySize;
+                entryOffset += VALUE_SIZE + keySize;
             }
         } catch (IOException e) {
             logger.error(EXCEPTION.getMarker(), "Failed enumerating bucket entries", e);
@@ -42,8 +42,18 @@ public class BucketSerializer<K extends VirtualKey<? super K>>
      * serialization metadata.
      */
     private static final int LOW_ORDER_BYTES_FOR_NON_KEY_SERIALIZATION_VERSION = 32;
+    /**
+     * The original version number for serialization data format for buckets, with each entry
+     * starting with its key hash code and entries in insertion order
+     */
+    static final int ORIGINAL_BUCKET_SERIALIZATION_VERSION = 1;
+    /**
+     * The version number for serialization data format for buckets with entries sorted by key hash
+     * code and key hash codes stored in an array in front of entries
+     */
+    static final int SORTED_BUCKET_SERIALIZATION_VERSION = 2;
     /** The version number for serialization data format for this bucket */
-    private static final int BUCKET_SERIALIZATION_VERSION = 1;
+    private static final int BUCKET_SERIALIZATION_VERSION = SORTED_BUCKET_SERIALIZATION_VERSION;
 
     /** The current combined serialization version, for both bucket header and key serializer */
     private final long currentSerializationVersion;
@@ -131,7 +141,8 @@ public class BucketSerializer<K extends VirtualKey<? super K>>
     }
 
     /**
-     * Deserialize a data item from a byte buffer, that was written with given data version
+     * Deserialize a data item from a byte buffer, that was written with given data version. Buckets
+     * written with the original serialization version are converted to the current layout.
      *
      * @param buffer The buffer to read from
      * @param dataVersion The serialization version the data item was written with
@@ -145,6 +156,9 @@ public class BucketSerializer<K extends VirtualKey<? super K>>
         // split bucketSerializationVersion
         bucket.setKeySerializationVersion(
                 (int) (dataVersion >> LOW_ORDER_BYTES_FOR_NON_KEY_SERIALIZATION_VERSION));
+        if ((int) dataVersion == ORIGINAL_BUCKET_SERIALIZATION_VERSION) {
+            bucket.convertFromOriginalLayout();
+        }
         return bucket;
     }
 
@@ -163,7 +177,8 @@ public class BucketSerializer<K extends VirtualKey<? super K>>
     /**
      * Copy the serialized data item in dataItemData into the writingStream. Important if
      * serializedVersion is not the same as current serializedVersion then update the data to the
-     * latest serialization.
+     * latest serialization. This is how buckets in the original layout are rewritten sorted when
+     * their files are merged.
      *
      * @param serializedVersion The serialized version of the data item in dataItemData
      * @param dataItemSize The size in bytes of the data item dataItemData
@@ -15,13 +15,16 @@
  */
 package com.swirlds.merkledb.files.hashmap;
 
+import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
 import static com.swirlds.logging.LogMarker.EXCEPTION;
 import static com.swirlds.logging.LogMarker.MERKLE_DB;
+import static com.swirlds.merkledb.files.DataFileCommon.NON_EXISTENT_DATA_LOCATION;
 import static com.swirlds.merkledb.files.DataFileCommon.formatSizeBytes;
 import static com.swirlds.merkledb.files.DataFileCommon.getSizeOfFiles;
 import static com.swirlds.merkledb.files.DataFileCommon.getSizeOfFilesByPath;
 import static com.swirlds.merkledb.files.DataFileCommon.logMergeStats;
 
+import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.utility.Units;
 import com.swirlds.merkledb.Snapshotable;
 import com.swirlds.merkledb.collections.LongList;
@@ -39,15 +42,22 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.LongSummaryStatistics;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.eclipse.collections.api.tuple.primitive.IntObjectPair;
 import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
 
 /**
  * This is a hash map implementation where the bucket index is in RAM and the buckets are on disk.
@@ -65,8 +75,11 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
         implements AutoCloseable, Snapshotable {
     private static final Logger logger = LogManager.getLogger(HalfDiskHashMap.class);
 
-    /** The version number for format of current data files */
-    private static final int METADATA_FILE_FORMAT_VERSION = 1;
+    /** The version number for format of current metadata files */
+    private static class MetadataFileFormatVersion {
+        public static final int ORIGINAL = 1;
+        public static final int BUCKET_SPLITS = 2;
+    }
     /** Metadata file name suffix with extension. */
     private static final String METADATA_FILENAME_SUFFIX = "_metadata.hdhm";
     /** Bucket index file name suffix with extension */
@@ -91,6 +104,30 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
     private static final long GOOD_AVERAGE_BUCKET_ENTRY_COUNT = 20;
     /** how full should all available bins be if we are at the specified map size */
     public static final double LOADING_FACTOR = 0.6;
+    /** The maximum number of buckets a map can grow to, the largest power of two int */
+    private static final int MAX_NUM_OF_BUCKETS = 1 << 30;
+    /**
+     * The minimum number of buckets changed in a single writing session to consider their average
+     * entry count a good enough sample to decide if the number of buckets should grow.
+     */
+    private static final int MIN_CHANGED_BUCKETS_TO_GROW = 1024;
+    /**
+     * The minimum number of buckets to split from their parents in every writing session while the
+     * map is growing, in addition to the changed buckets. If more buckets are changed in a session,
+     * the same number of buckets is split, so splitting keeps pace with writing.
+     */
+    private static final int MIN_BUCKET_SPLITS_PER_SESSION = 4096;
+    /**
+     * The number of changed buckets in a single range handed to a flush thread. Ranges are written
+     * to the data file in bucket index order, as soon as all preceding ranges are written.
+     */
+    private static final int FLUSH_RANGE_SIZE = 1024;
+    /**
+     * A thread pool for reading and updating buckets at the end of a writing session. A single
+     * fixed size pool is shared across all HalfDiskHashMap instances. It is created by the first
+     * map that flushes in parallel, see {@link #getFlushPool(int)}.
+     */
+    private static ExecutorService flushPool;
     /**
      * Long list used for mapping bucketIndex(index into list) to disk location for latest copy of
      * bucket
@@ -106,8 +143,38 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
     /**
      * This is the next power of 2 bigger than minimumBuckets. It needs to be a power of two, so
      * that we can optimize and avoid the cost of doing a % to find the bucket index from hash code.
+     * It is doubled if the map grows beyond its planned size, see {@link #growIfNeeded(int,
+     * long)}.
+     */
+    private volatile int numOfBuckets;
+    /**
+     * The number of buckets that are fully split. Every key that belongs to a bucket with an index
+     * below this number is stored in that bucket. A key that belongs to a bucket with a greater
+     * index may still be stored in one of the bucket's ancestors, if the bucket has not been split
+     * from its parent yet since the number of buckets grew. The parent of bucket {@code i} is
+     * bucket {@code i} with its highest one bit cleared. This is always a power of two, and equal
+     * to numOfBuckets when the map is not growing.
+     */
+    private volatile int fullySplitBuckets;
+    /**
+     * The next bucket index to split in the background while the map is growing. It is always
+     * between fullySplitBuckets and fullySplitBuckets * 2.
+     */
+    private volatile int splitCursor;
+    /**
+     * Write locked while the bucket index is updated with buckets split in a writing session.
+     * Entries move from an ancestor bucket to a split bucket during that update, so a lookup that
+     * overlaps with it may miss an entry. Lookups read optimistically, and if the lock was taken in
+     * the meantime, look up the key once more under the read lock.
      */
-    private final int numOfBuckets;
+    private final StampedLock splitLock = new StampedLock();
+    /** True if the number of buckets can grow, when the map outgrows its planned size */
+    private final boolean growthEnabled;
+    /**
+     * The number of threads used to read and update changed buckets in parallel at the end of a
+     * writing session. If 1 or less, buckets are read and updated on the writing thread.
+     */
+    private final int flushThreadCount;
     /**
      * The requested max size for the map, this is the maximum number of key/values expected to be
      * stored in this map.
@@ -155,6 +222,8 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
 
         this.mapSize = mapSize;
         this.storeName = storeName;
+        this.growthEnabled = settings.isHalfDiskHashMapGrowthEnabled();
+        this.flushThreadCount = settings.getHalfDiskHashMapFlushThreads();
         Path indexFile = storeDir.resolve(storeName + BUCKET_INDEX_FILENAME_SUFFIX);
         // create bucket serializer
         this.bucketSerializer = new BucketSerializer<>(keySerializer);
@@ -173,16 +242,24 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
                 try (DataInputStream metaIn =
                         new DataInputStream(Files.newInputStream(metaDataFile))) {
                     final int fileVersion = metaIn.readInt();
-                    if (fileVersion != METADATA_FILE_FORMAT_VERSION) {
+                    if ((fileVersion != MetadataFileFormatVersion.ORIGINAL)
+                            && (fileVersion != MetadataFileFormatVersion.BUCKET_SPLITS)) {
                         throw new IOException(
                                 "Tried to read a file with incompatible file format version ["
                                         + fileVersion
                                         + "], expected ["
-                                        + METADATA_FILE_FORMAT_VERSION
+                                        + MetadataFileFormatVersion.BUCKET_SPLITS
                                         + "].");
                     }
                     minimumBuckets = metaIn.readInt();
                     numOfBuckets = metaIn.readInt();
+                    if (fileVersion == MetadataFileFormatVersion.BUCKET_SPLITS) {
+                        fullySplitBuckets = metaIn.readInt();
+                        splitCursor = metaIn.readInt();
+                    } else {
+                        fullySplitBuckets = numOfBuckets;
+                        splitCursor = numOfBuckets;
+                    }
                 }
                 if (loadedLegacyMetadata) {
                     Files.delete(metaDataFile);
@@ -228,6 +305,8 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
             // numOfBuckets is the nearest power of two greater than minimumBuckets with a min of
             // 4096
             numOfBuckets = Integer.highestOneBit(minimumBuckets) * 2;
+            fullySplitBuckets = numOfBuckets;
+            splitCursor = numOfBuckets;
             // we are new so no need for a loadedDataCallback
             loadedDataCallback = null;
             logger.info(
@@ -241,6 +320,10 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
         fileCollection =
                 new DataFileCollection<>(
                         storeDir, storeName, legacyStoreName, bucketSerializer, loadedDataCallback);
+        // garbage counts are not saved with the files, so work them out again from the index
+        if (fileCollection.isLoadedFromExistingFiles()) {
+            fileCollection.rebuildObsoleteDataItemCounts(bucketIndexToBucketLocation);
+        }
     }
 
     /**
@@ -319,9 +402,11 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
                 new DataOutputStream(
                         Files.newOutputStream(
                                 snapshotDirectory.resolve(storeName + METADATA_FILENAME_SUFFIX)))) {
-            metaOut.writeInt(METADATA_FILE_FORMAT_VERSION);
+            metaOut.writeInt(MetadataFileFormatVersion.BUCKET_SPLITS);
             metaOut.writeInt(minimumBuckets);
             metaOut.writeInt(numOfBuckets);
+            metaOut.writeInt(fullySplitBuckets);
+            metaOut.writeInt(splitCursor);
             metaOut.flush();
         }
     }
@@ -419,63 +504,375 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
         if (!oneTransactionsData.isEmpty()) {
             //  write to files
             fileCollection.startWriting();
-            // for each changed bucket, write the new buckets to file but do not update index yet
-            final LongArrayList indexChanges = new LongArrayList();
-            int oldBucketIndex = -1;
-            for (IntObjectPair<BucketMutation<K>> keyValue :
-                    oneTransactionsData.keyValuesView().toList().sortThis()) {
-                final int bucketIndex = keyValue.getOne();
-                if (bucketIndex < oldBucketIndex) {
-                    throw new IllegalStateException(
-                            "Somehow we got our bucket indexes out of order: old="
-                                    + oldBucketIndex
-                                    + ", new ="
-                                    + bucketIndex);
+            // if the map is growing, split buckets from their parents before they are updated
+            final IntObjectHashMap<Bucket<K>> splitBuckets = new IntObjectHashMap<>();
+            int newFullySplitBuckets = fullySplitBuckets;
+            int newSplitCursor = splitCursor;
+            if (fullySplitBuckets < numOfBuckets) {
+                final int[] changedBucketIndexes = oneTransactionsData.keysView().toSortedArray();
+                for (final int bucketIndex : changedBucketIndexes) {
+                    splitBucketIfNeeded(bucketIndex, splitBuckets);
                 }
-                oldBucketIndex = bucketIndex;
-                final BucketMutation<K> bucketMap = keyValue.getTwo();
-                try {
-                    Bucket<K> bucket =
-                            fileCollection.readDataItemUsingIndex(
-                                    bucketIndexToBucketLocation, bucketIndex);
-                    if (bucket == null) {
-                        // create a new bucket
-                        bucket = bucketSerializer.getReusableEmptyBucket();
-                        bucket.setBucketIndex(bucketIndex);
+                // split some more buckets in the background, so eventually every lookup needs a
+                // single bucket read again
+                final int bucketsToSplit =
+                        Math.max(MIN_BUCKET_SPLITS_PER_SESSION, changedBucketIndexes.length);
+                for (int i = 0;
+                        (i < bucketsToSplit) && (newFullySplitBuckets < numOfBuckets);
+                        i++) {
+                    splitBucketIfNeeded(newSplitCursor, splitBuckets);
+                    newSplitCursor++;
+                    if (newSplitCursor == newFullySplitBuckets * 2) {
+                        newFullySplitBuckets = newSplitCursor;
                     }
-                    final Bucket<K> finalBucket = bucket;
-                    // for each changed key in bucket, update bucket
-                    bucketMap.forEachKeyValue((k, v) -> finalBucket.putValue(k.hashCode(), k, v));
-                    // save bucket
-                    final long bucketLocation = fileCollection.storeDataItem(bucket);
-
-                    // stash update bucketIndexToBucketLocation
-                    indexChanges.add(bucketIndex);
-                    indexChanges.add(bucketLocation);
-                } catch (IllegalStateException e) {
-                    printStats();
-                    debugDumpTransactionCacheCondensed();
-                    debugDumpTransactionCache();
-                    throw e;
                 }
             }
+            // for each changed bucket, write the new buckets to file but do not update index yet
+            final IntHashSet bucketIndexSet = IntHashSet.newSet(oneTransactionsData.keysView());
+            bucketIndexSet.addAll(splitBuckets.keysView());
+            final int[] bucketIndexes = bucketIndexSet.toSortedArray();
+            final LongArrayList indexChanges =
+                    new LongArrayList(bucketIndexes.length * INDEX_CHANGE_COMPONENTS);
+            final long entriesWritten;
+            if ((flushThreadCount > 1) && (bucketIndexes.length > FLUSH_RANGE_SIZE)) {
+                entriesWritten = writeBucketsInParallel(bucketIndexes, splitBuckets, indexChanges);
+            } else {
+                entriesWritten = writeBuckets(bucketIndexes, splitBuckets, indexChanges);
+            }
             // close files session
             final DataFileReader<Bucket<K>> dataFileReader =
                     fileCollection.endWriting(0, numOfBuckets);
-            // for each changed bucket update index
-            for (int i = 0; i < indexChanges.size(); i += INDEX_CHANGE_COMPONENTS) {
-                final long bucketIndex = indexChanges.get(i);
-                final long bucketLocation = indexChanges.get(i + 1);
-                // update bucketIndexToBucketLocation
-                bucketIndexToBucketLocation.put(bucketIndex, bucketLocation);
+            // for each changed bucket update index, in reverse order, so split buckets become
+            // visible before their ancestors that no longer contain their entries. Readers can
+            // still miss a moved entry, if they look for the split bucket before it becomes
+            // visible and read the ancestor after it was updated, so make them look again.
+            final boolean bucketsSplit = !splitBuckets.isEmpty();
+            final long splitStamp = bucketsSplit ? splitLock.writeLock() : 0;
+            try {
+                for (int i = indexChanges.size() - INDEX_CHANGE_COMPONENTS;
+                        i >= 0;
+                        i -= INDEX_CHANGE_COMPONENTS) {
+                    final long bucketIndex = indexChanges.get(i);
+                    final long bucketLocation = indexChanges.get(i + 1);
+                    // update bucketIndexToBucketLocation
+                    final long oldBucketLocation =
+                            bucketIndexToBucketLocation.get(
+                                    bucketIndex, NON_EXISTENT_DATA_LOCATION);
+                    bucketIndexToBucketLocation.put(bucketIndex, bucketLocation);
+                    fileCollection.dataItemObsoleted(oldBucketLocation);
+                }
+            } finally {
+                if (bucketsSplit) {
+                    splitLock.unlockWrite(splitStamp);
+                }
             }
             // we have updated all indexes so the data file can now be included in merges
             dataFileReader.setFileAvailableForMerging(true);
+            // all split buckets are in the index now, so lookups can rely on them
+            splitCursor = newSplitCursor;
+            fullySplitBuckets = newFullySplitBuckets;
+            growIfNeeded(bucketIndexes.length, entriesWritten);
         }
         // clear put cache
         oneTransactionsData = null;
     }
 
+    /**
+     * Read, update and write all changed buckets on the current thread.
+     *
+     * @param bucketIndexes sorted indexes of all changed buckets
+     * @param splitBuckets buckets split in this writing session, by bucket index
+     * @param indexChanges list to add bucket index and bucket location pairs to
+     * @return the total number of entries in all written buckets
+     * @throws IOException If there was a problem reading or writing buckets
+     */
+    private long writeBuckets(
+            final int[] bucketIndexes,
+            final IntObjectHashMap<Bucket<K>> splitBuckets,
+            final LongArrayList indexChanges)
+            throws IOException {
+        long entriesWritten = 0;
+        for (final int bucketIndex : bucketIndexes) {
+            try {
+                final Bucket<K> bucket =
+                        readAndUpdateBucket(
+                                bucketIndex,
+                                oneTransactionsData.get(bucketIndex),
+                                splitBuckets.get(bucketIndex));
+                entriesWritten += bucket.getBucketEntryCount();
+                // save bucket
+                final long bucketLocation = fileCollection.storeDataItem(bucket);
+                // stash update bucketIndexToBucketLocation
+                indexChanges.add(bucketIndex);
+                indexChanges.add(bucketLocation);
+            } catch (IllegalStateException e) {
+                printStats();
+                debugDumpTransactionCacheCondensed();
+                debugDumpTransactionCache();
+                throw e;
+            }
+        }
+        return entriesWritten;
+    }
+
+    /**
+     * Read and update all changed buckets on the flush thread pool, then write them on the current
+     * thread. Sorted bucket indexes are split into ranges of {@link #FLUSH_RANGE_SIZE} buckets.
+     * Ranges are read and updated in parallel, but written in order, so the result is a single data
+     * file with buckets sorted by index, exactly the same as {@link #writeBuckets(int[],
+     * IntObjectHashMap, LongArrayList)} would produce.
+     *
+     * @param bucketIndexes sorted indexes of all changed buckets
+     * @param splitBuckets buckets split in this writing session, by bucket index
+     * @param indexChanges list to add bucket index and bucket location pairs to
+     * @return the total number of entries in all written buckets
+     * @throws IOException If there was a problem reading or writing buckets
+     */
+    private long writeBucketsInParallel(
+            final int[] bucketIndexes,
+            final IntObjectHashMap<Bucket<K>> splitBuckets,
+            final LongArrayList indexChanges)
+            throws IOException {
+        final IntObjectHashMap<BucketMutation<K>> transactionData = oneTransactionsData;
+        final ExecutorService pool = getFlushPool(flushThreadCount);
+        // updated buckets are kept in memory until they are written, so limit the ranges in flight
+        final int maxRangesInFlight = flushThreadCount * 2;
+        long entriesWritten = 0;
+        final ArrayDeque<Future<List<Bucket<K>>>> rangesInFlight =
+                new ArrayDeque<>(maxRangesInFlight);
+        int nextRangeStart = 0;
+        try {
+            while ((nextRangeStart < bucketIndexes.length) || !rangesInFlight.isEmpty()) {
+                // keep the pool busy, but don't hold too many updated buckets in memory
+                while ((nextRangeStart < bucketIndexes.length)
+                        && (rangesInFlight.size() < maxRangesInFlight)) {
+                    final int rangeStart = nextRangeStart;
+                    final int rangeEnd =
+                            Math.min(rangeStart + FLUSH_RANGE_SIZE, bucketIndexes.length);
+                    rangesInFlight.add(
+                            pool.submit(
+                                    () ->
+                                            readAndUpdateBuckets(
+                                                    transactionData,
+                                                    splitBuckets,
+                                                    bucketIndexes,
+                                                    rangeStart,
+                                                    rangeEnd)));
+                    nextRangeStart = rangeEnd;
+                }
+                // write the oldest range, ranges are always written in bucket index order
+                final List<Bucket<K>> updatedBuckets = rangesInFlight.remove().get();
+                for (final Bucket<K> bucket : updatedBuckets) {
+                    entriesWritten += bucket.getBucketEntryCount();
+                    final long bucketLocation = fileCollection.storeDataItem(bucket);
+                    indexChanges.add(bucket.getBucketIndex());
+                    indexChanges.add(bucketLocation);
+                }
+            }
+            return entriesWritten;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing buckets to " + storeName, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to update buckets in " + storeName, cause);
+        } finally {
+            // Don't interrupt flush threads, an interrupt during a read would close the data file
+            // channel for all readers. Just make sure no more work is started for this session
+            for (final Future<List<Bucket<K>>> range : rangesInFlight) {
+                range.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Get the thread pool shared by all maps for parallel flushes, creating it on first use.
+     *
+     * @param threadCount the number of threads to create the pool with, if it doesn't exist yet
+     * @return the shared flush thread pool
+     */
+    private static synchronized ExecutorService getFlushPool(final int threadCount) {
+        if (flushPool == null) {
+            flushPool =
+                    Executors.newFixedThreadPool(
+                            threadCount,
+                            new ThreadConfiguration(getStaticThreadManager())
+                                    .setThreadGroup(new ThreadGroup("half-disk-hash-map-flushers"))
+                                    .setComponent("merkledb")
+                                    .setThreadName("HalfDiskHashMap Flush")
+                                    .setExceptionHandler(
+                                            (t, ex) ->
+                                                    logger.error(
+                                                            EXCEPTION.getMarker(),
+                                                            "Uncaught exception during bucket"
+                                                                    + " flush",
+                                                            ex))
+                                    .buildFactory());
+        }
+        return flushPool;
+    }
+
+    /**
+     * Read and update a range of changed buckets. Called on a flush thread.
+     *
+     * @param transactionData the mutations for all changed buckets
+     * @param splitBuckets buckets split in this writing session, by bucket index
+     * @param bucketIndexes sorted indexes of all changed buckets
+     * @param rangeStart the first position in bucketIndexes to process, inclusive
+     * @param rangeEnd the last position in bucketIndexes to process, exclusive
+     * @return list of updated buckets, in bucket index order
+     * @throws IOException If there was a problem reading buckets
+     */
+    private List<Bucket<K>> readAndUpdateBuckets(
+            final IntObjectHashMap<BucketMutation<K>> transactionData,
+            final IntObjectHashMap<Bucket<K>> splitBuckets,
+            final int[] bucketIndexes,
+            final int rangeStart,
+            final int rangeEnd)
+            throws IOException {
+        final List<Bucket<K>> updatedBuckets = new ArrayList<>(rangeEnd - rangeStart);
+        for (int i = rangeStart; i < rangeEnd; i++) {
+            final int bucketIndex = bucketIndexes[i];
+            // the bucket is reused by this thread, so it has to be copied before the next read
+            updatedBuckets.add(
+                    readAndUpdateBucket(
+                                    bucketIndex,
+                                    transactionData.get(bucketIndex),
+                                    splitBuckets.get(bucketIndex))
+                            .copy());
+        }
+        return updatedBuckets;
+    }
+
+    /**
+     * Read a bucket from disk, or create a new one if it doesn't exist yet, then apply all changes
+     * to it. Unless the bucket was split in this writing session, the returned bucket is reused by
+     * the current thread.
+     *
+     * @param bucketIndex the bucket index
+     * @param bucketMap the changes to apply to the bucket, or null if the bucket is only written
+     *     because it was split
+     * @param splitBucket the bucket if it was split in this writing session, otherwise null
+     * @return the updated bucket
+     * @throws IOException If there was a problem reading the bucket
+     */
+    private Bucket<K> readAndUpdateBucket(
+            final int bucketIndex, final BucketMutation<K> bucketMap, final Bucket<K> splitBucket)
+            throws IOException {
+        Bucket<K> bucket =
+                (splitBucket != null)
+                        ? splitBucket
+                        : fileCollection.readDataItemUsingIndex(
+                                bucketIndexToBucketLocation, bucketIndex);
+        if (bucket == null) {
+            // create a new bucket
+            bucket = bucketSerializer.getReusableEmptyBucket();
+            bucket.setBucketIndex(bucketIndex);
+        }
+        if (bucketMap != null) {
+            final Bucket<K> finalBucket = bucket;
+            // for each changed key in bucket, update bucket
+            bucketMap.forEachKeyValue((k, v) -> finalBucket.putValue(k.hashCode(), k, v));
+        }
+        return bucket;
+    }
+
+    /**
+     * Split a bucket from its nearest stored ancestor, if it is not stored yet and the map is
+     * growing. All entries that belong to the bucket or any of its descendants are moved from the
+     * ancestor to the bucket. Both buckets are then added to the given split buckets, so they are
+     * written in the current writing session. If there is nothing to move, the bucket is left
+     * unsplit, which is equivalent to an empty bucket.
+     *
+     * @param bucketIndex the bucket index
+     * @param splitBuckets buckets split in this writing session, by bucket index
+     * @throws IOException If there was a problem reading the ancestor bucket
+     */
+    private void splitBucketIfNeeded(
+            final int bucketIndex, final IntObjectHashMap<Bucket<K>> splitBuckets)
+            throws IOException {
+        if ((bucketIndex < fullySplitBuckets) || isBucketStored(bucketIndex, splitBuckets)) {
+            return;
+        }
+        // find the nearest ancestor that may store entries for this bucket
+        int ancestorIndex = getParentBucketIndex(bucketIndex);
+        while ((ancestorIndex >= fullySplitBuckets)
+                && !isBucketStored(ancestorIndex, splitBuckets)) {
+            ancestorIndex = getParentBucketIndex(ancestorIndex);
+        }
+        Bucket<K> ancestor = splitBuckets.get(ancestorIndex);
+        if (ancestor == null) {
+            final Bucket<K> storedAncestor =
+                    fileCollection.readDataItemUsingIndex(
+                            bucketIndexToBucketLocation, ancestorIndex);
+            if (storedAncestor == null) {
+                // nothing to move
+                return;
+            }
+            // the read bucket is reused by this thread, so copy it before the next read
+            ancestor = storedAncestor.copy();
+        }
+        final Bucket<K> bucket = new Bucket<>(bucketSerializer.getKeySerializer());
+        bucket.setBucketIndex(bucketIndex);
+        // keys of this bucket and all its descendants have the bucket index as their lowest bits
+        final int subtreeMask = (Integer.highestOneBit(bucketIndex) << 1) - 1;
+        if (ancestor.moveEntries(bucket, subtreeMask) > 0) {
+            splitBuckets.put(ancestorIndex, ancestor);
+            splitBuckets.put(bucketIndex, bucket);
+        }
+    }
+
+    /**
+     * Check if a bucket is stored on disk or was split in the current writing session.
+     *
+     * @param bucketIndex the bucket index
+     * @param splitBuckets buckets split in this writing session, by bucket index
+     * @return true if the bucket is stored
+     */
+    private boolean isBucketStored(
+            final int bucketIndex, final IntObjectHashMap<Bucket<K>> splitBuckets) {
+        return splitBuckets.containsKey(bucketIndex)
+                || (bucketIndexToBucketLocation.get(bucketIndex, LongList.IMPERMISSIBLE_VALUE)
+                        != LongList.IMPERMISSIBLE_VALUE);
+    }
+
+    /**
+     * Double the number of buckets, if growth is enabled, the map is not growing already, and the
+     * buckets written in the last writing session hold more entries on average than the map was
+     * designed for. Written buckets are a sample of all buckets, biased towards buckets with more
+     * entries as they are more likely to change, so this slightly overestimates the average. That
+     * is fine, as it only makes the map grow a bit early. No data is moved here, buckets are split
+     * lazily by the following writing sessions.
+     *
+     * @param bucketsWritten the number of buckets written in the last writing session
+     * @param entriesWritten the total number of entries in buckets written in the last session
+     */
+    private void growIfNeeded(final int bucketsWritten, final long entriesWritten) {
+        if (!growthEnabled
+                || (bucketsWritten < MIN_CHANGED_BUCKETS_TO_GROW)
+                || (fullySplitBuckets < numOfBuckets)
+                || (numOfBuckets >= MAX_NUM_OF_BUCKETS)) {
+            return;
+        }
+        final double averageEntries = (double) entriesWritten / bucketsWritten;
+        if (averageEntries > GOOD_AVERAGE_BUCKET_ENTRY_COUNT) {
+            splitCursor = numOfBuckets;
+            numOfBuckets = numOfBuckets * 2;
+            logger.info(
+                    MERKLE_DB.getMarker(),
+                    "HalfDiskHashMap [{}] average bucket entry count is {}, growing numOfBuckets"
+                            + " to {}",
+                    storeName,
+                    averageEntries,
+                    numOfBuckets);
+        }
+    }
+
     // =================================================================================================================
     // Reading API - Multi thead safe
 
@@ -493,13 +890,61 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
             throw new IllegalArgumentException("Can not get a null key");
         }
         final int keyHash = key.hashCode();
-        final int bucketIndex = computeBucketIndex(keyHash);
-        final Bucket<K> bucket =
+        // buckets are rarely split while we read, so try without locking first
+        final long stamp = splitLock.tryOptimisticRead();
+        if (stamp != 0) {
+            final int bucketCount = numOfBuckets;
+            final long value = findValue(bucketCount, keyHash, key, notFoundValue);
+            if (splitLock.validate(stamp) && (bucketCount == numOfBuckets)) {
+                return value;
+            }
+        }
+        // if the number of buckets changed or buckets were split while we were reading, the key
+        // may have been moved. Look again once the bucket index is updated, no entries can move
+        // while we hold the read lock
+        final long readStamp = splitLock.readLock();
+        try {
+            return findValue(numOfBuckets, keyHash, key, notFoundValue);
+        } finally {
+            splitLock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Find the value for a key in the bucket it belongs to, or in the nearest ancestor of that
+     * bucket, if the bucket is not split from its parent yet.
+     *
+     * @param bucketCount the number of buckets
+     * @param keyHash the key hash code
+     * @param key the key to get the value for
+     * @param notFoundValue the value to return if the key was not found
+     * @return the value stored for the key or {notFoundValue} if no value was stored
+     * @throws IOException If there was a problem reading from the map
+     */
+    private long findValue(
+            final int bucketCount, final int keyHash, final K key, final long notFoundValue)
+            throws IOException {
+        int bucketIndex = (bucketCount - 1) & keyHash;
+        Bucket<K> bucket =
                 fileCollection.readDataItemUsingIndex(bucketIndexToBucketLocation, bucketIndex);
-        if (bucket != null) {
-            return bucket.findValue(keyHash, key, notFoundValue);
+        // if the map is growing, the bucket may not be split from its parent yet, then the key is
+        // stored in the nearest ancestor bucket
+        while ((bucket == null) && (bucketIndex >= fullySplitBuckets)) {
+            bucketIndex = getParentBucketIndex(bucketIndex);
+            bucket =
+                    fileCollection.readDataItemUsingIndex(bucketIndexToBucketLocation, bucketIndex);
         }
-        return notFoundValue;
+        return (bucket != null) ? bucket.findValue(keyHash, key, notFoundValue) : notFoundValue;
+    }
+
+    // For testing purpose
+    int getNumOfBuckets() {
+        return numOfBuckets;
+    }
+
+    // For testing purpose
+    int getFullySplitBuckets() {
+        return fullySplitBuckets;
     }
 
     // =================================================================================================================
@@ -514,11 +959,13 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
 					mapSize = {}
 					minimumBuckets = {}
 					numOfBuckets = {}
+					fullySplitBuckets = {}
 					GOOD_AVERAGE_BUCKET_ENTRY_COUNT = {}
 				}""",
                 mapSize,
                 minimumBuckets,
                 numOfBuckets,
+                fullySplitBuckets,
                 GOOD_AVERAGE_BUCKET_ENTRY_COUNT);
     }
 
@@ -592,4 +1039,15 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>>
     private int computeBucketIndex(final int keyHash) {
         return (numOfBuckets - 1) & keyHash;
     }
+
+    /**
+     * Computes the parent of a bucket, the bucket that stored its keys before the number of buckets
+     * grew past the bucket index.
+     *
+     * @param bucketIndex the bucket index, must be greater than zero
+     * @return the index of the parent bucket
+     */
+    private static int getParentBucketIndex(final int bucketIndex) {
+        return bucketIndex ^ Integer.highestOneBit(bucketIndex);
+    }
 }
@@ -17,6 +17,7 @@ package com.swirlds.merkledb.settings;
 
 import static com.swirlds.common.utility.Units.GIBIBYTES_TO_BYTES;
 
+import com.swirlds.merkledb.cache.LeafRecordCachePolicy;
 import com.swirlds.merkledb.collections.ThreeLongsList;
 import java.time.temporal.ChronoUnit;
 
@@ -55,6 +56,15 @@ public class DefaultMerkleDbSettings implements MerkleDbSettings {
     public static final boolean DEFAULT_RECONNECT_KEY_LEAK_MITIGATION_ENABLED = false;
     public static final boolean DEFAULT_INDEX_REBUILDING_ENFORCED = false;
     public static final int DEFAULT_LEAF_RECORD_CACHE_SIZE = 1 << 20;
+    public static final LeafRecordCachePolicy DEFAULT_LEAF_RECORD_CACHE_POLICY =
+            LeafRecordCachePolicy.TINY_LFU;
+    public static final int DEFAULT_HALF_DISK_HASH_MAP_FLUSH_THREADS = 1;
+    public static final boolean DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED = false;
+    public static final boolean DEFAULT_DATA_FILE_MEMORY_MAPPED_READS_ENABLED = false;
+    public static final boolean DEFAULT_GARBAGE_DRIVEN_MERGE_ENABLED = false;
+    public static final double DEFAULT_MIN_GARBAGE_RATIO_FOR_MERGE = 0.2;
+    public static final boolean DEFAULT_CONCURRENT_STORE_MERGING_ENABLED = false;
+    public static final int DEFAULT_MAX_MERGE_WRITE_MB_PER_SECOND = 0;
 
     // These default parameters result in a bloom filter false positive rate of less than 1/1000
     // when 1 billion
@@ -196,4 +206,52 @@ public class DefaultMerkleDbSettings implements MerkleDbSettings {
     public int getLeafRecordCacheSize() {
         return DEFAULT_LEAF_RECORD_CACHE_SIZE;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public LeafRecordCachePolicy getLeafRecordCachePolicy() {
+        return DEFAULT_LEAF_RECORD_CACHE_POLICY;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getHalfDiskHashMapFlushThreads() {
+        return DEFAULT_HALF_DISK_HASH_MAP_FLUSH_THREADS;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isHalfDiskHashMapGrowthEnabled() {
+        return DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDataFileMemoryMappedReadsEnabled() {
+        return DEFAULT_DATA_FILE_MEMORY_MAPPED_READS_ENABLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isGarbageDrivenMergeEnabled() {
+        return DEFAULT_GARBAGE_DRIVEN_MERGE_ENABLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMinGarbageRatioForMerge() {
+        return DEFAULT_MIN_GARBAGE_RATIO_FOR_MERGE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isConcurrentStoreMergingEnabled() {
+        return DEFAULT_CONCURRENT_STORE_MERGING_ENABLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxMergeWriteMbPerSecond() {
+        return DEFAULT_MAX_MERGE_WRITE_MB_PER_SECOND;
+    }
 }
@@ -15,6 +15,7 @@
  */
 package com.swirlds.merkledb.settings;
 
+import com.swirlds.merkledb.cache.LeafRecordCachePolicy;
 import java.time.temporal.ChronoUnit;
 
 /**
@@ -205,4 +206,84 @@ public interface MerkleDbSettings {
      * @return Virtual leaf record cache size
      */
     int getLeafRecordCacheSize();
+
+    /**
+     * Admission and eviction policy of virtual leaf record cache at data source level. See {@link
+     * LeafRecordCachePolicy} for available policies.
+     *
+     * @return Virtual leaf record cache policy
+     */
+    LeafRecordCachePolicy getLeafRecordCachePolicy();
+
+    /**
+     * Number of threads used to read and update changed buckets when a {@link
+     * com.swirlds.merkledb.files.hashmap.HalfDiskHashMap} writing session ends. Changed buckets are
+     * split into ranges of bucket indexes that are read and updated in parallel, while the results
+     * are still written to a single data file in bucket index order. If 1 or less, buckets are read
+     * and updated serially on the writing thread. Default is 1.
+     *
+     * @return number of threads used to rewrite half disk hash map buckets
+     */
+    int getHalfDiskHashMapFlushThreads();
+
+    /**
+     * If true, the number of buckets in a {@link
+     * com.swirlds.merkledb.files.hashmap.HalfDiskHashMap} is doubled when the average number of
+     * entries in changed buckets grows beyond the number the map was sized for. Buckets are then
+     * split from their parents lazily, when they are changed or by a background split cursor that
+     * advances with every flush, so no offline rebuild is needed. Default is false.
+     *
+     * @return whether half disk hash maps may grow their bucket count
+     */
+    boolean isHalfDiskHashMapGrowthEnabled();
+
+    /**
+     * If true, data files are memory mapped once they are fully written, and data items are read
+     * as slices of the mapped buffer instead of with a positional read into a heap buffer for every
+     * item. This saves a system call and a copy on every read. Files larger than 2GB are always
+     * read through their file channel. Default is false.
+     *
+     * @return whether data file reads use memory mapped buffers
+     */
+    boolean isDataFileMemoryMappedReadsEnabled();
+
+    /**
+     * If true, medium merges pick the run of files, contiguous in creation time, with the most
+     * estimated reclaimable space, instead of the newest files smaller than {@link
+     * #getMediumMergeCutoffMb()}, and full merges are skipped unless all files together have
+     * enough reclaimable space. Reclaimable space is estimated by counting data items made obsolete
+     * by index updates and deletions, and the counts are rebuilt from the indexes when files are
+     * loaded. Small merges are not affected. Default is false.
+     *
+     * @return whether medium and full merges are driven by garbage ratios
+     */
+    boolean isGarbageDrivenMergeEnabled();
+
+    /**
+     * The minimum ratio of estimated reclaimable bytes to total bytes a run of files, or all files
+     * for a full merge, must have to be merged by a garbage-driven merge, see {@link
+     * #isGarbageDrivenMergeEnabled()}. Default is 0.2.
+     *
+     * @return the minimum garbage ratio for a garbage-driven merge
+     */
+    double getMinGarbageRatioForMerge();
+
+    /**
+     * If true, each store of a data source (internal hashes, key to path and path to hash, key and
+     * value) is merged by its own scheduled task, with its own merge periods, so a long merge of
+     * one store doesn't delay merges of the others. When false, all stores are merged one after
+     * another by a single task. Note that up to three merges per data source may then be running at
+     * the same time, each using up to {@link #getMaxRamUsedForMergingGb()}. Default is false.
+     *
+     * @return whether stores are merged concurrently
+     */
+    boolean isConcurrentStoreMergingEnabled();
+
+    /**
+     * The maximum number of MB per second all merges in the process combined may write, so merges
+     * don't starve flushes of disk bandwidth. Zero means unlimited. Default is 0.
+     *
+     * @return the global merge write budget in MB per second
+     */
+    int getMaxMergeWriteMbPerSecond();
 }
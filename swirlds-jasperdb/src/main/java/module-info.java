@@ -28,6 +28,7 @@ open module com.swirlds.jasperdb {
     exports com.swirlds.jasperdb.settings;
     exports com.swirlds.jasperdb.config;
     exports com.swirlds.merkledb;
+    exports com.swirlds.merkledb.cache;
     exports com.swirlds.merkledb.collections;
     exports com.swirlds.merkledb.config;
     exports com.swirlds.merkledb.files;
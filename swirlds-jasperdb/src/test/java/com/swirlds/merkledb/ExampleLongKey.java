@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.merkledb.serialize.KeySerializer;
+import com.swirlds.virtualmap.VirtualLongKey;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** A simple fixed size long key for tests. */
+public final class ExampleLongKey implements VirtualLongKey {
+
+    public static final int BYTES = Long.BYTES;
+
+    private long value;
+
+    public ExampleLongKey() {}
+
+    public ExampleLongKey(final long value) {
+        this.value = value;
+    }
+
+    @Override
+    public long getKeyAsLong() {
+        return value;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public long getClassId() {
+        return 0x7c5a1e3bd2f0489aL;
+    }
+
+    @Override
+    public void serialize(final ByteBuffer buffer) {
+        buffer.putLong(value);
+    }
+
+    @Override
+    public void deserialize(final ByteBuffer buffer, final int version) {
+        value = buffer.getLong();
+    }
+
+    @Override
+    public void serialize(final SerializableDataOutputStream out) throws IOException {
+        out.writeLong(value);
+    }
+
+    @Override
+    public void deserialize(final SerializableDataInputStream in, final int version)
+            throws IOException {
+        value = in.readLong();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        return (o instanceof ExampleLongKey other) && (value == other.value);
+    }
+
+    @Override
+    public String toString() {
+        return "ExampleLongKey{" + value + "}";
+    }
+
+    /** Serializer for {@link ExampleLongKey}. */
+    public static final class Serializer implements KeySerializer<ExampleLongKey> {
+
+        @Override
+        public long getClassId() {
+            return 0x7c5a1e3bd2f0489bL;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return BYTES;
+        }
+
+        @Override
+        public long getCurrentDataVersion() {
+            return 1;
+        }
+
+        @Override
+        public int deserializeKeySize(final ByteBuffer buffer) {
+            return BYTES;
+        }
+
+        @Override
+        public ExampleLongKey deserialize(final ByteBuffer buffer, final long dataVersion) {
+            return new ExampleLongKey(buffer.getLong());
+        }
+
+        @Override
+        public int serialize(
+                final ExampleLongKey data, final SerializableDataOutputStream outputStream)
+                throws IOException {
+            outputStream.writeLong(data.value);
+            return BYTES;
+        }
+
+        @Override
+        public int serialize(final ExampleLongKey data, final ByteBuffer buffer) {
+            buffer.putLong(data.value);
+            return BYTES;
+        }
+
+        @Override
+        public boolean equals(
+                final ByteBuffer buffer, final int dataVersion, final ExampleLongKey keyToCompare) {
+            return buffer.getLong() == keyToCompare.value;
+        }
+    }
+}
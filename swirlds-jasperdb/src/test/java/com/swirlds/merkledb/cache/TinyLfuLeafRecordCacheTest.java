@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.merkledb.ExampleLongKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuLeafRecordCacheTest {
+
+    /** Small enough for a single segment, so the test controls what is evicted */
+    private static final int CAPACITY = 1024;
+
+    private static VirtualLeafRecord<ExampleLongKey, VirtualValue> record(final long key) {
+        return new VirtualLeafRecord<>(key, null, new ExampleLongKey(key), null);
+    }
+
+    private static void put(
+            final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache, final long key) {
+        cache.put(new ExampleLongKey(key), record(key));
+    }
+
+    private static boolean isCached(
+            final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache, final long key) {
+        return cache.get(new ExampleLongKey(key)) != null;
+    }
+
+    /** Read a key the given number of times, as a data source does on every cache miss */
+    private static void read(
+            final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache,
+            final long key,
+            final int times) {
+        for (int i = 0; i < times; i++) {
+            cache.get(new ExampleLongKey(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Capacity must be positive")
+    void invalidCapacity() {
+        assertThrows(
+                IllegalArgumentException.class, () -> new TinyLfuLeafRecordCache<>(0, () -> {}));
+    }
+
+    @Test
+    @DisplayName("Records are cached until invalidated")
+    void putGetInvalidate() {
+        final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache =
+                new TinyLfuLeafRecordCache<>(CAPACITY, () -> {});
+        final VirtualLeafRecord<ExampleLongKey, VirtualValue> first = record(1);
+        cache.put(new ExampleLongKey(1), first);
+        assertSame(first, cache.get(new ExampleLongKey(1)));
+        assertNull(cache.get(new ExampleLongKey(2)));
+
+        // an update of a cached key replaces its record
+        final VirtualLeafRecord<ExampleLongKey, VirtualValue> second = record(1);
+        cache.put(new ExampleLongKey(1), second);
+        assertSame(second, cache.get(new ExampleLongKey(1)));
+
+        cache.invalidate(new ExampleLongKey(1));
+        assertNull(cache.get(new ExampleLongKey(1)));
+        // invalidating a key that isn't cached is a no-op
+        cache.invalidate(new ExampleLongKey(2));
+    }
+
+    @Test
+    @DisplayName("A full cache only admits keys read more often than the eviction victim")
+    void admission() {
+        final AtomicInteger evictions = new AtomicInteger();
+        final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache =
+                new TinyLfuLeafRecordCache<>(CAPACITY, evictions::incrementAndGet);
+        // keys that are never read have zero frequency
+        for (long key = 0; key < CAPACITY; key++) {
+            put(cache, key);
+        }
+        assertEquals(0, evictions.get(), "nothing should be evicted before the cache is full");
+
+        // a key that is never read isn't more frequent than the victim
+        put(cache, CAPACITY);
+        assertEquals(0, evictions.get(), "a cold key should not be admitted");
+        assertNull(cache.get(new ExampleLongKey(CAPACITY)));
+
+        // a key that is read repeatedly is admitted and evicts the least recently used record
+        final long frequentKey = CAPACITY + 1;
+        read(cache, frequentKey, 3);
+        put(cache, frequentKey);
+        assertEquals(1, evictions.get(), "the least recently used record should be evicted");
+        assertTrue(isCached(cache, frequentKey), "a frequent key should be admitted");
+        assertNull(cache.get(new ExampleLongKey(0)), "the first record put should be the victim");
+
+        // updates of cached keys never evict
+        put(cache, frequentKey);
+        put(cache, 1);
+        assertEquals(1, evictions.get());
+    }
+
+    @Test
+    @DisplayName("A burst of keys read once doesn't flush a frequently read key")
+    void frequentKeySurvivesScan() {
+        final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache =
+                new TinyLfuLeafRecordCache<>(CAPACITY, () -> {});
+        final long hotKey = -1;
+        // saturate the counters of the hot key, then make it the least recently used record
+        read(cache, hotKey, 15);
+        put(cache, hotKey);
+        for (long key = 0; key < CAPACITY - 1; key++) {
+            read(cache, key, 1);
+            put(cache, key);
+        }
+        // the scan is shorter than the sample size, so counters are never halved
+        for (long key = CAPACITY; key < 3 * CAPACITY; key++) {
+            read(cache, key, 1);
+            put(cache, key);
+        }
+        assertTrue(isCached(cache, hotKey), "the hot key should not be evicted by a scan");
+    }
+
+    @Test
+    @DisplayName("The number of cached records never exceeds the capacity")
+    void eviction() {
+        final AtomicInteger evictions = new AtomicInteger();
+        final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache =
+                new TinyLfuLeafRecordCache<>(CAPACITY, evictions::incrementAndGet);
+        final int numOfKeys = 8 * CAPACITY;
+        final Random random = new Random(42);
+        int admitted = 0;
+        for (long key = 0; key < numOfKeys; key++) {
+            read(cache, key, 1 + random.nextInt(4));
+            put(cache, key);
+            if (isCached(cache, key)) {
+                admitted++;
+            }
+        }
+        int cached = 0;
+        for (long key = 0; key < numOfKeys; key++) {
+            if (isCached(cache, key)) {
+                cached++;
+            }
+        }
+        assertEquals(CAPACITY, cached, "a full cache should stay full");
+        assertEquals(
+                admitted - CAPACITY,
+                evictions.get(),
+                "every record admitted to a full cache should evict one");
+    }
+
+    @Test
+    @DisplayName("Concurrent gets and puts return the records put for their keys")
+    void concurrentGetPut() throws InterruptedException {
+        // large enough to be split into many segments
+        final int capacity = 64 * CAPACITY;
+        final AtomicInteger evictions = new AtomicInteger();
+        final TinyLfuLeafRecordCache<ExampleLongKey, VirtualValue> cache =
+                new TinyLfuLeafRecordCache<>(capacity, evictions::incrementAndGet);
+        final int numOfThreads = 8;
+        final int numOfKeys = 4 * capacity;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numOfThreads; t++) {
+            final Random random = new Random(t);
+            final Thread thread =
+                    new Thread(
+                            () -> {
+                                try {
+                                    start.await();
+                                    for (int i = 0; i < 200_000; i++) {
+                                        // skewed, so some keys are read much more often
+                                        final double r3 = Math.pow(random.nextDouble(), 3);
+                                        final long key = (long) (numOfKeys * r3);
+                                        final VirtualLeafRecord<ExampleLongKey, VirtualValue> r =
+                                                cache.get(new ExampleLongKey(key));
+                                        if (r == null) {
+                                            put(cache, key);
+                                        } else {
+                                            assertEquals(key, r.getKey().getKeyAsLong());
+                                            assertEquals(key, r.getPath());
+                                        }
+                                        if (random.nextInt(100) == 0) {
+                                            cache.invalidate(new ExampleLongKey(key));
+                                        }
+                                    }
+                                } catch (final Throwable e) {
+                                    error.compareAndSet(null, e);
+                                }
+                            },
+                            "tinylfu-test-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError("a reader or writer failed", error.get());
+        }
+
+        int cached = 0;
+        for (long key = 0; key < numOfKeys; key++) {
+            final VirtualLeafRecord<ExampleLongKey, VirtualValue> r =
+                    cache.get(new ExampleLongKey(key));
+            if (r != null) {
+                assertEquals(key, r.getPath());
+                cached++;
+            }
+        }
+        assertTrue(cached <= capacity, "too many records cached: " + cached);
+        assertTrue(evictions.get() > 0, "a cache under pressure should evict");
+    }
+}
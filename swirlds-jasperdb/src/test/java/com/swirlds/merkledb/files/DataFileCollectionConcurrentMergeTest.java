@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.swirlds.merkledb.collections.LongListHeap;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DataFileCollectionConcurrentMergeTest {
+
+    private static final int STORE_COUNT = 3;
+    private static final int FILE_COUNT = 4;
+    private static final int KEY_COUNT = 20_000;
+
+    @TempDir Path tempDir;
+
+    /** File number g rewrites every key that is a multiple of g + 1, so keys differ in last file */
+    private static long valueFor(final long key, final int store) {
+        int lastGeneration = 0;
+        for (int generation = 1; generation < FILE_COUNT; generation++) {
+            if (key % (generation + 1) == 0) {
+                lastGeneration = generation;
+            }
+        }
+        return key * 31 + store * 1_000 + lastGeneration;
+    }
+
+    @Test
+    @DisplayName("Stores merged at the same time each keep all their latest data")
+    void concurrentMerges() throws Exception {
+        final List<DataFileCollection<long[]>> collections = new ArrayList<>();
+        final List<LongListHeap> indexes = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(STORE_COUNT);
+        try {
+            for (int store = 0; store < STORE_COUNT; store++) {
+                final DataFileCollection<long[]> collection =
+                        new DataFileCollection<>(
+                                tempDir.resolve("store" + store),
+                                "store" + store,
+                                new ExampleLongPairSerializer(),
+                                null);
+                final LongListHeap index = new LongListHeap();
+                collections.add(collection);
+                indexes.add(index);
+                for (int generation = 0; generation < FILE_COUNT; generation++) {
+                    collection.startWriting();
+                    for (long key = 0; key < KEY_COUNT; key += generation + 1) {
+                        final long value = key * 31 + store * 1_000 + generation;
+                        index.put(key, collection.storeDataItem(new long[] {key, value}));
+                    }
+                    collection.endWriting(0, KEY_COUNT - 1).setFileAvailableForMerging(true);
+                }
+            }
+
+            final CyclicBarrier start = new CyclicBarrier(STORE_COUNT);
+            final List<Future<List<Path>>> merges = new ArrayList<>();
+            for (int store = 0; store < STORE_COUNT; store++) {
+                final DataFileCollection<long[]> collection = collections.get(store);
+                final LongListHeap index = indexes.get(store);
+                merges.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    return collection.mergeFiles(
+                                            index,
+                                            collection.getAllFilesAvailableForMerge(),
+                                            new Semaphore(1));
+                                }));
+            }
+            for (final Future<List<Path>> merge : merges) {
+                assertEquals(
+                        1, merge.get(1, TimeUnit.MINUTES).size(), "Expected one merged file");
+            }
+
+            for (int store = 0; store < STORE_COUNT; store++) {
+                final DataFileCollection<long[]> collection = collections.get(store);
+                assertEquals(1, collection.getNumOfFiles(), "Old files should be gone");
+                for (long key = 0; key < KEY_COUNT; key++) {
+                    assertArrayEquals(
+                            new long[] {key, valueFor(key, store)},
+                            collection.readDataItemUsingIndex(indexes.get(store), key),
+                            "Wrong value for key " + key + " in store " + store);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (final DataFileCollection<long[]> collection : collections) {
+                collection.close();
+            }
+            for (final LongListHeap index : indexes) {
+                index.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.merkledb.collections.LongListHeap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the estimates of garbage in data files, and the choices of files to merge made from them.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class DataFileGarbageTest {
+
+    private static final double DELTA = 0.001;
+
+    @TempDir Path tempDir;
+
+    private MemoryIndexDiskKeyValueStore<long[]> openStore(final LongListHeap index)
+            throws IOException {
+        return new MemoryIndexDiskKeyValueStore<>(
+                tempDir.resolve("store"),
+                "garbage",
+                null,
+                new ExampleLongPairSerializer(),
+                null,
+                index);
+    }
+
+    private static void write(
+            final MemoryIndexDiskKeyValueStore<long[]> store,
+            final long firstKey,
+            final long lastKey,
+            final long maxValidKey)
+            throws IOException {
+        store.startWriting();
+        for (long key = firstKey; key <= lastKey; key++) {
+            store.put(key, new long[] {key, key * 31});
+        }
+        store.endWriting(0, maxValidKey);
+    }
+
+    /**
+     * Write three files:
+     *
+     * <ol>
+     *   <li>keys 0 to 999, of which 0 to 249 are updated by the second file, 500 by the third, and
+     *       501 to 999 are deleted by the third
+     *   <li>keys 0 to 249, all still live
+     *   <li>key 500, deleted straight away as the valid range shrinks to 0 to 499
+     * </ol>
+     */
+    private static void writeThreeFiles(final MemoryIndexDiskKeyValueStore<long[]> store)
+            throws IOException {
+        write(store, 0, 999, 999);
+        write(store, 0, 249, 999);
+        write(store, 500, 500, 499);
+    }
+
+    private static void assertGarbageRatios(
+            final List<DataFileReader<long[]>> files, final double... expectedRatios) {
+        assertEquals(expectedRatios.length, files.size(), "Wrong number of files");
+        for (int i = 0; i < expectedRatios.length; i++) {
+            assertEquals(
+                    expectedRatios[i],
+                    files.get(i).getGarbageRatio(),
+                    DELTA,
+                    "Wrong garbage ratio for file " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Updated and deleted data items are counted as garbage")
+    void updatesAndDeletionsCounted() throws IOException {
+        final LongListHeap index = new LongListHeap();
+        final MemoryIndexDiskKeyValueStore<long[]> store = openStore(index);
+        try {
+            writeThreeFiles(store);
+            assertGarbageRatios(store.getAllFullyWrittenFiles(), 0.75, 0, 1);
+            // keys deleted by shrinking the valid range are not counted again when written again
+            write(store, 500, 999, 999);
+            assertGarbageRatios(store.getAllFullyWrittenFiles(), 0.75, 0, 1, 0);
+        } finally {
+            store.close();
+            index.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Garbage counts are rebuilt from the index when files are loaded")
+    void countsRebuiltOnLoad() throws IOException {
+        final Path indexFile = tempDir.resolve("index.ll");
+        final LongListHeap index = new LongListHeap();
+        final MemoryIndexDiskKeyValueStore<long[]> store = openStore(index);
+        writeThreeFiles(store);
+        store.close();
+        index.writeToFile(indexFile);
+        index.close();
+
+        final LongListHeap loadedIndex = new LongListHeap(indexFile);
+        final MemoryIndexDiskKeyValueStore<long[]> loadedStore = openStore(loadedIndex);
+        try {
+            assertGarbageRatios(loadedStore.getAllFullyWrittenFiles(), 0.75, 0, 1);
+        } finally {
+            loadedStore.close();
+            loadedIndex.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Garbage-driven merges pick the contiguous run of files with the most garbage")
+    void filesWithMostGarbage() throws IOException {
+        final LongListHeap index = new LongListHeap();
+        final MemoryIndexDiskKeyValueStore<long[]> store = openStore(index);
+        try {
+            writeThreeFiles(store);
+            final List<DataFileReader> files = (List) store.getAllFullyWrittenFiles();
+            assertEquals(
+                    files,
+                    DataFileCommon.filesWithMostGarbage(0.2, 10).apply(files),
+                    "All files together have the most garbage");
+            assertEquals(
+                    files.subList(0, 2),
+                    DataFileCommon.filesWithMostGarbage(0.2, 2).apply(files),
+                    "The first two files have more garbage than the last two");
+            assertTrue(
+                    DataFileCommon.filesWithMostGarbage(0.6, 2).apply(files).isEmpty(),
+                    "No run of two files has a high enough garbage ratio");
+            assertEquals(
+                    files,
+                    DataFileCommon.filesWithMostGarbage(0.6, 10).apply(files),
+                    "All files together have a high enough garbage ratio");
+            assertTrue(
+                    DataFileCommon.filesWithMostGarbage(0.2, 1).apply(files).isEmpty(),
+                    "A single file is never merged");
+        } finally {
+            store.close();
+            index.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Garbage-driven full merges only run with enough garbage in all files")
+    void allFilesWithEnoughGarbage() throws IOException {
+        final LongListHeap index = new LongListHeap();
+        final MemoryIndexDiskKeyValueStore<long[]> store = openStore(index);
+        try {
+            write(store, 0, 999, 999);
+            write(store, 0, 99, 999);
+            final List<DataFileReader> files = (List) store.getAllFullyWrittenFiles();
+            // a tenth of the first file is garbage
+            assertEquals(
+                    files,
+                    DataFileCommon.allFilesWithEnoughGarbage(0.05).apply(files),
+                    "All files should be merged");
+            assertTrue(
+                    DataFileCommon.allFilesWithEnoughGarbage(0.15).apply(files).isEmpty(),
+                    "No files should be merged");
+            write(store, 100, 399, 999);
+            // now two fifths of the first file are garbage
+            assertEquals(
+                    files.size() + 1,
+                    DataFileCommon.allFilesWithEnoughGarbage(0.15)
+                            .apply((List) store.getAllFullyWrittenFiles())
+                            .size(),
+                    "All files should be merged once there is enough garbage");
+        } finally {
+            store.close();
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.merkledb.collections.LongListHeap;
+import com.swirlds.merkledb.serialize.DataItemSerializer;
+import com.swirlds.merkledb.settings.DefaultMerkleDbSettings;
+import com.swirlds.merkledb.settings.MerkleDbSettingsFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class DataFileReaderTest {
+
+    private static final int ITEM_COUNT = 10_000;
+
+    @TempDir Path tempDir;
+
+    @AfterEach
+    void resetSettings() {
+        MerkleDbSettingsFactory.configure(new DefaultMerkleDbSettings());
+    }
+
+    private static void configureMemoryMappedReads(final boolean memoryMapped) {
+        MerkleDbSettingsFactory.configure(
+                new DefaultMerkleDbSettings() {
+                    @Override
+                    public boolean isDataFileMemoryMappedReadsEnabled() {
+                        return memoryMapped;
+                    }
+                });
+    }
+
+    private static long valueFor(final long key, final int generation) {
+        return key * 31 + generation;
+    }
+
+    /**
+     * Write a data file with ITEM_COUNT items, filling in the location of each item by key
+     *
+     * @return the path of the written file
+     */
+    private Path writeFile(final DataItemSerializer<long[]> serializer, final long[] dataLocations)
+            throws IOException {
+        final DataFileWriter<long[]> writer =
+                new DataFileWriter<>("test", tempDir, 0, serializer, Instant.now(), false);
+        for (int key = 0; key < ITEM_COUNT; key++) {
+            dataLocations[key] = writer.storeDataItem(new long[] {key, valueFor(key, 0)});
+        }
+        writer.finishWriting();
+        return writer.getPath();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Memory mapped and file channel reads return the same items")
+    void randomReads(final boolean memoryMapped) throws IOException {
+        final ExampleLongPairSerializer serializer = new ExampleLongPairSerializer();
+        final long[] dataLocations = new long[ITEM_COUNT];
+        final Path path = writeFile(serializer, dataLocations);
+        try (final DataFileReader<long[]> reader =
+                new DataFileReader<>(
+                        path, serializer, new DataFileMetadata(path), memoryMapped)) {
+            assertEquals(memoryMapped, reader.isMemoryMapped(), "Wrong read mode");
+            final Random random = new Random(1234);
+            for (int i = 0; i < ITEM_COUNT * 2; i++) {
+                final int key = random.nextInt(ITEM_COUNT);
+                assertArrayEquals(
+                        new long[] {key, valueFor(key, 0)},
+                        reader.readDataItem(dataLocations[key]),
+                        "Wrong item read for key " + key);
+            }
+            assertNull(
+                    reader.readDataItem(dataLocations[0], false),
+                    "Reads without deserialization should return null");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("The read mode is taken from the settings the reader is opened with")
+    void readModeFromSettings(final boolean memoryMapped) throws IOException {
+        final ExampleLongPairSerializer serializer = new ExampleLongPairSerializer();
+        final long[] dataLocations = new long[ITEM_COUNT];
+        final Path path = writeFile(serializer, dataLocations);
+        final DefaultMerkleDbSettings settings =
+                new DefaultMerkleDbSettings() {
+                    @Override
+                    public boolean isDataFileMemoryMappedReadsEnabled() {
+                        return memoryMapped;
+                    }
+                };
+        try (final DataFileReader<long[]> reader =
+                new DataFileReader<>(path, serializer, new DataFileMetadata(path), settings)) {
+            assertEquals(memoryMapped, reader.isMemoryMapped(), "Wrong read mode");
+        }
+        configureMemoryMappedReads(memoryMapped);
+        try (final DataFileReader<long[]> reader = new DataFileReader<>(path, serializer)) {
+            assertEquals(memoryMapped, reader.isMemoryMapped(), "Wrong read mode");
+        }
+    }
+
+    @Test
+    @DisplayName("Closing a memory mapped file unmaps it once the reads in progress finish")
+    void unmapAfterReadsFinish() throws Exception {
+        final BlockingLongPairSerializer serializer = new BlockingLongPairSerializer();
+        final long[] dataLocations = new long[ITEM_COUNT];
+        final Path path = writeFile(serializer, dataLocations);
+        final DataFileReader<long[]> reader =
+                new DataFileReader<>(path, serializer, new DataFileMetadata(path), true);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<long[]> read =
+                    executor.submit(() -> reader.readDataItem(dataLocations[7]));
+            assertTrue(serializer.deserializing.await(10, TimeUnit.SECONDS), "Read not started");
+            reader.close();
+            assertFalse(reader.isOpen(), "Reader should be closed");
+            assertFalse(reader.isUnmapped(), "Mapping must be kept while a read is in progress");
+            serializer.proceed.countDown();
+            assertArrayEquals(
+                    new long[] {7, valueFor(7, 0)},
+                    read.get(10, TimeUnit.SECONDS),
+                    "Read in progress should complete with the right item");
+            assertTrue(reader.isUnmapped(), "Mapping should be released after the last read");
+            assertThrows(
+                    ClosedChannelException.class,
+                    () -> reader.readDataItem(dataLocations[7]),
+                    "Reads after close should fail");
+            reader.close();
+            assertTrue(reader.isUnmapped(), "Closing twice should be harmless");
+        } finally {
+            serializer.proceed.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Items are read from the new file after a merge and old files are released")
+    void readAfterMerge(final boolean memoryMapped) throws Exception {
+        configureMemoryMappedReads(memoryMapped);
+        final Path storeDir = tempDir.resolve("store");
+        final ExampleLongPairSerializer serializer = new ExampleLongPairSerializer();
+        final LongListHeap index = new LongListHeap();
+        final DataFileCollection<long[]> collection =
+                new DataFileCollection<>(storeDir, "merge", serializer, null);
+        try {
+            // every file updates the odd keys of the one before
+            for (int generation = 0; generation < 3; generation++) {
+                collection.startWriting();
+                for (int key = 0; key < ITEM_COUNT; key++) {
+                    if ((generation == 0) || ((key & 1) == 1)) {
+                        index.put(
+                                key,
+                                collection.storeDataItem(
+                                        new long[] {key, valueFor(key, generation)}));
+                    }
+                }
+                collection.endWriting(0, ITEM_COUNT - 1).setFileAvailableForMerging(true);
+            }
+            final List<DataFileReader<long[]>> filesToMerge =
+                    collection.getAllFilesAvailableForMerge();
+            assertEquals(3, filesToMerge.size(), "All files should be available for merge");
+            filesToMerge.forEach(
+                    file -> assertEquals(memoryMapped, file.isMemoryMapped(), "Wrong read mode"));
+            final long[] locationsBeforeMerge = new long[ITEM_COUNT];
+            for (int key = 0; key < ITEM_COUNT; key++) {
+                locationsBeforeMerge[key] = index.get(key);
+            }
+
+            final List<Path> mergedFiles =
+                    collection.mergeFiles(index, filesToMerge, new Semaphore(1));
+
+            assertEquals(1, mergedFiles.size(), "Expected a single merged file");
+            assertEquals(1, collection.getNumOfFiles(), "Old files should be gone");
+            for (final DataFileReader<long[]> file : filesToMerge) {
+                assertFalse(file.isOpen(), "Merged file " + file + " should be closed");
+                assertFalse(Files.exists(file.getPath()), "Merged file should be deleted");
+                assertEquals(
+                        memoryMapped, file.isUnmapped(), "Merged file should have been unmapped");
+            }
+            for (int key = 0; key < ITEM_COUNT; key++) {
+                assertNotEquals(
+                        locationsBeforeMerge[key], index.get(key), "Index should be updated");
+                assertArrayEquals(
+                        new long[] {key, valueFor(key, ((key & 1) == 1) ? 2 : 0)},
+                        collection.readDataItemUsingIndex(index, key),
+                        "Wrong item read after merge for key " + key);
+            }
+        } finally {
+            collection.close();
+            index.close();
+        }
+    }
+
+    /** Serializer that holds up deserialization until told to proceed */
+    private static final class BlockingLongPairSerializer extends ExampleLongPairSerializer {
+        private final CountDownLatch deserializing = new CountDownLatch(1);
+        private final CountDownLatch proceed = new CountDownLatch(1);
+
+        @Override
+        public long[] deserialize(final ByteBuffer buffer, final long dataVersion)
+                throws IOException {
+            deserializing.countDown();
+            try {
+                if (!proceed.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Timed out waiting to deserialize");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return super.deserialize(buffer, dataVersion);
+        }
+    }
+}
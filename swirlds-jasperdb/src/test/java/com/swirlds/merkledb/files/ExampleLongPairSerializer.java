@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.merkledb.serialize.DataItemHeader;
+import com.swirlds.merkledb.serialize.DataItemSerializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** Simple fixed size serializer for data items of a long key and a long value, for tests. */
+public class ExampleLongPairSerializer implements DataItemSerializer<long[]> {
+    @Override
+    public int getHeaderSize() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public DataItemHeader deserializeHeader(final ByteBuffer buffer) {
+        return new DataItemHeader(getSerializedSize(), buffer.getLong());
+    }
+
+    @Override
+    public long getCurrentDataVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getSerializedSize() {
+        return Long.BYTES * 2;
+    }
+
+    @Override
+    public int serialize(final long[] data, final SerializableDataOutputStream outputStream)
+            throws IOException {
+        outputStream.writeLong(data[0]);
+        outputStream.writeLong(data[1]);
+        return getSerializedSize();
+    }
+
+    @Override
+    public long[] deserialize(final ByteBuffer buffer, final long dataVersion) throws IOException {
+        return new long[] {buffer.getLong(), buffer.getLong()};
+    }
+}
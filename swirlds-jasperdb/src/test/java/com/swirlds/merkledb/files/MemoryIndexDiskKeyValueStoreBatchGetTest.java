@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.swirlds.merkledb.collections.LongListHeap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MemoryIndexDiskKeyValueStoreBatchGetTest {
+
+    private static final int KEY_COUNT = 5_000;
+    /** Keys from this one on are deleted by shrinking the valid key range */
+    private static final int FIRST_DELETED_KEY = 4_000;
+
+    @TempDir Path tempDir;
+
+    private static void write(
+            final MemoryIndexDiskKeyValueStore<long[]> store,
+            final int step,
+            final int generation,
+            final long maxValidKey)
+            throws IOException {
+        store.startWriting();
+        for (long key = 0; key < KEY_COUNT; key += step) {
+            store.put(key, new long[] {key, key * 31 + generation});
+        }
+        store.endWriting(0, maxValidKey);
+    }
+
+    @Test
+    @DisplayName("Batched gets return the same values as gets key by key")
+    void batchMatchesSingleGets() throws IOException {
+        final LongListHeap index = new LongListHeap();
+        final MemoryIndexDiskKeyValueStore<long[]> store =
+                new MemoryIndexDiskKeyValueStore<>(
+                        tempDir.resolve("store"),
+                        "batch",
+                        null,
+                        new ExampleLongPairSerializer(),
+                        null,
+                        index);
+        try {
+            // spread the latest values over several files, and delete the last keys
+            write(store, 1, 0, KEY_COUNT - 1);
+            write(store, 2, 1, KEY_COUNT - 1);
+            write(store, 3, 2, KEY_COUNT - 1);
+            write(store, 7, 3, FIRST_DELETED_KEY - 1);
+            assertEquals(4, store.getAllFullyWrittenFiles().size(), "Expected four files");
+
+            // random keys in and out of range, with duplicates, and keys that never existed
+            final Random random = new Random(42);
+            final long[] keys = new long[2_000];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(KEY_COUNT * 2);
+            }
+            keys[0] = 0;
+            keys[1] = KEY_COUNT - 1;
+            keys[2] = FIRST_DELETED_KEY;
+            keys[3] = keys[4];
+
+            final List<long[]> values = store.get(keys);
+            assertEquals(keys.length, values.size(), "Expected a value for every key");
+            for (int i = 0; i < keys.length; i++) {
+                final long[] expected = store.get(keys[i]);
+                if (keys[i] >= FIRST_DELETED_KEY) {
+                    assertNull(expected, "Deleted or missing key " + keys[i] + " found");
+                }
+                assertArrayEquals(expected, values.get(i), "Wrong value for key " + keys[i]);
+            }
+            assertEquals(0, store.get(new long[0]).size(), "Empty batch should be empty");
+        } finally {
+            store.close();
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MergeWriteBudgetTest {
+
+    private static final long BYTES_PER_SECOND = 1_000_000;
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    @DisplayName("Bytes within the budget are allowed straight away")
+    void withinBudget() {
+        final AtomicLong now = new AtomicLong();
+        final MergeWriteBudget budget = new MergeWriteBudget(BYTES_PER_SECOND, now::get);
+        assertEquals(0, budget.reserve(600_000), "Full bucket should allow writes");
+        assertEquals(0, budget.reserve(400_000), "Full bucket should allow writes");
+        now.addAndGet(500 * MILLI);
+        assertEquals(0, budget.reserve(500_000), "Refilled bytes should allow writes");
+    }
+
+    @Test
+    @DisplayName("Bytes over the budget wait exactly until the refill covers them")
+    void exactWait() {
+        final AtomicLong now = new AtomicLong();
+        final MergeWriteBudget budget = new MergeWriteBudget(BYTES_PER_SECOND, now::get);
+        budget.reserve(BYTES_PER_SECOND);
+        assertEquals(250 * MILLI, budget.reserve(250_000), "Wrong wait for 1/4 s of bytes");
+        // a second merge asking at the same time waits for the first one's share too
+        assertEquals(350 * MILLI, budget.reserve(100_000), "Wrong wait behind another merge");
+        now.addAndGet(350 * MILLI);
+        assertEquals(10 * MILLI, budget.reserve(10_000), "Debt should have been paid off");
+    }
+
+    @Test
+    @DisplayName("Writes bigger than the whole budget wait for their own size")
+    void hugeWrite() {
+        final AtomicLong now = new AtomicLong();
+        final MergeWriteBudget budget = new MergeWriteBudget(BYTES_PER_SECOND, now::get);
+        assertEquals(
+                2_000 * MILLI, budget.reserve(3 * BYTES_PER_SECOND), "Wrong wait for 3 s of bytes");
+    }
+
+    @Test
+    @DisplayName("An idle budget never holds more than one second of bytes")
+    void capacity() {
+        final AtomicLong now = new AtomicLong();
+        final MergeWriteBudget budget = new MergeWriteBudget(BYTES_PER_SECOND, now::get);
+        now.addAndGet(60_000 * MILLI);
+        assertEquals(0, budget.reserve(BYTES_PER_SECOND), "Full bucket should allow writes");
+        assertEquals(MILLI, budget.reserve(1_000), "Bucket should be empty");
+    }
+
+    @Test
+    @DisplayName("Budget must be positive")
+    void positiveBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new MergeWriteBudget(0));
+    }
+
+    @Test
+    @DisplayName("Concurrent merges together stay within the budget")
+    void concurrentAcquire() throws Exception {
+        final MergeWriteBudget budget = new MergeWriteBudget(BYTES_PER_SECOND);
+        final int threads = 4;
+        final long bytesPerThread = 500_000;
+        final int chunks = 10;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final long start = System.nanoTime();
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < chunks; i++) {
+                                        budget.acquire(bytesPerThread / chunks);
+                                    }
+                                    return null;
+                                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            final long elapsedNanos = System.nanoTime() - start;
+            // the first second of bytes is in the bucket already, the rest has to be waited for
+            final long expectedNanos =
+                    (threads * bytesPerThread - BYTES_PER_SECOND) * 1_000_000_000L
+                            / BYTES_PER_SECOND;
+            assertTrue(
+                    elapsedNanos >= expectedNanos,
+                    "Merges took " + elapsedNanos + "ns, less than the budget allows");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files.hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.swirlds.merkledb.ExampleLongKey;
+import java.io.IOException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BucketMoveEntriesTest {
+
+    private static final long NOT_FOUND = -1;
+
+    private static Bucket<ExampleLongKey> bucket(final int bucketIndex) {
+        final Bucket<ExampleLongKey> bucket = new Bucket<>(new ExampleLongKey.Serializer());
+        bucket.setBucketIndex(bucketIndex);
+        return bucket;
+    }
+
+    private static long find(final Bucket<ExampleLongKey> bucket, final long key)
+            throws IOException {
+        final ExampleLongKey k = new ExampleLongKey(key);
+        return bucket.findValue(k.hashCode(), k, NOT_FOUND);
+    }
+
+    @Test
+    @DisplayName("Entries of a split bucket are moved out of its parent")
+    void moveEntriesToSplitBucket() throws IOException {
+        // bucket 1 of a map with 2 buckets holds all odd keys
+        final Bucket<ExampleLongKey> parent = bucket(1);
+        for (long key = 1; key < 40; key += 2) {
+            final ExampleLongKey k = new ExampleLongKey(key);
+            parent.putValue(k.hashCode(), k, key * 100);
+        }
+        // once the map has 4 buckets, keys with 3 as their lowest two bits belong to bucket 3
+        final Bucket<ExampleLongKey> child = bucket(3);
+        assertEquals(10, parent.moveEntries(child, 3), "half of the entries should move");
+        assertEquals(10, parent.getBucketEntryCount());
+        assertEquals(10, child.getBucketEntryCount());
+        for (long key = 1; key < 40; key += 2) {
+            if ((key & 3) == 3) {
+                assertEquals(NOT_FOUND, find(parent, key), "moved key left in parent " + key);
+                assertEquals(key * 100, find(child, key), "moved key missing " + key);
+            } else {
+                assertEquals(key * 100, find(parent, key), "kept key missing " + key);
+                assertEquals(NOT_FOUND, find(child, key), "kept key in child " + key);
+            }
+        }
+
+        // both buckets still accept updates after the move
+        final ExampleLongKey updated = new ExampleLongKey(7);
+        child.putValue(updated.hashCode(), updated, 1);
+        assertEquals(1, find(child, 7));
+    }
+
+    @Test
+    @DisplayName("Nothing is moved if no entry belongs to the split bucket")
+    void moveNothing() throws IOException {
+        final Bucket<ExampleLongKey> parent = bucket(1);
+        final ExampleLongKey key = new ExampleLongKey(1);
+        parent.putValue(key.hashCode(), key, 10);
+        final Bucket<ExampleLongKey> child = bucket(3);
+        assertEquals(0, parent.moveEntries(child, 3));
+        assertEquals(1, parent.getBucketEntryCount());
+        assertEquals(10, find(parent, 1));
+    }
+
+    @Test
+    @DisplayName("Entries can only be moved to an empty bucket")
+    void moveToNonEmptyBucket() {
+        final Bucket<ExampleLongKey> parent = bucket(1);
+        final Bucket<ExampleLongKey> child = bucket(3);
+        final ExampleLongKey key = new ExampleLongKey(3);
+        child.putValue(key.hashCode(), key, 10);
+        assertThrows(IllegalArgumentException.class, () -> parent.moveEntries(child, 3));
+    }
+}
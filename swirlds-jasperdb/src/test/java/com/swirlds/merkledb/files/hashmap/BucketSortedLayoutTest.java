@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files.hashmap;
+
+import static com.swirlds.merkledb.files.DataFileCommon.FOOTER_SIZE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.merkledb.ExampleLongKey;
+import com.swirlds.merkledb.files.DataFileMetadata;
+import com.swirlds.merkledb.settings.DefaultMerkleDbSettings;
+import com.swirlds.merkledb.settings.MerkleDbSettingsFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BucketSortedLayoutTest {
+
+    private static final String STORE_NAME = "sortedLayoutTest";
+
+    private static final long NOT_FOUND = -1;
+
+    /** Bucket index, size and entry count */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /** Value and key of an entry, for {@link ExampleLongKey} keys */
+    private static final int ENTRY_SIZE = Long.BYTES + ExampleLongKey.BYTES;
+
+    /** Offset of the serialization version in a data file footer */
+    private static final int FOOTER_SERIALIZATION_VERSION_OFFSET =
+            Integer.BYTES * 2 + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + 1;
+
+    @TempDir Path tempDir;
+
+    private static Bucket<ExampleLongKey> bucket(final int bucketIndex) {
+        final Bucket<ExampleLongKey> bucket = new Bucket<>(new ExampleLongKey.Serializer());
+        bucket.setBucketIndex(bucketIndex);
+        return bucket;
+    }
+
+    private static void put(final Bucket<ExampleLongKey> bucket, final long key, final long value) {
+        final ExampleLongKey k = new ExampleLongKey(key);
+        bucket.putValue(k.hashCode(), k, value);
+    }
+
+    private static long find(final Bucket<ExampleLongKey> bucket, final long key)
+            throws IOException {
+        final ExampleLongKey k = new ExampleLongKey(key);
+        return bucket.findValue(k.hashCode(), k, NOT_FOUND);
+    }
+
+    /**
+     * A key with the given hash code. Keys with the same hash code and different variants are
+     * different keys that collide.
+     */
+    private static long collidingKey(final int hashCode, final int variant) {
+        return ((long) variant << 32) | ((hashCode ^ variant) & 0xFFFFFFFFL);
+    }
+
+    private static byte[] serialize(final Bucket<ExampleLongKey> bucket) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SerializableDataOutputStream out = new SerializableDataOutputStream(bytes)) {
+            bucket.writeToOutputStream(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Check that a bucket serialized in the sorted layout has its hash codes sorted, every entry
+     * has the key of its hash code, and it contains exactly the expected entries.
+     */
+    private static void assertSortedLayout(
+            final Bucket<ExampleLongKey> bucket, final Map<Long, Long> expected)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(serialize(bucket));
+        final int entryCount = buffer.getInt(2 * Integer.BYTES);
+        assertEquals(expected.size(), entryCount, "wrong entry count");
+        assertEquals(
+                HEADER_SIZE + entryCount * (Integer.BYTES + ENTRY_SIZE),
+                buffer.getInt(Integer.BYTES),
+                "wrong bucket size");
+        final int entriesOffset = HEADER_SIZE + entryCount * Integer.BYTES;
+        final Map<Long, Long> entries = new HashMap<>();
+        int previousHashCode = Integer.MIN_VALUE;
+        for (int i = 0; i < entryCount; i++) {
+            final int hashCode = buffer.getInt(HEADER_SIZE + i * Integer.BYTES);
+            assertTrue(hashCode >= previousHashCode, "hash codes should be sorted");
+            previousHashCode = hashCode;
+            final int entryOffset = entriesOffset + i * ENTRY_SIZE;
+            final long value = buffer.getLong(entryOffset);
+            final long key = buffer.getLong(entryOffset + Long.BYTES);
+            assertEquals(
+                    new ExampleLongKey(key).hashCode(),
+                    hashCode,
+                    "entry should be stored in the order of its hash code");
+            entries.put(key, value);
+        }
+        assertEquals(expected, entries, "wrong entries");
+        for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), find(bucket, entry.getKey()));
+        }
+    }
+
+    /**
+     * Convert a bucket serialized in the sorted layout to the original layout, where each entry
+     * starts with its hash code. Entries are written in reverse order, so the sorted layout has to
+     * be restored when the bucket is read.
+     */
+    private static void toOriginalLayout(
+            final ByteBuffer sorted, final int bucketOffset, final ByteBuffer original) {
+        final int entryCount = sorted.getInt(bucketOffset + 2 * Integer.BYTES);
+        original.putInt(sorted.getInt(bucketOffset));
+        original.putInt(sorted.getInt(bucketOffset + Integer.BYTES));
+        original.putInt(entryCount);
+        final int entriesOffset = bucketOffset + HEADER_SIZE + entryCount * Integer.BYTES;
+        for (int i = entryCount - 1; i >= 0; i--) {
+            original.putInt(sorted.getInt(bucketOffset + HEADER_SIZE + i * Integer.BYTES));
+            original.put(sorted.slice(entriesOffset + i * ENTRY_SIZE, ENTRY_SIZE));
+        }
+    }
+
+    @Test
+    @DisplayName("Entries stay sorted by hash code through inserts, updates and deletes")
+    void sortedInsertUpdateDelete() throws IOException {
+        final Bucket<ExampleLongKey> bucket = bucket(0);
+        final Map<Long, Long> expected = new HashMap<>();
+        final Random random = new Random(3);
+        for (int i = 0; i < 2_000; i++) {
+            // spread keys over positive and negative hash codes
+            final long key = random.nextInt(300) * 0x9E3779B97F4A7C15L;
+            switch (random.nextInt(3)) {
+                case 0, 1 -> {
+                    put(bucket, key, i);
+                    expected.put(key, (long) i);
+                }
+                default -> {
+                    put(bucket, key, HalfDiskHashMap.SPECIAL_DELETE_ME_VALUE);
+                    expected.remove(key);
+                }
+            }
+            if ((i % 100) == 0) {
+                assertSortedLayout(bucket, expected);
+            }
+        }
+        assertSortedLayout(bucket, expected);
+
+        // delete everything, from both ends and the middle
+        final List<Long> keys = new ArrayList<>(expected.keySet());
+        keys.sort(Comparator.comparingInt(k -> new ExampleLongKey(k).hashCode()));
+        while (!keys.isEmpty()) {
+            final long key = keys.remove((keys.size() % 3 == 0) ? 0 : keys.size() / 2);
+            put(bucket, key, HalfDiskHashMap.SPECIAL_DELETE_ME_VALUE);
+            expected.remove(key);
+            assertEquals(NOT_FOUND, find(bucket, key), "deleted key found " + key);
+        }
+        assertSortedLayout(bucket, expected);
+        assertEquals(HEADER_SIZE, bucket.getSize());
+    }
+
+    @Test
+    @DisplayName("Keys with the same hash code are told apart")
+    void hashCollisions() throws IOException {
+        final Bucket<ExampleLongKey> bucket = bucket(0);
+        final Map<Long, Long> expected = new HashMap<>();
+        // runs of colliding keys, surrounded by keys with smaller and larger hash codes
+        for (int variant = 0; variant < 5; variant++) {
+            for (int hashCode = 10; hashCode <= 30; hashCode += 10) {
+                final long key = collidingKey(hashCode, variant);
+                assertEquals(hashCode, new ExampleLongKey(key).hashCode());
+                put(bucket, key, key + 1);
+                expected.put(key, key + 1);
+            }
+        }
+        assertSortedLayout(bucket, expected);
+        assertEquals(NOT_FOUND, find(bucket, collidingKey(20, 5)), "missing colliding key");
+
+        // update the middle of a run, delete its first and last keys
+        put(bucket, collidingKey(20, 2), 7);
+        expected.put(collidingKey(20, 2), 7L);
+        put(bucket, collidingKey(20, 0), HalfDiskHashMap.SPECIAL_DELETE_ME_VALUE);
+        expected.remove(collidingKey(20, 0));
+        put(bucket, collidingKey(20, 4), HalfDiskHashMap.SPECIAL_DELETE_ME_VALUE);
+        expected.remove(collidingKey(20, 4));
+        // deleting a colliding key that isn't stored changes nothing
+        put(bucket, collidingKey(20, 9), HalfDiskHashMap.SPECIAL_DELETE_ME_VALUE);
+        assertSortedLayout(bucket, expected);
+        assertEquals(NOT_FOUND, find(bucket, collidingKey(20, 0)));
+        assertEquals(NOT_FOUND, find(bucket, collidingKey(20, 4)));
+    }
+
+    @Test
+    @DisplayName("A bucket in the original layout is read as a sorted bucket")
+    void originalLayoutRoundTrip() throws IOException {
+        final Bucket<ExampleLongKey> bucket = bucket(5);
+        final Map<Long, Long> expected = new HashMap<>();
+        for (int variant = 0; variant < 3; variant++) {
+            for (int i = 0; i < 20; i++) {
+                final long key = collidingKey(i * 7919, variant);
+                put(bucket, key, i * 100L + variant);
+                expected.put(key, i * 100L + variant);
+            }
+        }
+        final byte[] sorted = serialize(bucket);
+        final ByteBuffer original = ByteBuffer.allocate(sorted.length);
+        toOriginalLayout(ByteBuffer.wrap(sorted), 0, original);
+        original.flip();
+
+        final BucketSerializer<ExampleLongKey> serializer =
+                new BucketSerializer<>(new ExampleLongKey.Serializer());
+        final long originalVersion =
+                (serializer.getCurrentDataVersion() & 0xFFFFFFFF00000000L)
+                        | BucketSerializer.ORIGINAL_BUCKET_SERIALIZATION_VERSION;
+        final Bucket<ExampleLongKey> read = serializer.deserialize(original, originalVersion);
+        assertEquals(5, read.getBucketIndex());
+        assertSortedLayout(read, expected);
+        // colliding keys in reverse insertion order, so only the set of entries can be compared
+        assertEquals(sorted.length, serialize(read).length, "conversion should keep the size");
+
+        // and the converted bucket is written in the sorted layout again
+        final byte[] rewritten = serialize(read);
+        final Bucket<ExampleLongKey> reread =
+                serializer.deserialize(
+                        ByteBuffer.wrap(rewritten), serializer.getCurrentDataVersion());
+        assertSortedLayout(reread, expected);
+        assertArrayEquals(rewritten, serialize(reread));
+    }
+
+    @Test
+    @DisplayName("A map reads data files written in the original and the sorted layout")
+    void mixedLayoutFiles() throws IOException {
+        final Path mapDir = tempDir.resolve("map");
+        MerkleDbSettingsFactory.configure(new DefaultMerkleDbSettings());
+        final HalfDiskHashMap<ExampleLongKey> map =
+                new HalfDiskHashMap<>(
+                        10_000,
+                        new ExampleLongKey.Serializer(),
+                        mapDir,
+                        STORE_NAME,
+                        STORE_NAME,
+                        false);
+        map.startWriting();
+        for (int key = 0; key < 10_000; key++) {
+            map.put(new ExampleLongKey(key), key);
+        }
+        map.endWriting();
+        // the second file holds a few updated and deleted keys, most buckets stay in the first
+        map.startWriting();
+        for (int key = 0; key < 100; key++) {
+            map.put(new ExampleLongKey(key), key + 1_000_000L);
+        }
+        for (int key = 100; key < 150; key++) {
+            map.delete(new ExampleLongKey(key));
+        }
+        map.endWriting();
+        final Path snapshotDir = tempDir.resolve("snapshot");
+        map.snapshot(snapshotDir);
+        map.close();
+
+        // rewrite the oldest data file the way the original serialization version wrote it
+        final List<Path> dataFiles;
+        try (Stream<Path> files = Files.list(snapshotDir)) {
+            dataFiles = files.filter(f -> f.toString().endsWith(".jdb")).toList();
+        }
+        assertEquals(2, dataFiles.size(), "each writing session should write one data file");
+        final DataFileMetadata firstMetadata = new DataFileMetadata(dataFiles.get(0));
+        final DataFileMetadata secondMetadata = new DataFileMetadata(dataFiles.get(1));
+        final boolean firstIsOldest = firstMetadata.getIndex() < secondMetadata.getIndex();
+        final Path oldestFile = dataFiles.get(firstIsOldest ? 0 : 1);
+        final DataFileMetadata metadata = firstIsOldest ? firstMetadata : secondMetadata;
+        try (FileChannel channel =
+                FileChannel.open(oldestFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer sorted = ByteBuffer.allocate((int) channel.size());
+            channel.read(sorted, 0);
+            final ByteBuffer original = ByteBuffer.allocate(sorted.capacity());
+            int bucketOffset = 0;
+            for (long i = 0; i < metadata.getDataItemCount(); i++) {
+                toOriginalLayout(sorted, bucketOffset, original);
+                bucketOffset += sorted.getInt(bucketOffset + Integer.BYTES);
+            }
+            original.flip();
+            channel.write(original, 0);
+            final ByteBuffer version = ByteBuffer.allocate(Long.BYTES);
+            version.putLong(
+                    (metadata.getSerializationVersion() & 0xFFFFFFFF00000000L)
+                            | BucketSerializer.ORIGINAL_BUCKET_SERIALIZATION_VERSION);
+            version.flip();
+            channel.write(
+                    version, channel.size() - FOOTER_SIZE + FOOTER_SERIALIZATION_VERSION_OFFSET);
+        }
+        assertEquals(
+                BucketSerializer.ORIGINAL_BUCKET_SERIALIZATION_VERSION,
+                (int) new DataFileMetadata(oldestFile).getSerializationVersion());
+
+        final HalfDiskHashMap<ExampleLongKey> reopened =
+                new HalfDiskHashMap<>(
+                        10_000,
+                        new ExampleLongKey.Serializer(),
+                        snapshotDir,
+                        STORE_NAME,
+                        STORE_NAME,
+                        false);
+        for (int key = 0; key < 10_000; key++) {
+            final long expected;
+            if (key < 100) {
+                expected = key + 1_000_000L;
+            } else if (key < 150) {
+                expected = NOT_FOUND;
+            } else {
+                expected = key;
+            }
+            assertEquals(
+                    expected,
+                    reopened.get(new ExampleLongKey(key), NOT_FOUND),
+                    "wrong value for key " + key);
+        }
+        // buckets read from the original layout are written sorted when they are updated
+        reopened.startWriting();
+        for (int key = 150; key < 10_000; key += 10) {
+            reopened.put(new ExampleLongKey(key), key + 2_000_000L);
+        }
+        reopened.endWriting();
+        for (int key = 150; key < 10_000; key++) {
+            assertEquals(
+                    ((key % 10) == 0) ? key + 2_000_000L : key,
+                    reopened.get(new ExampleLongKey(key), NOT_FOUND),
+                    "wrong value for key " + key);
+        }
+        reopened.close();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files.hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.swirlds.merkledb.ExampleLongKey;
+import com.swirlds.merkledb.settings.DefaultMerkleDbSettings;
+import com.swirlds.merkledb.settings.MerkleDbSettingsFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class HalfDiskHashMapParallelFlushTest {
+
+    private static final String STORE_NAME = "parallelFlushTest";
+
+    /** With this map size the map has 16384 buckets, many flush ranges of 1024 buckets each */
+    private static final long MAP_SIZE = 100_000;
+
+    private static final int ENTRIES = 100_000;
+
+    private static final long NOT_FOUND = -1;
+
+    @TempDir Path tempDir;
+
+    @AfterEach
+    void resetSettings() {
+        MerkleDbSettingsFactory.configure(new DefaultMerkleDbSettings());
+    }
+
+    private static HalfDiskHashMap<ExampleLongKey> createMap(
+            final Path dir, final int flushThreads) throws IOException {
+        MerkleDbSettingsFactory.configure(
+                new DefaultMerkleDbSettings() {
+                    @Override
+                    public int getHalfDiskHashMapFlushThreads() {
+                        return flushThreads;
+                    }
+                });
+        return new HalfDiskHashMap<>(
+                MAP_SIZE, new ExampleLongKey.Serializer(), dir, STORE_NAME, STORE_NAME, false);
+    }
+
+    /**
+     * Apply the same writing sessions to a map: insert all keys, update every other key, delete
+     * every third key and re-insert some of the deleted keys. The last session changes only a few
+     * buckets, so it is flushed on the writing thread even with several flush threads.
+     */
+    private static void writeSessions(final HalfDiskHashMap<ExampleLongKey> map)
+            throws IOException {
+        map.startWriting();
+        for (int key = 0; key < ENTRIES; key++) {
+            map.put(new ExampleLongKey(key), key);
+        }
+        map.endWriting();
+
+        map.startWriting();
+        for (int key = 0; key < ENTRIES; key += 2) {
+            map.put(new ExampleLongKey(key), key + 1_000_000L);
+        }
+        map.endWriting();
+
+        map.startWriting();
+        for (int key = 0; key < ENTRIES; key += 3) {
+            map.delete(new ExampleLongKey(key));
+        }
+        map.endWriting();
+
+        map.startWriting();
+        for (int key = 0; key < 300; key += 3) {
+            map.put(new ExampleLongKey(key), key + 2_000_000L);
+        }
+        map.endWriting();
+    }
+
+    private static long expectedValue(final int key) {
+        if ((key % 3) == 0) {
+            return (key < 300) ? key + 2_000_000L : NOT_FOUND;
+        }
+        return ((key % 2) == 0) ? key + 1_000_000L : key;
+    }
+
+    private static long dataFilesSize(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            long size = 0;
+            for (final Path file : files.filter(f -> f.toString().endsWith(".jdb")).toList()) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 8})
+    @DisplayName("Parallel bucket flushes produce the same map as a single threaded flush")
+    void parallelFlushMatchesSerialFlush(final int flushThreads) throws IOException {
+        final Path serialDir = tempDir.resolve("serial");
+        final HalfDiskHashMap<ExampleLongKey> serialMap = createMap(serialDir, 1);
+        writeSessions(serialMap);
+
+        final Path parallelDir = tempDir.resolve("parallel");
+        final HalfDiskHashMap<ExampleLongKey> parallelMap = createMap(parallelDir, flushThreads);
+        writeSessions(parallelMap);
+
+        assertEquals(serialMap.getNumOfBuckets(), parallelMap.getNumOfBuckets());
+        for (int key = 0; key < ENTRIES; key++) {
+            final ExampleLongKey k = new ExampleLongKey(key);
+            final long serialValue = serialMap.get(k, NOT_FOUND);
+            assertEquals(expectedValue(key), serialValue, "wrong serial value for key " + key);
+            assertEquals(serialValue, parallelMap.get(k, NOT_FOUND), "wrong value for key " + key);
+        }
+        // buckets are written in the same order with the same entries
+        assertEquals(
+                dataFilesSize(serialDir),
+                dataFilesSize(parallelDir),
+                "data files should have the same size");
+
+        serialMap.close();
+        parallelMap.close();
+    }
+}
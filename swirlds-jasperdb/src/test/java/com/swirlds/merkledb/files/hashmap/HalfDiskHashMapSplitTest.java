@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.merkledb.files.hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.merkledb.ExampleLongKey;
+import com.swirlds.merkledb.settings.DefaultMerkleDbSettings;
+import com.swirlds.merkledb.settings.MerkleDbSettingsFactory;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HalfDiskHashMapSplitTest {
+
+    private static final String STORE_NAME = "splitTest";
+
+    /** With this map size the map starts with 1024 buckets */
+    private static final long SMALL_MAP_SIZE = 10_000;
+
+    /** Enough entries to fill 1024 buckets with more than the good average entry count */
+    private static final int SMALL_MAP_ENTRIES = 25_000;
+
+    /** With this map size the map starts with 8192 buckets */
+    private static final long LARGE_MAP_SIZE = 80_000;
+
+    /** Enough entries to fill 8192 buckets with more than the good average entry count */
+    private static final int LARGE_MAP_ENTRIES = 180_000;
+
+    private static final long NOT_FOUND = -1;
+
+    @TempDir Path tempDir;
+
+    @BeforeAll
+    static void enableGrowth() {
+        MerkleDbSettingsFactory.configure(
+                new DefaultMerkleDbSettings() {
+                    @Override
+                    public boolean isHalfDiskHashMapGrowthEnabled() {
+                        return true;
+                    }
+                });
+    }
+
+    @AfterAll
+    static void resetSettings() {
+        MerkleDbSettingsFactory.configure(new DefaultMerkleDbSettings());
+    }
+
+    private static HalfDiskHashMap<ExampleLongKey> createMap(final Path dir, final long mapSize)
+            throws IOException {
+        return new HalfDiskHashMap<>(
+                mapSize, new ExampleLongKey.Serializer(), dir, STORE_NAME, STORE_NAME, false);
+    }
+
+    private static long value(final long key, final int round) {
+        return key * 10 + round;
+    }
+
+    private static void putAll(
+            final HalfDiskHashMap<ExampleLongKey> map,
+            final int from,
+            final int to,
+            final int round)
+            throws IOException {
+        map.startWriting();
+        for (int key = from; key < to; key++) {
+            map.put(new ExampleLongKey(key), value(key, round));
+        }
+        map.endWriting();
+    }
+
+    private static void assertAll(
+            final HalfDiskHashMap<ExampleLongKey> map, final int entries, final int round)
+            throws IOException {
+        for (int key = 0; key < entries; key++) {
+            assertEquals(
+                    value(key, round),
+                    map.get(new ExampleLongKey(key), NOT_FOUND),
+                    "wrong value for key " + key);
+        }
+    }
+
+    @Test
+    @DisplayName("Map grows and splits buckets without losing entries")
+    void growAndSplit() throws IOException {
+        final HalfDiskHashMap<ExampleLongKey> map =
+                createMap(tempDir.resolve("map"), SMALL_MAP_SIZE);
+        assertEquals(1024, map.getNumOfBuckets(), "unexpected initial number of buckets");
+
+        putAll(map, 0, SMALL_MAP_ENTRIES, 0);
+        assertEquals(2048, map.getNumOfBuckets(), "map should have grown");
+        assertEquals(1024, map.getFullySplitBuckets(), "no bucket should be split yet");
+        // all entries are still in the old buckets, and found through them
+        assertAll(map, SMALL_MAP_ENTRIES, 0);
+
+        // any writing session splits changed buckets and some more in the background
+        putAll(map, 0, SMALL_MAP_ENTRIES, 1);
+        assertEquals(2048, map.getFullySplitBuckets(), "all buckets should be split");
+        assertAll(map, SMALL_MAP_ENTRIES, 1);
+        map.close();
+    }
+
+    @Test
+    @DisplayName("A partially split map can be reopened and finishes splitting")
+    void reopenPartiallySplitMap() throws IOException {
+        final HalfDiskHashMap<ExampleLongKey> map =
+                createMap(tempDir.resolve("map"), SMALL_MAP_SIZE);
+        putAll(map, 0, SMALL_MAP_ENTRIES, 0);
+        assertEquals(1024, map.getFullySplitBuckets(), "no bucket should be split yet");
+        final Path snapshotDir = tempDir.resolve("snapshot");
+        map.snapshot(snapshotDir);
+        map.close();
+
+        final HalfDiskHashMap<ExampleLongKey> reopened = createMap(snapshotDir, SMALL_MAP_SIZE);
+        assertEquals(2048, reopened.getNumOfBuckets(), "number of buckets should be restored");
+        assertEquals(1024, reopened.getFullySplitBuckets(), "split progress should be restored");
+        assertAll(reopened, SMALL_MAP_ENTRIES, 0);
+
+        // update a single key, the background splits finish the rest
+        putAll(reopened, 0, 1, 1);
+        assertEquals(2048, reopened.getFullySplitBuckets(), "all buckets should be split");
+        assertEquals(value(0, 1), reopened.get(new ExampleLongKey(0), NOT_FOUND));
+        for (int key = 1; key < SMALL_MAP_ENTRIES; key++) {
+            assertEquals(value(key, 0), reopened.get(new ExampleLongKey(key), NOT_FOUND));
+        }
+
+        // and a fully split map can be reopened as well
+        final Path secondSnapshotDir = tempDir.resolve("snapshot2");
+        reopened.snapshot(secondSnapshotDir);
+        reopened.close();
+        final HalfDiskHashMap<ExampleLongKey> reopenedAgain =
+                createMap(secondSnapshotDir, SMALL_MAP_SIZE);
+        assertEquals(2048, reopenedAgain.getNumOfBuckets());
+        assertEquals(2048, reopenedAgain.getFullySplitBuckets());
+        assertEquals(value(0, 1), reopenedAgain.get(new ExampleLongKey(0), NOT_FOUND));
+        reopenedAgain.close();
+    }
+
+    @Test
+    @DisplayName("Metadata in the original format without split progress can be loaded")
+    void loadOriginalMetadataFormat() throws IOException {
+        final HalfDiskHashMap<ExampleLongKey> map = createMap(tempDir.resolve("map"), 1_000);
+        putAll(map, 0, 1_000, 0);
+        final int numOfBuckets = map.getNumOfBuckets();
+        final Path snapshotDir = tempDir.resolve("snapshot");
+        map.snapshot(snapshotDir);
+        map.close();
+
+        // rewrite the metadata file the way maps without bucket splits wrote it
+        final int minimumBuckets = (int) Math.ceil((1_000 / HalfDiskHashMap.LOADING_FACTOR) / 20);
+        try (DataOutputStream metaOut =
+                new DataOutputStream(
+                        Files.newOutputStream(
+                                snapshotDir.resolve(STORE_NAME + "_metadata.hdhm")))) {
+            metaOut.writeInt(1);
+            metaOut.writeInt(minimumBuckets);
+            metaOut.writeInt(numOfBuckets);
+        }
+
+        final HalfDiskHashMap<ExampleLongKey> reopened = createMap(snapshotDir, 1_000);
+        assertEquals(numOfBuckets, reopened.getNumOfBuckets());
+        assertEquals(numOfBuckets, reopened.getFullySplitBuckets(), "map should be fully split");
+        assertAll(reopened, 1_000, 0);
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Reads never miss entries while buckets are split")
+    void readsDuringSplits() throws Exception {
+        final HalfDiskHashMap<ExampleLongKey> map =
+                createMap(tempDir.resolve("map"), LARGE_MAP_SIZE);
+        putAll(map, 0, LARGE_MAP_ENTRIES, 0);
+        assertEquals(16384, map.getNumOfBuckets(), "map should have grown");
+
+        // the writer only changes keys below this, readers check all other keys
+        final int writtenKeys = 100;
+        final AtomicBoolean splitting = new AtomicBoolean(true);
+        final ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final int offset = i;
+                results.add(
+                        readers.submit(
+                                () -> {
+                                    long reads = 0;
+                                    do {
+                                        for (int key = writtenKeys + offset;
+                                                key < LARGE_MAP_ENTRIES;
+                                                key += 4) {
+                                            final long value =
+                                                    map.get(new ExampleLongKey(key), NOT_FOUND);
+                                            assertEquals(
+                                                    value(key, 0),
+                                                    value,
+                                                    "wrong value for key " + key);
+                                            reads++;
+                                        }
+                                    } while (splitting.get());
+                                    return reads;
+                                }));
+            }
+
+            int round = 1;
+            while (map.getFullySplitBuckets() < map.getNumOfBuckets()) {
+                putAll(map, 0, writtenKeys, round++);
+            }
+            assertTrue(round > 2, "splitting should take more than one writing session");
+            splitting.set(false);
+            for (final Future<Long> result : results) {
+                assertTrue(result.get() > 0, "readers should have read entries");
+            }
+        } finally {
+            splitting.set(false);
+            readers.shutdownNow();
+        }
+        map.close();
+    }
+}
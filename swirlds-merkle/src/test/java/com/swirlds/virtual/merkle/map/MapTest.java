@@ -24,6 +24,8 @@ import com.swirlds.virtual.merkle.TestKey;
 import com.swirlds.virtual.merkle.TestValue;
 import com.swirlds.virtualmap.VirtualMap;
 import com.swirlds.virtualmap.datasource.VirtualDataSourceBuilder;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Tags;
@@ -91,4 +93,48 @@ abstract class MapTest {
             map.release();
         }
     }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Getting a batch of keys returns the same values as getting them one by one")
+    void getAllMatchesGet() {
+        final int max = 10_000;
+        VirtualMap<TestKey, TestValue> map = createMap("getAllMatchesGet");
+        try {
+            for (int i = 0; i < max; i++) {
+                if (i > 0 && i % 1_000 == 0) {
+                    VirtualMap<TestKey, TestValue> older = map;
+                    map = map.copy();
+                    older.release();
+                }
+                map.put(new TestKey(i), new TestValue(i));
+            }
+            VirtualMap<TestKey, TestValue> older = map;
+            map = map.copy();
+            older.release();
+            for (int i = 0; i < max; i += 5) {
+                map.remove(new TestKey(i));
+            }
+
+            // present, removed and missing keys, in reverse order, with a repeated key
+            final List<TestKey> keys = new ArrayList<>();
+            for (int i = max + 10; i >= 0; i -= 3) {
+                keys.add(new TestKey(i));
+            }
+            keys.add(new TestKey(1));
+
+            map.warmAll(keys);
+            final List<TestValue> values = map.getAll(keys);
+            assertEquals(keys.size(), values.size(), "Expected a value for every key");
+            for (int i = 0; i < keys.size(); i++) {
+                final TestKey key = keys.get(i);
+                final long k = key.getKeyAsLong();
+                final TestValue expected = (k < max && k % 5 != 0) ? new TestValue(k) : null;
+                assertEquals(expected, map.get(key), "Wrong value for key " + k);
+                assertEquals(expected, values.get(i), "Wrong batched value for key " + k);
+            }
+        } finally {
+            map.release();
+        }
+    }
 }
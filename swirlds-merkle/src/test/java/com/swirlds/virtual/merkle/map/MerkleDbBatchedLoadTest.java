@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtual.merkle.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.swirlds.common.constructable.ClassConstructorPair;
+import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.DigestType;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.utility.TemporaryFileBuilder;
+import com.swirlds.merkledb.MerkleDb;
+import com.swirlds.merkledb.MerkleDbDataSource;
+import com.swirlds.merkledb.MerkleDbDataSourceBuilder;
+import com.swirlds.merkledb.MerkleDbTableConfig;
+import com.swirlds.virtual.merkle.TestKey;
+import com.swirlds.virtual.merkle.TestKeySerializerMerkleDb;
+import com.swirlds.virtual.merkle.TestValue;
+import com.swirlds.virtual.merkle.TestValueSerializerMerkleDb;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Tags;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("MerkleDB Batched Leaf Loading Test")
+class MerkleDbBatchedLoadTest {
+
+    private static final long FIRST_LEAF_PATH = 15;
+    private static final long LAST_LEAF_PATH = 30;
+    /** Leaves from this path on are deleted by the last save */
+    private static final long FIRST_DELETED_PATH = 27;
+
+    @BeforeAll
+    static void setup() throws ConstructableRegistryException {
+        ConstructableRegistry.getInstance()
+                .registerConstructable(
+                        new ClassConstructorPair(
+                                TestKeySerializerMerkleDb.class, TestKeySerializerMerkleDb::new));
+        ConstructableRegistry.getInstance()
+                .registerConstructable(
+                        new ClassConstructorPair(
+                                TestValueSerializerMerkleDb.class,
+                                TestValueSerializerMerkleDb::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MerkleDbDataSource<TestKey, TestValue> createDataSource() throws IOException {
+        MerkleDb.setDefaultPath(TemporaryFileBuilder.buildTemporaryFile());
+        final MerkleDbTableConfig<TestKey, TestValue> tableConfig =
+                new MerkleDbTableConfig<>(
+                        (short) 1, DigestType.SHA_384,
+                        (short) 1, new TestKeySerializerMerkleDb(),
+                        (short) 1, new TestValueSerializerMerkleDb());
+        // Compaction would merge the files away
+        return (MerkleDbDataSource<TestKey, TestValue>)
+                new MerkleDbDataSourceBuilder<>(tableConfig).build("batchedLoad", false);
+    }
+
+    private static VirtualLeafRecord<TestKey, TestValue> leaf(final long path, final long value) {
+        final byte[] hashBytes = new byte[DigestType.SHA_384.digestLength()];
+        hashBytes[0] = (byte) path;
+        hashBytes[1] = (byte) value;
+        return new VirtualLeafRecord<>(
+                path,
+                new Hash(hashBytes, DigestType.SHA_384),
+                new TestKey(path),
+                new TestValue(value));
+    }
+
+    private static List<VirtualLeafRecord<TestKey, TestValue>> leaves(
+            final long firstPath, final long lastPath, final long valueOffset) {
+        return LongStream.rangeClosed(firstPath, lastPath)
+                .mapToObj(path -> leaf(path, path + valueOffset))
+                .toList();
+    }
+
+    /** Save leaves in three files, updating some leaves and deleting others */
+    private static void saveLeaves(final MerkleDbDataSource<TestKey, TestValue> dataSource)
+            throws IOException {
+        dataSource.saveRecords(
+                FIRST_LEAF_PATH,
+                LAST_LEAF_PATH,
+                Stream.empty(),
+                leaves(FIRST_LEAF_PATH, LAST_LEAF_PATH, 0).stream(),
+                Stream.empty());
+        dataSource.saveRecords(
+                FIRST_LEAF_PATH,
+                LAST_LEAF_PATH,
+                Stream.empty(),
+                leaves(FIRST_LEAF_PATH, FIRST_LEAF_PATH + 5, 100).stream(),
+                Stream.empty());
+        dataSource.saveRecords(
+                FIRST_LEAF_PATH,
+                FIRST_DELETED_PATH - 1,
+                Stream.empty(),
+                leaves(FIRST_LEAF_PATH + 3, FIRST_LEAF_PATH + 8, 200).stream(),
+                leaves(FIRST_DELETED_PATH, LAST_LEAF_PATH, 0).stream());
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Leaves loaded in a batch by key match the leaves loaded one by one")
+    void loadByKeys() throws IOException {
+        final MerkleDbDataSource<TestKey, TestValue> dataSource = createDataSource();
+        try {
+            saveLeaves(dataSource);
+            final List<TestKey> keys = new ArrayList<>();
+            // current, updated and deleted keys, in reverse order, then missing and repeated ones
+            for (long path = LAST_LEAF_PATH; path >= FIRST_LEAF_PATH; path--) {
+                keys.add(new TestKey(path));
+            }
+            keys.add(new TestKey(1_000));
+            keys.add(new TestKey(FIRST_LEAF_PATH + 4));
+            keys.add(new TestKey(LAST_LEAF_PATH));
+
+            final List<VirtualLeafRecord<TestKey, TestValue>> batch =
+                    dataSource.loadLeafRecords(keys);
+            assertEquals(keys.size(), batch.size(), "Expected a record for every key");
+            for (int i = 0; i < keys.size(); i++) {
+                final TestKey key = keys.get(i);
+                final VirtualLeafRecord<TestKey, TestValue> single =
+                        dataSource.loadLeafRecord(key);
+                if (key.getKeyAsLong() >= FIRST_DELETED_PATH) {
+                    assertNull(single, "Deleted or missing key " + key + " found");
+                } else {
+                    assertNotNull(single, "Key " + key + " not found");
+                }
+                assertEquals(single, batch.get(i), "Wrong record for key " + key);
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Leaves loaded in a batch by path match the leaves loaded one by one")
+    void loadByPaths() throws IOException {
+        final MerkleDbDataSource<TestKey, TestValue> dataSource = createDataSource();
+        try {
+            saveLeaves(dataSource);
+            // all valid paths in reverse order, then a repeated one
+            final int validPaths = (int) (FIRST_DELETED_PATH - FIRST_LEAF_PATH);
+            final long[] paths = new long[validPaths + 2];
+            for (int i = 0; i < validPaths; i++) {
+                paths[i] = FIRST_DELETED_PATH - 1 - i;
+            }
+            paths[validPaths] = FIRST_LEAF_PATH + 4;
+            paths[validPaths + 1] = FIRST_LEAF_PATH + 4;
+            final List<VirtualLeafRecord<TestKey, TestValue>> batch =
+                    dataSource.loadLeafRecordsByPath(paths);
+            assertEquals(paths.length, batch.size(), "Expected a record for every path");
+            for (int i = 0; i < paths.length; i++) {
+                final VirtualLeafRecord<TestKey, TestValue> single =
+                        dataSource.loadLeafRecord(paths[i]);
+                assertNotNull(single, "Path " + paths[i] + " not found");
+                assertEquals(single, batch.get(i), "Wrong record for path " + paths[i]);
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtual.merkle.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.constructable.ClassConstructorPair;
+import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.DigestType;
+import com.swirlds.common.io.utility.TemporaryFileBuilder;
+import com.swirlds.merkledb.MerkleDb;
+import com.swirlds.merkledb.MerkleDbDataSourceBuilder;
+import com.swirlds.merkledb.MerkleDbTableConfig;
+import com.swirlds.platform.VirtualMapSettingsImpl;
+import com.swirlds.virtual.merkle.TestKey;
+import com.swirlds.virtual.merkle.TestKeySerializerMerkleDb;
+import com.swirlds.virtual.merkle.TestValue;
+import com.swirlds.virtual.merkle.TestValueSerializerMerkleDb;
+import com.swirlds.virtualmap.VirtualMap;
+import com.swirlds.virtualmap.VirtualMapSettings;
+import com.swirlds.virtualmap.VirtualMapSettingsFactory;
+import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Tags;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Virtual Map Dirty Leaf Flush Threshold Test")
+class VirtualMapFlushThresholdTest {
+
+    private static final long FLUSH_THRESHOLD = 100;
+    /** Enough keys for the first copy to cross the threshold on its own */
+    private static final int NUM_OF_KEYS = 200;
+
+    private VirtualMapSettings originalSettings;
+
+    @BeforeAll
+    static void setup() throws ConstructableRegistryException {
+        ConstructableRegistry.getInstance()
+                .registerConstructable(
+                        new ClassConstructorPair(
+                                TestKeySerializerMerkleDb.class, TestKeySerializerMerkleDb::new));
+        ConstructableRegistry.getInstance()
+                .registerConstructable(
+                        new ClassConstructorPair(
+                                TestValueSerializerMerkleDb.class,
+                                TestValueSerializerMerkleDb::new));
+    }
+
+    @BeforeEach
+    void configureSettings() throws IOException {
+        MerkleDb.setDefaultPath(TemporaryFileBuilder.buildTemporaryFile());
+        originalSettings = VirtualMapSettingsFactory.get();
+        final VirtualMapSettingsImpl settings = new VirtualMapSettingsImpl();
+        settings.setFlushThresholdDirtyLeaves(FLUSH_THRESHOLD);
+        // the threshold replaces the interval, which would otherwise flush every copy
+        settings.setFlushInterval(1);
+        VirtualMapSettingsFactory.configure(settings);
+    }
+
+    @AfterEach
+    void restoreSettings() {
+        VirtualMapSettingsFactory.configure(originalSettings);
+    }
+
+    private static VirtualMap<TestKey, TestValue> createMap(final String label) {
+        final MerkleDbTableConfig<TestKey, TestValue> tableConfig =
+                new MerkleDbTableConfig<>(
+                        (short) 1, DigestType.SHA_384,
+                        (short) 1, new TestKeySerializerMerkleDb(),
+                        (short) 1, new TestValueSerializerMerkleDb());
+        return new VirtualMap<>(label, new MerkleDbDataSourceBuilder<>(tableConfig));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static VirtualRootNode<TestKey, TestValue> root(
+            final VirtualMap<TestKey, TestValue> map) {
+        return (VirtualRootNode<TestKey, TestValue>) map.getChild(1);
+    }
+
+    /** Update the values of keys in [first, last), so each of them is one dirty leaf */
+    private static void update(
+            final VirtualMap<TestKey, TestValue> map,
+            final int first,
+            final int last,
+            final long valueOffset) {
+        for (int i = first; i < last; i++) {
+            map.put(new TestKey(i), new TestValue(i + valueOffset));
+        }
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("A copy is flushed once dirty leaves since the last flush cross the threshold")
+    void flushOnThreshold() throws InterruptedException {
+        VirtualMap<TestKey, TestValue> map = createMap("flushOnThreshold");
+        try {
+            for (int i = 0; i < NUM_OF_KEYS; i++) {
+                map.put(new TestKey(i), new TestValue(i));
+            }
+            VirtualMap<TestKey, TestValue> older = map;
+            map = map.copy();
+            final VirtualRootNode<TestKey, TestValue> first = root(older);
+            assertTrue(first.shouldBeFlushed(), "a copy over the threshold should be flushed");
+            older.release();
+            first.waitUntilFlushed();
+            assertTrue(first.isFlushed(), "a copy over the threshold should be flushed");
+
+            // 60 dirty leaves, updating a leaf again in the same copy doesn't count twice
+            update(map, 0, 60, 1_000);
+            update(map, 0, 10, 2_000);
+            older = map;
+            map = map.copy();
+            assertFalse(root(older).shouldBeFlushed(), "60 dirty leaves are under the threshold");
+            older.release();
+
+            // 99 dirty leaves since the last flush
+            update(map, 60, 99, 1_000);
+            older = map;
+            map = map.copy();
+            assertFalse(root(older).shouldBeFlushed(), "99 dirty leaves are under the threshold");
+            older.release();
+
+            // 100 dirty leaves since the last flush, counted over three copies
+            update(map, 99, 100, 1_000);
+            final VirtualRootNode<TestKey, TestValue> crossing = root(map);
+            older = map;
+            map = map.copy();
+            assertTrue(crossing.shouldBeFlushed(), "the copy crossing the threshold is flushed");
+            older.release();
+            crossing.waitUntilFlushed();
+            assertTrue(crossing.isFlushed(), "the copy crossing the threshold is flushed");
+
+            // the count starts over after a flushed copy
+            update(map, 100, 110, 1_000);
+            older = map;
+            map = map.copy();
+            assertFalse(root(older).shouldBeFlushed(), "the count should start over");
+            older.release();
+            assertEquals(0, root(map).getPipeline().getFlushBacklogSize(), "nothing to flush");
+
+            for (int i = 0; i < NUM_OF_KEYS; i++) {
+                assertTrue(map.containsKey(new TestKey(i)), "key " + i + " should be present");
+            }
+        } finally {
+            map.release();
+        }
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Copies under the threshold are merged instead of flushed")
+    void noFlushUnderThreshold() {
+        VirtualMap<TestKey, TestValue> map = createMap("noFlushUnderThreshold");
+        try {
+            // adding a leaf may also move another one, so at most 20 dirty leaves
+            for (int i = 0; i < 10; i++) {
+                map.put(new TestKey(i), new TestValue(i));
+            }
+            // many copies, with fewer dirty leaves in total than the threshold
+            for (int i = 0; i < FLUSH_THRESHOLD / 2; i++) {
+                update(map, i % 10, i % 10 + 1, 1_000 + i);
+                final VirtualMap<TestKey, TestValue> older = map;
+                map = map.copy();
+                assertFalse(root(older).shouldBeFlushed(), "copy " + i + " should not be flushed");
+                assertEquals(0, root(map).getPipeline().getFlushBacklogSize(), "nothing to flush");
+                older.release();
+            }
+        } finally {
+            map.release();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -100,6 +101,11 @@ public abstract class BreakableDataSource implements VirtualDataSource<TestKey,
         return delegate.loadLeafHash(path);
     }
 
+    @Override
+    public boolean forEachLeafHash(final Predicate<Hash> action) throws IOException {
+        return delegate.forEachLeafHash(action);
+    }
+
     @Override
     public void snapshot(final Path snapshotDirectory) throws IOException {
         delegate.snapshot(snapshotDirectory);
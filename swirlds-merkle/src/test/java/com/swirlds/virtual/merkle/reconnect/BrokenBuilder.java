@@ -75,6 +75,11 @@ public abstract class BrokenBuilder implements VirtualDataSourceBuilder<TestKey,
     @Override
     public abstract BreakableDataSource restore(final String label, final Path from);
 
+    @Override
+    public boolean isSnapshotTransferSupported() {
+        return delegate.isSnapshotTransferSupported();
+    }
+
     public void setNumCallsBeforeThrow(final int numCallsBeforeThrow) {
         this.numCallsBeforeThrow = numCallsBeforeThrow;
     }
@@ -57,4 +57,9 @@ public class BrokenBuilderMerkleDb extends BrokenBuilder {
     public BreakableDataSource restore(final String label, final Path from) {
         return new BreakableDataSourceMerkleDb(this, delegate.restore(label, from));
     }
+
+    @Override
+    public BreakableDataSource openSnapshot(final String label, final Path from) {
+        return new BreakableDataSourceMerkleDb(this, delegate.openSnapshot(label, from));
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtual.merkle.reconnect;
+
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.synchronization.views.PartitionedTeacherTreeView;
+import com.swirlds.common.merkle.synchronization.views.TeacherTreeView;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An intentionally broken teacher tree view for a tree sent over parallel streams. The view of the
+ * last subtree throws an IO exception after a certain number of nodes have been serialized, the
+ * other subtrees are sent normally.
+ */
+public class BrokenPartitionTeacherView extends BrokenVirtualMapTeacherView
+        implements PartitionedTeacherTreeView<Long> {
+
+    private final PartitionedTeacherTreeView<Long> baseView;
+    private final int permittedInternals;
+    private final int permittedLeaves;
+
+    /**
+     * Create a view whose last subtree is intentionally broken.
+     *
+     * @param baseView a functional view for a virtual map
+     * @param permittedInternals the number of internal nodes of the last subtree to allow to be
+     *     serialized, if to many are encountered an IO exception is thrown.
+     * @param permittedLeaves the number of leaf nodes of the last subtree to allow to be
+     *     serialized, if to many are encountered an IO exception is thrown
+     */
+    public BrokenPartitionTeacherView(
+            final PartitionedTeacherTreeView<Long> baseView,
+            final int permittedInternals,
+            final int permittedLeaves) {
+        super(baseView, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        this.baseView = baseView;
+        this.permittedInternals = permittedInternals;
+        this.permittedLeaves = permittedLeaves;
+    }
+
+    @Override
+    public List<TeacherTreeView<Long>> partition(
+            final int maxPartitions, final SerializableDataOutputStream out) throws IOException {
+        final List<TeacherTreeView<Long>> partitions =
+                new ArrayList<>(baseView.partition(maxPartitions, out));
+        if (!partitions.isEmpty()) {
+            final int last = partitions.size() - 1;
+            partitions.set(
+                    last,
+                    new BrokenVirtualMapTeacherView(
+                            partitions.get(last), permittedInternals, permittedLeaves));
+        }
+        return partitions;
+    }
+
+    @Override
+    public void waitUntilReady() throws InterruptedException {
+        baseView.waitUntilReady();
+    }
+
+    @Override
+    public void close() {
+        baseView.close();
+    }
+}
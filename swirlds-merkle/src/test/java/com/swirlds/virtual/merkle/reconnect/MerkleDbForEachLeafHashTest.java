@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtual.merkle.reconnect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.constructable.ClassConstructorPair;
+import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.DigestType;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.utility.TemporaryFileBuilder;
+import com.swirlds.merkledb.MerkleDb;
+import com.swirlds.merkledb.MerkleDbDataSource;
+import com.swirlds.merkledb.MerkleDbDataSourceBuilder;
+import com.swirlds.merkledb.MerkleDbTableConfig;
+import com.swirlds.virtual.merkle.TestKey;
+import com.swirlds.virtual.merkle.TestKeySerializerMerkleDb;
+import com.swirlds.virtual.merkle.TestValue;
+import com.swirlds.virtual.merkle.TestValueSerializerMerkleDb;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Tags;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("MerkleDB Leaf Hash Iteration Test")
+class MerkleDbForEachLeafHashTest {
+
+    private static final long FIRST_LEAF_PATH = 7;
+    private static final long LAST_LEAF_PATH = 14;
+
+    @BeforeAll
+    static void setup() throws ConstructableRegistryException {
+        ConstructableRegistry.getInstance()
+                .registerConstructable(
+                        new ClassConstructorPair(
+                                TestKeySerializerMerkleDb.class, TestKeySerializerMerkleDb::new));
+        ConstructableRegistry.getInstance()
+                .registerConstructable(
+                        new ClassConstructorPair(
+                                TestValueSerializerMerkleDb.class,
+                                TestValueSerializerMerkleDb::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MerkleDbDataSource<TestKey, TestValue> createDataSource() throws IOException {
+        MerkleDb.setDefaultPath(TemporaryFileBuilder.buildTemporaryFile());
+        final MerkleDbTableConfig<TestKey, TestValue> tableConfig =
+                new MerkleDbTableConfig<>(
+                        (short) 1, DigestType.SHA_384,
+                        (short) 1, new TestKeySerializerMerkleDb(),
+                        (short) 1, new TestValueSerializerMerkleDb());
+        // Compaction would merge the stale records away
+        return (MerkleDbDataSource<TestKey, TestValue>)
+                new MerkleDbDataSourceBuilder<>(tableConfig).build("leafHashes", false);
+    }
+
+    private static Hash randomHash(final Random random) {
+        final byte[] bytes = new byte[DigestType.SHA_384.digestLength()];
+        random.nextBytes(bytes);
+        return new Hash(bytes, DigestType.SHA_384);
+    }
+
+    private static void saveLeaves(
+            final MerkleDbDataSource<TestKey, TestValue> dataSource,
+            final List<VirtualLeafRecord<TestKey, TestValue>> leaves)
+            throws IOException {
+        dataSource.saveRecords(
+                FIRST_LEAF_PATH, LAST_LEAF_PATH, Stream.empty(), leaves.stream(), Stream.empty());
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("Reconnect")})
+    @DisplayName("Stale and duplicate leaf records are passed along with the current ones")
+    void staleAndDuplicateRecords() throws IOException {
+        final Random random = new Random(19);
+        final MerkleDbDataSource<TestKey, TestValue> dataSource = createDataSource();
+        try {
+            final List<Hash> originalHashes = new ArrayList<>();
+            final List<VirtualLeafRecord<TestKey, TestValue>> original = new ArrayList<>();
+            for (long path = FIRST_LEAF_PATH; path <= LAST_LEAF_PATH; path++) {
+                final Hash hash = randomHash(random);
+                originalHashes.add(hash);
+                original.add(
+                        new VirtualLeafRecord<>(
+                                path, hash, new TestKey(path), new TestValue(path)));
+            }
+            saveLeaves(dataSource, original);
+
+            // Change the first four leaves, and write the fifth again unchanged
+            final List<Hash> currentHashes = new ArrayList<>(originalHashes);
+            final List<VirtualLeafRecord<TestKey, TestValue>> updated = new ArrayList<>();
+            for (int index = 0; index < 4; index++) {
+                final long path = FIRST_LEAF_PATH + index;
+                final Hash hash = randomHash(random);
+                currentHashes.set(index, hash);
+                updated.add(
+                        new VirtualLeafRecord<>(
+                                path, hash, new TestKey(path), new TestValue(path + 100)));
+            }
+            updated.add(original.get(4));
+            saveLeaves(dataSource, updated);
+
+            final List<Hash> passed = new ArrayList<>();
+            assertTrue(
+                    dataSource.forEachLeafHash(passed::add),
+                    "the data source should support iterating leaf hashes");
+
+            assertEquals(
+                    original.size() + updated.size(),
+                    passed.size(),
+                    "every record written should be passed once");
+            assertTrue(passed.containsAll(currentHashes), "all current hashes should be passed");
+            assertTrue(
+                    passed.containsAll(originalHashes.subList(0, 4)),
+                    "stale hashes should be passed too");
+            assertEquals(
+                    2,
+                    Collections.frequency(passed, originalHashes.get(4)),
+                    "a record written twice should be passed twice");
+        } finally {
+            dataSource.closeAndDelete();
+        }
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("Reconnect")})
+    @DisplayName("Iteration stops when the action returns false")
+    void stopEarly() throws IOException {
+        final Random random = new Random(20);
+        final MerkleDbDataSource<TestKey, TestValue> dataSource = createDataSource();
+        try {
+            final List<VirtualLeafRecord<TestKey, TestValue>> leaves = new ArrayList<>();
+            for (long path = FIRST_LEAF_PATH; path <= LAST_LEAF_PATH; path++) {
+                leaves.add(
+                        new VirtualLeafRecord<>(
+                                path, randomHash(random), new TestKey(path), new TestValue(path)));
+            }
+            saveLeaves(dataSource, leaves);
+
+            final List<Hash> passed = new ArrayList<>();
+            assertTrue(
+                    dataSource.forEachLeafHash(
+                            (final Hash hash) -> {
+                                passed.add(hash);
+                                return passed.size() < 3;
+                            }),
+                    "the data source should support iterating leaf hashes");
+            assertEquals(3, passed.size(), "no hashes should be passed after the action stops");
+        } finally {
+            dataSource.closeAndDelete();
+        }
+    }
+}
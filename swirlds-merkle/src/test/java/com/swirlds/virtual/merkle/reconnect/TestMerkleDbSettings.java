@@ -15,6 +15,7 @@
  */
 package com.swirlds.virtual.merkle.reconnect;
 
+import com.swirlds.merkledb.cache.LeafRecordCachePolicy;
 import com.swirlds.merkledb.settings.MerkleDbSettings;
 import java.time.temporal.ChronoUnit;
 
@@ -164,4 +165,52 @@ public class TestMerkleDbSettings implements MerkleDbSettings {
     public int getLeafRecordCacheSize() {
         return defaultSettings.getLeafRecordCacheSize();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public LeafRecordCachePolicy getLeafRecordCachePolicy() {
+        return defaultSettings.getLeafRecordCachePolicy();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getHalfDiskHashMapFlushThreads() {
+        return defaultSettings.getHalfDiskHashMapFlushThreads();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isHalfDiskHashMapGrowthEnabled() {
+        return defaultSettings.isHalfDiskHashMapGrowthEnabled();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDataFileMemoryMappedReadsEnabled() {
+        return defaultSettings.isDataFileMemoryMappedReadsEnabled();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isGarbageDrivenMergeEnabled() {
+        return defaultSettings.isGarbageDrivenMergeEnabled();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMinGarbageRatioForMerge() {
+        return defaultSettings.getMinGarbageRatioForMerge();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isConcurrentStoreMergingEnabled() {
+        return defaultSettings.isConcurrentStoreMergingEnabled();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxMergeWriteMbPerSecond() {
+        return defaultSettings.getMaxMergeWriteMbPerSecond();
+    }
 }
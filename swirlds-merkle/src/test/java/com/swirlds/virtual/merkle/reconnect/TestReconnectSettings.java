@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtual.merkle.reconnect;
+
+import com.swirlds.common.merkle.synchronization.settings.ReconnectSettings;
+import java.time.Duration;
+
+/** Reconnect settings that can override default settings. */
+public class TestReconnectSettings implements ReconnectSettings {
+
+    private final ReconnectSettings defaultSettings;
+
+    /** Create settings that use another as default. Individual settings can be overridden. */
+    public TestReconnectSettings(final ReconnectSettings defaultSettings) {
+        this.defaultSettings = defaultSettings;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isActive() {
+        return defaultSettings.isActive();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getReconnectWindowSeconds() {
+        return defaultSettings.getReconnectWindowSeconds();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getFallenBehindThreshold() {
+        return defaultSettings.getFallenBehindThreshold();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getAsyncStreamTimeoutMilliseconds() {
+        return defaultSettings.getAsyncStreamTimeoutMilliseconds();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getAsyncOutputStreamFlushMilliseconds() {
+        return defaultSettings.getAsyncOutputStreamFlushMilliseconds();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getAsyncStreamBufferSize() {
+        return defaultSettings.getAsyncStreamBufferSize();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxAckDelayMilliseconds() {
+        return defaultSettings.getMaxAckDelayMilliseconds();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaximumReconnectFailuresBeforeShutdown() {
+        return defaultSettings.getMaximumReconnectFailuresBeforeShutdown();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Duration getMinimumTimeBetweenReconnects() {
+        return defaultSettings.getMinimumTimeBetweenReconnects();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getParallelStreamCount() {
+        return defaultSettings.getParallelStreamCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCompression() {
+        return defaultSettings.getCompression();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getBulkReconnectThreshold() {
+        return defaultSettings.getBulkReconnectThreshold();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isLeafHashFilterEnabled() {
+        return defaultSettings.isLeafHashFilterEnabled();
+    }
+}
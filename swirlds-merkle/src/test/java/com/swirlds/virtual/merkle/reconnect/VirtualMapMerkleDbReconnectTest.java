@@ -27,6 +27,7 @@ import com.swirlds.common.merkle.MerkleNode;
 import com.swirlds.common.merkle.crypto.MerkleCryptoFactory;
 import com.swirlds.common.merkle.synchronization.settings.ReconnectSettings;
 import com.swirlds.common.merkle.synchronization.settings.ReconnectSettingsFactory;
+import com.swirlds.common.merkle.synchronization.views.PartitionedTeacherTreeView;
 import com.swirlds.common.merkle.synchronization.views.TeacherTreeView;
 import com.swirlds.common.test.merkle.dummy.DummyMerkleInternal;
 import com.swirlds.common.test.merkle.util.MerkleTestUtils;
@@ -54,6 +55,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 @DisplayName("Virtual Map MerkleDB Reconnect Test")
 class VirtualMapMerkleDbReconnectTest extends VirtualMapMerkleDbReconnectTestBase {
@@ -314,6 +316,160 @@ class VirtualMapMerkleDbReconnectTest extends VirtualMapMerkleDbReconnectTestBas
         findBrokenChildren(learnerMap);
     }
 
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("Reconnect")})
+    @DisplayName("Far behind learner receives the teacher's data source files in bulk")
+    void farBehindLearnerReceivesTreeInBulk() {
+        for (int i = 0; i < 10_000; i++) {
+            if (i > 0 && i % 1_000 == 0) {
+                final var oldMap = teacherMap;
+                teacherMap = teacherMap.copy();
+                oldMap.release();
+            }
+            teacherMap.put(new TestKey(i), new TestValue(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            learnerMap.put(new TestKey(i), new TestValue(i + 1_000_000));
+        }
+
+        final ReconnectSettings originalReconnectSettings = ReconnectSettingsFactory.get();
+        configureBulkReconnectThreshold(originalReconnectSettings, 0.5);
+        try {
+            assertDoesNotThrow(this::reconnect, "Should not throw a Exception");
+        } finally {
+            ReconnectSettingsFactory.configure(originalReconnectSettings);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4})
+    @Tags({@Tag("VirtualMerkle"), @Tag("Reconnect")})
+    @DisplayName("Teacher and learner that partly differ, reconnected over parallel streams")
+    void parallelStreams(final int parallelStreamCount) {
+        buildParallelReconnectMaps();
+
+        final ReconnectSettings originalReconnectSettings = ReconnectSettingsFactory.get();
+        configureParallelStreams(originalReconnectSettings, parallelStreamCount);
+        try {
+            assertDoesNotThrow(this::reconnect, "Should not throw a Exception");
+        } finally {
+            ReconnectSettingsFactory.configure(originalReconnectSettings);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4})
+    @Tags({@Tag("VirtualMerkle"), @Tag("Reconnect")})
+    @DisplayName("Teacher aborts reconnect in one of the parallel streams")
+    void parallelStreamsTeacherAbortsInOnePartition(final int parallelStreamCount) {
+        configureReconnectToFailQuickly();
+        configureParallelStreams(ReconnectSettingsFactory.get(), parallelStreamCount);
+
+        buildParallelReconnectMaps();
+
+        // the other partitions are sent completely, the last one fails on its first leaf
+        reconnectMultipleTimes(
+                2,
+                (final VirtualMap<TestKey, TestValue> map) -> {
+                    MerkleCryptoFactory.getInstance().digestTreeSync(map);
+                    final MerkleInternal imitationMap = new FakeVirtualMap();
+                    imitationMap.setChild(0, map.getChild(0).copy());
+                    final PartitionedTeacherTreeView<Long> view =
+                            (PartitionedTeacherTreeView<Long>)
+                                    ((VirtualRootNode<?, ?>) map.getChild(1)).buildTeacherView();
+                    imitationMap.setChild(
+                            1,
+                            new FakeVirtualRootNode(
+                                    new BrokenPartitionTeacherView(view, Integer.MAX_VALUE, 0)));
+                    return imitationMap;
+                });
+
+        resetReconnectSettings();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    @Tags({@Tag("VirtualMerkle"), @Tag("Reconnect")})
+    @DisplayName("Learner filters the teacher's leaf hashes before reading its own leaves")
+    void leafHashFilter(final int parallelStreamCount) {
+        final Random rand = new Random(19);
+        for (int i = 0; i < 10_000; i++) {
+            final int value = rand.nextInt(100) < 30 ? i + 1_000_000 : i;
+            teacherMap.put(new TestKey(i), new TestValue(value));
+        }
+        // Most of the learner's leaves are flushed to disk, the rest stay in the cache
+        for (int i = 0; i < 10_000; i++) {
+            if (i > 0 && i % 100 == 0) {
+                final var oldMap = learnerMap;
+                learnerMap = learnerMap.copy();
+                oldMap.release();
+            }
+            learnerMap.put(new TestKey(i), new TestValue(i));
+        }
+
+        final ReconnectSettings originalReconnectSettings = ReconnectSettingsFactory.get();
+        ReconnectSettingsFactory.configure(
+                new TestReconnectSettings(originalReconnectSettings) {
+                    @Override
+                    public int getParallelStreamCount() {
+                        return parallelStreamCount;
+                    }
+
+                    @Override
+                    public boolean isLeafHashFilterEnabled() {
+                        return true;
+                    }
+                });
+        try {
+            assertDoesNotThrow(this::reconnect, "Should not throw a Exception");
+        } finally {
+            ReconnectSettingsFactory.configure(originalReconnectSettings);
+        }
+        findBrokenChildren(learnerMap);
+    }
+
+    /**
+     * Build a teacher large enough to be split into partitions, and a learner that shares some of
+     * the teacher's leaves, has different values for others, and has leaves the teacher doesn't.
+     */
+    private void buildParallelReconnectMaps() {
+        for (int i = 0; i < 10_000; i++) {
+            if (i > 0 && i % 1_000 == 0) {
+                final var oldMap = teacherMap;
+                teacherMap = teacherMap.copy();
+                oldMap.release();
+            }
+            teacherMap.put(new TestKey(i), new TestValue(i));
+        }
+        for (int i = 5_000; i < 15_000; i++) {
+            learnerMap.put(new TestKey(i), new TestValue((i % 3 == 0) ? i + 1_000_000 : i));
+        }
+    }
+
+    /** Configure reconnect to send trees that support it over the given number of streams. */
+    private void configureParallelStreams(
+            final ReconnectSettings defaults, final int parallelStreamCount) {
+        ReconnectSettingsFactory.configure(
+                new TestReconnectSettings(defaults) {
+                    @Override
+                    public int getParallelStreamCount() {
+                        return parallelStreamCount;
+                    }
+                });
+    }
+
+    /** Configure reconnect so that a learner with few leaves receives virtual maps in bulk. */
+    private void configureBulkReconnectThreshold(
+            final ReconnectSettings defaults, final double threshold) {
+        ReconnectSettingsFactory.configure(
+                new TestReconnectSettings(defaults) {
+                    @Override
+                    public double getBulkReconnectThreshold() {
+                        return threshold;
+                    }
+                });
+    }
+
     /** Configure reconnect so that failed reconnect attempts abort very quickly. */
     private void configureReconnectToFailQuickly() {
         ReconnectSettingsFactory.configure(
@@ -77,6 +77,7 @@ import com.swirlds.p2p.portforwarding.PortMapping;
 import com.swirlds.platform.chatter.config.ChatterConfig;
 import com.swirlds.platform.config.AddressBookConfig;
 import com.swirlds.platform.config.ConfigAliases;
+import com.swirlds.platform.config.SyncConfig;
 import com.swirlds.platform.config.ThreadConfig;
 import com.swirlds.platform.config.legacy.ConfigPropertiesSource;
 import com.swirlds.platform.config.legacy.LegacyConfigProperties;
@@ -191,6 +192,7 @@ public class Browser {
                         .withConfigDataType(VirtualMapConfig.class)
                         .withConfigDataType(ConsensusConfig.class)
                         .withConfigDataType(ThreadConfig.class)
+                        .withConfigDataType(SyncConfig.class)
                         .withConfigDataType(DispatchConfiguration.class)
                         .withConfigDataType(PrometheusMetricsConfig.class)
                         .withConfigDataType(OSHealthCheckConfig.class)
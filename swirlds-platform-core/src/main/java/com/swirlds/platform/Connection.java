@@ -16,6 +16,7 @@
 package com.swirlds.platform;
 
 import com.swirlds.common.system.NodeId;
+import com.swirlds.platform.sync.SyncCapabilities;
 import com.swirlds.platform.sync.SyncInputStream;
 import com.swirlds.platform.sync.SyncOutputStream;
 import java.io.IOException;
@@ -98,6 +99,13 @@ public interface Connection {
      */
     boolean isOutbound();
 
+    /**
+     * @return the optional parts of the sync protocol that both nodes of this connection support
+     */
+    default SyncCapabilities getSyncCapabilities() {
+        return SyncCapabilities.NONE;
+    }
+
     /**
      * @return a string description of this connection
      */
@@ -34,11 +34,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import org.apache.logging.log4j.LogManager;
@@ -237,6 +239,13 @@ public class ConsensusImpl implements Consensus {
     /** the number of coin rounds that have happened so far (used to update the statistics) */
     private long numCoinRounds = 0;
 
+    /**
+     * the graph index that will be assigned to the next event that needs one. Graph indices are
+     * only meaningful to the instance that assigned them, so the indices an event got from another
+     * instance are discarded when it is added to this one (see {@link #clearGraphIndex(EventImpl)})
+     */
+    private long nextGraphIndex = 1;
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // Public constructors
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -286,6 +295,7 @@ public class ConsensusImpl implements Consensus {
 
         for (final EventImpl event : signedState.getEvents()) {
             event.setConsensus(true);
+            clearGraphIndex(event);
             // events are stored in consensus order, so the last event in consensus order should be
             // incremented by 1 to get the numConsensus
             numConsensus = event.getConsensusOrder() + 1;
@@ -482,6 +492,11 @@ public class ConsensusImpl implements Consensus {
         // fill in any event.* that can be calculated by looking only at self and parents
         setFastVars(event);
 
+        if (config.iterativeAncestors()) {
+            // memoize everything for event and its unprocessed ancestors, oldest first
+            memoizeAncestors(event);
+        }
+
         // find event.roundCreated which is max of parents', plus either 0 or 1
         ArrayList<EventImpl> stronglySeen =
                 new ArrayList<>(); // witnesses this event strongly sees in previous round
@@ -641,6 +656,62 @@ public class ConsensusImpl implements Consensus {
         event.setFameDecided(false);
         event.setFamous(false);
         event.setConsensus(false);
+        clearGraphIndex(event);
+    }
+
+    /**
+     * Discard the graph index of the given event, and the memoized graph indices of its firstSee
+     * results. The event may have been given those by another instance, whose indices would
+     * collide with the ones assigned by this instance.
+     *
+     * @param event the event that is new to this instance
+     */
+    private static void clearGraphIndex(EventImpl event) {
+        event.setGraphIndex(0);
+        event.setFirstSeeIndices(null);
+    }
+
+    /**
+     * Memoize the results of the functions from SWIRLDS-TR-2020-01 for the given event, and for all
+     * of its ancestors that don't have them memoized yet. Those functions recurse into the parents
+     * of an event until they reach memoized results, so calling them on an event whose ancestors
+     * are all unprocessed can use a very deep stack. This method instead walks back to the
+     * memoized ancestors with an explicit stack, and evaluates the events in topological order
+     * (parents before children), so that each evaluation only has to look at its parents.
+     *
+     * @param event the event to memoize, along with its ancestors
+     */
+    private void memoizeAncestors(EventImpl event) {
+        Deque<EventImpl> stack = new ArrayDeque<>();
+        // events whose parents have already been pushed onto the stack
+        Set<EventImpl> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+        stack.push(event);
+        while (!stack.isEmpty()) {
+            EventImpl x = stack.peek();
+            if (x.isMemoized()) {
+                stack.pop();
+            } else if (expanded.add(x)) {
+                // evaluate the parents first. Cleared events have no parents, so the walk stops
+                // at the edge of the events that are still in memory.
+                EventImpl sp = x.getSelfParent();
+                EventImpl op = x.getOtherParent();
+                if (op != null && !op.isMemoized()) {
+                    stack.push(op);
+                }
+                if (sp != null && !sp.isMemoized()) {
+                    stack.push(sp);
+                }
+            } else {
+                // all parents are memoized, so none of these will recurse past them
+                stack.pop();
+                lastSee(x, 0);
+                round(x);
+                stronglySeeP(x, 0);
+                firstSelfWitnessS(x);
+                firstWitnessS(x);
+                x.setMemoized(true);
+            }
+        }
     }
 
     /**
@@ -1257,6 +1328,9 @@ public class ConsensusImpl implements Consensus {
             result = null;
         } else if (x.sizeStronglySeeP() != 0) { // return memoized answer, if available
             result = x.getStronglySeeP((int) m);
+        } else if (config.vectorizedStronglySee()) { // calculate it with stake vectors
+            stronglySeePVectorized(x);
+            result = x.getStronglySeeP((int) m);
         } else { // calculate the answer, and remember it for next time
             // find and memoize answers for all choices of m, then return answer for just this m
             int numMembers = getAddressBook().getSize(); // number of members
@@ -1309,6 +1383,124 @@ public class ConsensusImpl implements Consensus {
         return result;
     }
 
+    /**
+     * Find and memoize stronglySeeP(x, m) for every member m. This gives the same results as the
+     * calculation in {@link #stronglySeeP(EventImpl, long)}, but instead of looking up
+     * seeThru(x, mm, m3) separately for every pair of members, it compares the graph indices of
+     * whole rows of firstSee results (see {@link #firstSeeIndices(EventImpl)}) against the
+     * canonical witnesses, and adds up the stake for all members at once. The inner loop only
+     * touches primitive arrays, so the JIT can unroll and vectorize it.
+     *
+     * @param x the event being queried, which must not be null and must not have stronglySeeP
+     *     memoized yet
+     */
+    private void stronglySeePVectorized(EventImpl x) {
+        int numMembers = getAddressBook().getSize(); // number of members
+        long totalStake = addressBook.getTotalStake(); // total stake in existence
+        int creator = (int) x.getCreatorId(); // creator of x
+        EventImpl sp = x.getSelfParent(); // self parent
+        EventImpl op = x.getOtherParent(); // other parent
+        long prx = parentRound(x); // parent round of x
+        long prsp = parentRound(sp); // parent round of self parent of x
+        long prop = parentRound(op); // parent round of other parent of x
+
+        // the canonical witness by each member that still has to be checked for strong seeing
+        EventImpl[] candidates = new EventImpl[numMembers];
+        // graph index of each candidate. 0 is never assigned, so it matches nothing
+        long[] canonical = new long[numMembers];
+        boolean anyCandidates = false;
+
+        x.initStronglySeeP(numMembers);
+        for (int mm = 0; mm < numMembers; mm++) {
+            if (stronglySeeP(sp, mm) != null && prx == prsp) {
+                x.setStronglySeeP(mm, stronglySeeP(sp, mm));
+            } else if (stronglySeeP(op, mm) != null && prx == prop) {
+                x.setStronglySeeP(mm, stronglySeeP(op, mm));
+            } else {
+                // the canonical witness by mm that is seen by x thru someone else
+                EventImpl st = seeThru(x, mm, mm);
+                if (st != null && round(st) == prx) {
+                    candidates[mm] = st;
+                    canonical[mm] = graphIndex(st);
+                    anyCandidates = true;
+                }
+            }
+        }
+        if (!anyCandidates) {
+            return;
+        }
+
+        // stake[mm] is the stake of the intermediates through which x sees the canonical by mm
+        long[] stake = new long[numMembers];
+        for (int m3 = 0; m3 < numMembers; m3++) {
+            // seen[mm] is the graph index of seeThru(x, mm, m3)
+            long[] seen;
+            if (m3 == creator) {
+                // seeThru(x, mm, creator) has a special case, and can't be memoized in x before
+                // the round of x is known, so find this row directly
+                seen = new long[numMembers];
+                for (int mm = 0; mm < numMembers; mm++) {
+                    seen[mm] = graphIndex(seeThru(x, mm, m3));
+                }
+            } else {
+                seen = firstSeeIndices(lastSee(x, m3));
+            }
+            if (seen == null) { // x sees nothing through m3
+                continue;
+            }
+            long m3Stake = addressBook.getAddress(m3).getStake();
+            for (int mm = 0; mm < numMembers; mm++) {
+                stake[mm] += seen[mm] == canonical[mm] ? m3Stake : 0;
+            }
+        }
+
+        for (int mm = 0; mm < numMembers; mm++) {
+            if (candidates[mm] != null && Utilities.isSupermajority(stake[mm], totalStake)) {
+                x.setStronglySeeP(mm, candidates[mm]);
+            }
+        }
+    }
+
+    /**
+     * The graph indices of firstSee(x, m) for every member m, or -1 for each m where that is null.
+     * This result is memoized.
+     *
+     * @param x the event being queried
+     * @return the graph indices of the firstSee results for x, or null if x is null
+     */
+    private long[] firstSeeIndices(EventImpl x) {
+        if (x == null) {
+            return null;
+        }
+        if (x.getFirstSeeIndices() != null) { // return memoized answer, if available
+            return x.getFirstSeeIndices();
+        }
+        int numMembers = getAddressBook().getSize();
+        long[] indices = new long[numMembers];
+        for (int mm = 0; mm < numMembers; mm++) {
+            indices[mm] = graphIndex(firstSee(x, mm));
+        }
+        x.setFirstSeeIndices(indices);
+        return indices;
+    }
+
+    /**
+     * A number that identifies event x, so that events can be compared as primitives. A new one is
+     * assigned the first time it is needed for a given x. This result is memoized.
+     *
+     * @param x the event being queried
+     * @return the graph index of x, or -1 if x is null
+     */
+    private long graphIndex(EventImpl x) {
+        if (x == null) {
+            return -1;
+        }
+        if (x.getGraphIndex() == 0) {
+            x.setGraphIndex(nextGraphIndex++);
+        }
+        return x.getGraphIndex();
+    }
+
     /**
      * The round-created for event x (first round is 1), or 0 if x is null (function from
      * SWIRLDS-TR-2020-01). It also stores the round number with x.setRoundCreated(). This result is
@@ -15,7 +15,12 @@
  */
 package com.swirlds.platform;
 
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_CONCURRENT_STORE_MERGING_ENABLED;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_DATA_FILE_MEMORY_MAPPED_READS_ENABLED;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_FULL_MERGE_PERIOD;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_GARBAGE_DRIVEN_MERGE_ENABLED;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_HALF_DISK_HASH_MAP_FLUSH_THREADS;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_INDEX_REBUILDING_ENFORCED;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_INTERNAL_HASHES_RAM_TO_DISK_THRESHOLD;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_ITERATOR_INPUT_BUFFER_BYTES;
@@ -23,20 +28,24 @@ import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_KEY_
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_KEY_SET_BLOOM_FILTER_SIZE_IN_BYTES;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_KEY_SET_HALF_DISK_HASH_MAP_BUFFER;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_KEY_SET_HALF_DISK_HASH_MAP_SIZE;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_LEAF_RECORD_CACHE_POLICY;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_LEAF_RECORD_CACHE_SIZE;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MAX_FILE_SIZE_BYTES;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MAX_GB_RAM_FOR_MERGING;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MAX_MERGE_WRITE_MB_PER_SECOND;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MAX_NUMBER_OF_FILES_IN_MERGE;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MAX_NUM_OF_KEYS;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MEDIUM_MERGE_CUTOFF_MB;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MEDIUM_MERGE_PERIOD;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MERGE_ACTIVATED_PERIOD;
+import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MIN_GARBAGE_RATIO_FOR_MERGE;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MIN_NUMBER_OF_FILES_IN_MERGE;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_MOVE_LIST_CHUNK_SIZE;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_RECONNECT_KEY_LEAK_MITIGATION_ENABLED;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_SMALL_MERGE_CUTOFF_MB;
 import static com.swirlds.merkledb.settings.DefaultMerkleDbSettings.DEFAULT_WRITER_OUTPUT_BUFFER_BYTES;
 
+import com.swirlds.merkledb.cache.LeafRecordCachePolicy;
 import com.swirlds.merkledb.settings.MerkleDbSettings;
 import com.swirlds.platform.internal.SubSetting;
 import java.time.temporal.ChronoUnit;
@@ -74,6 +83,14 @@ public class MerkleDbSettingsImpl extends SubSetting implements MerkleDbSettings
     public int keySetHalfDiskHashMapBuffer = DEFAULT_KEY_SET_HALF_DISK_HASH_MAP_BUFFER;
     public boolean indexRebuildingEnforced = DEFAULT_INDEX_REBUILDING_ENFORCED;
     public int leafRecordCacheSize = DEFAULT_LEAF_RECORD_CACHE_SIZE;
+    public String leafRecordCachePolicy = DEFAULT_LEAF_RECORD_CACHE_POLICY.name();
+    public int halfDiskHashMapFlushThreads = DEFAULT_HALF_DISK_HASH_MAP_FLUSH_THREADS;
+    public boolean halfDiskHashMapGrowthEnabled = DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED;
+    public boolean dataFileMemoryMappedReadsEnabled = DEFAULT_DATA_FILE_MEMORY_MAPPED_READS_ENABLED;
+    public boolean garbageDrivenMergeEnabled = DEFAULT_GARBAGE_DRIVEN_MERGE_ENABLED;
+    public double minGarbageRatioForMerge = DEFAULT_MIN_GARBAGE_RATIO_FOR_MERGE;
+    public boolean concurrentStoreMergingEnabled = DEFAULT_CONCURRENT_STORE_MERGING_ENABLED;
+    public int maxMergeWriteMbPerSecond = DEFAULT_MAX_MERGE_WRITE_MB_PER_SECOND;
 
     /** {@inheritDoc} */
     @Override
@@ -337,4 +354,81 @@ public class MerkleDbSettingsImpl extends SubSetting implements MerkleDbSettings
         }
         this.leafRecordCacheSize = leafRecordCacheSize;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public LeafRecordCachePolicy getLeafRecordCachePolicy() {
+        return LeafRecordCachePolicy.valueOf(leafRecordCachePolicy);
+    }
+
+    public void setLeafRecordCachePolicy(final String leafRecordCachePolicy) {
+        LeafRecordCachePolicy.valueOf(leafRecordCachePolicy);
+        this.leafRecordCachePolicy = leafRecordCachePolicy;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getHalfDiskHashMapFlushThreads() {
+        return halfDiskHashMapFlushThreads;
+    }
+
+    public void setHalfDiskHashMapFlushThreads(final int halfDiskHashMapFlushThreads) {
+        if (halfDiskHashMapFlushThreads < 1) {
+            throw new IllegalArgumentException(
+                    "Cannot configure halfDiskHashMapFlushThreads=" + halfDiskHashMapFlushThreads);
+        }
+        this.halfDiskHashMapFlushThreads = halfDiskHashMapFlushThreads;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isHalfDiskHashMapGrowthEnabled() {
+        return halfDiskHashMapGrowthEnabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDataFileMemoryMappedReadsEnabled() {
+        return dataFileMemoryMappedReadsEnabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isGarbageDrivenMergeEnabled() {
+        return garbageDrivenMergeEnabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMinGarbageRatioForMerge() {
+        return minGarbageRatioForMerge;
+    }
+
+    public void setMinGarbageRatioForMerge(final double minGarbageRatioForMerge) {
+        if (minGarbageRatioForMerge <= 0 || minGarbageRatioForMerge > 1) {
+            throw new IllegalArgumentException(
+                    "Cannot configure minGarbageRatioForMerge=" + minGarbageRatioForMerge);
+        }
+        this.minGarbageRatioForMerge = minGarbageRatioForMerge;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isConcurrentStoreMergingEnabled() {
+        return concurrentStoreMergingEnabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxMergeWriteMbPerSecond() {
+        return maxMergeWriteMbPerSecond;
+    }
+
+    public void setMaxMergeWriteMbPerSecond(final int maxMergeWriteMbPerSecond) {
+        if (maxMergeWriteMbPerSecond < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot configure maxMergeWriteMbPerSecond=" + maxMergeWriteMbPerSecond);
+        }
+        this.maxMergeWriteMbPerSecond = maxMergeWriteMbPerSecond;
+    }
 }
@@ -22,6 +22,7 @@ import com.swirlds.common.io.exceptions.BadIOException;
 import com.swirlds.common.system.NodeId;
 import com.swirlds.platform.network.ConnectionTracker;
 import com.swirlds.platform.network.NetworkUtils;
+import com.swirlds.platform.sync.SyncCapabilities;
 import com.swirlds.platform.sync.SyncInputStream;
 import com.swirlds.platform.sync.SyncOutputStream;
 import java.io.IOException;
@@ -50,6 +51,7 @@ public class SocketConnection implements Connection {
     private final AtomicBoolean connected = new AtomicBoolean(true);
     private final boolean outbound;
     private final String description;
+    private final SyncCapabilities syncCapabilities;
 
     /**
      * @param connectionTracker tracks open connections
@@ -59,6 +61,7 @@ public class SocketConnection implements Connection {
      * @param socket the socket connecting the two members over TCP/IP
      * @param dis the input stream
      * @param dos the output stream
+     * @param syncCapabilities the sync capabilities both members support
      */
     protected SocketConnection(
             final NodeId selfId,
@@ -67,10 +70,12 @@ public class SocketConnection implements Connection {
             final boolean outbound,
             final Socket socket,
             final SyncInputStream dis,
-            final SyncOutputStream dos) {
+            final SyncOutputStream dos,
+            final SyncCapabilities syncCapabilities) {
         Objects.requireNonNull(socket);
         Objects.requireNonNull(dis);
         Objects.requireNonNull(dos);
+        Objects.requireNonNull(syncCapabilities);
 
         this.selfId = selfId;
         this.otherId = otherId;
@@ -81,6 +86,7 @@ public class SocketConnection implements Connection {
         this.socket = socket;
         this.dis = dis;
         this.dos = dos;
+        this.syncCapabilities = syncCapabilities;
     }
 
     /**
@@ -93,6 +99,7 @@ public class SocketConnection implements Connection {
      * @param socket the socket connecting the two members over TCP/IP
      * @param dis the input stream
      * @param dos the output stream
+     * @param syncCapabilities the sync capabilities both members support
      */
     public static SocketConnection create(
             final NodeId selfId,
@@ -101,10 +108,18 @@ public class SocketConnection implements Connection {
             final boolean outbound,
             final Socket socket,
             final SyncInputStream dis,
-            final SyncOutputStream dos) {
+            final SyncOutputStream dos,
+            final SyncCapabilities syncCapabilities) {
         final SocketConnection c =
                 new SocketConnection(
-                        selfId, otherId, connectionTracker, outbound, socket, dis, dos);
+                        selfId,
+                        otherId,
+                        connectionTracker,
+                        outbound,
+                        socket,
+                        dis,
+                        dos,
+                        syncCapabilities);
         connectionTracker.newConnectionOpened(c);
         return c;
     }
@@ -198,6 +213,11 @@ public class SocketConnection implements Connection {
         return outbound;
     }
 
+    @Override
+    public SyncCapabilities getSyncCapabilities() {
+        return syncCapabilities;
+    }
+
     @Override
     public String getDescription() {
         return description;
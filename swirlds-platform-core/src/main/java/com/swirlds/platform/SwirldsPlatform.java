@@ -102,6 +102,7 @@ import com.swirlds.platform.components.TransactionTracker;
 import com.swirlds.platform.components.appcomm.AppCommunicationComponent;
 import com.swirlds.platform.components.state.StateManagementComponent;
 import com.swirlds.platform.components.wiring.ManualWiring;
+import com.swirlds.platform.config.SyncConfig;
 import com.swirlds.platform.config.ThreadConfig;
 import com.swirlds.platform.crypto.CryptoStatic;
 import com.swirlds.platform.dispatch.DispatchBuilder;
@@ -126,6 +127,7 @@ import com.swirlds.platform.event.linking.OrphanBufferingLinker;
 import com.swirlds.platform.event.linking.ParentFinder;
 import com.swirlds.platform.event.validation.AncientValidator;
 import com.swirlds.platform.event.validation.EventDeduplication;
+import com.swirlds.platform.event.validation.EventSignatureVerifier;
 import com.swirlds.platform.event.validation.EventValidator;
 import com.swirlds.platform.event.validation.GossipEventValidator;
 import com.swirlds.platform.event.validation.GossipEventValidators;
@@ -194,6 +196,7 @@ import com.swirlds.platform.sync.ShadowGraph;
 import com.swirlds.platform.sync.ShadowGraphEventObserver;
 import com.swirlds.platform.sync.ShadowGraphSynchronizer;
 import com.swirlds.platform.sync.SimultaneousSyncThrottle;
+import com.swirlds.platform.sync.SyncCapabilities;
 import com.swirlds.platform.sync.SyncProtocolResponder;
 import com.swirlds.platform.system.Shutdown;
 import com.swirlds.platform.system.SystemExitReason;
@@ -346,6 +349,8 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
     private QueueThread<EventIntakeTask> intakeQueue;
     private EventLinker eventLinker;
     private SequenceCycle<EventIntakeTask> intakeCycle = null;
+    /** checks the signatures of gossip events in parallel, null if signatures are not verified */
+    private EventSignatureVerifier eventSignatureVerifier = null;
     /** sleep in ms after each sync in SyncCaller. A public setter for this exists. */
     private long delayAfterSync = 0;
     /** Executes a sync with a remote node */
@@ -1023,6 +1028,9 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
         if (syncManager != null) {
             syncManager.haltRequestedObserver(reason);
         }
+        if (eventSignatureVerifier != null) {
+            eventSignatureVerifier.stop();
+        }
     }
 
     /**
@@ -1119,6 +1127,14 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
         validators.add(StaticValidators::isParentDataValid);
         validators.add(new TransactionSizeValidator(settings.getMaxTransactionBytesPerEvent()));
         if (settings.isVerifyEventSigs()) {
+            // signatures are checked in parallel before the events reach intake, the validator
+            // collects the results in the order the events are taken from the intake queue
+            eventSignatureVerifier =
+                    components.add(
+                            new EventSignatureVerifier(
+                                    threadManager,
+                                    initialAddressBook,
+                                    settings.getNumCryptoThreads()));
             validators.add(new SignatureValidator(initialAddressBook));
         }
         final GossipEventValidators eventValidators = new GossipEventValidators(validators);
@@ -1321,7 +1337,8 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
                         intakeQueue,
                         StaticSettingsProvider.getSingleton(),
                         syncManager,
-                        ThreadLocalRandom::current);
+                        ThreadLocalRandom::current,
+                        eventSignatureVerifier);
 
         // a genesis event could be created here, but it isn't needed. This member will naturally
         // create an
@@ -1341,7 +1358,8 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
                         syncManager,
                         shadowgraphExecutor,
                         true,
-                        () -> {});
+                        () -> {},
+                        platformContext.getConfiguration().getConfigData(SyncConfig.class));
 
         final Runnable stopGossip =
                 settings.getChatter().isChatterUsed()
@@ -1416,6 +1434,10 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
                 PlatformConstructor.socketFactory(
                         crypto.getKeysAndCerts(),
                         platformContext.getConfiguration().getConfigData(CryptoConfig.class));
+        // the optional parts of the sync protocol this node offers to its peers
+        final SyncCapabilities syncCapabilities =
+                SyncCapabilities.create(
+                        platformContext.getConfiguration().getConfigData(SyncConfig.class));
         // create an instance that can create new outbound connections
         final OutboundConnectionCreator connectionCreator =
                 new OutboundConnectionCreator(
@@ -1424,7 +1446,8 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
                         this,
                         socketFactory,
                         initialAddressBook,
-                        appVersion);
+                        appVersion,
+                        syncCapabilities);
         final StaticConnectionManagers connectionManagers =
                 new StaticConnectionManagers(topology, connectionCreator);
         final InboundConnectionHandler inboundConnectionHandler =
@@ -1434,7 +1457,8 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
                         initialAddressBook,
                         connectionManagers::newConnection,
                         StaticSettingsProvider.getSingleton(),
-                        appVersion);
+                        appVersion,
+                        syncCapabilities);
         // allow other members to create connections to me
         final Address address = getSelfAddress();
         final ConnectionServer connectionServer =
@@ -1502,7 +1526,8 @@ public class SwirldsPlatform implements Platform, PlatformWithDeprecatedMethods,
                                 chatterPeer.communicationState().chatterSyncStartingPhase3();
                                 // wait for any intake event currently being processed to finish
                                 intakeCycle.waitForCurrentSequenceEnd();
-                            });
+                            },
+                            platformContext.getConfiguration().getConfigData(SyncConfig.class));
 
             final ChatterConfig chatterConfig =
                     platformContext.getConfiguration().getConfigData(ChatterConfig.class);
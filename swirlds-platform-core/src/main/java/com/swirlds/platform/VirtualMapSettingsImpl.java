@@ -15,11 +15,16 @@
  */
 package com.swirlds.platform;
 
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_ADAPTIVE_FLUSH_THROTTLE_ENABLED;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_INTERVAL;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_THRESHOLD_DIRTY_LEAVES;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_THROTTLE_STEP_SIZE;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_INCREMENTAL_HASHING_ENABLED;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_INCREMENTAL_HASHING_QUIET_PERIOD;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_MAXIMUM_VIRTUAL_MAP_SIZE;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_NUM_CLEANER_THREADS;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_NUM_DIRTY_LEAF_PARTITIONS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_NUM_HASH_THREADS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_PERCENT_CLEANER_THREADS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_PERCENT_HASH_THREADS;
@@ -54,6 +59,11 @@ public class VirtualMapSettingsImpl extends SubSetting implements VirtualMapSett
     public int preferredFlushQueueSize = DEFAULT_PREFERRED_FLUSH_QUEUE_SIZE;
     public Duration flushThrottleStepSize = DEFAULT_FLUSH_THROTTLE_STEP_SIZE;
     public Duration maximumFlushThrottlePeriod = DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD;
+    public long flushThresholdDirtyLeaves = DEFAULT_FLUSH_THRESHOLD_DIRTY_LEAVES;
+    public boolean adaptiveFlushThrottleEnabled = DEFAULT_ADAPTIVE_FLUSH_THROTTLE_ENABLED;
+    public int numDirtyLeafPartitions = DEFAULT_NUM_DIRTY_LEAF_PARTITIONS;
+    public boolean incrementalHashingEnabled = DEFAULT_INCREMENTAL_HASHING_ENABLED;
+    public Duration incrementalHashingQuietPeriod = DEFAULT_INCREMENTAL_HASHING_QUIET_PERIOD;
 
     /** {@inheritDoc} */
     @Override
@@ -221,4 +231,75 @@ public class VirtualMapSettingsImpl extends SubSetting implements VirtualMapSett
     public void setMaximumFlushThrottlePeriod(final Duration maximumFlushThrottlePeriod) {
         this.maximumFlushThrottlePeriod = maximumFlushThrottlePeriod;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getFlushThresholdDirtyLeaves() {
+        return flushThresholdDirtyLeaves;
+    }
+
+    /**
+     * Set the number of dirty leaves that makes a copy to be flushed, or zero to flush every Nth
+     * copy.
+     */
+    public void setFlushThresholdDirtyLeaves(final long flushThresholdDirtyLeaves) {
+        if (flushThresholdDirtyLeaves < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot configure flushThresholdDirtyLeaves=" + flushThresholdDirtyLeaves);
+        }
+        this.flushThresholdDirtyLeaves = flushThresholdDirtyLeaves;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isAdaptiveFlushThrottleEnabled() {
+        return adaptiveFlushThrottleEnabled;
+    }
+
+    /** Set whether fast copies are throttled by the adaptive flush throttle. */
+    public void setAdaptiveFlushThrottleEnabled(final boolean adaptiveFlushThrottleEnabled) {
+        this.adaptiveFlushThrottleEnabled = adaptiveFlushThrottleEnabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNumDirtyLeafPartitions() {
+        return numDirtyLeafPartitions;
+    }
+
+    /** Set the number of path range partitions dirty leaves are split into when flushing. */
+    public void setNumDirtyLeafPartitions(final int numDirtyLeafPartitions) {
+        if (numDirtyLeafPartitions < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot configure numDirtyLeafPartitions=" + numDirtyLeafPartitions);
+        }
+        this.numDirtyLeafPartitions = numDirtyLeafPartitions;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isIncrementalHashingEnabled() {
+        return incrementalHashingEnabled;
+    }
+
+    /** Set whether dirty leaves are hashed in the background. */
+    public void setIncrementalHashingEnabled(final boolean incrementalHashingEnabled) {
+        this.incrementalHashingEnabled = incrementalHashingEnabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Duration getIncrementalHashingQuietPeriod() {
+        return incrementalHashingQuietPeriod;
+    }
+
+    /** Set the quiet period for background hashing of a block of leaves. */
+    public void setIncrementalHashingQuietPeriod(final Duration incrementalHashingQuietPeriod) {
+        if (incrementalHashingQuietPeriod.isNegative() || incrementalHashingQuietPeriod.isZero()) {
+            throw new IllegalArgumentException(
+                    "Cannot configure incrementalHashingQuietPeriod="
+                            + incrementalHashingQuietPeriod);
+        }
+        this.incrementalHashingQuietPeriod = incrementalHashingQuietPeriod;
+    }
 }
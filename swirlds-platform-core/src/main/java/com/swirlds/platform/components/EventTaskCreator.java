@@ -27,6 +27,7 @@ import com.swirlds.platform.event.CreateEventTask;
 import com.swirlds.platform.event.EventIntakeTask;
 import com.swirlds.platform.event.GossipEvent;
 import com.swirlds.platform.event.ValidEvent;
+import com.swirlds.platform.event.validation.EventSignatureVerifier;
 import com.swirlds.platform.internal.EventImpl;
 import com.swirlds.platform.metrics.EventIntakeMetrics;
 import com.swirlds.platform.sync.SyncManager;
@@ -69,6 +70,9 @@ public class EventTaskCreator {
     /** manages sync related tasks */
     private final SyncManager syncManager;
 
+    /** starts the signature checks of gossip events, null if signatures are not verified */
+    private final EventSignatureVerifier signatureVerifier;
+
     /**
      * constructor that is given the platform using the hashgraph, and the initial addressBook
      * (which can change)
@@ -81,6 +85,8 @@ public class EventTaskCreator {
      * @param settings provides access to settings
      * @param syncManager decides if an event should be created
      * @param random supplies the random instance to use
+     * @param signatureVerifier starts the signature checks of events received through gossip, or
+     *     null if event signatures are not verified
      */
     public EventTaskCreator(
             final EventMapper eventMapper,
@@ -90,7 +96,8 @@ public class EventTaskCreator {
             final BlockingQueue<EventIntakeTask> eventIntakeQueue,
             final SettingsProvider settings,
             final SyncManager syncManager,
-            final Supplier<Random> random) {
+            final Supplier<Random> random,
+            final EventSignatureVerifier signatureVerifier) {
         this.eventMapper = eventMapper;
         this.eventIntakeMetrics = eventIntakeMetrics;
         this.selfId = selfId;
@@ -100,6 +107,7 @@ public class EventTaskCreator {
         this.settings = settings;
         this.syncManager = syncManager;
         this.random = random;
+        this.signatureVerifier = signatureVerifier;
     }
 
     /**
@@ -213,6 +221,9 @@ public class EventTaskCreator {
      * @param intakeTask a task whose event is to be added to the hashgraph
      */
     public void addEvent(final EventIntakeTask intakeTask) {
+        if (signatureVerifier != null && intakeTask instanceof GossipEvent gossipEvent) {
+            signatureVerifier.startCheck(gossipEvent);
+        }
         try {
             eventIntakeQueue.put(intakeTask);
         } catch (InterruptedException e) {
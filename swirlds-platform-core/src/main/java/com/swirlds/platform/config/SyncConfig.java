@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.platform.config;
+
+import com.swirlds.config.api.ConfigData;
+import com.swirlds.config.api.ConfigProperty;
+
+/**
+ * Sync related config
+ *
+ * @param bloomFilterEnabled If true, both sides of a sync also send a bloom filter of their
+ *     non-ancient events in phase 1, and events the peer very likely has are not sent in phase 3.
+ *     Nodes agree on this when they connect, so filters are only sent to peers that enable them
+ *     too.
+ * @param bloomFilterBitsPerEvent The size of the bloom filter, in bits per event added to it, at
+ *     most 64. The larger the filter, the lower the chance that an event the peer does not have is
+ *     not sent.
+ */
+@ConfigData("sync")
+public record SyncConfig(
+        @ConfigProperty(value = "bloomFilterEnabled", defaultValue = "false")
+                boolean bloomFilterEnabled,
+        @ConfigProperty(value = "bloomFilterBitsPerEvent", defaultValue = "24")
+                int bloomFilterBitsPerEvent) {}
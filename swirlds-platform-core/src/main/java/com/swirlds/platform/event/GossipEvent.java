@@ -23,6 +23,7 @@ import com.swirlds.common.system.events.BaseEventUnhashedData;
 import com.swirlds.platform.EventStrings;
 import com.swirlds.platform.chatter.protocol.messages.ChatterEvent;
 import com.swirlds.platform.chatter.protocol.messages.ChatterEventDescriptor;
+import com.swirlds.platform.event.validation.SignatureCheck;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.Objects;
@@ -37,6 +38,8 @@ public class GossipEvent implements EventIntakeTask, BaseEvent, ChatterEvent {
     private ChatterEventDescriptor descriptor;
     private Instant timeReceived;
     private long roundCreated = ROUND_CREATED_UNDEFINED;
+    /** the signature check started before the event reached intake, not serialized */
+    private SignatureCheck signatureCheck;
 
     @SuppressWarnings("unused") // needed for RuntimeConstructable
     public GossipEvent() {}
@@ -121,6 +124,19 @@ public class GossipEvent implements EventIntakeTask, BaseEvent, ChatterEvent {
         this.roundCreated = roundCreated;
     }
 
+    /**
+     * Get the signature check that was started for this event before it reached intake.
+     *
+     * @return the signature check, or null if none was started
+     */
+    public SignatureCheck getSignatureCheck() {
+        return signatureCheck;
+    }
+
+    public void setSignatureCheck(final SignatureCheck signatureCheck) {
+        this.signatureCheck = signatureCheck;
+    }
+
     /** {@inheritDoc} */
     @Override
     public long getClassId() {
@@ -74,6 +74,21 @@ public class InternalEventData {
      * Swirlds-TR-2020-01)
      */
     private EventImpl firstWitnessS;
+    /**
+     * true once lastSee, round, stronglySeeP, firstSelfWitnessS and firstWitnessS have all been
+     * memoized, so that evaluating them for a child of this event does not recurse any further
+     */
+    private boolean memoized;
+    /**
+     * a number that identifies this event among all events known to consensus, so that events can
+     * be compared with primitive operations (0 if none has been assigned yet)
+     */
+    private long graphIndex;
+    /**
+     * firstSeeIndices[m] is the graphIndex of firstSee(this, m), or -1 if there is none (memoizes
+     * function from Swirlds-TR-2020-01)
+     */
+    private long[] firstSeeIndices;
     /**
      * temporarily used during any graph algorithm that needs to mark vertices (events) already
      * visited
@@ -164,6 +179,8 @@ public class InternalEventData {
         initStronglySeeP(0);
         firstSelfWitnessS = null;
         firstWitnessS = null;
+        memoized = false;
+        firstSeeIndices = null;
     }
 
     //////////////////////////////////////////
@@ -454,6 +471,53 @@ public class InternalEventData {
         this.firstWitnessS = firstWitnessS;
     }
 
+    /**
+     * @return true if lastSee, round, stronglySeeP, firstSelfWitnessS and firstWitnessS have all
+     *     been memoized for this event
+     */
+    public boolean isMemoized() {
+        return memoized;
+    }
+
+    /**
+     * @param memoized true if lastSee, round, stronglySeeP, firstSelfWitnessS and firstWitnessS
+     *     have all been memoized for this event
+     */
+    public void setMemoized(boolean memoized) {
+        this.memoized = memoized;
+    }
+
+    /**
+     * @return a number that identifies this event among all events known to consensus, or 0 if
+     *     none has been assigned yet
+     */
+    public long getGraphIndex() {
+        return graphIndex;
+    }
+
+    /**
+     * @param graphIndex a number that identifies this event among all events known to consensus
+     */
+    public void setGraphIndex(long graphIndex) {
+        this.graphIndex = graphIndex;
+    }
+
+    /**
+     * @return firstSeeIndices[m] is the graphIndex of firstSee(this, m), or -1 if there is none
+     *     (memoizes firstSee function from Swirlds-TR-2020-01), or null if not yet calculated
+     */
+    public long[] getFirstSeeIndices() {
+        return firstSeeIndices;
+    }
+
+    /**
+     * @param firstSeeIndices firstSeeIndices[m] is the graphIndex of firstSee(this, m), or -1 if
+     *     there is none (memoizes firstSee function from Swirlds-TR-2020-01)
+     */
+    public void setFirstSeeIndices(long[] firstSeeIndices) {
+        this.firstSeeIndices = firstSeeIndices;
+    }
+
     /**
      * @return temporarily used during any graph algorithm that needs to mark vertices (events)
      *     already visited
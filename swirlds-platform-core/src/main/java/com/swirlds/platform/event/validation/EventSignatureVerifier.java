@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.event.validation;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+import static com.swirlds.platform.SwirldsPlatform.PLATFORM_THREAD_POOL_NAME;
+
+import com.swirlds.common.crypto.Cryptography;
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.system.address.AddressBook;
+import com.swirlds.common.threading.framework.QueueThreadPool;
+import com.swirlds.common.threading.framework.config.QueueThreadPoolConfiguration;
+import com.swirlds.common.threading.manager.ThreadManager;
+import com.swirlds.common.utility.Startable;
+import com.swirlds.platform.event.GossipEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Checks the signatures of events received through gossip on a pool of threads, so that the
+ * signatures of many events are verified in parallel instead of one at a time on the intake thread.
+ *
+ * <p>A {@link SignatureCheck} is started when an event is added to the intake queue and is
+ * attached to the event. The pool hashes the event first, then queues the verification of its
+ * signature behind the hashing of the events received since. The intake thread waits for the hash
+ * when it takes the event from the queue, and waits for the signature only if the event is neither
+ * ancient nor a duplicate. Events therefore still reach the linker in the order they were received.
+ *
+ * <p>Once stopped, checks that have not finished are abandoned and intake verifies the signatures
+ * of those events itself.
+ */
+public class EventSignatureVerifier implements Startable {
+
+    private static final Logger logger = LogManager.getLogger(EventSignatureVerifier.class);
+
+    private final SignatureValidator signatureValidator;
+
+    private final Cryptography cryptography;
+
+    private final QueueThreadPool<SignatureCheck> pool;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param threadManager responsible for creating the verification threads
+     * @param addressBook the address book containing the public keys of the event creators
+     * @param threadCount the number of threads verifying signatures
+     */
+    public EventSignatureVerifier(
+            final ThreadManager threadManager,
+            final AddressBook addressBook,
+            final int threadCount) {
+        this.signatureValidator = new SignatureValidator(addressBook);
+        this.cryptography = CryptographyHolder.get();
+        // the intake queue bounds the number of pending checks
+        this.pool =
+                new QueueThreadPoolConfiguration<SignatureCheck>(threadManager)
+                        .setComponent(PLATFORM_THREAD_POOL_NAME)
+                        .setThreadName("event-sig-verify")
+                        .setThreadCount(threadCount)
+                        .setUnlimitedCapacity()
+                        .setHandler(this::process)
+                        .build();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void start() {
+        pool.start();
+    }
+
+    /**
+     * Stop the verification threads. Checks that have not finished are abandoned, and no checks
+     * are started after this.
+     */
+    public void stop() {
+        stopped = true;
+        pool.stop();
+        abandonQueuedChecks();
+    }
+
+    /**
+     * Start checking the signature of an event. Must be called before the event is added to the
+     * intake queue.
+     *
+     * @param event the event received through gossip
+     */
+    public void startCheck(final GossipEvent event) {
+        if (stopped) {
+            return;
+        }
+        final SignatureCheck check = new SignatureCheck(event);
+        event.setSignatureCheck(check);
+        pool.add(check);
+        if (stopped) {
+            // stop() may have emptied the queue before the check was added
+            abandonQueuedChecks();
+        }
+    }
+
+    private void abandonQueuedChecks() {
+        SignatureCheck check;
+        while ((check = pool.poll()) != null) {
+            check.completeVerdict(null);
+        }
+    }
+
+    private void process(final SignatureCheck check) {
+        try {
+            if (!check.isHashed()) {
+                final GossipEvent event = check.getEvent();
+                if (event.getHashedData().getHash() == null) {
+                    cryptography.digestSync(event.getHashedData());
+                    event.buildDescriptor();
+                }
+                check.completeHash();
+                pool.add(check);
+            } else if (check.isCancelled()) {
+                check.completeVerdict(null);
+            } else {
+                check.completeVerdict(signatureValidator.verifySignature(check.getEvent()));
+            }
+        } catch (final RuntimeException e) {
+            // intake hashes the event and verifies its signature itself, and reports any failure
+            logger.error(EXCEPTION.getMarker(), "unable to check event signature", e);
+            check.completeVerdict(null);
+        }
+    }
+}
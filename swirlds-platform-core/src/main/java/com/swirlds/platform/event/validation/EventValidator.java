@@ -51,6 +51,11 @@ public class EventValidator {
      */
     public void validateEvent(final GossipEvent gossipEvent) {
         try {
+            final SignatureCheck signatureCheck = gossipEvent.getSignatureCheck();
+            if (signatureCheck != null) {
+                // the event is hashed by the thread checking its signature, wait until it is done
+                signatureCheck.awaitHash();
+            }
             if (gossipEvent.getHashedData().getHash() == null) {
                 // only hash if it hasn't been already hashed
                 cryptography.digestSync(gossipEvent.getHashedData());
@@ -58,6 +63,10 @@ public class EventValidator {
                 gossipEvent.buildDescriptor();
             }
             if (!gossipEventValidator.isEventValid(gossipEvent)) {
+                if (signatureCheck != null) {
+                    // don't spend time verifying the signature of a discarded event
+                    signatureCheck.cancel();
+                }
                 return;
             }
             eventIntake.accept(gossipEvent);
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.event.validation;
+
+import com.swirlds.platform.event.GossipEvent;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The signature check of an event received through gossip, started by an {@link
+ * EventSignatureVerifier} when the event is added to the intake queue.
+ *
+ * <p>The check hashes the event first and verifies its signature in a second step. Intake only
+ * waits for the hash before it discards ancient and duplicate events, and cancels the signature
+ * verification of the events it discards.
+ */
+public final class SignatureCheck {
+
+    private final GossipEvent event;
+
+    /** Completed once the event has been hashed, or once the check has been abandoned. */
+    private final CompletableFuture<Void> hashed = new CompletableFuture<>();
+
+    /**
+     * Completed with true if the signature is valid, false if it is not, or null if the check was
+     * abandoned without verifying the signature.
+     */
+    private final CompletableFuture<Boolean> verdict = new CompletableFuture<>();
+
+    private volatile boolean cancelled;
+
+    SignatureCheck(final GossipEvent event) {
+        this.event = event;
+    }
+
+    GossipEvent getEvent() {
+        return event;
+    }
+
+    /** Record that the event has been hashed and its descriptor has been built. */
+    void completeHash() {
+        hashed.complete(null);
+    }
+
+    /**
+     * @return true if the event has been hashed
+     */
+    boolean isHashed() {
+        return hashed.isDone();
+    }
+
+    /**
+     * Record the result of the check.
+     *
+     * @param valid true if the signature is valid, false if it is not, or null if the check was
+     *     abandoned without verifying the signature
+     */
+    void completeVerdict(final Boolean valid) {
+        hashed.complete(null);
+        verdict.complete(valid);
+    }
+
+    /** Wait until the event has been hashed. If the check was abandoned, the event may not be. */
+    void awaitHash() {
+        hashed.join();
+    }
+
+    /**
+     * Wait until the signature has been verified.
+     *
+     * @return true if the signature is valid, false if it is not, or null if the check was
+     *     abandoned and the signature must be verified by the caller
+     */
+    Boolean awaitVerdict() {
+        return verdict.join();
+    }
+
+    /** Skip the signature verification if it hasn't started yet. The event has been discarded. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the event has been discarded
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+}
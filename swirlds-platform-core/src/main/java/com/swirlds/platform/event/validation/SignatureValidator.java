@@ -78,6 +78,25 @@ public class SignatureValidator implements GossipEventValidator {
     /** {@inheritDoc} */
     @Override
     public boolean isEventValid(final GossipEvent event) {
+        final SignatureCheck signatureCheck = event.getSignatureCheck();
+        if (signatureCheck != null) {
+            // the signature was checked in parallel by an EventSignatureVerifier
+            final Boolean valid = signatureCheck.awaitVerdict();
+            if (valid != null) {
+                return valid;
+            }
+        }
+        return verifySignature(event);
+    }
+
+    /**
+     * Verify the signature of an event that has already been hashed, ignoring any signature check
+     * that was started for it.
+     *
+     * @param event the event to verify
+     * @return true iff the creator of the event is known and the signature is correct
+     */
+    public boolean verifySignature(final GossipEvent event) {
         final long creatorId = event.getHashedData().getCreatorId();
         final Address address = addressBook.getAddress(creatorId);
         if (address == null) {
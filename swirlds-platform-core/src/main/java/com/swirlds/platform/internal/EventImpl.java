@@ -871,6 +871,53 @@ public class EventImpl extends AbstractSerializableHashable
         internalEventData.setFirstWitnessS(firstWitnessS);
     }
 
+    /**
+     * @return true if lastSee, round, stronglySeeP, firstSelfWitnessS and firstWitnessS have all
+     *     been memoized for this event
+     */
+    public boolean isMemoized() {
+        return internalEventData.isMemoized();
+    }
+
+    /**
+     * @param memoized true if lastSee, round, stronglySeeP, firstSelfWitnessS and firstWitnessS
+     *     have all been memoized for this event
+     */
+    public void setMemoized(final boolean memoized) {
+        internalEventData.setMemoized(memoized);
+    }
+
+    /**
+     * @return a number that identifies this event among all events known to consensus, or 0 if
+     *     none has been assigned yet
+     */
+    public long getGraphIndex() {
+        return internalEventData.getGraphIndex();
+    }
+
+    /**
+     * @param graphIndex a number that identifies this event among all events known to consensus
+     */
+    public void setGraphIndex(final long graphIndex) {
+        internalEventData.setGraphIndex(graphIndex);
+    }
+
+    /**
+     * @return firstSeeIndices[m] is the graphIndex of firstSee(this, m), or -1 if there is none
+     *     (memoizes firstSee function from Swirlds-TR-2020-01), or null if not yet calculated
+     */
+    public long[] getFirstSeeIndices() {
+        return internalEventData.getFirstSeeIndices();
+    }
+
+    /**
+     * @param firstSeeIndices firstSeeIndices[m] is the graphIndex of firstSee(this, m), or -1 if
+     *     there is none (memoizes firstSee function from Swirlds-TR-2020-01)
+     */
+    public void setFirstSeeIndices(final long[] firstSeeIndices) {
+        internalEventData.setFirstSeeIndices(firstSeeIndices);
+    }
+
     /** {@inheritDoc} */
     public boolean isLastOneBeforeShutdown() {
         return internalEventData.isLastEventBeforeShutdown();
@@ -81,6 +81,9 @@ public class SyncMetrics {
     private final MaxStat multiTipsPerSync;
     private final AverageStat gensWaitingForExpiry;
     private final AverageStat rejectedSyncRatio;
+    private final AverageAndMax bloomFilterSkippedEvents;
+    private final AverageStat bloomFilterSavedBytes;
+    private final AverageStat bloomFilterBytes;
 
     /**
      * Constructor of {@code SyncMetrics}
@@ -203,6 +206,31 @@ public class SyncMetrics {
                         "the averaged ratio of rejected syncs to accepted syncs over time",
                         FORMAT_1_3,
                         AverageStat.WEIGHT_VOLATILE);
+        bloomFilterSkippedEvents =
+                new AverageAndMax(
+                        metrics,
+                        PLATFORM_CATEGORY,
+                        "ev/syncBloomSkip",
+                        "number of events per sync not sent because the peer's bloom filter"
+                                + " contains them",
+                        FORMAT_8_1);
+        bloomFilterSavedBytes =
+                new AverageStat(
+                        metrics,
+                        INTERNAL_CATEGORY,
+                        "bloomSavedBytes/sync",
+                        "estimated number of transaction bytes per sync not sent because the"
+                                + " peer's bloom filter contains their events",
+                        FORMAT_10_3,
+                        AverageStat.WEIGHT_VOLATILE);
+        bloomFilterBytes =
+                new AverageStat(
+                        metrics,
+                        INTERNAL_CATEGORY,
+                        "bloomBytes/sync",
+                        "number of bytes per sync used to send this node's bloom filter",
+                        FORMAT_10_3,
+                        AverageStat.WEIGHT_VOLATILE);
     }
 
     /**
@@ -265,6 +293,21 @@ public class SyncMetrics {
         this.knownSetSize.update(knownSetSize);
     }
 
+    /**
+     * Records the effect of the bloom filters exchanged during a sync. Duplicate events that are
+     * still received are tracked by the intake metrics.
+     *
+     * @param skippedEvents the number of events not sent because the peer's filter contains them
+     * @param savedBytes the estimated number of bytes those events would have taken
+     * @param filterBytes the number of bytes used to send this node's filter
+     */
+    public void bloomFilter(
+            final int skippedEvents, final long savedBytes, final long filterBytes) {
+        bloomFilterSkippedEvents.update(skippedEvents);
+        bloomFilterSavedBytes.update(savedBytes);
+        bloomFilterBytes.update(filterBytes);
+    }
+
     /**
      * Notifies the stats that a sync is done
      *
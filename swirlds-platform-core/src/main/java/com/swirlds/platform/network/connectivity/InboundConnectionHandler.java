@@ -31,6 +31,7 @@ import com.swirlds.platform.SocketConnection;
 import com.swirlds.platform.network.ByteConstants;
 import com.swirlds.platform.network.ConnectionTracker;
 import com.swirlds.platform.network.NetworkUtils;
+import com.swirlds.platform.sync.SyncCapabilities;
 import com.swirlds.platform.sync.SyncInputStream;
 import com.swirlds.platform.sync.SyncOutputStream;
 import java.io.IOException;
@@ -49,6 +50,7 @@ public class InboundConnectionHandler {
     private final InterruptableConsumer<Connection> newConnectionConsumer;
     private final SettingsProvider settings;
     final SoftwareVersion softwareVersion;
+    private final SyncCapabilities syncCapabilities;
 
     public InboundConnectionHandler(
             final ConnectionTracker connectionTracker,
@@ -56,13 +58,15 @@ public class InboundConnectionHandler {
             final AddressBook addressBook,
             final InterruptableConsumer<Connection> newConnectionConsumer,
             final SettingsProvider settings,
-            final SoftwareVersion softwareVersion) {
+            final SoftwareVersion softwareVersion,
+            final SyncCapabilities syncCapabilities) {
         this.connectionTracker = connectionTracker;
         this.selfId = selfId;
         this.addressBook = addressBook;
         this.newConnectionConsumer = newConnectionConsumer;
         this.settings = settings;
         this.softwareVersion = Objects.requireNonNull(softwareVersion);
+        this.syncCapabilities = Objects.requireNonNull(syncCapabilities);
     }
 
     /**
@@ -105,6 +109,7 @@ public class InboundConnectionHandler {
 
             dos.writeInt(ByteConstants.COMM_CONNECT); // send an ACK for creating connection
             dos.flush();
+            final SyncCapabilities sharedCapabilities = syncCapabilities.exchange(dos, dis);
 
             final SyncInputStream sis =
                     SyncInputStream.createSyncInputStream(
@@ -121,7 +126,8 @@ public class InboundConnectionHandler {
                             false,
                             clientSocket,
                             sis,
-                            sos);
+                            sos,
+                            sharedCapabilities);
             newConnectionConsumer.accept(sc);
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -31,6 +31,7 @@ import com.swirlds.platform.network.ByteConstants;
 import com.swirlds.platform.network.ConnectionTracker;
 import com.swirlds.platform.network.NetworkUtils;
 import com.swirlds.platform.network.connection.NotConnectedConnection;
+import com.swirlds.platform.sync.SyncCapabilities;
 import com.swirlds.platform.sync.SyncInputStream;
 import com.swirlds.platform.sync.SyncOutputStream;
 import java.io.IOException;
@@ -52,6 +53,7 @@ public class OutboundConnectionCreator {
     private final SocketFactory socketFactory;
     private final AddressBook addressBook;
     private final SoftwareVersion softwareVersion;
+    private final SyncCapabilities syncCapabilities;
 
     public OutboundConnectionCreator(
             final NodeId selfId,
@@ -59,13 +61,15 @@ public class OutboundConnectionCreator {
             final ConnectionTracker connectionTracker,
             final SocketFactory socketFactory,
             final AddressBook addressBook,
-            final SoftwareVersion softwareVersion) {
+            final SoftwareVersion softwareVersion,
+            final SyncCapabilities syncCapabilities) {
         this.selfId = selfId;
         this.settings = settings;
         this.connectionTracker = connectionTracker;
         this.socketFactory = socketFactory;
         this.addressBook = addressBook;
         this.softwareVersion = Objects.requireNonNull(softwareVersion);
+        this.syncCapabilities = Objects.requireNonNull(syncCapabilities);
     }
 
     /**
@@ -120,6 +124,7 @@ public class OutboundConnectionCreator {
                 throw new ConnectException(
                         "ack is not " + ByteConstants.COMM_CONNECT + ", it is " + ack);
             }
+            final SyncCapabilities sharedCapabilities = syncCapabilities.exchange(dos, dis);
             logger.debug(
                     NETWORK.getMarker(),
                     "`connect` : finished, {} connected to {}",
@@ -127,7 +132,14 @@ public class OutboundConnectionCreator {
                     otherId);
 
             return SocketConnection.create(
-                    selfId, otherId, connectionTracker, true, clientSocket, dis, dos);
+                    selfId,
+                    otherId,
+                    connectionTracker,
+                    true,
+                    clientSocket,
+                    dis,
+                    dos,
+                    sharedCapabilities);
         } catch (final SocketTimeoutException | SocketException e) {
             NetworkUtils.close(clientSocket, dis, dos);
             logger.debug(
@@ -20,6 +20,7 @@ import static com.swirlds.logging.LogMarker.RECONNECT;
 import com.swirlds.common.io.streams.MerkleDataInputStream;
 import com.swirlds.common.io.streams.MerkleDataOutputStream;
 import com.swirlds.common.merkle.synchronization.LearningSynchronizer;
+import com.swirlds.common.merkle.synchronization.ReconnectCheckpoint;
 import com.swirlds.common.system.address.AddressBook;
 import com.swirlds.common.threading.manager.ThreadManager;
 import com.swirlds.common.utility.StringFormattingUtilities;
@@ -57,6 +58,9 @@ public class ReconnectLearner {
 
     private final ThreadManager threadManager;
 
+    /** Subtrees received by earlier, failed attempts. */
+    private final ReconnectCheckpoint checkpoint;
+
     /**
      * @param threadManager responsible for managing thread lifecycles
      * @param connection the connection to use for the reconnect
@@ -64,6 +68,7 @@ public class ReconnectLearner {
      * @param currentState the most recent state from the learner
      * @param reconnectSocketTimeout the amount of time that should be used for the socet timeout
      * @param statistics reconnect metrics
+     * @param checkpoint subtrees received by earlier, failed attempts that may be reused
      */
     public ReconnectLearner(
             final ThreadManager threadManager,
@@ -71,7 +76,8 @@ public class ReconnectLearner {
             final AddressBook addressBook,
             final State currentState,
             final int reconnectSocketTimeout,
-            final ReconnectMetrics statistics) {
+            final ReconnectMetrics statistics,
+            final ReconnectCheckpoint checkpoint) {
 
         currentState.throwIfImmutable("Can not perform reconnect with immutable state");
         currentState.throwIfDestroyed("Can not perform reconnect with destroyed state");
@@ -82,6 +88,7 @@ public class ReconnectLearner {
         this.currentState = currentState;
         this.reconnectSocketTimeout = reconnectSocketTimeout;
         this.statistics = statistics;
+        this.checkpoint = checkpoint;
     }
 
     /**
@@ -153,7 +160,12 @@ public class ReconnectLearner {
 
         final LearningSynchronizer synchronizer =
                 new LearningSynchronizer(
-                        threadManager, in, out, currentState, connection::disconnect);
+                        threadManager,
+                        in,
+                        out,
+                        currentState,
+                        connection::disconnect,
+                        checkpoint);
         synchronizer.synchronize();
 
         final State state = (State) synchronizer.getRoot();
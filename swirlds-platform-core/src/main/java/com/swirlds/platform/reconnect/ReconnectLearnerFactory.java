@@ -15,6 +15,7 @@
  */
 package com.swirlds.platform.reconnect;
 
+import com.swirlds.common.merkle.synchronization.ReconnectCheckpoint;
 import com.swirlds.common.merkle.synchronization.settings.ReconnectSettings;
 import com.swirlds.common.system.address.AddressBook;
 import com.swirlds.common.threading.manager.ThreadManager;
@@ -29,6 +30,9 @@ public class ReconnectLearnerFactory {
     private final ReconnectMetrics statistics;
     private final ThreadManager threadManager;
 
+    /** Subtrees received by failed reconnect attempts, shared by every learner this creates. */
+    private final ReconnectCheckpoint checkpoint = new ReconnectCheckpoint();
+
     /**
      * @param threadManager responsible for managing thread lifecycles
      * @param addressBook the current address book
@@ -60,6 +64,7 @@ public class ReconnectLearnerFactory {
                 addressBook,
                 workingState,
                 settings.getAsyncStreamTimeoutMilliseconds(),
-                statistics);
+                statistics,
+                checkpoint);
     }
 }
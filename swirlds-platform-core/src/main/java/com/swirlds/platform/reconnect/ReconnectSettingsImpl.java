@@ -84,6 +84,34 @@ public class ReconnectSettingsImpl extends SubSetting implements ReconnectSettin
      */
     public Duration minimumTimeBetweenReconnects = Duration.ofMinutes(10);
 
+    /**
+     * The maximum number of parallel streams used to send a single tree that supports partitioned
+     * reconnect, such as a virtual map. The tree is split into at most this many (rounded down to a
+     * power of two) disjoint subtrees that are synchronized concurrently. If 1 then every tree is
+     * sent over a single stream.
+     */
+    public int parallelStreamCount = 1;
+
+    /**
+     * The compression offered (as a teacher) or accepted (as a learner) for the data sent during
+     * reconnect. One of "none", "lz4" or "deflate". The teacher proposes its codec and the learner
+     * accepts it unless its own setting is "none".
+     */
+    public String compression = "none";
+
+    /**
+     * A learner whose copy of a virtual map has fewer leaves than this fraction of the teacher's
+     * leaves asks for the map's data source files instead of its nodes. If 0 then virtual maps are
+     * always sent node by node.
+     */
+    public double bulkReconnectThreshold = 0;
+
+    /**
+     * If true then a learner builds a bloom filter of the leaf hashes in its copy of a virtual map,
+     * and uses it to skip reading leaves that cannot match the teacher's leaves.
+     */
+    public boolean leafHashFilterEnabled = false;
+
     /** {@inheritDoc} */
     @Override
     public boolean isActive() {
@@ -137,4 +165,28 @@ public class ReconnectSettingsImpl extends SubSetting implements ReconnectSettin
     public Duration getMinimumTimeBetweenReconnects() {
         return minimumTimeBetweenReconnects;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getParallelStreamCount() {
+        return parallelStreamCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCompression() {
+        return compression;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getBulkReconnectThreshold() {
+        return bulkReconnectThreshold;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isLeafHashFilterEnabled() {
+        return leafHashFilterEnabled;
+    }
 }
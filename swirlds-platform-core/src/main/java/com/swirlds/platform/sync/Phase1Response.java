@@ -15,25 +15,45 @@
  */
 package com.swirlds.platform.sync;
 
+import com.swirlds.common.bloom.BloomFilter;
 import com.swirlds.common.crypto.Hash;
 import java.util.List;
 import java.util.Objects;
 
 public final class Phase1Response {
-    private static final Phase1Response SYNC_REJECTED_RESPONSE = new Phase1Response(null, null);
+    private static final Phase1Response SYNC_REJECTED_RESPONSE =
+            new Phase1Response(null, null, null);
 
     private final Generations generations;
     private final List<Hash> tips;
+    private final BloomFilter<Hash> bloomFilter;
 
-    private Phase1Response(final Generations generations, final List<Hash> tips) {
+    private Phase1Response(
+            final Generations generations,
+            final List<Hash> tips,
+            final BloomFilter<Hash> bloomFilter) {
         this.generations = generations;
         this.tips = tips;
+        this.bloomFilter = bloomFilter;
     }
 
     public static Phase1Response create(final Generations generations, final List<Hash> tips) {
+        return create(generations, tips, null);
+    }
+
+    /**
+     * @param generations the generations of the peer
+     * @param tips the tip hashes of the peer
+     * @param bloomFilter the bloom filter of the events of the peer, or null if none was sent
+     * @return the response
+     */
+    public static Phase1Response create(
+            final Generations generations,
+            final List<Hash> tips,
+            final BloomFilter<Hash> bloomFilter) {
         Objects.requireNonNull(generations, "generations cannot be null");
         Objects.requireNonNull(tips, "tips cannot be null");
-        return new Phase1Response(generations, tips);
+        return new Phase1Response(generations, tips, bloomFilter);
     }
 
     public static Phase1Response syncRejected() {
@@ -48,6 +68,13 @@ public final class Phase1Response {
         return tips;
     }
 
+    /**
+     * @return the bloom filter of the events of the peer, or null if none was sent
+     */
+    public BloomFilter<Hash> getBloomFilter() {
+        return bloomFilter;
+    }
+
     public boolean isSyncRejected() {
         return this == SYNC_REJECTED_RESPONSE;
     }
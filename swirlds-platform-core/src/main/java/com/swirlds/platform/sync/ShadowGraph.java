@@ -28,16 +28,15 @@ import com.swirlds.platform.metrics.SyncMetrics;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
@@ -55,7 +54,9 @@ import org.apache.logging.log4j.Logger;
  *   <li>reservation of a generation of events to prevent event expiration
  * </ul>
  *
- * <p>The shadow graph is thread safe.
+ * <p>The shadow graph is thread safe. Methods that modify the graph are synchronized, while methods
+ * that only read it do not lock at all, so concurrent syncs do not block each other or the thread
+ * adding events. Readers see the state of the graph as of some recent modification.
  */
 public class ShadowGraph implements Clearable {
 
@@ -67,23 +68,43 @@ public class ShadowGraph implements Clearable {
     /** The generation value indicating that no generation is currently reserved. */
     public static final int NO_GENERATION_RESERVED = -1;
 
-    /** The shadow graph represented in a map from has to shadow event. */
-    private final HashMap<Hash, ShadowEvent> hashToShadowEvent;
+    /** The initial number of generations the generation ring can hold. */
+    private static final int INITIAL_GENERATION_CAPACITY = 1024;
 
-    /** Map from generation to all shadow events in that generation. */
-    private final Map<Long, Set<ShadowEvent>> generationToShadowEvent;
+    /**
+     * The largest number of generations the generation ring can hold. Only reached if generations
+     * stop being expired, in which case the shadow events are kept in a map by generation instead,
+     * until enough generations are expired for them to fit in a ring again.
+     */
+    static final int MAX_GENERATION_CAPACITY = 1 << 20;
+
+    /** The shadow graph represented in a map from hash to shadow event. */
+    private final ConcurrentHashMap<Hash, ShadowEvent> hashToShadowEvent;
+
+    /**
+     * All shadow events by generation. Replaced with a larger ring when the non-expired
+     * generations no longer fit, and with a smaller one once most of the ring is unused.
+     */
+    private volatile GenerationRing generationToShadowEvent;
 
     /**
      * The set of all tips for the shadow graph. A tip is an event with no self child (could have
-     * other children)
+     * other children). Only accessed while holding the lock, readers use {@link #tipsSnapshot}.
      */
     private final HashSet<ShadowEvent> tips;
 
+    /**
+     * An immutable copy of {@link #tips}, or null if the tips changed since the last copy. The
+     * copy is made by the next call to {@link #getTips()}, so inserting many events between two
+     * reads copies the tips only once.
+     */
+    private volatile List<ShadowEvent> tipsSnapshot;
+
     /** The generation for which all older generations should be expired, when possible */
-    private long expireBelow;
+    private volatile long expireBelow;
 
     /** The oldest generation that has not yet been expired */
-    private long oldestGeneration;
+    private volatile long oldestGeneration;
 
     /** The list of all currently reserved generations and their number of reservations */
     private final LinkedList<GenerationReservationImpl> reservationList;
@@ -105,8 +126,9 @@ public class ShadowGraph implements Clearable {
         expireBelow = FIRST_GENERATION;
         oldestGeneration = FIRST_GENERATION;
         tips = new HashSet<>();
-        hashToShadowEvent = new HashMap<>();
-        generationToShadowEvent = new HashMap<>();
+        tipsSnapshot = List.of();
+        hashToShadowEvent = new ConcurrentHashMap<>();
+        generationToShadowEvent = new GenerationRing(INITIAL_GENERATION_CAPACITY);
         reservationList = new LinkedList<>();
     }
 
@@ -155,7 +177,7 @@ public class ShadowGraph implements Clearable {
         // if we are missing some generation, we will create empty ones to match Consensus
         while (expireBelow > minGeneration) {
             expireBelow--;
-            generationToShadowEvent.put(expireBelow, new HashSet<>());
+            addGeneration(expireBelow);
         }
 
         // Now that events are added, update (decrease) the oldest generation to match the
@@ -177,8 +199,9 @@ public class ShadowGraph implements Clearable {
         oldestGeneration = FIRST_GENERATION;
         disconnectShadowEvents();
         tips.clear();
+        tipsSnapshot = List.of();
         hashToShadowEvent.clear();
-        generationToShadowEvent.clear();
+        generationToShadowEvent = new GenerationRing(INITIAL_GENERATION_CAPACITY);
         reservationList.clear();
     }
 
@@ -216,7 +239,7 @@ public class ShadowGraph implements Clearable {
      * @return true if the hash matches the hash of a shadow event in the shadow graph, false
      *     otherwise
      */
-    public synchronized boolean isHashInGraph(final Hash hash) {
+    public boolean isHashInGraph(final Hash hash) {
         return hashToShadowEvent.containsKey(hash);
     }
 
@@ -226,7 +249,7 @@ public class ShadowGraph implements Clearable {
      * Searching stops at nodes that have no parents, or nodes that do not pass the {@code
      * predicate}.
      *
-     * <p>It is safe for this method not to be synchronized because:
+     * <p>It is safe for this method not to lock because:
      *
      * <ol>
      *   <li>this method does not modify any data
@@ -234,9 +257,10 @@ public class ShadowGraph implements Clearable {
      *   <li>checks for expired parent events are atomic
      * </ol>
      *
-     * <p>Note: This method is always accessed after a call to a synchronized {@link ShadowGraph}
-     * method, like {@link #getTips()}, which acts as a memory gate and causes the calling thread to
-     * read the latest values for all variables from memory, including {@link ShadowEvent} links.
+     * <p>Note: This method is always accessed after a call to a {@link ShadowGraph} method like
+     * {@link #getTips()}, which reads a volatile field or a concurrent map. This acts as a memory
+     * gate and causes the calling thread to read the latest values for all variables from memory,
+     * including {@link ShadowEvent} links.
      *
      * @param events the event to find ancestors of
      * @param predicate determines whether or not to add the ancestor to the return list
@@ -317,17 +341,24 @@ public class ShadowGraph implements Clearable {
      * @param predicate the predicate to filter out events
      * @return a collection of events found
      */
-    public synchronized Collection<EventImpl> findByGeneration(
+    public Collection<EventImpl> findByGeneration(
             final long startGen, final long endGen, final Predicate<EventImpl> predicate) {
         final List<EventImpl> result = new ArrayList<>();
         if (startGen >= endGen) {
             return result;
         }
+        final GenerationRing ring = generationToShadowEvent;
         for (long gen = startGen; gen < endGen; gen++) {
-            generationToShadowEvent.getOrDefault(gen, Collections.emptySet()).stream()
-                    .map(ShadowEvent::getEvent)
-                    .filter(predicate)
-                    .forEach(result::add);
+            final Set<ShadowEvent> shadows = ring.get(gen);
+            if (shadows == null) {
+                continue;
+            }
+            for (final ShadowEvent shadow : shadows) {
+                final EventImpl event = shadow.getEvent();
+                if (predicate.test(event)) {
+                    result.add(event);
+                }
+            }
         }
         return result;
     }
@@ -384,6 +415,7 @@ public class ShadowGraph implements Clearable {
          */
         long minGenToKeep = Math.min(expireBelow, oldestReservedGen);
 
+        final boolean expiring = oldestGeneration < minGenToKeep;
         while (oldestGeneration < minGenToKeep) {
             Set<ShadowEvent> shadowsToExpire = generationToShadowEvent.remove(oldestGeneration);
             // shadowsToExpire should never be null, but check just in case.
@@ -397,6 +429,10 @@ public class ShadowGraph implements Clearable {
             }
             oldestGeneration++;
         }
+        if (expiring) {
+            tipsSnapshot = null;
+            generationToShadowEvent = generationToShadowEvent.shrink();
+        }
     }
 
     /**
@@ -456,7 +492,7 @@ public class ShadowGraph implements Clearable {
      * @param e The event.
      * @return the shadow event that references an event, or null is {@code e} is null
      */
-    public synchronized ShadowEvent shadow(final PlatformEvent e) {
+    public ShadowEvent shadow(final PlatformEvent e) {
         if (e == null) {
             return null;
         }
@@ -470,7 +506,7 @@ public class ShadowGraph implements Clearable {
      * @param hashes The event hashes to get shadow events for
      * @return the shadow events that reference the events with the given hashes
      */
-    public synchronized List<ShadowEvent> shadows(final List<Hash> hashes) {
+    public List<ShadowEvent> shadows(final List<Hash> hashes) {
         Objects.requireNonNull(hashes);
         List<ShadowEvent> shadows = new ArrayList<>(hashes.size());
         for (Hash hash : hashes) {
@@ -485,7 +521,7 @@ public class ShadowGraph implements Clearable {
      * @param h the hash
      * @return the hashgraph event, if there is one in {@code this} shadow graph, else `null`
      */
-    public synchronized EventImpl hashgraphEvent(final Hash h) {
+    public EventImpl hashgraphEvent(final Hash h) {
         final ShadowEvent shadow = shadow(h);
         if (shadow == null) {
             return null;
@@ -500,8 +536,23 @@ public class ShadowGraph implements Clearable {
      *
      * @return an unmodifiable copy of the tips
      */
-    public synchronized List<ShadowEvent> getTips() {
-        return new ArrayList<>(tips);
+    public List<ShadowEvent> getTips() {
+        final List<ShadowEvent> snapshot = tipsSnapshot;
+        return snapshot != null ? snapshot : copyTips();
+    }
+
+    /**
+     * Copy the tips, unless another thread already did since they last changed.
+     *
+     * @return an unmodifiable copy of the tips
+     */
+    private synchronized List<ShadowEvent> copyTips() {
+        List<ShadowEvent> snapshot = tipsSnapshot;
+        if (snapshot == null) {
+            snapshot = List.copyOf(tips);
+            tipsSnapshot = snapshot;
+        }
+        return snapshot;
     }
 
     /**
@@ -519,6 +570,7 @@ public class ShadowGraph implements Clearable {
             final ShadowEvent s = insert(e);
             tips.add(s);
             tips.remove(s.getSelfParent());
+            tipsSnapshot = null;
 
             if (numberOfNodes > 0 && tips.size() > numberOfNodes && tips.size() > tipsBefore) {
                 // It is possible that we have more tips than nodes even if there is no fork.
@@ -572,15 +624,15 @@ public class ShadowGraph implements Clearable {
     }
 
     private ShadowEvent shadow(final Hash h) {
-        return hashToShadowEvent.get(h);
+        return h == null ? null : hashToShadowEvent.get(h);
     }
 
     /**
      * @param h the hash of the event
      * @return the event that has the hash provided, or null if none exists
      */
-    public synchronized EventImpl getEvent(final Hash h) {
-        final ShadowEvent shadowEvent = hashToShadowEvent.get(h);
+    public EventImpl getEvent(final Hash h) {
+        final ShadowEvent shadowEvent = shadow(h);
         return shadowEvent == null ? null : shadowEvent.getEvent();
     }
 
@@ -597,16 +649,29 @@ public class ShadowGraph implements Clearable {
 
         ShadowEvent se = new ShadowEvent(e, sp, op);
 
+        addGeneration(e.getGeneration()).add(se);
         hashToShadowEvent.put(se.getEventBaseHash(), se);
 
-        if (!generationToShadowEvent.containsKey(e.getGeneration())) {
-            generationToShadowEvent.put(e.getGeneration(), new HashSet<>());
-        }
-        generationToShadowEvent.get(e.getGeneration()).add(se);
-
         return se;
     }
 
+    /**
+     * Get the shadow events of a generation, creating the generation if it does not exist yet. The
+     * generation ring is replaced with a larger one if the generation does not fit.
+     *
+     * @param generation the generation
+     * @return the set of shadow events in the generation
+     */
+    private Set<ShadowEvent> addGeneration(final long generation) {
+        final Set<ShadowEvent> shadows = generationToShadowEvent.getOrCreate(generation);
+        if (shadows != null) {
+            return shadows;
+        }
+        final GenerationRing ring = generationToShadowEvent.grow(generation);
+        generationToShadowEvent = ring;
+        return ring.getOrCreate(generation);
+    }
+
     /**
      * Predicate to determine if an event has expired.
      *
@@ -710,12 +775,216 @@ public class ShadowGraph implements Clearable {
     /**
      * @return all events stored in the shadowgraph
      */
-    @SuppressWarnings("unchecked")
     public EventImpl[] getAllEvents() {
-        final HashMap<Hash, ShadowEvent> clone;
-        synchronized (this) {
-            clone = (HashMap<Hash, ShadowEvent>) hashToShadowEvent.clone();
+        return hashToShadowEvent.values().stream()
+                .map(ShadowEvent::getEvent)
+                .toArray(EventImpl[]::new);
+    }
+
+    /**
+     * The shadow events of the non-expired generations, in a ring of buckets indexed by generation.
+     * Modified only while holding the shadow graph lock, read without locking. Buckets are
+     * published through an {@link AtomicReferenceArray} and hold concurrent sets, so a reader
+     * always sees complete buckets. If the non-expired generations span more than {@link
+     * #MAX_GENERATION_CAPACITY} generations, they are kept in a concurrent map instead.
+     */
+    private static final class GenerationRing {
+        /**
+         * The shadow events of a single generation.
+         *
+         * @param generation the generation
+         * @param shadows the shadow events in the generation
+         */
+        private record Bucket(long generation, Set<ShadowEvent> shadows) {}
+
+        /** The buckets, or null if the generations are kept in {@link #generationMap} */
+        private final AtomicReferenceArray<Bucket> buckets;
+
+        private final int mask;
+
+        /** The shadow events by generation if the generations don't fit in a ring, else null */
+        private final ConcurrentHashMap<Long, Set<ShadowEvent>> generationMap;
+
+        /**
+         * @param capacity the number of generations the ring can hold, must be a power of two
+         */
+        GenerationRing(final int capacity) {
+            buckets = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            generationMap = null;
+        }
+
+        /**
+         * @param generationMap the shadow events by generation, for generations that span more
+         *     than {@link #MAX_GENERATION_CAPACITY} generations
+         */
+        private GenerationRing(final ConcurrentHashMap<Long, Set<ShadowEvent>> generationMap) {
+            buckets = null;
+            mask = 0;
+            this.generationMap = generationMap;
+        }
+
+        private int index(final long generation) {
+            return (int) (generation & mask);
+        }
+
+        /**
+         * @param generation the generation
+         * @return the shadow events in the generation, or null if the generation does not exist
+         */
+        Set<ShadowEvent> get(final long generation) {
+            if (generationMap != null) {
+                return generationMap.get(generation);
+            }
+            final Bucket bucket = buckets.get(index(generation));
+            return bucket != null && bucket.generation() == generation ? bucket.shadows() : null;
+        }
+
+        /**
+         * @param generation the generation
+         * @return the shadow events in the generation, or null if the slot of the generation is
+         *     used by another generation and the ring needs to grow
+         */
+        Set<ShadowEvent> getOrCreate(final long generation) {
+            if (generationMap != null) {
+                return generationMap.computeIfAbsent(
+                        generation, g -> ConcurrentHashMap.newKeySet());
+            }
+            final int index = index(generation);
+            final Bucket bucket = buckets.get(index);
+            if (bucket == null) {
+                final Bucket created = new Bucket(generation, ConcurrentHashMap.newKeySet());
+                buckets.set(index, created);
+                return created.shadows();
+            }
+            return bucket.generation() == generation ? bucket.shadows() : null;
+        }
+
+        /**
+         * @param generation the generation to remove
+         * @return the shadow events that were in the generation, or null if it did not exist
+         */
+        Set<ShadowEvent> remove(final long generation) {
+            if (generationMap != null) {
+                return generationMap.remove(generation);
+            }
+            final int index = index(generation);
+            final Bucket bucket = buckets.get(index);
+            if (bucket == null || bucket.generation() != generation) {
+                return null;
+            }
+            buckets.set(index, null);
+            return bucket.shadows();
+        }
+
+        /**
+         * Create a larger ring that contains the same buckets and has room for the given
+         * generation. The buckets are shared, so readers of this ring still see events added to
+         * the new one. If the generations would span more than {@link #MAX_GENERATION_CAPACITY}
+         * generations, the buckets are put in a map instead.
+         *
+         * @param generation the generation that did not fit
+         * @return the larger ring
+         */
+        GenerationRing grow(final long generation) {
+            return resize(generation, generation, 1);
+        }
+
+        /**
+         * Create a smaller ring with the same buckets if they use no more than a quarter of this
+         * one. The smaller ring is still twice as large as needed, so that generations can be added
+         * without growing it again right away. Generations kept in a map are put back in a ring
+         * once such a ring fits in {@link #MAX_GENERATION_CAPACITY}.
+         *
+         * @return the smaller ring, or this ring if it should not shrink
+         */
+        GenerationRing shrink() {
+            if (generationMap == null && buckets.length() <= INITIAL_GENERATION_CAPACITY) {
+                return this;
+            }
+            long oldest = Long.MAX_VALUE;
+            long newest = Long.MIN_VALUE;
+            for (final Bucket bucket : allBuckets()) {
+                oldest = Math.min(oldest, bucket.generation());
+                newest = Math.max(newest, bucket.generation());
+            }
+            if (oldest > newest) {
+                return new GenerationRing(INITIAL_GENERATION_CAPACITY);
+            }
+            final long capacity = capacityFor(newest - oldest + 1);
+            final long shrinkBelow =
+                    generationMap != null ? MAX_GENERATION_CAPACITY / 2 : buckets.length() / 4;
+            if (capacity > shrinkBelow) {
+                return this;
+            }
+            return resize(oldest, newest, 2);
+        }
+
+        /**
+         * Create a ring for the generations of this ring and the given range of generations.
+         * Since the capacity is at least the span of all these generations, no two buckets collide.
+         * If the capacity would be larger than {@link #MAX_GENERATION_CAPACITY}, a map is used.
+         *
+         * @param oldest the oldest generation that must fit
+         * @param newest the newest generation that must fit
+         * @param slack the factor to multiply the needed capacity by, a power of two
+         * @return the new ring
+         */
+        private GenerationRing resize(final long oldest, final long newest, final int slack) {
+            final List<Bucket> allBuckets = allBuckets();
+            long oldestGeneration = oldest;
+            long newestGeneration = newest;
+            for (final Bucket bucket : allBuckets) {
+                oldestGeneration = Math.min(oldestGeneration, bucket.generation());
+                newestGeneration = Math.max(newestGeneration, bucket.generation());
+            }
+            final long capacity = capacityFor(newestGeneration - oldestGeneration + 1);
+            if (capacity > MAX_GENERATION_CAPACITY) {
+                final ConcurrentHashMap<Long, Set<ShadowEvent>> map =
+                        new ConcurrentHashMap<>(allBuckets.size() * 2);
+                for (final Bucket bucket : allBuckets) {
+                    map.put(bucket.generation(), bucket.shadows());
+                }
+                return new GenerationRing(map);
+            }
+            final GenerationRing ring =
+                    new GenerationRing((int) Math.min(capacity * slack, MAX_GENERATION_CAPACITY));
+            for (final Bucket bucket : allBuckets) {
+                ring.buckets.set(ring.index(bucket.generation()), bucket);
+            }
+            return ring;
+        }
+
+        /**
+         * @return all generations of this ring and their shadow events
+         */
+        private List<Bucket> allBuckets() {
+            final List<Bucket> allBuckets = new ArrayList<>();
+            if (generationMap != null) {
+                generationMap.forEach(
+                        (generation, shadows) -> allBuckets.add(new Bucket(generation, shadows)));
+                return allBuckets;
+            }
+            for (int i = 0; i < buckets.length(); i++) {
+                final Bucket bucket = buckets.get(i);
+                if (bucket != null) {
+                    allBuckets.add(bucket);
+                }
+            }
+            return allBuckets;
+        }
+
+        /**
+         * @param span the number of generations from the oldest to the newest
+         * @return the smallest power of two that is at least {@code span}, and at least {@link
+         *     #INITIAL_GENERATION_CAPACITY}
+         */
+        private static long capacityFor(final long span) {
+            long capacity = INITIAL_GENERATION_CAPACITY;
+            while (capacity < span) {
+                capacity <<= 1;
+            }
+            return capacity;
         }
-        return clone.values().stream().map(ShadowEvent::getEvent).toArray(EventImpl[]::new);
     }
 }
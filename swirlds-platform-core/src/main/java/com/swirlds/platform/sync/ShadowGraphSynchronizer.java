@@ -15,18 +15,23 @@
  */
 package com.swirlds.platform.sync;
 
+import static com.swirlds.common.io.streams.SerializableDataOutputStream.getSerializedLength;
 import static com.swirlds.logging.LogMarker.SYNC_INFO;
 
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.threading.interrupt.InterruptableRunnable;
 import com.swirlds.common.threading.pool.ParallelExecutionException;
 import com.swirlds.common.threading.pool.ParallelExecutor;
 import com.swirlds.platform.Connection;
+import com.swirlds.platform.config.SyncConfig;
 import com.swirlds.platform.consensus.GraphGenerations;
 import com.swirlds.platform.event.GossipEvent;
 import com.swirlds.platform.internal.EventImpl;
 import com.swirlds.platform.metrics.SyncMetrics;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -75,6 +80,8 @@ public class ShadowGraphSynchronizer {
     private final boolean sendRecInitBytes;
     /** executed before fetching the tips from the shadowgraph for the second time in phase 3 */
     private final InterruptableRunnable executePreFetchTips;
+    /** sync related config, determines the size of the bloom filters sent */
+    private final SyncConfig syncConfig;
 
     public ShadowGraphSynchronizer(
             final ShadowGraph shadowGraph,
@@ -86,7 +93,8 @@ public class ShadowGraphSynchronizer {
             final FallenBehindManager fallenBehindManager,
             final ParallelExecutor executor,
             final boolean sendRecInitBytes,
-            final InterruptableRunnable executePreFetchTips) {
+            final InterruptableRunnable executePreFetchTips,
+            final SyncConfig syncConfig) {
         this.shadowGraph = shadowGraph;
         this.numberOfNodes = numberOfNodes;
         this.syncMetrics = syncMetrics;
@@ -97,6 +105,7 @@ public class ShadowGraphSynchronizer {
         this.executor = executor;
         this.sendRecInitBytes = sendRecInitBytes;
         this.executePreFetchTips = executePreFetchTips;
+        this.syncConfig = syncConfig;
     }
 
     private static List<Boolean> getMyBooleans(final List<ShadowEvent> theirTipShadows) {
@@ -174,11 +183,16 @@ public class ShadowGraphSynchronizer {
             // the ShadowGraph guarantees it won't be expired until we release it
             final Generations myGenerations = getGenerations(reservation.getGeneration());
             final List<ShadowEvent> myTips = getTips();
+            final BloomFilter<Hash> myBloomFilter = buildBloomFilter(conn, myGenerations, myTips);
             // READ and WRITE generation numbers & tip hashes
             final Phase1Response theirGensTips =
                     readWriteParallel(
-                            SyncComms.phase1Read(conn, numberOfNodes, sendRecInitBytes),
-                            SyncComms.phase1Write(conn, myGenerations, myTips),
+                            SyncComms.phase1Read(
+                                    conn,
+                                    numberOfNodes,
+                                    sendRecInitBytes,
+                                    maxBloomFilterSize(conn)),
+                            SyncComms.phase1Write(conn, myGenerations, myTips, myBloomFilter),
                             conn);
             timing.setTimePoint(1);
 
@@ -219,7 +233,15 @@ public class ShadowGraphSynchronizer {
             knownSet.addAll(knownTips);
 
             // create a send list based on the known set
-            sendList = createSendList(knownSet, myGenerations, theirGensTips.getGenerations());
+            final List<EventImpl> unfilteredSendList =
+                    createSendList(knownSet, myGenerations, theirGensTips.getGenerations());
+            sendList =
+                    myBloomFilter == null
+                            ? unfilteredSendList
+                            : removeFilteredEvents(
+                                    unfilteredSendList,
+                                    theirGensTips.getBloomFilter(),
+                                    myBloomFilter);
         }
 
         return phase3(conn, timing, sendList);
@@ -232,6 +254,76 @@ public class ShadowGraphSynchronizer {
                 generationsSupplier.get().getMaxRoundGeneration());
     }
 
+    /**
+     * Build a bloom filter of the hashes of this node's non-ancient events, if both nodes of the
+     * connection enabled bloom filters.
+     *
+     * @param conn the connection to sync over
+     * @param myGenerations the generations of this node
+     * @param myTips the tips of this node
+     * @return the bloom filter, or null if bloom filters are not exchanged
+     */
+    private BloomFilter<Hash> buildBloomFilter(
+            final Connection conn,
+            final Generations myGenerations,
+            final List<ShadowEvent> myTips) {
+        if (!conn.getSyncCapabilities().isBloomFilterEnabled()) {
+            return null;
+        }
+        long maxGeneration = myGenerations.getMinGenerationNonAncient() - 1;
+        for (final ShadowEvent tip : myTips) {
+            maxGeneration = Math.max(maxGeneration, tip.getEvent().getGeneration());
+        }
+        final Collection<EventImpl> events =
+                shadowGraph.findByGeneration(
+                        myGenerations.getMinGenerationNonAncient(), maxGeneration + 1, e -> true);
+        return SyncUtils.buildBloomFilter(
+                events, numberOfNodes, syncConfig.bloomFilterBitsPerEvent());
+    }
+
+    /**
+     * @param conn the connection to sync over
+     * @return the maximum size of the bloom filter the peer sends, in bits, or 0 if bloom filters
+     *     are not exchanged
+     */
+    private long maxBloomFilterSize(final Connection conn) {
+        return conn.getSyncCapabilities().isBloomFilterEnabled()
+                ? SyncUtils.maxBloomFilterSize(numberOfNodes)
+                : 0;
+    }
+
+    /**
+     * Remove the events the peer very likely has from the send list, see {@link
+     * SyncUtils#removeFilteredEvents(List, Predicate)}.
+     *
+     * @param sendList the events that would be sent without the filter, sorted by generation
+     * @param theirBloomFilter the bloom filter sent by the peer
+     * @param myBloomFilter the bloom filter sent by this node, used for metrics
+     * @return the events to send
+     */
+    private List<EventImpl> removeFilteredEvents(
+            final List<EventImpl> sendList,
+            final BloomFilter<Hash> theirBloomFilter,
+            final BloomFilter<Hash> myBloomFilter) {
+        final List<EventImpl> filteredSendList =
+                SyncUtils.removeFilteredEvents(sendList, theirBloomFilter::contains);
+        // the filtered list keeps the order of the send list
+        long savedBytes = 0;
+        int next = 0;
+        for (final EventImpl event : sendList) {
+            if (next < filteredSendList.size() && filteredSendList.get(next) == event) {
+                next++;
+            } else {
+                savedBytes += getSerializedLength(event.getTransactions(), true, false);
+            }
+        }
+        syncMetrics.bloomFilter(
+                sendList.size() - filteredSendList.size(),
+                savedBytes,
+                myBloomFilter.getFilterSizeInBits() / Byte.SIZE);
+        return filteredSendList;
+    }
+
     private List<ShadowEvent> getTips() {
         final List<ShadowEvent> myTips = shadowGraph.getTips();
         syncMetrics.updateTipsPerSync(myTips.size());
@@ -383,7 +475,7 @@ public class ShadowGraphSynchronizer {
     public void rejectSync(final Connection conn) throws IOException {
         try {
             conn.initForSync();
-            SyncComms.rejectSync(conn, numberOfNodes);
+            SyncComms.rejectSync(conn, numberOfNodes, maxBloomFilterSize(conn));
         } finally {
             logger.info(SYNC_INFO.getMarker(), "{} sync rejected by self", conn.getDescription());
         }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.platform.sync;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.platform.config.SyncConfig;
+import java.io.IOException;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * The optional parts of the sync protocol a node supports. Both nodes send their capabilities when
+ * a connection is established, and syncs over the connection only use the capabilities both of
+ * them support. This keeps nodes with different sync settings from misreading each other's data.
+ */
+public final class SyncCapabilities {
+    /** Set if bloom filters of events are exchanged in phase 1 */
+    private static final int BLOOM_FILTER = 1;
+
+    /** No optional capabilities, used on connections where none were negotiated */
+    public static final SyncCapabilities NONE = new SyncCapabilities(0);
+
+    private final int flags;
+
+    private SyncCapabilities(final int flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * @param syncConfig the sync config of this node
+     * @return the capabilities this node supports
+     */
+    public static SyncCapabilities create(final SyncConfig syncConfig) {
+        return new SyncCapabilities(syncConfig.bloomFilterEnabled() ? BLOOM_FILTER : 0);
+    }
+
+    /**
+     * Send these capabilities to the peer and read the peer's capabilities.
+     *
+     * @param out the stream to the peer
+     * @param in the stream from the peer
+     * @return the capabilities supported by both nodes
+     * @throws IOException if any connection issues occur
+     */
+    public SyncCapabilities exchange(
+            final SerializableDataOutputStream out, final SerializableDataInputStream in)
+            throws IOException {
+        out.writeInt(flags);
+        out.flush();
+        return new SyncCapabilities(flags & in.readInt());
+    }
+
+    /**
+     * @return true if bloom filters of events are exchanged in phase 1
+     */
+    public boolean isBloomFilterEnabled() {
+        return (flags & BLOOM_FILTER) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("bloomFilter", isBloomFilterEnabled())
+                .toString();
+    }
+}
@@ -17,6 +17,7 @@ package com.swirlds.platform.sync;
 
 import static com.swirlds.logging.LogMarker.SYNC_INFO;
 
+import com.swirlds.common.bloom.BloomFilter;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.platform.Connection;
 import com.swirlds.platform.event.GossipEvent;
@@ -67,6 +68,21 @@ public final class SyncComms {
 
     public static void rejectSync(final Connection conn, final int numberOfNodes)
             throws IOException {
+        rejectSync(conn, numberOfNodes, 0);
+    }
+
+    /**
+     * Reject a sync and read the phase 1 data the peer sent anyway.
+     *
+     * @param conn the connection to reject the sync on
+     * @param numberOfNodes the number of nodes in the network
+     * @param maxBloomFilterSize the maximum size of the bloom filter the peer sends in phase 1, in
+     *     bits, or 0 if the peer does not send one
+     * @throws IOException if any connection issues occur
+     */
+    public static void rejectSync(
+            final Connection conn, final int numberOfNodes, final long maxBloomFilterSize)
+            throws IOException {
         // respond with a nack
         conn.getDos().rejectSync();
         conn.getDos().flush();
@@ -74,15 +90,37 @@ public final class SyncComms {
         // read data and ignore since we rejected the sync
         conn.getDis().readGenerations();
         conn.getDis().readTipHashes(numberOfNodes);
+        if (maxBloomFilterSize > 0) {
+            conn.getDis()
+                    .readBloomFilter(SyncUtils.MAX_BLOOM_FILTER_HASH_COUNT, maxBloomFilterSize);
+        }
     }
 
     public static Callable<Void> phase1Write(
             final Connection conn, final Generations generations, final List<ShadowEvent> tips) {
+        return phase1Write(conn, generations, tips, null);
+    }
+
+    /**
+     * @param conn the connection to write to
+     * @param generations the generations of this node
+     * @param tips the tips of this node
+     * @param bloomFilter the bloom filter of the events of this node, or null if none is sent
+     * @return the Callable to run
+     */
+    public static Callable<Void> phase1Write(
+            final Connection conn,
+            final Generations generations,
+            final List<ShadowEvent> tips,
+            final BloomFilter<Hash> bloomFilter) {
         return () -> {
             final List<Hash> tipHashes =
                     tips.stream().map(ShadowEvent::getEventBaseHash).collect(Collectors.toList());
             conn.getDos().writeGenerations(generations);
             conn.getDos().writeTipHashes(tipHashes);
+            if (bloomFilter != null) {
+                conn.getDos().writeBloomFilter(bloomFilter);
+            }
             conn.getDos().flush();
             logger.info(
                     SYNC_INFO.getMarker(),
@@ -100,6 +138,22 @@ public final class SyncComms {
 
     public static Callable<Phase1Response> phase1Read(
             final Connection conn, final int numberOfNodes, final boolean readInitByte) {
+        return phase1Read(conn, numberOfNodes, readInitByte, 0);
+    }
+
+    /**
+     * @param conn the connection to read from
+     * @param numberOfNodes the number of nodes in the network
+     * @param readInitByte if true, read the response to a sync request first
+     * @param maxBloomFilterSize the maximum size of the bloom filter the peer sends, in bits, or 0
+     *     if the peer does not send one
+     * @return the Callable to run
+     */
+    public static Callable<Phase1Response> phase1Read(
+            final Connection conn,
+            final int numberOfNodes,
+            final boolean readInitByte,
+            final long maxBloomFilterSize) {
         return () -> {
             // Caller thread requested a sync, so now caller thread reads if its request was
             // accepted.
@@ -126,6 +180,13 @@ public final class SyncComms {
 
             final Generations generations = conn.getDis().readGenerations();
             final List<Hash> tips = conn.getDis().readTipHashes(numberOfNodes);
+            final BloomFilter<Hash> bloomFilter =
+                    maxBloomFilterSize > 0
+                            ? conn.getDis()
+                                    .readBloomFilter(
+                                            SyncUtils.MAX_BLOOM_FILTER_HASH_COUNT,
+                                            maxBloomFilterSize)
+                            : null;
 
             logger.info(
                     SYNC_INFO.getMarker(),
@@ -138,7 +199,7 @@ public final class SyncComms {
                     conn::getDescription,
                     () -> SyncLogging.toShortHashes(tips));
 
-            return Phase1Response.create(generations, tips);
+            return Phase1Response.create(generations, tips, bloomFilter);
         };
     }
 
@@ -17,6 +17,8 @@ package com.swirlds.platform.sync;
 
 import static com.swirlds.common.io.extendable.ExtendableInputStream.extendInputStream;
 
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
 import com.swirlds.common.crypto.DigestType;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.io.extendable.extensions.CountingStreamExtension;
@@ -106,6 +108,22 @@ public class SyncInputStream extends SerializableDataInputStream {
         return readSerializableList(numberOfNodes * MAX_TIPS_PER_NODE, false, Hash::new);
     }
 
+    /**
+     * Read the other node's bloom filter of event hashes. The filter must use a {@link
+     * HashBloomHasher}.
+     *
+     * @param maxHashCount the maximum number of hashes the filter may use
+     * @param maxSizeInBits the maximum size of the filter, in bits
+     * @throws IOException if a stream exception occurs, or if the filter exceeds one of the limits
+     */
+    public BloomFilter<Hash> readBloomFilter(final int maxHashCount, final long maxSizeInBits)
+            throws IOException {
+        final BloomFilter<Hash> filter = new BloomFilter<>();
+        filter.deserialize(
+                this, filter.getVersion(), HashBloomHasher::new, maxHashCount, maxSizeInBits);
+        return filter;
+    }
+
     public GossipEvent readEventData() throws IOException {
         return readSerializable(false, GossipEvent::new);
     }
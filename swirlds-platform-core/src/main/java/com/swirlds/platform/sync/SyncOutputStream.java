@@ -17,6 +17,7 @@ package com.swirlds.platform.sync;
 
 import static com.swirlds.common.io.extendable.ExtendableOutputStream.extendOutputStream;
 
+import com.swirlds.common.bloom.BloomFilter;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.io.extendable.extensions.CountingStreamExtension;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
@@ -119,6 +120,16 @@ public class SyncOutputStream extends SerializableDataOutputStream {
         writeSerializableList(tipHashes, false, true);
     }
 
+    /**
+     * Write a bloom filter of the hashes of events in this node's shadow graph
+     *
+     * @param filter the bloom filter
+     * @throws IOException iff the {@link SyncOutputStream} throws
+     */
+    public void writeBloomFilter(final BloomFilter<Hash> filter) throws IOException {
+        filter.serialize(this);
+    }
+
     /**
      * Write event data
      *
@@ -15,16 +15,36 @@
  */
 package com.swirlds.platform.sync;
 
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
+import com.swirlds.common.crypto.Hash;
 import com.swirlds.platform.consensus.GraphGenerations;
 import com.swirlds.platform.internal.EventImpl;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 /** Various static utility method used in syncing */
 public final class SyncUtils {
+    /** The maximum number of events per node that a sync bloom filter is sized for */
+    private static final int MAX_BLOOM_FILTER_EVENTS_PER_NODE = 1000;
+
+    /**
+     * The maximum number of bits per event of a sync bloom filter. Peers check filters against a
+     * bound derived from this constant rather than from their own settings, so nodes with
+     * different settings accept each other's filters.
+     */
+    private static final int MAX_BLOOM_FILTER_BITS_PER_EVENT = 64;
+
+    /** The maximum number of hashes used by a sync bloom filter */
+    public static final int MAX_BLOOM_FILTER_HASH_COUNT = 64;
+
     /** Private constructor to never instantiate this class */
     private SyncUtils() {}
 
@@ -88,6 +108,83 @@ public final class SyncUtils {
         return creatorsWithForks; // total number of unique creators with more than one tip
     }
 
+    /**
+     * Build a bloom filter that contains the hashes of the supplied events. The size of the filter
+     * grows with the number of events, but never exceeds {@link #maxBloomFilterSize(int)}.
+     *
+     * @param events the events to add to the filter
+     * @param numberOfNodes the number of nodes in the network
+     * @param configuredBitsPerEvent the size of the filter, in bits per event, limited to the range
+     *     1 to {@link #MAX_BLOOM_FILTER_BITS_PER_EVENT}
+     * @return the bloom filter
+     */
+    public static BloomFilter<Hash> buildBloomFilter(
+            final Collection<EventImpl> events,
+            final int numberOfNodes,
+            final int configuredBitsPerEvent) {
+        final int bitsPerEvent =
+                Math.max(1, Math.min(MAX_BLOOM_FILTER_BITS_PER_EVENT, configuredBitsPerEvent));
+        final long size =
+                Math.min(
+                        (long) Math.max(1, events.size()) * bitsPerEvent,
+                        maxBloomFilterSize(numberOfNodes));
+        // the number of hashes that minimizes false positives is the bits per element times ln(2)
+        final int hashCount =
+                (int)
+                        Math.max(
+                                1,
+                                Math.min(
+                                        MAX_BLOOM_FILTER_HASH_COUNT,
+                                        Math.round(bitsPerEvent * Math.log(2))));
+        final BloomFilter<Hash> filter =
+                new BloomFilter<>(hashCount, new HashBloomHasher(), size);
+        for (final EventImpl event : events) {
+            filter.add(event.getBaseHash());
+        }
+        return filter;
+    }
+
+    /**
+     * @param numberOfNodes the number of nodes in the network
+     * @return the maximum size of a sync bloom filter, in bits
+     */
+    public static long maxBloomFilterSize(final int numberOfNodes) {
+        return (long) Math.max(1, numberOfNodes)
+                * MAX_BLOOM_FILTER_EVENTS_PER_NODE
+                * MAX_BLOOM_FILTER_BITS_PER_EVENT;
+    }
+
+    /**
+     * Remove the events a peer very likely has from a send list. An event is removed if the peer
+     * may have it, unless it is a parent of an event that is sent. A bloom filter has false
+     * positives, so the peer might not have such a parent, and would be unable to add its child.
+     *
+     * @param sendList the events that would be sent, sorted by generation
+     * @param peerMayHave returns true for the hashes of events the peer may have
+     * @return the events to send, in the order of the send list
+     */
+    public static List<EventImpl> removeFilteredEvents(
+            final List<EventImpl> sendList, final Predicate<Hash> peerMayHave) {
+        final Set<Hash> sentParents = new HashSet<>();
+        final List<EventImpl> filteredSendList = new ArrayList<>(sendList.size());
+        // children have a higher generation than their parents, so they are visited first
+        for (int i = sendList.size() - 1; i >= 0; i--) {
+            final EventImpl event = sendList.get(i);
+            final Hash hash = event.getBaseHash();
+            if (sentParents.contains(hash) || !peerMayHave.test(hash)) {
+                filteredSendList.add(event);
+                if (event.getSelfParentHash() != null) {
+                    sentParents.add(event.getSelfParentHash());
+                }
+                if (event.getOtherParentHash() != null) {
+                    sentParents.add(event.getOtherParentHash());
+                }
+            }
+        }
+        Collections.reverse(filteredSendList);
+        return filteredSendList;
+    }
+
     /**
      * @param sendList The list of events to sort.
      */
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.swirlds.common.config.ConsensusConfig;
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.system.address.AddressBook;
+import com.swirlds.common.system.events.BaseEventHashedData;
+import com.swirlds.common.system.events.BaseEventUnhashedData;
+import com.swirlds.common.system.transaction.internal.ConsensusTransactionImpl;
+import com.swirlds.common.test.RandomAddressBookGenerator;
+import com.swirlds.common.test.RandomAddressBookGenerator.StakeDistributionStrategy;
+import com.swirlds.platform.internal.EventImpl;
+import com.swirlds.platform.metrics.ConsensusMetrics;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConsensusImplTest {
+
+    private static final int NODE_COUNT = 4;
+    private static final int EVENT_COUNT = 2000;
+
+    private static ConsensusConfig config(
+            final boolean vectorizedStronglySee, final boolean iterativeAncestors) {
+        return new ConsensusConfig(26, 500, 12, vectorizedStronglySee, iterativeAncestors);
+    }
+
+    private static AddressBook buildAddressBook(
+            final long seed, final int nodeCount, final StakeDistributionStrategy strategy) {
+        return new RandomAddressBookGenerator(seed)
+                .setSize(nodeCount)
+                .setSequentialIds(true)
+                .setStakeDistributionStrategy(strategy)
+                .build();
+    }
+
+    /**
+     * Build a random hashgraph. Every event has a self parent, except for the first event of each
+     * node, and an other parent that is the latest event of a random other node. The same seed
+     * always gives the same hashgraph, made of new event instances.
+     */
+    private static List<EventImpl> buildEvents(final long seed, final int nodeCount) {
+        final Random random = new Random(seed);
+        final EventImpl[] latest = new EventImpl[nodeCount];
+        final List<EventImpl> events = new ArrayList<>(EVENT_COUNT);
+        for (int index = 0; index < EVENT_COUNT; index++) {
+            final int creator = random.nextInt(nodeCount);
+            final int other = (creator + 1 + random.nextInt(nodeCount - 1)) % nodeCount;
+            final EventImpl selfParent = latest[creator];
+            final EventImpl otherParent = latest[other];
+            final BaseEventHashedData hashedData =
+                    new BaseEventHashedData(
+                            creator,
+                            selfParent == null ? -1 : selfParent.getGeneration(),
+                            otherParent == null ? -1 : otherParent.getGeneration(),
+                            selfParent == null ? null : selfParent.getBaseHash(),
+                            otherParent == null ? null : otherParent.getBaseHash(),
+                            Instant.ofEpochSecond(0).plusMillis(index),
+                            new ConsensusTransactionImpl[0]);
+            CryptographyHolder.get().digestSync(hashedData);
+            final EventImpl event =
+                    new EventImpl(
+                            hashedData,
+                            new BaseEventUnhashedData(other, new byte[0]),
+                            selfParent,
+                            otherParent);
+            latest[creator] = event;
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Add the events to a new consensus instance.
+     *
+     * @return the events that reached consensus, in consensus order
+     */
+    private static List<EventImpl> addEvents(
+            final ConsensusConfig config,
+            final AddressBook addressBook,
+            final List<EventImpl> events) {
+        final ConsensusImpl consensus =
+                new ConsensusImpl(config, mock(ConsensusMetrics.class), (r, g) -> {}, addressBook);
+        final List<EventImpl> consensusEvents = new ArrayList<>();
+        for (final EventImpl event : events) {
+            final List<EventImpl> reached = consensus.addEvent(event, addressBook);
+            if (reached != null) {
+                consensusEvents.addAll(reached);
+            }
+            if (config.iterativeAncestors()) {
+                assertTrue(event.isMemoized(), "an added event should be memoized");
+            }
+        }
+        return consensusEvents;
+    }
+
+    /**
+     * Check that two runs of consensus over copies of the same hashgraph reached the same
+     * consensus.
+     */
+    private static void assertSameConsensus(
+            final List<EventImpl> expectedEvents, final List<EventImpl> actualEvents) {
+        assertFalse(expectedEvents.isEmpty(), "some events should reach consensus");
+        assertEquals(
+                expectedEvents.size(),
+                actualEvents.size(),
+                "the same events should reach consensus");
+        for (int i = 0; i < expectedEvents.size(); i++) {
+            final EventImpl expected = expectedEvents.get(i);
+            final EventImpl actual = actualEvents.get(i);
+            assertEquals(expected.getBaseHash(), actual.getBaseHash(), "consensus order differs");
+            assertEquals(
+                    expected.getConsensusOrder(),
+                    actual.getConsensusOrder(),
+                    "consensus order number differs");
+            assertEquals(
+                    expected.getRoundReceived(),
+                    actual.getRoundReceived(),
+                    "round received differs");
+            assertEquals(
+                    expected.getConsensusTimestamp(),
+                    actual.getConsensusTimestamp(),
+                    "consensus timestamp differs");
+        }
+    }
+
+    @Test
+    @DisplayName("Iterative Ancestors Do Not Change Consensus")
+    void iterativeAncestorsDoNotChangeConsensus() {
+        final AddressBook addressBook =
+                buildAddressBook(25, NODE_COUNT, StakeDistributionStrategy.BALANCED);
+
+        final List<EventImpl> recursive =
+                addEvents(config(false, false), addressBook, buildEvents(7, NODE_COUNT));
+        final List<EventImpl> iterative =
+                addEvents(config(false, true), addressBook, buildEvents(7, NODE_COUNT));
+
+        assertSameConsensus(recursive, iterative);
+    }
+
+    @Test
+    @DisplayName("Vectorized Strongly Seeing Does Not Change Consensus")
+    void vectorizedStronglySeeDoesNotChangeConsensus() {
+        final Random random = new Random(11);
+        for (final int nodeCount : new int[] {4, 7, 13}) {
+            for (final StakeDistributionStrategy strategy : StakeDistributionStrategy.values()) {
+                final long seed = random.nextLong();
+                final AddressBook addressBook = buildAddressBook(seed, nodeCount, strategy);
+                final List<EventImpl> classicEvents = buildEvents(seed, nodeCount);
+                final List<EventImpl> vectorizedEvents = buildEvents(seed, nodeCount);
+
+                final List<EventImpl> classic =
+                        addEvents(config(false, false), addressBook, classicEvents);
+                final List<EventImpl> vectorized =
+                        addEvents(config(true, false), addressBook, vectorizedEvents);
+
+                for (int i = 0; i < classicEvents.size(); i++) {
+                    final EventImpl expected = classicEvents.get(i);
+                    final EventImpl actual = vectorizedEvents.get(i);
+                    final String context =
+                            " for event " + i + " with " + nodeCount + " nodes, seed " + seed;
+                    assertEquals(
+                            expected.getRoundCreated(),
+                            actual.getRoundCreated(),
+                            "round created differs" + context);
+                    assertEquals(
+                            expected.isWitness(), actual.isWitness(), "witness differs" + context);
+                    assertEquals(
+                            expected.isFameDecided(),
+                            actual.isFameDecided(),
+                            "fame decided differs" + context);
+                    assertEquals(expected.isFamous(), actual.isFamous(), "fame differs" + context);
+                }
+                assertSameConsensus(classic, vectorized);
+            }
+        }
+    }
+}
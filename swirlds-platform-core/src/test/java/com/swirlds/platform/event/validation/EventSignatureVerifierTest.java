@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.event.validation;
+
+import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.system.address.Address;
+import com.swirlds.common.system.address.AddressBook;
+import com.swirlds.common.system.events.BaseEventHashedData;
+import com.swirlds.common.system.events.BaseEventUnhashedData;
+import com.swirlds.common.system.transaction.internal.ConsensusTransactionImpl;
+import com.swirlds.platform.crypto.CryptoConstants;
+import com.swirlds.platform.event.GossipEvent;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class EventSignatureVerifierTest {
+
+    private static final int EVENT_COUNT = 200;
+
+    /** Creator 2 is not in the address book. */
+    private static final int CREATOR_COUNT = 3;
+
+    private static KeyPair[] keyPairs;
+    private static AddressBook addressBook;
+
+    @BeforeAll
+    static void setup() throws GeneralSecurityException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance(CryptoConstants.SIG_TYPE1);
+        generator.initialize(CryptoConstants.SIG_KEY_SIZE_BITS);
+        keyPairs = new KeyPair[CREATOR_COUNT];
+        addressBook = mock(AddressBook.class);
+        for (int creator = 0; creator < CREATOR_COUNT; creator++) {
+            keyPairs[creator] = generator.generateKeyPair();
+            if (creator < CREATOR_COUNT - 1) {
+                final Address address = mock(Address.class);
+                when(address.getSigPublicKey()).thenReturn(keyPairs[creator].getPublic());
+                when(addressBook.getAddress(creator)).thenReturn(address);
+            }
+        }
+    }
+
+    private static BaseEventHashedData buildHashedData(final int index) {
+        return new BaseEventHashedData(
+                index % CREATOR_COUNT,
+                index,
+                index,
+                null,
+                null,
+                Instant.ofEpochSecond(index),
+                new ConsensusTransactionImpl[0]);
+    }
+
+    /**
+     * Build events whose signatures are valid, made with the wrong key, or corrupt. Every event is
+     * built twice: hashed, to be verified serially, and unhashed, to be checked in parallel.
+     *
+     * @param serial receives the hashed events
+     * @param parallel receives the unhashed events
+     */
+    private static void buildEvents(
+            final List<GossipEvent> serial, final List<GossipEvent> parallel)
+            throws GeneralSecurityException {
+        final Random random = new Random(21);
+        for (int index = 0; index < EVENT_COUNT; index++) {
+            final BaseEventHashedData hashedData = buildHashedData(index);
+            CryptographyHolder.get().digestSync(hashedData);
+
+            final int creator = (int) hashedData.getCreatorId();
+            final KeyPair signingKeys =
+                    random.nextInt(5) == 0
+                            ? keyPairs[(creator + 1) % CREATOR_COUNT]
+                            : keyPairs[creator];
+            final Signature signature = Signature.getInstance(CryptoConstants.SIG_TYPE2);
+            signature.initSign(signingKeys.getPrivate());
+            signature.update(hashedData.getHash().getValue());
+            final byte[] signatureBytes = signature.sign();
+            if (random.nextInt(5) == 0) {
+                signatureBytes[random.nextInt(signatureBytes.length)] ^= 1;
+            }
+
+            final GossipEvent serialEvent =
+                    new GossipEvent(hashedData, new BaseEventUnhashedData(0, signatureBytes));
+            serialEvent.buildDescriptor();
+            serial.add(serialEvent);
+            parallel.add(
+                    new GossipEvent(
+                            buildHashedData(index),
+                            new BaseEventUnhashedData(0, signatureBytes.clone())));
+        }
+    }
+
+    /** Validate events through intake, and collect the indices of the events that are accepted. */
+    private static Set<Long> validate(
+            final List<GossipEvent> events, final GossipEventValidator... validators) {
+        final Set<Long> accepted = new HashSet<>();
+        final EventValidator eventValidator =
+                new EventValidator(
+                        new GossipEventValidators(List.of(validators)),
+                        (final GossipEvent event) ->
+                                accepted.add(event.getHashedData().getSelfParentGen()));
+        events.forEach(eventValidator::validateEvent);
+        return accepted;
+    }
+
+    @Test
+    @DisplayName("Verdicts match the serial signature validator")
+    void verdictsMatchSerialValidator() throws GeneralSecurityException {
+        final List<GossipEvent> serial = new ArrayList<>();
+        final List<GossipEvent> parallel = new ArrayList<>();
+        buildEvents(serial, parallel);
+
+        final EventSignatureVerifier verifier =
+                new EventSignatureVerifier(getStaticThreadManager(), addressBook, 4);
+        verifier.start();
+        try {
+            parallel.forEach(verifier::startCheck);
+
+            final Set<Long> expected = validate(serial, new SignatureValidator(addressBook));
+            assertTrue(
+                    !expected.isEmpty() && expected.size() < EVENT_COUNT,
+                    "some events should be valid and some invalid");
+            assertEquals(
+                    expected,
+                    validate(parallel, new SignatureValidator(addressBook)),
+                    "the same events should be accepted");
+            for (final GossipEvent event : parallel) {
+                assertNotNull(event.getHashedData().getHash(), "the event should be hashed");
+                assertEquals(
+                        event.getHashedData().getHash(),
+                        event.getDescriptor().getHash(),
+                        "the descriptor should be built from the hash");
+            }
+        } finally {
+            verifier.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Checks of discarded events are cancelled")
+    void discardedEventsAreCancelled() throws GeneralSecurityException {
+        final List<GossipEvent> serial = new ArrayList<>();
+        final List<GossipEvent> parallel = new ArrayList<>();
+        buildEvents(serial, parallel);
+
+        final EventSignatureVerifier verifier =
+                new EventSignatureVerifier(getStaticThreadManager(), addressBook, 4);
+        verifier.start();
+        try {
+            parallel.forEach(verifier::startCheck);
+
+            // discard every other event before its signature is looked at
+            final GossipEventValidator discardOdd =
+                    (final GossipEvent event) -> event.getHashedData().getSelfParentGen() % 2 == 0;
+            final Set<Long> expected =
+                    validate(serial, discardOdd, new SignatureValidator(addressBook));
+            assertEquals(
+                    expected,
+                    validate(parallel, discardOdd, new SignatureValidator(addressBook)),
+                    "the same events should be accepted");
+            for (final GossipEvent event : parallel) {
+                if (event.getHashedData().getSelfParentGen() % 2 != 0) {
+                    assertTrue(
+                            event.getSignatureCheck().isCancelled(),
+                            "the checks of discarded events should be cancelled");
+                }
+            }
+        } finally {
+            verifier.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Checks abandoned by stopping fall back to the serial validator")
+    void stopAbandonsChecks() throws GeneralSecurityException {
+        final List<GossipEvent> serial = new ArrayList<>();
+        final List<GossipEvent> parallel = new ArrayList<>();
+        buildEvents(serial, parallel);
+
+        final EventSignatureVerifier verifier =
+                new EventSignatureVerifier(getStaticThreadManager(), addressBook, 1);
+        verifier.start();
+        final List<GossipEvent> checked = parallel.subList(0, EVENT_COUNT / 2);
+        final List<GossipEvent> unchecked = parallel.subList(EVENT_COUNT / 2, EVENT_COUNT);
+        checked.forEach(verifier::startCheck);
+        verifier.stop();
+        unchecked.forEach(verifier::startCheck);
+
+        for (final GossipEvent event : unchecked) {
+            assertNull(event.getSignatureCheck(), "no checks should start once stopped");
+        }
+        assertEquals(
+                validate(serial, new SignatureValidator(addressBook)),
+                validate(parallel, new SignatureValidator(addressBook)),
+                "the same events should be accepted");
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.platform.sync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.system.events.BaseEventHashedData;
+import com.swirlds.common.system.events.BaseEventUnhashedData;
+import com.swirlds.common.system.transaction.internal.ConsensusTransactionImpl;
+import com.swirlds.platform.internal.EventImpl;
+import com.swirlds.platform.metrics.SyncMetrics;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ShadowGraphTest {
+
+    private static final int EVENTS_PER_GENERATION = 2;
+
+    /**
+     * Build an event without parents. Its generation is one more than the generation given for
+     * its self parent.
+     */
+    private static EventImpl buildEvent(final int creator, final long generation) {
+        final BaseEventHashedData hashedData =
+                new BaseEventHashedData(
+                        creator,
+                        generation - 1,
+                        -1,
+                        null,
+                        null,
+                        Instant.ofEpochSecond(generation),
+                        new ConsensusTransactionImpl[0]);
+        CryptographyHolder.get().digestSync(hashedData);
+        return new EventImpl(hashedData, new BaseEventUnhashedData(0, new byte[0]));
+    }
+
+    private static EventImpl[][] buildGenerations(final int generationCount) {
+        final EventImpl[][] events = new EventImpl[generationCount][EVENTS_PER_GENERATION];
+        for (int generation = 0; generation < generationCount; generation++) {
+            for (int creator = 0; creator < EVENTS_PER_GENERATION; creator++) {
+                events[generation][creator] = buildEvent(creator, generation);
+            }
+        }
+        return events;
+    }
+
+    private static void assertGeneration(
+            final ShadowGraph graph, final EventImpl[] expected, final long generation) {
+        final Collection<EventImpl> found =
+                graph.findByGeneration(generation, generation + 1, e -> true);
+        assertEquals(expected.length, found.size(), "wrong number of events in " + generation);
+        for (final EventImpl event : expected) {
+            assertTrue(found.contains(event), "event missing from generation " + generation);
+            assertNotNull(graph.getEvent(event.getBaseHash()), "event missing from hash lookup");
+            assertTrue(graph.isHashInGraph(event.getBaseHash()), "hash missing from graph");
+        }
+    }
+
+    @Test
+    @DisplayName("Generations Beyond The Initial Capacity Are Kept And Expired")
+    void growAndShrink() throws ShadowGraphInsertionException {
+        final int generationCount = 5000;
+        final EventImpl[][] events = buildGenerations(generationCount);
+        final ShadowGraph graph = new ShadowGraph(mock(SyncMetrics.class));
+
+        for (final EventImpl[] generation : events) {
+            for (final EventImpl event : generation) {
+                assertTrue(graph.addEvent(event), "event should be inserted");
+            }
+        }
+        for (int generation = 0; generation < generationCount; generation++) {
+            assertGeneration(graph, events[generation], generation);
+        }
+
+        final int expireBelow = generationCount - 10;
+        graph.expireBelow(expireBelow);
+        assertTrue(
+                graph.findByGeneration(0, expireBelow, e -> true).isEmpty(),
+                "expired generations should be empty");
+        for (int generation = expireBelow; generation < generationCount; generation++) {
+            assertGeneration(graph, events[generation], generation);
+        }
+        assertNull(graph.getEvent(events[0][0].getBaseHash()), "expired event should be gone");
+
+        // the ring shrank, generations keep fitting after the expiry
+        final EventImpl[][] more = new EventImpl[3000][EVENTS_PER_GENERATION];
+        for (int generation = 0; generation < more.length; generation++) {
+            for (int creator = 0; creator < EVENTS_PER_GENERATION; creator++) {
+                more[generation][creator] = buildEvent(creator, generationCount + generation);
+                assertTrue(graph.addEvent(more[generation][creator]), "event should be inserted");
+            }
+        }
+        for (int generation = expireBelow; generation < generationCount; generation++) {
+            assertGeneration(graph, events[generation], generation);
+        }
+        for (int generation = 0; generation < more.length; generation++) {
+            assertGeneration(graph, more[generation], generationCount + generation);
+        }
+    }
+
+    @Test
+    @DisplayName("Generations Spanning More Than The Maximum Capacity Are Kept")
+    void wideSpan() throws ShadowGraphInsertionException {
+        final ShadowGraph graph = new ShadowGraph(mock(SyncMetrics.class));
+        final long max = ShadowGraph.MAX_GENERATION_CAPACITY;
+        final EventImpl oldest = buildEvent(0, 0);
+        final EventImpl[] wide = {buildEvent(0, max - 1), buildEvent(0, max)};
+        assertTrue(graph.addEvent(oldest), "event should be inserted");
+        for (final EventImpl event : wide) {
+            assertTrue(graph.addEvent(event), "event should be inserted");
+        }
+        assertGeneration(graph, new EventImpl[] {oldest}, 0);
+        assertGeneration(graph, new EventImpl[] {wide[0]}, max - 1);
+        assertGeneration(graph, new EventImpl[] {wide[1]}, max);
+        assertEquals(
+                3,
+                graph.findByGeneration(0, max + 1, e -> true).size(),
+                "all generations should be found");
+
+        // expiring the oldest generation brings the span back within a ring
+        graph.expireBelow(1);
+        assertNull(graph.getEvent(oldest.getBaseHash()), "expired event should be removed");
+        assertGeneration(graph, new EventImpl[] {wide[0]}, max - 1);
+        assertGeneration(graph, new EventImpl[] {wide[1]}, max);
+
+        // and adding a much newer generation spans more than a ring again
+        final EventImpl next = buildEvent(1, max + 1);
+        final EventImpl newest = buildEvent(1, 3 * max);
+        assertTrue(graph.addEvent(next), "event should be inserted");
+        assertTrue(graph.addEvent(newest), "event should be inserted");
+        assertGeneration(graph, new EventImpl[] {wide[0]}, max - 1);
+        assertGeneration(graph, new EventImpl[] {wide[1]}, max);
+        assertGeneration(graph, new EventImpl[] {next}, max + 1);
+        assertGeneration(graph, new EventImpl[] {newest}, 3 * max);
+        assertEquals(
+                0,
+                graph.findByGeneration(max + 2, 3 * max, e -> true).size(),
+                "generations in the gap should be empty");
+    }
+
+    @Test
+    @DisplayName("Tips Reflect Insertion And Expiry")
+    void tipsFollowChanges() throws ShadowGraphInsertionException {
+        final ShadowGraph graph = new ShadowGraph(mock(SyncMetrics.class));
+        assertTrue(graph.getTips().isEmpty(), "a new graph should have no tips");
+
+        final EventImpl[][] events = buildGenerations(3);
+        for (final EventImpl event : events[0]) {
+            assertTrue(graph.addEvent(event), "event should be inserted");
+        }
+        final List<ShadowEvent> tips = graph.getTips();
+        assertEquals(events[0].length, tips.size(), "every event without children is a tip");
+        assertSame(tips, graph.getTips(), "unchanged tips should not be copied again");
+
+        for (final EventImpl event : events[1]) {
+            assertTrue(graph.addEvent(event), "event should be inserted");
+        }
+        assertEquals(
+                events[0].length + events[1].length,
+                graph.getTips().size(),
+                "events without parents in the graph are all tips");
+        assertEquals(events[0].length, tips.size(), "an earlier copy should not change");
+
+        graph.expireBelow(1);
+        assertEquals(events[1].length, graph.getTips().size(), "expired tips should be removed");
+        for (final ShadowEvent tip : graph.getTips()) {
+            assertEquals(1, tip.getEvent().getGeneration(), "only unexpired events are tips");
+        }
+    }
+
+    @Test
+    @DisplayName("Reads Race Insertion And Expiry")
+    void readsRaceInsertionAndExpiry() throws Exception {
+        final int generationCount = 12_000;
+        final int readerCount = 4;
+        final EventImpl[][] events = buildGenerations(generationCount);
+        final ShadowGraph graph = new ShadowGraph(mock(SyncMetrics.class));
+        final AtomicBoolean done = new AtomicBoolean();
+        // the number of generations added so far
+        final AtomicLong published = new AtomicLong();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(readerCount + 1);
+        try {
+            final List<Future<Integer>> readers = new ArrayList<>();
+            for (int reader = 0; reader < readerCount; reader++) {
+                final Random random = new Random(reader);
+                readers.add(
+                        executor.submit(
+                                () -> {
+                                    int reads = 0;
+                                    while (!done.get()) {
+                                        final long added = published.get();
+                                        try (final GenerationReservation reservation =
+                                                graph.reserve()) {
+                                            final long oldest = reservation.getGeneration();
+                                            if (oldest >= added) {
+                                                continue;
+                                            }
+                                            final long generation =
+                                                    oldest + random.nextInt((int) (added - oldest));
+                                            assertGeneration(
+                                                    graph, events[(int) generation], generation);
+                                            reads++;
+                                        }
+                                    }
+                                    return reads;
+                                }));
+            }
+
+            // alternate between keeping few and many generations, so the ring grows and shrinks
+            final Future<?> writer =
+                    executor.submit(
+                            () -> {
+                                long expireBelow = 0;
+                                for (int generation = 0;
+                                        generation < generationCount;
+                                        generation++) {
+                                    for (final EventImpl event : events[generation]) {
+                                        graph.addEvent(event);
+                                    }
+                                    published.set(generation + 1);
+                                    final int window = (generation / 3000) % 2 == 0 ? 16 : 2500;
+                                    expireBelow = Math.max(expireBelow, generation - window);
+                                    graph.expireBelow(expireBelow);
+                                }
+                                return null;
+                            });
+            try {
+                writer.get(1, TimeUnit.MINUTES);
+            } finally {
+                done.set(true);
+            }
+            for (final Future<Integer> reader : readers) {
+                assertTrue(reader.get(1, TimeUnit.MINUTES) > 0, "reader should have read events");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.platform.sync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.platform.config.SyncConfig;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SyncCapabilitiesTest {
+
+    @ParameterizedTest
+    @DisplayName("Bloom Filters Are Used Only If Both Nodes Enable Them")
+    @CsvSource({"true,true", "true,false", "false,true", "false,false"})
+    void bloomFilterIsUsedOnlyIfBothEnableIt(final boolean selfEnabled, final boolean peerEnabled)
+            throws IOException {
+        final PipedInputStream selfIn = new PipedInputStream();
+        final PipedInputStream peerIn = new PipedInputStream();
+        final SerializableDataOutputStream selfOut =
+                new SerializableDataOutputStream(new PipedOutputStream(peerIn));
+        final SerializableDataOutputStream peerOut =
+                new SerializableDataOutputStream(new PipedOutputStream(selfIn));
+
+        final CompletableFuture<SyncCapabilities> peerShared =
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return SyncCapabilities.create(new SyncConfig(peerEnabled, 24))
+                                        .exchange(peerOut, new SerializableDataInputStream(peerIn));
+                            } catch (final IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+        final SyncCapabilities selfShared =
+                SyncCapabilities.create(new SyncConfig(selfEnabled, 24))
+                        .exchange(selfOut, new SerializableDataInputStream(selfIn));
+
+        assertEquals(
+                selfEnabled && peerEnabled,
+                selfShared.isBloomFilterEnabled(),
+                "bloom filters should be used only if both nodes enable them");
+        assertEquals(
+                selfShared.isBloomFilterEnabled(),
+                peerShared.join().isBloomFilterEnabled(),
+                "both nodes should agree on the capabilities");
+    }
+
+    @ParameterizedTest
+    @DisplayName("Capabilities Follow The Config")
+    @CsvSource({"true", "false"})
+    void noCapabilitiesWithoutExchange(final boolean enabled) {
+        assertFalse(
+                SyncCapabilities.NONE.isBloomFilterEnabled(),
+                "no bloom filters should be used on connections without an exchange");
+        assertEquals(
+                enabled,
+                SyncCapabilities.create(new SyncConfig(enabled, 24)).isBloomFilterEnabled(),
+                "the capabilities of a node should follow its config");
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.platform.sync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.system.events.BaseEventHashedData;
+import com.swirlds.common.system.events.BaseEventUnhashedData;
+import com.swirlds.common.system.transaction.internal.ConsensusTransactionImpl;
+import com.swirlds.platform.internal.EventImpl;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SyncUtilsTest {
+
+    private static EventImpl buildEvent(
+            final long creator, final EventImpl selfParent, final EventImpl otherParent) {
+        final BaseEventHashedData hashedData =
+                new BaseEventHashedData(
+                        creator,
+                        selfParent == null ? -1 : selfParent.getGeneration(),
+                        otherParent == null ? -1 : otherParent.getGeneration(),
+                        selfParent == null ? null : selfParent.getBaseHash(),
+                        otherParent == null ? null : otherParent.getBaseHash(),
+                        Instant.ofEpochSecond(creator),
+                        new ConsensusTransactionImpl[0]);
+        CryptographyHolder.get().digestSync(hashedData);
+        return new EventImpl(hashedData, new BaseEventUnhashedData(0, new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Filtered Events Are Sent If They Are Parents Of Sent Events")
+    void filteredParentsAreSent() {
+        // a0 <- a1 <- a2, where a2 also has the other parent b0, and c0 has no relatives
+        final EventImpl a0 = buildEvent(0, null, null);
+        final EventImpl b0 = buildEvent(1, null, null);
+        final EventImpl c0 = buildEvent(2, null, null);
+        final EventImpl a1 = buildEvent(0, a0, null);
+        final EventImpl a2 = buildEvent(0, a1, b0);
+        final List<EventImpl> sendList = List.of(a0, b0, c0, a1, a2);
+
+        assertEquals(
+                sendList,
+                SyncUtils.removeFilteredEvents(sendList, h -> false),
+                "nothing should be removed if the peer has none of the events");
+        assertEquals(
+                List.of(),
+                SyncUtils.removeFilteredEvents(sendList, h -> true),
+                "everything should be removed if the peer may have all the events");
+
+        // a false positive for a1 must not keep a2 from being added by the peer
+        final Set<Hash> mayHave = Set.of(a0.getBaseHash(), b0.getBaseHash(), a1.getBaseHash());
+        assertEquals(
+                List.of(a0, b0, c0, a1, a2),
+                SyncUtils.removeFilteredEvents(sendList, mayHave::contains),
+                "the ancestors of sent events should be sent");
+
+        // without a sent descendant, the events the peer may have are removed
+        final Set<Hash> mayHaveAllButC0 =
+                Set.of(
+                        a0.getBaseHash(),
+                        b0.getBaseHash(),
+                        a1.getBaseHash(),
+                        a2.getBaseHash());
+        assertEquals(
+                List.of(c0),
+                SyncUtils.removeFilteredEvents(sendList, mayHaveAllButC0::contains),
+                "events without sent descendants should be removed");
+
+        // a0 is sent for a1, which the peer does not have, but c0 is removed
+        final Set<Hash> mayHaveA0AndC0 = Set.of(a0.getBaseHash(), c0.getBaseHash());
+        assertEquals(
+                List.of(a0, b0, a1, a2),
+                SyncUtils.removeFilteredEvents(sendList, mayHaveA0AndC0::contains),
+                "only events without sent descendants should be removed");
+    }
+}
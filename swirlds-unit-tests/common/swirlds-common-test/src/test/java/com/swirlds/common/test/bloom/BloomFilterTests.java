@@ -18,10 +18,12 @@ package com.swirlds.common.test.bloom;
 import static com.swirlds.common.test.RandomUtils.getRandomPrintSeed;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.swirlds.common.bloom.BloomFilter;
 import com.swirlds.common.bloom.BloomHasher;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
 import com.swirlds.common.bloom.hasher.IntBloomHasher;
 import com.swirlds.common.bloom.hasher.LongBloomHasher;
 import com.swirlds.common.bloom.hasher.SelfSerializableBloomHasher;
@@ -30,6 +32,7 @@ import com.swirlds.common.constructable.ConstructableRegistryException;
 import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
 import com.swirlds.common.merkle.utility.SerializableLong;
+import com.swirlds.common.test.RandomUtils;
 import com.swirlds.common.test.ResettableRandom;
 import com.swirlds.test.framework.TestQualifierTags;
 import java.io.ByteArrayInputStream;
@@ -247,6 +250,36 @@ class BloomFilterTests {
                 true);
     }
 
+    /**
+     * Test a bloom filter containing cryptographic hashes for small(ish) bloom filters.
+     *
+     * <p>Parameters chosen with the aid of https://hur.st/bloomfilter/
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "2,  10,       5,       1.0",
+        "3,  100,      50,      1.0",
+        "10, 150000,   10000,   0.002",
+        "10, 1500000,  100000,  0.002"
+    })
+    @DisplayName("Small Bloom Filter Hash Test")
+    @Tag(TestQualifierTags.TIME_CONSUMING)
+    void smallBloomFilterHashTest(
+            final int hashCount,
+            final long filterSize,
+            final long count,
+            final double maxFalsePositiveFraction)
+            throws IOException {
+        testRandomData(
+                hashCount,
+                new HashBloomHasher(),
+                filterSize,
+                count,
+                RandomUtils::randomHash,
+                maxFalsePositiveFraction,
+                true);
+    }
+
     /**
      * Test a bloom filter containing integers for super large bloom filters. A comparatively small
      * number of elements are inserted into each filter, as the number of insertions required to
@@ -324,4 +357,64 @@ class BloomFilterTests {
         assertTrue(
                 filter.checkAndAdd(1234), "checkAndAdd() should work even when element is present");
     }
+
+    @Test
+    @DisplayName("Limited Deserialization Test")
+    void limitedDeserializationTest() throws IOException {
+        final BloomFilter<Integer> filter = new BloomFilter<>(10, new IntBloomHasher(), 1024);
+        filter.add(1234);
+
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        final SerializableDataOutputStream outputStream = new SerializableDataOutputStream(byteOut);
+        filter.serialize(outputStream);
+        outputStream.flush();
+        final byte[] bytes = byteOut.toByteArray();
+
+        final BloomFilter<Integer> deserializedFilter = new BloomFilter<>();
+        deserializedFilter.deserialize(
+                new SerializableDataInputStream(new ByteArrayInputStream(bytes)),
+                filter.getVersion(),
+                IntBloomHasher::new,
+                10,
+                1024);
+        assertEquals(1024, deserializedFilter.getFilterSizeInBits(), "size should match");
+        assertTrue(deserializedFilter.contains(1234), "filter should contain value");
+
+        assertThrows(
+                IOException.class,
+                () ->
+                        new BloomFilter<Integer>()
+                                .deserialize(
+                                        new SerializableDataInputStream(
+                                                new ByteArrayInputStream(bytes)),
+                                        filter.getVersion(),
+                                        IntBloomHasher::new,
+                                        10,
+                                        1023),
+                "a filter larger than the limit should be rejected");
+        assertThrows(
+                IOException.class,
+                () ->
+                        new BloomFilter<Integer>()
+                                .deserialize(
+                                        new SerializableDataInputStream(
+                                                new ByteArrayInputStream(bytes)),
+                                        filter.getVersion(),
+                                        IntBloomHasher::new,
+                                        9,
+                                        1024),
+                "a filter with more hashes than the limit should be rejected");
+        assertThrows(
+                IOException.class,
+                () ->
+                        new BloomFilter<Long>()
+                                .deserialize(
+                                        new SerializableDataInputStream(
+                                                new ByteArrayInputStream(bytes)),
+                                        filter.getVersion(),
+                                        LongBloomHasher::new,
+                                        10,
+                                        1024),
+                "a filter with an unexpected hasher should be rejected");
+    }
 }
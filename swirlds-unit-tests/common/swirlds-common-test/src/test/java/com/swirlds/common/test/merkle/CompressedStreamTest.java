@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.test.merkle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.synchronization.streams.CompressedInputStream;
+import com.swirlds.common.merkle.synchronization.streams.CompressedOutputStream;
+import com.swirlds.common.merkle.synchronization.streams.ReconnectCompression;
+import com.swirlds.test.framework.TestComponentTags;
+import com.swirlds.test.framework.TestTypeTags;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@DisplayName("Compressed Stream Test")
+class CompressedStreamTest {
+
+    @ParameterizedTest
+    @EnumSource(
+            value = ReconnectCompression.class,
+            names = {"LZ4", "DEFLATE"})
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.RECONNECT)
+    @DisplayName("Round Trip")
+    void roundTrip(final ReconnectCompression compression) throws IOException {
+        final Random random = new Random(compression.ordinal());
+
+        // Larger than a single block, and a mix of compressible and incompressible data
+        final byte[] compressible = new byte[200_000];
+        for (int index = 0; index < compressible.length; index++) {
+            compressible[index] = (byte) (index % 7);
+        }
+        final byte[] incompressible = new byte[100_000];
+        random.nextBytes(incompressible);
+
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        final SerializableDataOutputStream connectionOut =
+                new SerializableDataOutputStream(byteOut);
+        final CompressedOutputStream compressedOut =
+                new CompressedOutputStream(connectionOut, compression);
+        final SerializableDataOutputStream out = new SerializableDataOutputStream(compressedOut);
+
+        out.write(compressible);
+        out.flush();
+        out.writeLong(1234);
+        out.write(incompressible);
+        out.flush();
+        // Data written directly to the connection after the compressed data
+        connectionOut.writeInt(42);
+        connectionOut.flush();
+
+        assertEquals(
+                compressible.length + Long.BYTES + incompressible.length,
+                compressedOut.getUncompressedByteCount(),
+                "all bytes written should be counted before compression");
+        assertEquals(
+                byteOut.size() - Integer.BYTES,
+                compressedOut.getCompressedByteCount(),
+                "all bytes written to the connection should be counted after compression");
+        assertTrue(
+                compressedOut.getCompressedByteCount() < compressedOut.getUncompressedByteCount(),
+                "data should have been compressed");
+
+        final SerializableDataInputStream connectionIn =
+                new SerializableDataInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
+        final CompressedInputStream compressedIn =
+                new CompressedInputStream(connectionIn, compression);
+        final SerializableDataInputStream in = new SerializableDataInputStream(compressedIn);
+
+        final byte[] compressibleRead = new byte[compressible.length];
+        in.readFully(compressibleRead);
+        assertArrayEquals(compressible, compressibleRead, "data should match");
+        assertEquals(1234, in.readLong(), "data should match");
+        final byte[] incompressibleRead = new byte[incompressible.length];
+        in.readFully(incompressibleRead);
+        assertArrayEquals(incompressible, incompressibleRead, "data should match");
+
+        assertEquals(
+                compressedOut.getCompressedByteCount(),
+                compressedIn.getCompressedByteCount(),
+                "compressed byte counts should match");
+        assertEquals(
+                compressedOut.getUncompressedByteCount(),
+                compressedIn.getUncompressedByteCount(),
+                "uncompressed byte counts should match");
+        assertEquals(
+                42,
+                connectionIn.readInt(),
+                "connection should be positioned after the compressed data");
+    }
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.RECONNECT)
+    @DisplayName("Close Ends Deflate Codec")
+    void closeEndsDeflateCodec() throws IOException {
+        final CompressedOutputStream compressedOut =
+                new CompressedOutputStream(
+                        new SerializableDataOutputStream(new ByteArrayOutputStream()),
+                        ReconnectCompression.DEFLATE);
+        compressedOut.write(new byte[] {1, 2, 3});
+        compressedOut.close();
+
+        compressedOut.write(new byte[] {4, 5, 6});
+        // An ended Deflater refuses to do any more work
+        assertThrows(
+                NullPointerException.class,
+                compressedOut::flush,
+                "the deflater should have been ended when the stream was closed");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.common.test.merkle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.merkle.MerkleNode;
+import com.swirlds.common.merkle.crypto.MerkleCryptoFactory;
+import com.swirlds.common.merkle.synchronization.ReconnectCheckpoint;
+import com.swirlds.common.test.merkle.dummy.DummyMerkleInternal;
+import com.swirlds.common.test.merkle.dummy.DummyMerkleLeaf;
+import com.swirlds.test.framework.TestComponentTags;
+import com.swirlds.test.framework.TestTypeTags;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Reconnect Checkpoint Tests")
+class ReconnectCheckpointTests {
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.RECONNECT)
+    @DisplayName("Checkpointed Subtree Outlives Its Tree")
+    void checkpointedSubtreeOutlivesItsTree() {
+        final DummyMerkleInternal root = new DummyMerkleInternal("root");
+        final DummyMerkleInternal subtree = new DummyMerkleInternal("subtree");
+        root.setChild(0, new DummyMerkleLeaf("A"));
+        root.setChild(1, subtree);
+        subtree.setChild(0, new DummyMerkleLeaf("B"));
+        MerkleCryptoFactory.getInstance().digestTreeSync(root);
+
+        final ReconnectCheckpoint checkpoint = new ReconnectCheckpoint();
+        checkpoint.add(subtree);
+        checkpoint.add(subtree);
+        assertEquals(1, checkpoint.size(), "the same subtree should only be recorded once");
+        assertEquals(2, subtree.getReservationCount(), "the checkpoint should hold a reservation");
+
+        // A failed attempt releases the partially received tree
+        root.release();
+        assertFalse(subtree.isDestroyed(), "checkpointed subtree should not be destroyed");
+
+        final MerkleNode reused =
+                checkpoint.getMatchingSubtree(subtree.getRoute(), subtree.getHash());
+        assertSame(subtree, reused, "subtree with matching hash should be returned");
+        assertNull(
+                checkpoint.getMatchingSubtree(
+                        subtree.getRoute(), CryptographyHolder.get().getNullHash()),
+                "subtree with a different hash should not be returned");
+        assertNull(
+                checkpoint.getMatchingSubtree(root.getRoute(), subtree.getHash()),
+                "subtree at a different route should not be returned");
+
+        checkpoint.clear();
+        assertEquals(0, checkpoint.size(), "checkpoint should be empty");
+        assertTrue(subtree.isDestroyed(), "subtree should be released by the checkpoint");
+    }
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.RECONNECT)
+    @DisplayName("Unhashed Subtree Is Rejected")
+    void unhashedSubtreeIsRejected() {
+        final ReconnectCheckpoint checkpoint = new ReconnectCheckpoint();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> checkpoint.add(new DummyMerkleLeaf("A")),
+                "unhashed subtrees can not be verified by a later attempt");
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.cache; // NOSONAR: Needed to benchmark internal classes
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link ConcurrentLongObjectMap} with the {@code ConcurrentHashMap<Long, V>} it replaced
+ * as the path index in {@link VirtualNodeCache}. Paths are dense, like paths of a virtual tree.
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 10, time = 15)
+public class ConcurrentLongObjectMapBench {
+    private static final Object VALUE = new Object();
+
+    @Param({"100000", "1000000"})
+    public int numPaths;
+
+    private ConcurrentLongObjectMap<Object> longObjectMap;
+    private Map<Long, Object> concurrentHashMap;
+
+    @Setup(Level.Iteration)
+    public void setupPerIteration() {
+        longObjectMap = new ConcurrentLongObjectMap<>();
+        concurrentHashMap = new ConcurrentHashMap<>();
+        // Fill in half of the paths, so puts both add and replace entries
+        for (long path = 0; path < numPaths; path += 2) {
+            longObjectMap.put(path, VALUE);
+            concurrentHashMap.put(path, VALUE);
+        }
+    }
+
+    @Benchmark
+    public void longObjectMapGet(final Blackhole blackhole) {
+        blackhole.consume(longObjectMap.get(randomPath()));
+    }
+
+    @Benchmark
+    public void concurrentHashMapGet(final Blackhole blackhole) {
+        blackhole.consume(concurrentHashMap.get(randomPath()));
+    }
+
+    @Benchmark
+    public void longObjectMapCompute(final Blackhole blackhole) {
+        blackhole.consume(longObjectMap.compute(randomPath(), (path, value) -> VALUE));
+    }
+
+    @Benchmark
+    public void concurrentHashMapCompute(final Blackhole blackhole) {
+        blackhole.consume(concurrentHashMap.compute(randomPath(), (path, value) -> VALUE));
+    }
+
+    @Benchmark
+    public void longObjectMapRemoveAndPut(final Blackhole blackhole) {
+        final long path = randomPath();
+        longObjectMap.compute(path, (p, value) -> null);
+        blackhole.consume(longObjectMap.put(path, VALUE));
+    }
+
+    @Benchmark
+    public void concurrentHashMapRemoveAndPut(final Blackhole blackhole) {
+        final long path = randomPath();
+        concurrentHashMap.remove(path);
+        blackhole.consume(concurrentHashMap.put(path, VALUE));
+    }
+
+    private long randomPath() {
+        return ThreadLocalRandom.current().nextLong(numPaths);
+    }
+}
@@ -38,6 +38,11 @@ public final class DefaultVirtualMapSettings implements VirtualMapSettings {
     public static final int DEFAULT_PREFERRED_FLUSH_QUEUE_SIZE = 2;
     public static final Duration DEFAULT_FLUSH_THROTTLE_STEP_SIZE = Duration.ofMillis(200);
     public static final Duration DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD = Duration.ofSeconds(5);
+    public static final long DEFAULT_FLUSH_THRESHOLD_DIRTY_LEAVES = 0L;
+    public static final boolean DEFAULT_ADAPTIVE_FLUSH_THROTTLE_ENABLED = false;
+    public static final int DEFAULT_NUM_DIRTY_LEAF_PARTITIONS = 0;
+    public static final boolean DEFAULT_INCREMENTAL_HASHING_ENABLED = false;
+    public static final Duration DEFAULT_INCREMENTAL_HASHING_QUIET_PERIOD = Duration.ofMillis(100);
 
     /** {@inheritDoc} */
     @Override
@@ -117,4 +122,34 @@ public final class DefaultVirtualMapSettings implements VirtualMapSettings {
     public Duration getMaximumFlushThrottlePeriod() {
         return DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getFlushThresholdDirtyLeaves() {
+        return DEFAULT_FLUSH_THRESHOLD_DIRTY_LEAVES;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isAdaptiveFlushThrottleEnabled() {
+        return DEFAULT_ADAPTIVE_FLUSH_THROTTLE_ENABLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNumDirtyLeafPartitions() {
+        return DEFAULT_NUM_DIRTY_LEAF_PARTITIONS;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isIncrementalHashingEnabled() {
+        return DEFAULT_INCREMENTAL_HASHING_ENABLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Duration getIncrementalHashingQuietPeriod() {
+        return DEFAULT_INCREMENTAL_HASHING_QUIET_PERIOD;
+    }
 }
@@ -41,6 +41,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -440,6 +441,18 @@ public final class VirtualMap<K extends VirtualKey<? super K>, V extends Virtual
         return root.get(key);
     }
 
+    /**
+     * Gets the values associated with the given keys, like {@link #get(VirtualKey)} does for a
+     * single key. Values that are not in memory are read from disk in a single batch, which needs
+     * fewer random disk reads than getting the keys one by one.
+     *
+     * @param keys The keys. These must not be null.
+     * @return The values, in the same order as the keys. Values may be null, or will be read only.
+     */
+    public List<V> getAll(final Collection<K> keys) {
+        return root.getAll(keys);
+    }
+
     /**
      * Puts the key/value pair into the map. The key must not be null, but the value may be null.
      * The previous value, if it existed, is returned. If the entry was already in the map, the
@@ -500,4 +513,14 @@ public final class VirtualMap<K extends VirtualKey<? super K>, V extends Virtual
     public void warm(final K key) {
         root.warm(key);
     }
+
+    /**
+     * Warms a batch of leaves, like {@link #warm(VirtualKey)}, but reads the leaf records from disk
+     * in a single batch, which needs fewer random disk reads than warming the keys one by one.
+     *
+     * @param keys keys of the leaves to warm
+     */
+    public void warmAll(final Collection<K> keys) {
+        root.warmAll(keys);
+    }
 }
@@ -134,4 +134,61 @@ public interface VirtualMapSettings {
      * @return the maximum flush throttle for any individual fast copy operation
      */
     Duration getMaximumFlushThrottlePeriod();
+
+    /**
+     * The number of dirty leaves that makes a copy to be flushed. If positive, copies are flushed
+     * based on their size rather than every {@link #getFlushInterval()} copies: a copy is flushed
+     * once the number of leaves added, updated or deleted in it and in all older copies since the
+     * last flushed copy reaches this threshold. This keeps the amount of unflushed data in memory
+     * bounded under load spikes, and avoids many tiny flushes when the network is idle. If zero,
+     * every Nth copy is flushed, see {@link #getFlushInterval()}.
+     *
+     * @return the number of dirty leaves to flush a copy, or zero to flush every Nth copy
+     */
+    long getFlushThresholdDirtyLeaves();
+
+    /**
+     * If true, fast copies are throttled by an adaptive controller when more than {@link
+     * #getPreferredFlushQueueSize()} copies are awaiting flushing. The controller measures how long
+     * flushes take and how many copies are made per flush, and spaces fast copies so they don't
+     * outpace flushes, rather than sleeping for {@link #getFlushThrottleStepSize()} times the
+     * backlog excess squared. Throttled copies resume as soon as a flush brings the backlog back
+     * down. Copies are never delayed for longer than {@link #getMaximumFlushThrottlePeriod()}.
+     *
+     * @return whether fast copies are throttled by the adaptive flush throttle
+     */
+    boolean isAdaptiveFlushThrottleEnabled();
+
+    /**
+     * The number of path range partitions dirty leaves are split into when a copy is flushed. If
+     * greater than one, dirty leaves are partitioned by path and partitions are sorted and
+     * deduplicated in parallel, which replaces a single sort of all dirty leaves. If zero or one,
+     * all dirty leaves are sorted at once.
+     *
+     * @return the number of partitions to extract dirty leaves in
+     */
+    int getNumDirtyLeafPartitions();
+
+    /**
+     * If true, dirty leaves of a mutable copy are hashed in the background while the copy still
+     * takes changes. Leaves are grouped in fixed size blocks of complete subtrees. Once no leaf in
+     * a block has been changed for {@link #getIncrementalHashingQuietPeriod()}, the block's dirty
+     * leaves and the internal nodes above them, up to the top of the block, are hashed. When the
+     * copy is hashed, results for blocks that were not changed again are reused, so mostly the top
+     * of the tree and recently changed blocks are left to hash.
+     *
+     * <p>Values returned by {@link VirtualMap#getForModify(VirtualKey)} must not be modified after
+     * other calls to the map are made, or the change may not be included in the hash.
+     *
+     * @return whether dirty leaves are hashed in the background
+     */
+    boolean isIncrementalHashingEnabled();
+
+    /**
+     * If {@link #isIncrementalHashingEnabled()}, the time no leaf in a block must be changed before
+     * the block is hashed in the background. Blocks are checked once per this period.
+     *
+     * @return the quiet period for background hashing of a block of leaves
+     */
+    Duration getIncrementalHashingQuietPeriod();
 }
@@ -66,6 +66,33 @@ import java.time.Duration;
  *     copy by this amount of time.
  * @param maximumFlushThrottlePeriod The maximum amount of time that any virtual map fast copy will
  *     be delayed due to a flush backlog.
+ * @param flushThresholdDirtyLeaves The number of dirty leaves that makes a copy to be flushed. If
+ *     positive, copies are flushed based on their size rather than every {@link #flushInterval()}
+ *     copies: a copy is flushed once the number of leaves added, updated or deleted in it and in
+ *     all older copies since the last flushed copy reaches this threshold. If zero, every Nth copy
+ *     is flushed.
+ * @param adaptiveFlushThrottleEnabled If true, fast copies are throttled by an adaptive controller
+ *     when more than {@link #preferredFlushQueueSize()} copies are awaiting flushing. The
+ *     controller measures how long flushes take and how many copies are made per flush, and spaces
+ *     fast copies so they don't outpace flushes, rather than sleeping for {@link
+ *     #flushThrottleStepSize()} times the backlog excess squared. Throttled copies resume as
+ *     soon as a flush brings the backlog back down. Copies are never delayed for longer than {@link
+ *     #maximumFlushThrottlePeriod()}.
+ * @param numDirtyLeafPartitions The number of path range partitions dirty leaves are split into
+ *     when a copy is flushed. If greater than one, dirty leaves are partitioned by path and
+ *     partitions are sorted and deduplicated in parallel, which replaces a single sort of all dirty
+ *     leaves. If zero or one, all dirty leaves are sorted at once.
+ * @param incrementalHashingEnabled If true, dirty leaves of a mutable copy are hashed in the
+ *     background while the copy still takes changes. Leaves are grouped in fixed size blocks of
+ *     complete subtrees. Once no leaf in a block has been changed for {@link
+ *     #incrementalHashingQuietPeriod()}, the block's dirty leaves and the internal nodes above
+ *     them, up to the top of the block, are hashed. When the copy is hashed, results for blocks
+ *     that were not changed again are reused, so mostly the top of the tree and recently changed
+ *     blocks are left to hash. Values returned by {@code getForModify} must be modified before
+ *     other calls to the map are made, or the change may not be included in the hash.
+ * @param incrementalHashingQuietPeriod If {@link #incrementalHashingEnabled()}, the time no leaf
+ *     in a block must be changed before the block is hashed in the background. Blocks are checked
+ *     once per this period.
  */
 @ConfigData("virtualMap")
 public record VirtualMapConfig(
@@ -89,7 +116,12 @@ public record VirtualMapConfig(
         @Min(1) @ConfigProperty(defaultValue = "20") int flushInterval,
         @ConfigProperty(defaultValue = "2") int preferredFlushQueueSize,
         @ConfigProperty(defaultValue = "200ms") Duration flushThrottleStepSize,
-        @ConfigProperty(defaultValue = "5s") Duration maximumFlushThrottlePeriod) {
+        @ConfigProperty(defaultValue = "5s") Duration maximumFlushThrottlePeriod,
+        @Min(0) @ConfigProperty(defaultValue = "0") long flushThresholdDirtyLeaves,
+        @ConfigProperty(defaultValue = "false") boolean adaptiveFlushThrottleEnabled,
+        @Min(0) @ConfigProperty(defaultValue = "0") int numDirtyLeafPartitions,
+        @ConfigProperty(defaultValue = "false") boolean incrementalHashingEnabled,
+        @ConfigProperty(defaultValue = "100ms") Duration incrementalHashingQuietPeriod) {
 
     private static final double UNIT_FRACTION_PERCENT = 100.0;
 
@@ -21,6 +21,10 @@ import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualValue;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -95,6 +99,42 @@ public interface VirtualDataSource<K extends VirtualKey<? super K>, V extends Vi
      */
     VirtualLeafRecord<K, V> loadLeafRecord(final long path) throws IOException;
 
+    /**
+     * Load the records for a batch of leaf nodes by key. Data sources may implement this to read
+     * the batch with fewer and more sequential disk reads than loading the records one by one.
+     *
+     * @param keys the keys for leaves
+     * @return list of leaf records, in the same order as the given keys, with nulls for keys that
+     *     are not stored
+     * @throws IOException If there was a problem reading the leaf records
+     */
+    default List<VirtualLeafRecord<K, V>> loadLeafRecords(final Collection<K> keys)
+            throws IOException {
+        final List<VirtualLeafRecord<K, V>> leafRecords = new ArrayList<>(keys.size());
+        for (final K key : keys) {
+            leafRecords.add(loadLeafRecord(key));
+        }
+        return leafRecords;
+    }
+
+    /**
+     * Load the records for a batch of leaf nodes by path. Data sources may implement this to read
+     * the batch with fewer and more sequential disk reads than loading the records one by one.
+     *
+     * @param paths the paths for leaves
+     * @return list of leaf records, in the same order as the given paths, with nulls for paths that
+     *     are not stored
+     * @throws IOException If there was a problem reading the leaf records
+     */
+    default List<VirtualLeafRecord<K, V>> loadLeafRecordsByPath(final long[] paths)
+            throws IOException {
+        final List<VirtualLeafRecord<K, V>> leafRecords = new ArrayList<>(paths.length);
+        for (final long path : paths) {
+            leafRecords.add(loadLeafRecord(path));
+        }
+        return leafRecords;
+    }
+
     /**
      * Find the path of the given key
      *
@@ -151,6 +191,21 @@ public interface VirtualDataSource<K extends VirtualKey<? super K>, V extends Vi
      */
     Hash loadLeafHash(final long path) throws IOException;
 
+    /**
+     * Pass the hash of every leaf stored in this data source to an action, reading the stored data
+     * sequentially rather than leaf by leaf. Hashes of leaves that have been moved or deleted may
+     * be passed as well, and a hash may be passed more than once. Data sources that cannot do this
+     * cheaply return false without calling the action.
+     *
+     * @param action called with each hash. Returns false to stop the iteration early.
+     * @return true if this data source passed the hashes of its leaves to the action, false if it
+     *     does not support this operation
+     * @throws IOException If there was a problem reading the leaf data
+     */
+    default boolean forEachLeafHash(final Predicate<Hash> action) throws IOException {
+        return false;
+    }
+
     /**
      * Write a snapshot of the current state of the database at this moment in time. This will need
      * to be called between calls to saveRecords to have a reliable state. This will block till the
@@ -85,4 +85,34 @@ public interface VirtualDataSourceBuilder<K extends VirtualKey<? super K>, V ext
      * @return An opened {@link VirtualDataSource}
      */
     VirtualDataSource<K, V> restore(String label, Path source);
+
+    /**
+     * Whether data sources of this builder can be opened from snapshot files taken on another
+     * node, see {@link #openSnapshot(String, Path)}.
+     *
+     * @return true if {@link #openSnapshot(String, Path)} is supported
+     */
+    default boolean isSnapshotTransferSupported() {
+        return false;
+    }
+
+    /**
+     * Opens a new {@link VirtualDataSource} from the files written by {@link #snapshot(Path,
+     * VirtualDataSource)} for a single data source, possibly on another node. Unlike {@link
+     * #restore(String, Path)}, the new data source is independent of any database already opened
+     * by this node, like a data source created by {@link #copy(VirtualDataSource)}. The given
+     * folder becomes the storage folder of the new data source. The new data source doesn't have
+     * background file compaction enabled.
+     *
+     * <p>This method is used when a virtual map is received in bulk during reconnects.
+     *
+     * @param label The label of the snapshot data source. Cannot be null
+     * @param source The folder containing the snapshot files. Cannot be null
+     * @return An opened {@link VirtualDataSource}
+     * @throws UnsupportedOperationException if {@link #isSnapshotTransferSupported()} is false
+     */
+    default VirtualDataSource<K, V> openSnapshot(final String label, final Path source) {
+        throw new UnsupportedOperationException(
+                getClass().getName() + " can't open snapshots taken on other nodes");
+    }
 }
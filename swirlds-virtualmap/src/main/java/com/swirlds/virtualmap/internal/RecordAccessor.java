@@ -23,6 +23,8 @@ import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.datasource.VirtualRecord;
 import com.swirlds.virtualmap.internal.cache.VirtualNodeCache;
 import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Provides access to all records.
@@ -79,6 +81,19 @@ public interface RecordAccessor<K extends VirtualKey<? super K>, V extends Virtu
      */
     VirtualLeafRecord<K, V> findLeafRecord(final K key, final boolean copy);
 
+    /**
+     * Locates and returns leaf nodes for a batch of keys, like {@link #findLeafRecord(VirtualKey,
+     * boolean)} does for a single key. Leaves that are not in memory are loaded from the data
+     * source in a single batch.
+     *
+     * @param keys The keys. Must not contain null.
+     * @param copy Whether to make a fast copy if needed.
+     * @return The leaves, in the same order as the keys, with nulls for keys without a leaf.
+     * @throws UncheckedIOException If we fail to access the data store, then a catastrophic error
+     *     occurred and an UncheckedIOException is thrown.
+     */
+    List<VirtualLeafRecord<K, V>> findLeafRecords(final Collection<K> keys, final boolean copy);
+
     /**
      * Locates and returns a leaf node based on the path. If the leaf node already exists in memory,
      * then the same instance is returned each time. If the node is not in memory, then a new
@@ -93,6 +108,19 @@ public interface RecordAccessor<K extends VirtualKey<? super K>, V extends Virtu
      */
     VirtualLeafRecord<K, V> findLeafRecord(final long path, final boolean copy);
 
+    /**
+     * Locates and returns leaf nodes for a batch of paths, like {@link #findLeafRecord(long,
+     * boolean)} does for a single path. Leaves that are not in memory are loaded from the data
+     * source in a single batch.
+     *
+     * @param paths The paths
+     * @param copy Whether to make a fast copy if needed.
+     * @return The leaves, in the same order as the paths, with nulls for paths without a leaf.
+     * @throws UncheckedIOException If we fail to access the data store, then a catastrophic error
+     *     occurred and an UncheckedIOException is thrown.
+     */
+    List<VirtualLeafRecord<K, V>> findLeafRecordsByPath(final long[] paths, final boolean copy);
+
     /**
      * Finds the path of the given key.
      *
@@ -16,8 +16,10 @@
 package com.swirlds.virtualmap.internal.cache;
 
 import com.swirlds.common.threading.futures.StandardFuture;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -25,6 +27,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.stream.Stream;
 
 /**
@@ -370,6 +373,120 @@ final class ConcurrentArray<T> {
         return result;
     }
 
+    /**
+     * Split all elements into partitions and sort every partition, in parallel. Sub-arrays are
+     * traversed concurrently, each into its own partition lists, so no locks or concurrent
+     * collections are involved. Partition lists of all sub-arrays are then concatenated and sorted,
+     * a task per partition. If partitions are ranges of the sort order, concatenating the returned
+     * partitions gives all elements sorted, without a global sort. This method can only be called
+     * on immutable instances.
+     *
+     * @param executor The executor to run traversal and sort tasks on
+     * @param numPartitions The number of partitions, must be positive
+     * @param partitioner Gets the partition for an element, or -1 if the element is to be skipped
+     * @param comparator The comparator to sort partitions with. May be null, in which case
+     *     partitions are not sorted.
+     * @return A future for the partitions, indexed by partition
+     * @throws IllegalStateException If this instance is not immutable.
+     */
+    StandardFuture<List<List<T>>> parallelPartition(
+            final Executor executor,
+            final int numPartitions,
+            final ToIntFunction<T> partitioner,
+            final Comparator<T> comparator) {
+        if (!immutable.get()) {
+            throw new IllegalStateException(
+                    "You can not call parallelPartition on a mutable ConcurrentArray");
+        }
+        if (numPartitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive");
+        }
+
+        final List<SubArray<T>> subArrays = new ArrayList<>(arrays);
+        final List<List<List<T>>> subArrayPartitions = new ArrayList<>(subArrays.size());
+        final List<Runnable> partitionTasks = new ArrayList<>(subArrays.size());
+        for (final SubArray<T> subArray : subArrays) {
+            final List<List<T>> partitions = newPartitions(numPartitions);
+            subArrayPartitions.add(partitions);
+            partitionTasks.add(
+                    () -> {
+                        final T[] array = subArray.array;
+                        final int size = subArray.size.get();
+                        for (int i = 0; i < size; ++i) {
+                            final int partition = partitioner.applyAsInt(array[i]);
+                            if (partition >= 0) {
+                                partitions.get(partition).add(array[i]);
+                            }
+                        }
+                    });
+        }
+
+        final StandardFuture<List<List<T>>> result = new StandardFuture<>();
+        final List<List<T>> partitions = newPartitions(numPartitions);
+        runAll(
+                executor,
+                partitionTasks,
+                result,
+                () -> {
+                    final List<Runnable> sortTasks = new ArrayList<>(numPartitions);
+                    for (int p = 0; p < numPartitions; p++) {
+                        final int partition = p;
+                        sortTasks.add(
+                                () -> {
+                                    final List<T> merged = partitions.get(partition);
+                                    for (final List<List<T>> subPartitions : subArrayPartitions) {
+                                        merged.addAll(subPartitions.get(partition));
+                                    }
+                                    if (comparator != null) {
+                                        merged.sort(comparator);
+                                    }
+                                });
+                    }
+                    runAll(executor, sortTasks, result, () -> result.complete(partitions));
+                });
+        return result;
+    }
+
+    private static <T> List<List<T>> newPartitions(final int numPartitions) {
+        final List<List<T>> partitions = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        return partitions;
+    }
+
+    /**
+     * Run tasks on an executor, and run a completion action on the thread that finishes the last
+     * task. If a task fails, the result future is cancelled with the error, and the completion
+     * action is never run.
+     */
+    private static void runAll(
+            final Executor executor,
+            final List<Runnable> tasks,
+            final StandardFuture<?> result,
+            final Runnable onCompletion) {
+        final AtomicInteger count = new AtomicInteger(tasks.size() + 1);
+        for (final Runnable task : tasks) {
+            executor.execute(
+                    () -> {
+                        try {
+                            task.run();
+                        } catch (final RuntimeException ex) {
+                            if (!result.isDone()) {
+                                result.cancelWithError(ex);
+                            }
+                            return;
+                        }
+                        if (count.decrementAndGet() == 0) {
+                            onCompletion.run();
+                        }
+                    });
+        }
+        if (count.decrementAndGet() == 0) {
+            onCompletion.run();
+        }
+    }
+
     /**
      * Simple struct for an array of elements and a size for the number of elements stored in that
      * array.
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.cache;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent map from primitive long keys to object values, optimized for the path indexes of
+ * the {@link VirtualNodeCache}. Unlike a {@code ConcurrentHashMap<Long, V>}, keys are never boxed,
+ * and there are no per-entry node objects. Entries are stored in open-addressed tables with linear
+ * probing, in parallel arrays of keys and values.
+ *
+ * <p>The map is split into segments by key hash, each with its own table and {@link StampedLock}.
+ * Lookups are optimistic reads that don't block and don't write to shared memory, they are only
+ * retried under a read lock if the segment was modified concurrently. Updates lock a single
+ * segment. Removed entries are backward-shifted, so there are no tombstones and tables don't
+ * degrade with churn.
+ *
+ * <p>Null values are not stored: a slot with a null value is empty. Iteration, via {@link
+ * #forEach(LongObjectConsumer)} and {@link #keys()}, is weakly consistent, like iteration over a
+ * {@code ConcurrentHashMap}.
+ *
+ * @param <V> the value type
+ */
+final class ConcurrentLongObjectMap<V> {
+
+    /** The number of segments, must be a power of two */
+    private static final int NUM_OF_SEGMENTS = 32;
+
+    /** The initial number of slots in a segment table, must be a power of two */
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    /** The maximum number of entries per slot in a segment table before the table is doubled */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    /** A function to compute a new value for a key from its current value */
+    @FunctionalInterface
+    interface LongObjectRemappingFunction<V> {
+        /**
+         * Compute a new value for a key.
+         *
+         * @param key the key
+         * @param value the current value, or null if there is no value for the key
+         * @return the new value, or null to remove the key
+         */
+        V apply(long key, V value);
+    }
+
+    /** A consumer of map entries */
+    @FunctionalInterface
+    interface LongObjectConsumer<V> {
+        /**
+         * Accept a map entry.
+         *
+         * @param key the entry key
+         * @param value the entry value, never null
+         */
+        void accept(long key, V value);
+    }
+
+    private final Segment<V>[] segments;
+
+    /** Create a new empty map. */
+    @SuppressWarnings("unchecked")
+    ConcurrentLongObjectMap() {
+        segments = new Segment[NUM_OF_SEGMENTS];
+        for (int i = 0; i < NUM_OF_SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * Get the value for a key.
+     *
+     * @param key the key
+     * @return the value, or null if the map contains no value for the key
+     */
+    V get(final long key) {
+        final long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Put a value for a key, replacing any existing value.
+     *
+     * @param key the key
+     * @param value the value, or null to remove the key
+     * @return the previous value, or null if there was no value for the key
+     */
+    V put(final long key, final V value) {
+        final long hash = hash(key);
+        return segmentFor(hash).compute(key, hash, (k, v) -> value, true);
+    }
+
+    /**
+     * Atomically compute a new value for a key. The function is called exactly once, while the key
+     * segment is locked, so it must be short and must not access this map.
+     *
+     * @param key the key
+     * @param remappingFunction the function to compute the new value
+     * @return the new value, or null if the key was removed
+     */
+    V compute(final long key, final LongObjectRemappingFunction<V> remappingFunction) {
+        final long hash = hash(key);
+        return segmentFor(hash).compute(key, hash, remappingFunction, false);
+    }
+
+    /**
+     * Get the number of entries in the map. Under concurrent updates, the result is an estimate.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        int size = 0;
+        for (final Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Get all keys in the map. Under concurrent updates, keys that are put or removed during this
+     * call may or may not be included.
+     *
+     * @return the keys, in no particular order
+     */
+    long[] keys() {
+        final long[][] segmentKeys = new long[NUM_OF_SEGMENTS][];
+        int count = 0;
+        for (int i = 0; i < NUM_OF_SEGMENTS; i++) {
+            segmentKeys[i] = segments[i].keys();
+            count += segmentKeys[i].length;
+        }
+        final long[] keys = new long[count];
+        int offset = 0;
+        for (final long[] k : segmentKeys) {
+            System.arraycopy(k, 0, keys, offset, k.length);
+            offset += k.length;
+        }
+        return keys;
+    }
+
+    /**
+     * Call an action for every entry in the map. The action is called without any locks held.
+     * Under concurrent updates, entries that are put or removed during this call may or may not be
+     * visited.
+     *
+     * @param action the action to call
+     */
+    void forEach(final LongObjectConsumer<V> action) {
+        for (final Segment<V> segment : segments) {
+            final long[] keys = segment.keys();
+            for (final long key : keys) {
+                final V value = segment.get(key, hash(key));
+                if (value != null) {
+                    action.accept(key, value);
+                }
+            }
+        }
+    }
+
+    private Segment<V> segmentFor(final long hash) {
+        // upper bits select the segment, lower bits select the slot in the segment table
+        return segments[(int) (hash >>> 59) & (NUM_OF_SEGMENTS - 1)];
+    }
+
+    /**
+     * Mix key bits, as paths are sequential and would otherwise cluster in tables. Package-private
+     * for testing.
+     *
+     * @param key the key
+     * @return the mixed hash
+     */
+    static long hash(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * A part of the map with its own open-addressed table, guarded by its own lock.
+     *
+     * @param <V> the value type
+     */
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+
+        /** Keys by slot, only meaningful where the value is not null */
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+
+        /** Values by slot, null for empty slots */
+        private Object[] values = new Object[INITIAL_SEGMENT_CAPACITY];
+
+        /** The number of entries in this segment */
+        private volatile int size;
+
+        V get(final long key, final long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                final V value = find(keys, values, key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(keys, values, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V find(
+                final long[] keys, final Object[] values, final long key, final long hash) {
+            // tables may be replaced concurrently during optimistic reads, they are read once
+            final int mask = Math.min(keys.length, values.length) - 1;
+            int slot = (int) hash & mask;
+            for (int i = 0; i <= mask; i++) {
+                final Object value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return (V) value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V compute(
+                final long key,
+                final long hash,
+                final LongObjectRemappingFunction<V> remappingFunction,
+                final boolean returnPrevious) {
+            final long stamp = lock.writeLock();
+            try {
+                final int mask = keys.length - 1;
+                int slot = (int) hash & mask;
+                while ((values[slot] != null) && (keys[slot] != key)) {
+                    slot = (slot + 1) & mask;
+                }
+                final V oldValue = (V) values[slot];
+                final V newValue = remappingFunction.apply(key, oldValue);
+                if (newValue != null) {
+                    values[slot] = newValue;
+                    if (oldValue == null) {
+                        keys[slot] = key;
+                        size++;
+                        if (size > keys.length * MAX_LOAD_FACTOR) {
+                            resize(keys.length * 2);
+                        }
+                    }
+                } else if (oldValue != null) {
+                    removeSlot(slot);
+                }
+                return returnPrevious ? oldValue : newValue;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /** Remove the entry at a slot, and shift back entries that probed past it. */
+        private void removeSlot(final int removed) {
+            final int mask = keys.length - 1;
+            int gap = removed;
+            int slot = (gap + 1) & mask;
+            while (values[slot] != null) {
+                final int home = (int) hash(keys[slot]) & mask;
+                // move the entry into the gap, unless its home slot is cyclically in (gap, slot]
+                if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                    keys[gap] = keys[slot];
+                    values[gap] = values[slot];
+                    gap = slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            values[gap] = null;
+            size--;
+        }
+
+        private void resize(final int capacity) {
+            final long[] oldKeys = keys;
+            final Object[] oldValues = values;
+            final long[] newKeys = new long[capacity];
+            final Object[] newValues = new Object[capacity];
+            final int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = (int) hash(oldKeys[i]) & mask;
+                    while (newValues[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            // values are assigned last, optimistic readers check both lengths anyway
+            keys = newKeys;
+            values = newValues;
+        }
+
+        long[] keys() {
+            final long stamp = lock.readLock();
+            try {
+                final long[] result = new long[size];
+                int count = 0;
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        result[count++] = keys[i];
+                    }
+                }
+                return result;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
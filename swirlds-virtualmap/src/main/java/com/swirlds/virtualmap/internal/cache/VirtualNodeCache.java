@@ -35,9 +35,12 @@ import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.datasource.VirtualRecord;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -222,19 +225,19 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 
     /**
      * A shared index of paths to leaves, via {@link Mutation}s. Works the same as {@link
-     * #keyToDirtyLeafIndex}.
+     * #keyToDirtyLeafIndex}. Paths are primitive keys, so lookups and updates don't box them.
      *
      * <p><strong>ONE PER CHAIN OF CACHES</strong>.
      */
-    private final Map<Long, Mutation<K>> pathToDirtyLeafIndex;
+    private final ConcurrentLongObjectMap<Mutation<K>> pathToDirtyLeafIndex;
 
     /**
      * A shared index of paths to internals, via {@link Mutation}s. Works the same as {@link
-     * #keyToDirtyLeafIndex}.
+     * #keyToDirtyLeafIndex}. Paths are primitive keys, so lookups and updates don't box them.
      *
      * <p><strong>ONE PER CHAIN OF CACHES</strong>.
      */
-    private final Map<Long, Mutation<VirtualInternalRecord>> pathToDirtyInternalIndex;
+    private final ConcurrentLongObjectMap<Mutation<VirtualInternalRecord>> pathToDirtyInternalIndex;
 
     /**
      * Whether this instance is released. A released cache is often the last in the chain, but may
@@ -282,6 +285,14 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
      */
     private volatile ConcurrentArray<Mutation<K>> dirtyLeafPaths = new ConcurrentArray<>();
 
+    /**
+     * The number of leaf mutations created in this version of the cache. Unlike the size of {@link
+     * #dirtyLeaves}, this doesn't include mutations merged in from older versions.
+     *
+     * <p><strong>ONE PER CACHE INSTANCE</strong>.
+     */
+    private final AtomicLong dirtyLeafCount = new AtomicLong(0L);
+
     /**
      * A set of all modifications to internal nodes that occurred in this version of the cache. We
      * use a list as an optimization, but it requires us to filter out mutations for the same key or
@@ -322,8 +333,8 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
      */
     public VirtualNodeCache() {
         this.keyToDirtyLeafIndex = new ConcurrentHashMap<>();
-        this.pathToDirtyLeafIndex = new ConcurrentHashMap<>();
-        this.pathToDirtyInternalIndex = new ConcurrentHashMap<>();
+        this.pathToDirtyLeafIndex = new ConcurrentLongObjectMap<>();
+        this.pathToDirtyInternalIndex = new ConcurrentLongObjectMap<>();
         this.releaseLock = new ReentrantLock();
         this.lastReleased = new AtomicLong(-1L);
     }
@@ -441,8 +452,8 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
         CLEANING_POOL.execute(
                 () -> {
                     purge(dirtyLeaves, keyToDirtyLeafIndex);
-                    purge(dirtyLeafPaths, pathToDirtyLeafIndex);
-                    purge(dirtyInternals, pathToDirtyInternalIndex);
+                    purgePaths(dirtyLeafPaths, pathToDirtyLeafIndex);
+                    purgePaths(dirtyInternals, pathToDirtyInternalIndex);
 
                     dirtyLeaves = null;
                     dirtyLeafPaths = null;
@@ -732,6 +743,17 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
                 : lookupLeafByKey(mutation.value, forModify);
     }
 
+    /**
+     * Gets the number of leaves added, updated or deleted in this version of the cache. Leaves
+     * changed in older versions that were merged into this one are not counted. This method may be
+     * called concurrently with leaves being changed, in which case the result is an estimate.
+     *
+     * @return the number of dirty leaves in this version of the cache
+     */
+    public long getDirtyLeafCount() {
+        return dirtyLeafCount.get();
+    }
+
     /**
      * Gets a sorted stream of dirty leaves <strong>from this cache instance</strong>. Deleted
      * leaves are not included in this stream.
@@ -757,6 +779,13 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
                     "Cannot call on a cache that is still mutable for dirty leaves");
         }
 
+        final int numPartitions = VirtualMapSettingsFactory.get().getNumDirtyLeafPartitions();
+        if (numPartitions > 1) {
+            // Partitions are path ranges in path order, so concatenated they are sorted by path
+            return dirtyLeavesByPartition(firstLeafPath, lastLeafPath, numPartitions).stream()
+                    .flatMap(partition -> partition);
+        }
+
         final AtomicReference<Mutation<? extends VirtualRecord>> lastSeen = new AtomicReference<>();
         return dirtyLeaves
                 .sortedStream(dirtyLeafComparator())
@@ -770,6 +799,72 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
                 .map(mutation -> mutation.value);
     }
 
+    /**
+     * Gets sorted streams of dirty leaves <strong>from this cache instance</strong>, one per path
+     * range partition. Mutations are split into partitions by path and every partition is sorted
+     * in parallel, so there is no sort of all dirty leaves at once. Each stream is deduplicated on
+     * its own, so streams may be consumed in parallel. Deleted leaves are not included in these
+     * streams.
+     *
+     * @param firstLeafPath The first leaf path to receive in the results, see {@link
+     *     #dirtyLeaves(long, long)}
+     * @param lastLeafPath The last leaf path to receive in the results, see {@link
+     *     #dirtyLeaves(long, long)}
+     * @param numPartitions The number of path range partitions, must be positive
+     * @return A non-null list of non-null streams of dirty leaves, ordered by path range. Streams
+     *     may be empty. No stream contains duplicate records, or records that are in other streams.
+     *     Every stream is sorted by path, with the lowest (root-most) path first.
+     * @throws MutabilityException if called on a cache that still allows dirty leaves to be added
+     */
+    public List<Stream<VirtualLeafRecord<K, V>>> dirtyLeavesByPartition(
+            final long firstLeafPath, final long lastLeafPath, final int numPartitions) {
+        if (!dirtyLeaves.isImmutable()) {
+            throw new MutabilityException(
+                    "Cannot call on a cache that is still mutable for dirty leaves");
+        }
+        if (numPartitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive");
+        }
+        if (lastLeafPath < firstLeafPath) {
+            return List.of();
+        }
+
+        final long partitionSize =
+                Math.max(1, (lastLeafPath - firstLeafPath + numPartitions) / numPartitions);
+        final StandardFuture<List<List<Mutation<VirtualLeafRecord<K, V>>>>> result =
+                dirtyLeaves.parallelPartition(
+                        CLEANING_POOL,
+                        numPartitions,
+                        mutation -> {
+                            final long path = mutation.value.getPath();
+                            return (path >= firstLeafPath && path <= lastLeafPath)
+                                    ? (int) ((path - firstLeafPath) / partitionSize)
+                                    : -1;
+                        },
+                        dirtyLeafComparator());
+        final List<List<Mutation<VirtualLeafRecord<K, V>>>> partitions;
+        try {
+            partitions = result.getAndRethrow();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PlatformException(
+                    "VirtualNodeCache.dirtyLeavesByPartition() interrupted", ex, EXCEPTION);
+        }
+
+        final List<Stream<VirtualLeafRecord<K, V>>> streams = new ArrayList<>(numPartitions);
+        for (final List<Mutation<VirtualLeafRecord<K, V>>> partition : partitions) {
+            // All mutations for a path are in the same partition, each one is deduplicated alone
+            final AtomicReference<Mutation<? extends VirtualRecord>> lastSeen =
+                    new AtomicReference<>();
+            streams.add(
+                    partition.stream()
+                            .filter(mutation -> dedupeByPath(mutation, lastSeen))
+                            .filter(mutation -> !mutation.deleted)
+                            .map(mutation -> mutation.value));
+        }
+        return streams;
+    }
+
     /**
      * Gets a stream of deleted leaves <strong>from this cache instance</strong>.
      *
@@ -787,6 +882,10 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
                     "Cannot call on a cache that is still mutable for dirty leaves");
         }
 
+        if (VirtualMapSettingsFactory.get().getNumDirtyLeafPartitions() > 1) {
+            return deletedLeavesByIdentity();
+        }
+
         final Map<K, VirtualLeafRecord<K, V>> leaves = new ConcurrentHashMap<>();
         final StandardFuture<Void> result =
                 dirtyLeaves.parallelTraverse(
@@ -811,6 +910,36 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
         return leaves.values().stream();
     }
 
+    /**
+     * Gets a stream of deleted leaves without a map to deduplicate them. Every deleted key has a
+     * single latest mutation for this version, and only that mutation is included, if it is
+     * deleted. Sub-arrays of dirty leaves are traversed in parallel into separate lists.
+     *
+     * @return A non-null stream of deleted leaves. May be empty. Will not contain duplicate
+     *     records.
+     */
+    @SuppressWarnings("unchecked")
+    private Stream<VirtualLeafRecord<K, V>> deletedLeavesByIdentity() {
+        final StandardFuture<List<List<Mutation<VirtualLeafRecord<K, V>>>>> result =
+                dirtyLeaves.parallelPartition(
+                        CLEANING_POOL,
+                        1,
+                        element ->
+                                (element.deleted
+                                                && (lookup(keyToDirtyLeafIndex.get((K) element.key))
+                                                        == element))
+                                        ? 0
+                                        : -1,
+                        null);
+        try {
+            return result.getAndRethrow().get(0).stream().map(mutation -> mutation.value);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PlatformException(
+                    "VirtualNodeCache.deletedLeaves() interrupted", ex, EXCEPTION);
+        }
+    }
+
     // --------------------------------------------------------------------------------------------
     // API for caching internal nodes.
     //
@@ -989,11 +1118,11 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
     public VirtualNodeCache<K, V> snapshot() {
         synchronized (lastReleased) {
             final VirtualNodeCache<K, V> newSnapshot = new VirtualNodeCache<>();
-            setMapSnapshotAndArray(
+            setPathMapSnapshotAndArray(
                     this.pathToDirtyInternalIndex,
                     newSnapshot.pathToDirtyInternalIndex,
                     newSnapshot.dirtyInternals);
-            setMapSnapshotAndArray(
+            setPathMapSnapshotAndArray(
                     this.pathToDirtyLeafIndex,
                     newSnapshot.pathToDirtyLeafIndex,
                     newSnapshot.dirtyLeafPaths);
@@ -1093,7 +1222,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
     private <T> void updatePaths(
             final T value,
             final long path,
-            final Map<Long, Mutation<T>> index,
+            final ConcurrentLongObjectMap<Mutation<T>> index,
             final ConcurrentArray<Mutation<T>> dirtyPaths) {
         index.compute(
                 path,
@@ -1187,6 +1316,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
             final Mutation<VirtualLeafRecord<K, V>> newerMutation =
                     new Mutation<>(mutation, leaf.getKey(), leaf, fastCopyVersion.get());
             dirtyLeaves.add(newerMutation);
+            dirtyLeafCount.incrementAndGet();
             mutation = newerMutation;
         } else if (mutation.value != leaf) {
             // A different value has arrived, but the mutation already exists for this version. So
@@ -1232,6 +1362,35 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
                                 }));
     }
 
+    /**
+     * Same as {@link #purge(ConcurrentArray, Map)}, for an index of paths.
+     *
+     * @param array The mutations to purge from the index
+     * @param index The index to look through for entries to purge
+     * @param <U> The value type referenced by the mutation list
+     */
+    private static <U> void purgePaths(
+            ConcurrentArray<Mutation<U>> array, ConcurrentLongObjectMap<Mutation<U>> index) {
+        array.parallelTraverse(
+                CLEANING_POOL,
+                element ->
+                        index.compute(
+                                (Long) element.key,
+                                (path, mutation) -> {
+                                    if (mutation == null || element.equals(mutation)) {
+                                        // Already removed for a more recent mutation
+                                        return null;
+                                    }
+                                    for (Mutation<U> m = mutation; m.next != null; m = m.next) {
+                                        if (element.equals(m.next)) {
+                                            m.next = null;
+                                            break;
+                                        }
+                                    }
+                                    return mutation;
+                                }));
+    }
+
     /**
      * Copies the mutations from {@code src} into {@code dst} with the following constraints:
      *
@@ -1269,6 +1428,36 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
         }
     }
 
+    /**
+     * Same as {@link #setMapSnapshotAndArray(Map, Map, ConcurrentArray)}, for indexes of paths.
+     *
+     * @param src Map that contains the original mutations
+     * @param dst Map that acts as the destination of mutations
+     * @param array The array to add copied mutations to
+     * @param <S> Value type
+     */
+    private <S> void setPathMapSnapshotAndArray(
+            final ConcurrentLongObjectMap<Mutation<S>> src,
+            final ConcurrentLongObjectMap<Mutation<S>> dst,
+            final ConcurrentArray<Mutation<S>> array) {
+        final long accepted = fastCopyVersion.get();
+        final long rejected = lastReleased.get();
+        src.forEach(
+                (path, latest) -> {
+                    Mutation<S> mutation = latest;
+                    while (mutation != null && mutation.version > accepted) {
+                        mutation = mutation.next;
+                    }
+
+                    if (mutation == null || mutation.version <= rejected) {
+                        return;
+                    }
+
+                    dst.put(path, mutation);
+                    array.add(mutation);
+                });
+    }
+
     /**
      * Serialize the {@link #pathToDirtyInternalIndex}.
      *
@@ -1277,14 +1466,15 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
      * @throws IOException If something fails.
      */
     private void serializePathToDirtyInternalIndex(
-            final Map<Long, Mutation<VirtualInternalRecord>> map,
+            final ConcurrentLongObjectMap<Mutation<VirtualInternalRecord>> map,
             final SerializableDataOutputStream out)
             throws IOException {
         assert snapshot.get() : "Only snapshots can be serialized";
-        out.writeInt(map.size());
-        for (final Map.Entry<Long, Mutation<VirtualInternalRecord>> entry : map.entrySet()) {
-            out.writeLong(entry.getKey());
-            final Mutation<VirtualInternalRecord> mutation = entry.getValue();
+        final long[] paths = map.keys();
+        out.writeInt(paths.length);
+        for (final long path : paths) {
+            out.writeLong(path);
+            final Mutation<VirtualInternalRecord> mutation = map.get(path);
             assert mutation != null : "Mutations cannot be null in a snapshot";
             assert mutation.version <= this.fastCopyVersion.get()
                     : "Trying to serialize pathToDirtyInternalIndex with a version ahead";
@@ -1307,7 +1497,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
      * @throws IOException In case of trouble.
      */
     private void deserializePathToDirtyInternalIndex(
-            final Map<Long, Mutation<VirtualInternalRecord>> map,
+            final ConcurrentLongObjectMap<Mutation<VirtualInternalRecord>> map,
             final SerializableDataInputStream in)
             throws IOException {
         final int sizeOfMap = in.readInt();
@@ -1340,13 +1530,14 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
      * @throws IOException If something fails.
      */
     private void serializePathToDirtyLeafIndex(
-            final Map<Long, Mutation<K>> map, final SerializableDataOutputStream out)
+            final ConcurrentLongObjectMap<Mutation<K>> map, final SerializableDataOutputStream out)
             throws IOException {
         assert snapshot.get() : "Only snapshots can be serialized";
-        out.writeInt(map.size());
-        for (final Map.Entry<Long, Mutation<K>> entry : map.entrySet()) {
-            out.writeLong(entry.getKey());
-            final Mutation<K> mutation = entry.getValue();
+        final long[] paths = map.keys();
+        out.writeInt(paths.length);
+        for (final long path : paths) {
+            out.writeLong(path);
+            final Mutation<K> mutation = map.get(path);
             assert mutation != null : "Mutations cannot be null in a snapshot";
             assert mutation.version <= this.fastCopyVersion.get()
                     : "Trying to serialize pathToDirtyLeafIndex with a version ahead";
@@ -1365,11 +1556,11 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
      * @throws IOException In case of trouble.
      */
     private void deserializePathToDirtyLeafIndex(
-            final Map<Long, Mutation<K>> map, final SerializableDataInputStream in)
+            final ConcurrentLongObjectMap<Mutation<K>> map, final SerializableDataInputStream in)
             throws IOException {
         final int sizeOfMap = in.readInt();
         for (int index = 0; index < sizeOfMap; index++) {
-            final Long path = in.readLong();
+            final long path = in.readLong();
             final K key = in.readSerializable();
             final long mutationVersion = in.readLong();
             final boolean deleted = in.readBoolean();
@@ -1619,13 +1810,14 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
         builder.append(
                         toDebugStringIndex(
                                 "pathToDirtyLeafIndex",
-                                (Map<Object, Mutation>) (Object) pathToDirtyLeafIndex))
+                                (Map<Object, Mutation>) (Object) toDebugMap(pathToDirtyLeafIndex)))
                 .append("\n");
         //noinspection unchecked
         builder.append(
                         toDebugStringIndex(
                                 "pathToDirtyInternalIndex",
-                                (Map<Object, Mutation>) (Object) pathToDirtyInternalIndex))
+                                (Map<Object, Mutation>)
+                                        (Object) toDebugMap(pathToDirtyInternalIndex)))
                 .append("\n");
         //noinspection unchecked
         builder.append(
@@ -1664,6 +1856,12 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
         return builder.toString();
     }
 
+    private static <T> Map<Long, T> toDebugMap(final ConcurrentLongObjectMap<T> index) {
+        final Map<Long, T> map = new TreeMap<>();
+        index.forEach(map::put);
+        return map;
+    }
+
     private String toDebugStringIndex(
             final String indexName,
             @SuppressWarnings("rawtypes") final Map<Object, Mutation> index) {
@@ -30,6 +30,7 @@ import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.merkle.VirtualInternalNode;
 import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
 import java.util.Objects;
+import java.util.function.LongFunction;
 
 /**
  * A POJO containing the information needed by a future thread to be able to create a hash for some
@@ -93,30 +94,74 @@ final class HashJob<K extends VirtualKey<? super K>, V extends VirtualValue> imp
 
     void hash(final HashBuilder builder) {
         if (leaf != null) {
-            hash = CRYPTO.digestSync(leaf);
+            hash = hashLeaf(leaf);
             leaf.setHash(hash);
         } else {
             Objects.requireNonNull(internal);
+            hash = hashInternal(builder, path, left, right);
+            internal.setHash(hash);
+        }
+    }
 
-            final long classId =
-                    path == ROOT_PATH ? VirtualRootNode.CLASS_ID : VirtualInternalNode.CLASS_ID;
-
-            final int serId =
-                    path == ROOT_PATH
-                            ? VirtualRootNode.ClassVersion.CURRENT_VERSION
-                            : VirtualInternalNode.SERIALIZATION_VERSION;
+    /**
+     * Like {@link #hash(HashBuilder)}, but takes the hash from {@code precomputedHashes} instead
+     * of computing it, if there is one for this job's path.
+     *
+     * @param builder the builder to use for internal nodes
+     * @param precomputedHashes hashes that are already known, by path. Can be null.
+     */
+    void hash(final HashBuilder builder, final LongFunction<Hash> precomputedHashes) {
+        final Hash precomputed = precomputedHashes == null ? null : precomputedHashes.apply(path);
+        if (precomputed == null) {
+            hash(builder);
+            return;
+        }
+        hash = precomputed;
+        if (leaf != null) {
+            leaf.setHash(hash);
+        } else {
+            Objects.requireNonNull(internal).setHash(hash);
+        }
+    }
 
-            final Hash leftHash = left == null ? NULL_HASH : left;
-            final Hash rightHash = right == null ? NULL_HASH : right;
+    /**
+     * Compute the hash of a leaf, without storing it in the leaf.
+     *
+     * @param leaf the leaf
+     * @return the hash of the leaf
+     */
+    static Hash hashLeaf(final VirtualLeafRecord<?, ?> leaf) {
+        return CRYPTO.digestSync(leaf);
+    }
 
-            builder.reset();
-            builder.update(classId);
-            builder.update(serId);
-            builder.update(leftHash);
-            builder.update(rightHash);
-            hash = builder.build();
-            internal.setHash(hash);
-        }
+    /**
+     * Compute the hash of an internal node from the hashes of its children.
+     *
+     * @param builder the builder to use, it is reset first
+     * @param path the path of the internal node
+     * @param left the hash of the left child, or null if there is none
+     * @param right the hash of the right child, or null if there is none
+     * @return the hash of the internal node
+     */
+    static Hash hashInternal(
+            final HashBuilder builder, final long path, final Hash left, final Hash right) {
+        final long classId =
+                path == ROOT_PATH ? VirtualRootNode.CLASS_ID : VirtualInternalNode.CLASS_ID;
+
+        final int serId =
+                path == ROOT_PATH
+                        ? VirtualRootNode.ClassVersion.CURRENT_VERSION
+                        : VirtualInternalNode.SERIALIZATION_VERSION;
+
+        final Hash leftHash = left == null ? NULL_HASH : left;
+        final Hash rightHash = right == null ? NULL_HASH : right;
+
+        builder.reset();
+        builder.update(classId);
+        builder.update(serId);
+        builder.update(leftHash);
+        builder.update(rightHash);
+        return builder.build();
     }
 
     @Override
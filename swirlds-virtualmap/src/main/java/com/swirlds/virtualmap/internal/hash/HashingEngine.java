@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.hash;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded pool of hashing threads, shared by all virtual maps, that shares threads fairly between
+ * maps hashing at the same time.
+ *
+ * <p>Every map family submits its hashing tasks through its own {@link Lane}. Threads don't run
+ * tasks in submission order. Instead, lanes with pending tasks take turns: every time a thread is
+ * free, it runs the oldest task of the next lane in round-robin order. A map that submits many
+ * tasks at once therefore doesn't delay maps that submit fewer tasks after it, and the number of
+ * hashing threads never exceeds the configured parallelism, no matter how many maps are hashed.
+ *
+ * <p>Threads are provided by a work-stealing {@link ForkJoinPool}. Each submitted task is paired
+ * with a pool task that picks which lane task to run, so idle threads steal lane picks from busy
+ * ones.
+ */
+final class HashingEngine {
+
+    private static final Logger logger = LogManager.getLogger(HashingEngine.class);
+
+    /** Work-stealing pool that runs lane tasks */
+    private final ForkJoinPool pool;
+
+    /** Lanes with pending tasks, in the order they get their next turn. Guarded by itself */
+    private final Queue<Lane> readyLanes = new ArrayDeque<>();
+
+    /** The number of tasks submitted through all lanes, but not yet started */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    /**
+     * Create a new hashing engine.
+     *
+     * @param parallelism the maximum number of hashing threads
+     * @param threadNamePrefix prefix of hashing thread names
+     */
+    HashingEngine(final int parallelism, final String threadNamePrefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool =
+                new ForkJoinPool(
+                        Math.max(1, parallelism),
+                        p -> {
+                            final ForkJoinWorkerThread thread =
+                                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                            thread.setName(
+                                    threadNamePrefix + "-" + threadNumber.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        (t, ex) ->
+                                logger.error(
+                                        EXCEPTION.getMarker(),
+                                        "Uncaught exception during hashing",
+                                        ex),
+                        true);
+    }
+
+    /**
+     * Create a new lane, a fair share of this engine for a single map family.
+     *
+     * @return the new lane
+     */
+    Lane newLane() {
+        return new Lane();
+    }
+
+    /**
+     * Get the number of tasks submitted through all lanes that haven't started yet.
+     *
+     * @return the number of queued tasks
+     */
+    int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    private void submit(final Lane lane, final Runnable task) {
+        // counted before the task can be started, so depths never go negative
+        lane.queueDepth.incrementAndGet();
+        queueDepth.incrementAndGet();
+        synchronized (readyLanes) {
+            lane.tasks.add(task);
+            if (!lane.ready) {
+                lane.ready = true;
+                readyLanes.add(lane);
+            }
+        }
+        pool.execute(this::runNext);
+    }
+
+    /**
+     * Run the oldest task of the lane whose turn it is. There is a call to this method for every
+     * submitted task, so there is always a ready lane.
+     */
+    private void runNext() {
+        final Lane lane;
+        final Runnable task;
+        synchronized (readyLanes) {
+            lane = readyLanes.remove();
+            task = lane.tasks.remove();
+            if (lane.tasks.isEmpty()) {
+                lane.ready = false;
+            } else {
+                // back of the line
+                readyLanes.add(lane);
+            }
+        }
+        lane.queueDepth.decrementAndGet();
+        queueDepth.decrementAndGet();
+        task.run();
+    }
+
+    /**
+     * A fair share of the hashing engine. All tasks submitted through a lane are run by engine
+     * threads, taking turns with tasks of other lanes.
+     */
+    final class Lane implements Executor {
+        /** Tasks not yet started, oldest first. Guarded by {@link #readyLanes} */
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        /** Whether this lane is in {@link #readyLanes}. Guarded by {@link #readyLanes} */
+        private boolean ready;
+
+        /** The number of tasks submitted through this lane that haven't started yet */
+        private final AtomicInteger queueDepth = new AtomicInteger();
+
+        private Lane() {}
+
+        /** {@inheritDoc} */
+        @Override
+        public void execute(final Runnable task) {
+            submit(this, Objects.requireNonNull(task));
+        }
+
+        /**
+         * Get the number of tasks submitted through this lane that haven't started yet.
+         *
+         * @return the number of queued tasks
+         */
+        int getQueueDepth() {
+            return queueDepth.get();
+        }
+    }
+}
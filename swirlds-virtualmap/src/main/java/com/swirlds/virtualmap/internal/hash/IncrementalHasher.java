@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.hash;
+
+import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+import static com.swirlds.virtualmap.internal.Path.getLeftChildPath;
+import static com.swirlds.virtualmap.internal.Path.getParentPath;
+import static com.swirlds.virtualmap.internal.Path.getRank;
+import static com.swirlds.virtualmap.internal.Path.getRightChildPath;
+
+import com.swirlds.common.crypto.Cryptography;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.crypto.HashBuilder;
+import com.swirlds.common.threading.framework.config.ThreadConfiguration;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hashes dirty leaves of a mutable virtual map copy in the background, while the copy is still
+ * taking changes.
+ *
+ * <p>Leaves are grouped in blocks. A block is the complete subtree below a node at {@code
+ * blockRank}, which is {@link #BLOCK_HEIGHT} ranks above the last leaf rank when the copy is
+ * created. The copy reports every path it changes through {@link #touch(long)}. Once no path in a
+ * block has been touched for the quiet period, the block's dirty leaves and the internal nodes
+ * above them, up to the root of the block, are hashed on the map family's hashing threads. A
+ * block touched again afterwards is hashed again once it is quiet.
+ *
+ * <p>Values handed out for modification may be changed by the caller at any time, without the
+ * copy knowing. Blocks with such values, reported through {@link #touchForModify(long)}, are never
+ * hashed in the background, so their hashes are always computed by {@link VirtualHasher}.
+ *
+ * <p>When the copy is hashed, {@link #stop()} is called first. From then on, {@link #getHash(long)}
+ * returns the hashes of all blocks that were not touched after they were hashed, and {@link
+ * VirtualHasher} only has to compute hashes for the remaining blocks and the nodes above {@code
+ * blockRank}.
+ *
+ * @param <K> The {@link VirtualKey} type
+ * @param <V> The {@link VirtualValue} type
+ */
+public final class IncrementalHasher<K extends VirtualKey<? super K>, V extends VirtualValue> {
+
+    private static final Logger logger = LogManager.getLogger(IncrementalHasher.class);
+
+    /**
+     * The number of ranks in a block, counted from the last leaf rank. A block has up to {@code
+     * 2^BLOCK_HEIGHT} leaves.
+     */
+    static final int BLOCK_HEIGHT = 10;
+
+    /** Runs the checks for quiet blocks of all incremental hashers. Blocks are hashed elsewhere */
+    private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+    /** This thread-local gets a HashBuilder that can be used for hashing on a per-thread basis. */
+    private static final ThreadLocal<HashBuilder> HASH_BUILDER_THREAD_LOCAL =
+            ThreadLocal.withInitial(() -> new HashBuilder(Cryptography.DEFAULT_DIGEST_TYPE));
+
+    private final LongFunction<VirtualLeafRecord<K, V>> leafReader;
+    private final LongFunction<VirtualInternalRecord> internalReader;
+    private final LongSupplier firstLeafPath;
+    private final LongSupplier lastLeafPath;
+    private final long quietPeriodNanos;
+
+    /** Runs block hashing tasks */
+    private final Executor executor;
+
+    /**
+     * The rank of block roots. Fixed for the life of this hasher, blocks stay complete subtrees if
+     * the tree grows or shrinks. If less than one, there are no blocks and nothing is hashed.
+     */
+    private final int blockRank;
+
+    /** Blocks with touched paths, by the path of the block root */
+    private final Map<Long, Block> blocks = new ConcurrentHashMap<>();
+
+    /** Held while blocks are checked and hashed, so {@link #stop()} can wait for it */
+    private final Object hashingLock = new Object();
+
+    private volatile boolean stopped;
+
+    private ScheduledFuture<?> checkFuture;
+
+    /**
+     * Hashes of final blocks, by the path of the block root and then by node path. Set by {@link
+     * #stop()}
+     */
+    private volatile Map<Long, Map<Long, Hash>> finalBlocks;
+
+    IncrementalHasher(
+            final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+            final LongFunction<VirtualInternalRecord> internalReader,
+            final LongSupplier firstLeafPath,
+            final LongSupplier lastLeafPath,
+            final Duration quietPeriod,
+            final Executor executor) {
+        this.leafReader = Objects.requireNonNull(leafReader);
+        this.internalReader = Objects.requireNonNull(internalReader);
+        this.firstLeafPath = Objects.requireNonNull(firstLeafPath);
+        this.lastLeafPath = Objects.requireNonNull(lastLeafPath);
+        this.quietPeriodNanos = quietPeriod.toNanos();
+        this.executor = Objects.requireNonNull(executor);
+        final long last = lastLeafPath.getAsLong();
+        this.blockRank = last < 1 ? 0 : getRank(last) - BLOCK_HEIGHT;
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        final ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(
+                        1,
+                        new ThreadConfiguration(getStaticThreadManager())
+                                .setComponent("virtual-map")
+                                .setThreadName("incremental-hasher")
+                                .setExceptionHandler(
+                                        (t, ex) ->
+                                                logger.error(
+                                                        EXCEPTION.getMarker(),
+                                                        "Uncaught exception ",
+                                                        ex))
+                                .buildFactory());
+        // Hashers of copies that were hashed are dropped right away, not when their next check is
+        // due
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Start checking for quiet blocks, once per quiet period. Does nothing if the tree is too small
+     * to have blocks.
+     */
+    public synchronized void start() {
+        if (blockRank < 1 || stopped || checkFuture != null) {
+            return;
+        }
+        checkFuture =
+                SCHEDULER.scheduleWithFixedDelay(
+                        this::hashQuietBlocks,
+                        quietPeriodNanos,
+                        quietPeriodNanos,
+                        TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record that the leaf at the given path, or whatever is at the path now, was changed. Must be
+     * called for every path whose leaf is added, changed, moved or removed, after the change.
+     *
+     * @param path the changed path
+     */
+    public void touch(final long path) {
+        if (blockRank < 1 || stopped || path < 0 || getRank(path) < blockRank) {
+            return;
+        }
+        blocks.computeIfAbsent(getBlockPath(path), p -> new Block()).touch(path, false);
+    }
+
+    /**
+     * Record that the value of the leaf at the given path was handed out for modification. The
+     * value may be changed at any time until the copy is hashed, so the block of the path is never
+     * hashed in the background from now on.
+     *
+     * @param path the path of the leaf whose value may change
+     */
+    public void touchForModify(final long path) {
+        if (blockRank < 1 || stopped || path < 0 || getRank(path) < blockRank) {
+            return;
+        }
+        blocks.computeIfAbsent(getBlockPath(path), p -> new Block()).touch(path, true);
+    }
+
+    /**
+     * Record that a leaf was moved to a new path. Must be called after the move. If the leaf came
+     * from a block with values handed out for modification, its value may still change, and the
+     * block it is moved to is never hashed in the background either.
+     *
+     * @param from the old path of the leaf
+     * @param to the new path of the leaf
+     */
+    public void move(final long from, final long to) {
+        if (isModifiable(from)) {
+            touchForModify(to);
+        } else {
+            touch(to);
+        }
+    }
+
+    private boolean isModifiable(final long path) {
+        if (blockRank < 1 || path < 0 || getRank(path) < blockRank) {
+            return false;
+        }
+        final Block block = blocks.get(getBlockPath(path));
+        return block != null && block.isModifiable();
+    }
+
+    /**
+     * Stop hashing in the background and wait for running block hashes to complete. After this
+     * call, {@link #getHash(long)} returns the hashes of blocks that were not touched since they
+     * were hashed.
+     */
+    public void stop() {
+        stopped = true;
+        synchronized (this) {
+            if (checkFuture != null) {
+                checkFuture.cancel(false);
+            }
+        }
+        synchronized (hashingLock) {
+            if (finalBlocks != null) {
+                return;
+            }
+            final Map<Long, Map<Long, Hash>> hashes = new HashMap<>();
+            blocks.forEach(
+                    (blockPath, block) -> {
+                        final Map<Long, Hash> blockHashes = block.getFinalHashes();
+                        if (blockHashes != null) {
+                            hashes.put(blockPath, blockHashes);
+                        }
+                    });
+            blocks.clear();
+            finalBlocks = hashes;
+        }
+    }
+
+    /**
+     * Get the hash of a dirty node that was hashed in the background, and not changed since.
+     * Returns null before {@link #stop()} is called.
+     *
+     * @param path the path of the node
+     * @return the hash of the node, or null if it must be computed
+     */
+    public Hash getHash(final long path) {
+        final Map<Long, Map<Long, Hash>> hashes = finalBlocks;
+        if (hashes == null || blockRank < 1 || path < 0 || getRank(path) < blockRank) {
+            return null;
+        }
+        final Map<Long, Hash> blockHashes = hashes.get(getBlockPath(path));
+        return blockHashes == null ? null : blockHashes.get(path);
+    }
+
+    /**
+     * Get the number of blocks whose hashes are reused. Zero before {@link #stop()} is called.
+     *
+     * @return the number of final blocks
+     */
+    public int getFinalBlockCount() {
+        final Map<Long, Map<Long, Hash>> hashes = finalBlocks;
+        return hashes == null ? 0 : hashes.size();
+    }
+
+    private long getBlockPath(final long path) {
+        // Paths are zero based indexes of a binary heap, so a parent is (path + 1) / 2 - 1
+        return ((path + 1) >> (getRank(path) - blockRank)) - 1;
+    }
+
+    /** Hash all blocks that are quiet and not already hashed. Runs on the scheduler thread */
+    private void hashQuietBlocks() {
+        synchronized (hashingLock) {
+            final long first = firstLeafPath.getAsLong();
+            final long last = lastLeafPath.getAsLong();
+            if (stopped || first < 1 || last < 1) {
+                return;
+            }
+
+            final long now = System.nanoTime();
+            final List<Runnable> tasks = new ArrayList<>();
+            blocks.forEach(
+                    (blockPath, block) -> {
+                        final long[] paths;
+                        final long version;
+                        synchronized (block) {
+                            if (block.modifiable
+                                    || block.hashedVersion == block.version
+                                    || now - block.lastTouchNanos < quietPeriodNanos) {
+                                return;
+                            }
+                            version = block.version;
+                            paths = block.paths.stream().mapToLong(Long::longValue).toArray();
+                        }
+                        tasks.add(() -> hashBlock(blockPath, block, version, paths, first, last));
+                    });
+            if (tasks.isEmpty()) {
+                return;
+            }
+
+            final CountDownLatch latch = new CountDownLatch(tasks.size());
+            for (final Runnable task : tasks) {
+                executor.execute(
+                        () -> {
+                            try {
+                                task.run();
+                            } finally {
+                                latch.countDown();
+                            }
+                        });
+            }
+            try {
+                latch.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void hashBlock(
+            final long blockPath,
+            final Block block,
+            final long version,
+            final long[] paths,
+            final long first,
+            final long last) {
+        if (stopped) {
+            return;
+        }
+
+        // Every touched path and all its ancestors up to the block root are dirty
+        final Set<Long> dirty = new HashSet<>();
+        for (final long path : paths) {
+            long p = path;
+            while (dirty.add(p) && p != blockPath) {
+                p = getParentPath(p);
+            }
+        }
+
+        final Map<Long, Hash> hashes = new HashMap<>();
+        try {
+            hashNode(blockPath, dirty, first, last, hashes, HASH_BUILDER_THREAD_LOCAL.get());
+        } catch (final RuntimeException e) {
+            // If the block was touched while it was hashed, the failure is expected, and the block
+            // will be hashed again
+            if (block.isAtVersion(version)) {
+                logger.error(
+                        EXCEPTION.getMarker(),
+                        "Failed to hash block {} in the background",
+                        blockPath,
+                        e);
+            }
+            return;
+        }
+        block.setHashes(version, hashes);
+    }
+
+    /**
+     * Get the hash of a node of a block. Dirty nodes are hashed and added to {@code hashes}, the
+     * hashes of clean nodes are read.
+     */
+    private Hash hashNode(
+            final long path,
+            final Set<Long> dirty,
+            final long first,
+            final long last,
+            final Map<Long, Hash> hashes,
+            final HashBuilder builder) {
+        if (path > last) {
+            return null;
+        }
+
+        final Hash hash;
+        if (path >= first) {
+            final VirtualLeafRecord<K, V> leaf = leafReader.apply(path);
+            if (leaf == null) {
+                throw new IllegalStateException("Failed to find leaf for " + path);
+            }
+            hash = dirty.contains(path) ? HashJob.hashLeaf(leaf) : leaf.getHash();
+        } else if (dirty.contains(path)) {
+            final Hash left = hashNode(getLeftChildPath(path), dirty, first, last, hashes, builder);
+            final Hash right =
+                    hashNode(getRightChildPath(path), dirty, first, last, hashes, builder);
+            hash = HashJob.hashInternal(builder, path, left, right);
+        } else {
+            final VirtualInternalRecord internal = internalReader.apply(path);
+            if (internal == null) {
+                throw new IllegalStateException("Failed to find internal for " + path);
+            }
+            hash = internal.getHash();
+        }
+
+        if (hash == null) {
+            throw new IllegalStateException("Failed to find hash for " + path);
+        }
+        if (dirty.contains(path)) {
+            hashes.put(path, hash);
+        }
+        return hash;
+    }
+
+    /** Touched paths of a block, and the hashes computed for them */
+    private static final class Block {
+        /** Touched paths. Guarded by this */
+        private final Set<Long> paths = new HashSet<>();
+
+        /** Incremented on every touch. Guarded by this */
+        private long version;
+
+        /** The version {@link #hashes} were computed at. Guarded by this */
+        private long hashedVersion = -1;
+
+        /** Guarded by this */
+        private long lastTouchNanos;
+
+        /** Guarded by this */
+        private Map<Long, Hash> hashes;
+
+        /**
+         * Whether a value in this block was handed out for modification. Such a block is never
+         * hashed, and never becomes unmodifiable again. Guarded by this
+         */
+        private boolean modifiable;
+
+        synchronized void touch(final long path, final boolean forModify) {
+            paths.add(path);
+            version++;
+            lastTouchNanos = System.nanoTime();
+            modifiable |= forModify;
+        }
+
+        synchronized boolean isModifiable() {
+            return modifiable;
+        }
+
+        synchronized boolean isAtVersion(final long version) {
+            return this.version == version;
+        }
+
+        synchronized void setHashes(final long version, final Map<Long, Hash> hashes) {
+            if (this.version == version) {
+                this.hashes = hashes;
+                this.hashedVersion = version;
+            }
+        }
+
+        synchronized Map<Long, Hash> getFinalHashes() {
+            return (!modifiable && hashedVersion == version) ? hashes : null;
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package com.swirlds.virtualmap.internal.hash;
 
-import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
 import static com.swirlds.logging.LogMarker.EXCEPTION;
 import static com.swirlds.virtualmap.internal.Path.INVALID_PATH;
 import static com.swirlds.virtualmap.internal.Path.ROOT_PATH;
@@ -27,7 +26,6 @@ import static com.swirlds.virtualmap.internal.Path.getSiblingPath;
 import com.swirlds.common.crypto.Cryptography;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.crypto.HashBuilder;
-import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualMap;
 import com.swirlds.virtualmap.VirtualMapSettingsFactory;
@@ -35,15 +33,15 @@ import com.swirlds.virtualmap.VirtualValue;
 import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.Path;
+import java.time.Duration;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -66,26 +64,12 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
             VirtualMapSettingsFactory.get().getNumHashThreads();
 
     /**
-     * A thread pool for processing hashing work. A single executor service is shared across all
-     * {@link VirtualMap} instances. This is an unbounded cached thread pool. If more than one
-     * virtual merkle tree is being hashed concurrently, they will spawn threads as needed. A thread
-     * that is unused will eventually be purged from the pool. This approach was used to avoid more
-     * complicated thread pool semantics, however, it is anticipated that in the future we will want
-     * to have a fixed thread pool to better manage compute resources.
+     * A pool of {@link #HASHING_THREAD_COUNT} threads for processing hashing work, shared across
+     * all {@link VirtualMap} instances. If more than one virtual merkle tree is being hashed
+     * concurrently, they queue for the same threads and take turns, see {@link HashingEngine}.
      */
-    private static final ExecutorService HASHING_POOL =
-            Executors.newCachedThreadPool(
-                    new ThreadConfiguration(getStaticThreadManager())
-                            .setThreadGroup(new ThreadGroup("virtual-map-hashers"))
-                            .setComponent("virtual-map")
-                            .setThreadName("hasher")
-                            .setExceptionHandler(
-                                    (t, ex) ->
-                                            logger.error(
-                                                    EXCEPTION.getMarker(),
-                                                    "Uncaught exception during hashing",
-                                                    ex))
-                            .buildFactory());
+    private static final HashingEngine HASHING_ENGINE =
+            new HashingEngine(HASHING_THREAD_COUNT, "virtual-map-hasher");
 
     /** This thread-local gets a HashBuilder that can be used for hashing on a per-thread basis. */
     private static final ThreadLocal<HashBuilder> HASH_BUILDER_THREAD_LOCAL =
@@ -148,6 +132,12 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
      */
     private AtomicBoolean shutdown = new AtomicBoolean(false);
 
+    /**
+     * This map family's share of the {@link #HASHING_ENGINE}. All hashing work of the family is
+     * submitted through it.
+     */
+    private final HashingEngine.Lane hashingLane = HASHING_ENGINE.newLane();
+
     /**
      * Create a new {@link VirtualHasher}. There should be one {@link VirtualHasher} shared across
      * all copies of a {@link VirtualMap} "family".
@@ -171,6 +161,45 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
         shutdown.set(true);
     }
 
+    /**
+     * Get the number of hashing tasks of this map family that are waiting for a hashing thread.
+     *
+     * @return the number of queued hashing tasks of this map family
+     */
+    public int getHashingQueueDepth() {
+        return hashingLane.getQueueDepth();
+    }
+
+    /**
+     * Get the number of hashing tasks of all virtual maps that are waiting for a hashing thread.
+     *
+     * @return the number of queued hashing tasks
+     */
+    public static int getTotalHashingQueueDepth() {
+        return HASHING_ENGINE.getQueueDepth();
+    }
+
+    /**
+     * Create an {@link IncrementalHasher} for a mutable copy of this map family. Its background
+     * hashing work is submitted through this family's share of the hashing threads.
+     *
+     * @param leafReader Return a {@link VirtualLeafRecord} of the copy by path.
+     * @param internalReader Return a {@link VirtualInternalRecord} of the copy by path.
+     * @param firstLeafPath Return the current firstLeafPath of the copy.
+     * @param lastLeafPath Return the current lastLeafPath of the copy.
+     * @param quietPeriod The time no leaf in a block must be changed before the block is hashed.
+     * @return a new, not yet started incremental hasher
+     */
+    public IncrementalHasher<K, V> newIncrementalHasher(
+            final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+            final LongFunction<VirtualInternalRecord> internalReader,
+            final LongSupplier firstLeafPath,
+            final LongSupplier lastLeafPath,
+            final Duration quietPeriod) {
+        return new IncrementalHasher<>(
+                leafReader, internalReader, firstLeafPath, lastLeafPath, quietPeriod, hashingLane);
+    }
+
     /**
      * Hash the given dirty leaves and the minimal subset of the tree necessary to produce a single
      * root hash. The root hash is returned.
@@ -227,7 +256,50 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
             final Iterator<VirtualLeafRecord<K, V>> sortedDirtyLeaves,
             final long firstLeafPath,
             final long lastLeafPath,
-            VirtualHashListener<K, V> listener) {
+            final VirtualHashListener<K, V> listener) {
+        return hash(
+                leafReader,
+                internalReader,
+                sortedDirtyLeaves,
+                firstLeafPath,
+                lastLeafPath,
+                listener,
+                null);
+    }
+
+    /**
+     * Hash the given dirty leaves and the minimal subset of the tree necessary to produce a single
+     * root hash. The root hash is returned. Hashes of nodes that are already known, for example
+     * from an {@link IncrementalHasher}, are taken from {@code precomputedHashes} instead of being
+     * computed again.
+     *
+     * @param leafReader Return a {@link VirtualLeafRecord} by path. Used when this method needs to
+     *     look up clean leaves.
+     * @param internalReader Return a {@link VirtualInternalRecord} by path. Used when this method
+     *     needs to look up clean internals.
+     * @param sortedDirtyLeaves A stream of dirty leaves sorted in <strong>ASCENDING PATH
+     *     ORDER</strong>, such that path 1234 comes before 1235. If null or empty, a null hash
+     *     result is returned.
+     * @param firstLeafPath The firstLeafPath of the tree that is being hashed. If &lt; 1, then a
+     *     null hash result is returned. No leaf in {@code sortedDirtyLeaves} may have a path less
+     *     than {@code firstLeafPath}.
+     * @param lastLeafPath The lastLeafPath of the tree that is being hashed. If &lt; 1, then a null
+     *     hash result is returned. No leaf in {@code sortedDirtyLeaves} may have a path greater
+     *     than {@code lastLeafPath}.
+     * @param listener A {@link VirtualHashListener} that will receive notification of all hashing
+     *     events. Can be null.
+     * @param precomputedHashes Return the already known hash of a dirty node by path, or null if
+     *     the hash must be computed. Never asked for the root hash. Can be null.
+     * @return The hash of the root of the tree
+     */
+    public Hash hash(
+            final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+            final LongFunction<VirtualInternalRecord> internalReader,
+            final Iterator<VirtualLeafRecord<K, V>> sortedDirtyLeaves,
+            final long firstLeafPath,
+            final long lastLeafPath,
+            VirtualHashListener<K, V> listener,
+            final LongFunction<Hash> precomputedHashes) {
 
         // Hashing algo v5. This version of the hashing algorithm is designed to optimally process
         // a stream of dirty leaves sorted in **ASCENDING PATH ORDER**. During "reconnect", dirty
@@ -514,6 +586,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
                     leafReader,
                     internalReader,
                     listener,
+                    precomputedHashes,
                     wq,
                     pq,
                     null,
@@ -536,6 +609,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
                     leafReader,
                     internalReader,
                     listener,
+                    precomputedHashes,
                     wq,
                     pq,
                     lastQueue,
@@ -557,6 +631,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
                 leafReader,
                 internalReader,
                 listener,
+                precomputedHashes,
                 new CompoundHashingQueue<>(maxRankStopQueue, minRankStopQueue),
                 queue1.reset(),
                 null,
@@ -592,6 +667,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
      *     needs to look up clean internals.
      * @param listener A {@link VirtualHashListener} that will receive notification of all hashing
      *     events. Cannot be null.
+     * @param precomputedHashes Return the already known hash of a dirty node by path. Can be null.
      * @param wq The working queue. Cannot be null.
      * @param pq The pending queue. Cannot be null.
      * @param lq The last queue. Can be null.
@@ -607,6 +683,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
             final LongFunction<VirtualLeafRecord<K, V>> leafReader,
             final LongFunction<VirtualInternalRecord> internalReader,
             final VirtualHashListener<K, V> listener,
+            final LongFunction<Hash> precomputedHashes,
             HashingQueue<K, V> wq,
             HashingQueue<K, V> pq,
             HashingQueue<K, V> lq,
@@ -725,7 +802,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
             // Spawn each hashing thread
             for (int i = 0; i < threadCount; i++) {
                 final int threadNum = i;
-                HASHING_POOL.execute(
+                hashingLane.execute(
                         () -> {
                             final HashBuilder hashBuilder = HASH_BUILDER_THREAD_LOCAL.get();
                             try {
@@ -771,7 +848,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
                                     // fall out of this if statement and check the next unit.
                                     if (unitIndex % threadCount == threadNum) {
                                         // Hash the first node
-                                        hashJob.hash(hashBuilder);
+                                        hashJob.hash(hashBuilder, precomputedHashes);
 
                                         // We now need to figure out who the parent is. If the
                                         // parent is not
@@ -805,7 +882,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
                                             // hashes for both siblings into the HashJob for the
                                             // internal node and
                                             // add it to the pendingQueue.
-                                            nextJob.hash(hashBuilder);
+                                            nextJob.hash(hashBuilder, precomputedHashes);
                                             pendingQueue
                                                     .addHashJob(pendingQueueIndex)
                                                     .dirtyInternal(
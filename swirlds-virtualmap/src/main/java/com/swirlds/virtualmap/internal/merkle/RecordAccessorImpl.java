@@ -29,6 +29,12 @@ import com.swirlds.virtualmap.internal.VirtualStateAccessor;
 import com.swirlds.virtualmap.internal.cache.VirtualNodeCache;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -150,6 +156,48 @@ public class RecordAccessorImpl<K extends VirtualKey<? super K>, V extends Virtu
         return rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public List<VirtualLeafRecord<K, V>> findLeafRecords(
+            final Collection<K> keys, final boolean copy) {
+        final List<VirtualLeafRecord<K, V>> recs = new ArrayList<>(keys.size());
+        // keys not found in the cache, each loaded once even if requested more than once, and
+        // their positions in the result list
+        final Map<K, List<Integer>> positionsToLoad = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final VirtualLeafRecord<K, V> rec = cache.lookupLeafByKey(key, copy);
+            if (rec == null) {
+                positionsToLoad.computeIfAbsent(key, k -> new ArrayList<>()).add(recs.size());
+            }
+            recs.add(rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec);
+        }
+        if (positionsToLoad.isEmpty()) {
+            return recs;
+        }
+        try {
+            final List<K> keysToLoad = new ArrayList<>(positionsToLoad.keySet());
+            final List<VirtualLeafRecord<K, V>> loaded = dataSource.loadLeafRecords(keysToLoad);
+            for (int i = 0; i < keysToLoad.size(); i++) {
+                final K key = keysToLoad.get(i);
+                final VirtualLeafRecord<K, V> rec = loaded.get(i);
+                if (rec != null && copy) {
+                    assert rec.getKey().equals(key)
+                            : "The key we found from the DB does not match the one we were looking"
+                                    + " for! key="
+                                    + key;
+                    cache.putLeaf(rec);
+                }
+                for (final int position : positionsToLoad.get(key)) {
+                    recs.set(position, rec);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Failed to read leaf records from the data source by keys", ex);
+        }
+        return recs;
+    }
+
     /** {@inheritDoc} */
     @Override
     public VirtualLeafRecord<K, V> findLeafRecord(final long path, final boolean copy) {
@@ -176,6 +224,49 @@ public class RecordAccessorImpl<K extends VirtualKey<? super K>, V extends Virtu
         return rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public List<VirtualLeafRecord<K, V>> findLeafRecordsByPath(
+            final long[] paths, final boolean copy) {
+        final List<VirtualLeafRecord<K, V>> recs = new ArrayList<>(paths.length);
+        // paths not found in the cache, and their positions in the result list
+        final long[] pathsToLoad = new long[paths.length];
+        final int[] positionsToLoad = new int[paths.length];
+        int numToLoad = 0;
+        for (final long path : paths) {
+            assert path != INVALID_PATH;
+            assert path != ROOT_PATH;
+            VirtualLeafRecord<K, V> rec = null;
+            if (path >= state.getFirstLeafPath() && path <= state.getLastLeafPath()) {
+                rec = cache.lookupLeafByPath(path, copy);
+                if (rec == null) {
+                    pathsToLoad[numToLoad] = path;
+                    positionsToLoad[numToLoad] = recs.size();
+                    numToLoad++;
+                }
+            }
+            recs.add(rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec);
+        }
+        if (numToLoad == 0) {
+            return recs;
+        }
+        try {
+            final List<VirtualLeafRecord<K, V>> loaded =
+                    dataSource.loadLeafRecordsByPath(Arrays.copyOf(pathsToLoad, numToLoad));
+            for (int i = 0; i < numToLoad; i++) {
+                final VirtualLeafRecord<K, V> rec = loaded.get(i);
+                if (rec != null && copy) {
+                    cache.putLeaf(rec);
+                }
+                recs.set(positionsToLoad[i], rec);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Failed to read leaf records from the data source by paths", ex);
+        }
+        return recs;
+    }
+
     /** {@inheritDoc} */
     @Override
     public long findKey(final K key) {
@@ -18,11 +18,14 @@ package com.swirlds.virtualmap.internal.merkle;
 import static com.swirlds.common.metrics.FloatFormats.FORMAT_10_2;
 
 import com.swirlds.common.metrics.Counter;
+import com.swirlds.common.metrics.DoubleGauge;
+import com.swirlds.common.metrics.FunctionGauge;
 import com.swirlds.common.metrics.IntegerGauge;
 import com.swirlds.common.metrics.LongGauge;
 import com.swirlds.common.metrics.Metrics;
 import com.swirlds.common.metrics.RunningAverageMetric;
 import com.swirlds.common.utility.CommonUtils;
+import java.util.function.Supplier;
 
 /** Encapsulates statistics for a virtual map. */
 public class VirtualMapStatistics {
@@ -53,6 +56,24 @@ public class VirtualMapStatistics {
 
     private Counter flushCounter;
 
+    /** The average time fast copies are delayed because too many copies await flushing. */
+    private final RunningAverageMetric.Config flushBackpressureConfig;
+
+    private RunningAverageMetric flushBackpressure;
+
+    /** The estimated number of fast copies per second that flushes can keep up with. */
+    private final DoubleGauge.Config sustainableCopyRateConfig;
+
+    private DoubleGauge sustainableCopyRate;
+
+    /** The average time to hash a copy of the virtual map. */
+    private final RunningAverageMetric.Config hashLatencyConfig;
+
+    private RunningAverageMetric hashLatency;
+
+    /** The label of the virtual map, used to name metrics that are registered later. */
+    private final String label;
+
     /**
      * Create a new statistics instance for a virtual map family.
      *
@@ -61,6 +82,7 @@ public class VirtualMapStatistics {
      */
     public VirtualMapStatistics(final String label) {
         CommonUtils.throwArgNull(label, "label");
+        this.label = label;
 
         sizeConfig =
                 new LongGauge.Config(STAT_CATEGORY, "vMapSize_" + label)
@@ -86,6 +108,29 @@ public class VirtualMapStatistics {
         flushCounterConfig =
                 new Counter.Config(STAT_CATEGORY, "vMapFlushes_" + label)
                         .withDescription("the count of '" + label + "' flushes");
+
+        flushBackpressureConfig =
+                new RunningAverageMetric.Config(STAT_CATEGORY, "vMapFlushBackpressureMs_" + label)
+                        .withDescription(
+                                "the time '"
+                                        + label
+                                        + "' copies are delayed to let flushes catch up, in ms")
+                        .withFormat(FORMAT_10_2)
+                        .withHalfLife(DEFAULT_HALF_LIFE);
+
+        sustainableCopyRateConfig =
+                new DoubleGauge.Config(STAT_CATEGORY, "vMapSustainableCopyRate_" + label)
+                        .withDescription(
+                                "the estimated number of '"
+                                        + label
+                                        + "' copies per second flushes can keep up with")
+                        .withFormat(FORMAT_10_2);
+
+        hashLatencyConfig =
+                new RunningAverageMetric.Config(STAT_CATEGORY, "vMapHashLatency_" + label)
+                        .withDescription("The hash latency of VirtualMap '" + label + "'")
+                        .withFormat(FORMAT_10_2)
+                        .withHalfLife(DEFAULT_HALF_LIFE);
     }
 
     /**
@@ -101,6 +146,61 @@ public class VirtualMapStatistics {
         mergeLatency = metrics.getOrCreate(mergeLatencyConfig);
         flushBacklogSize = metrics.getOrCreate(flushBacklogSizeConfig);
         flushCounter = metrics.getOrCreate(flushCounterConfig);
+        flushBackpressure = metrics.getOrCreate(flushBackpressureConfig);
+        sustainableCopyRate = metrics.getOrCreate(sustainableCopyRateConfig);
+        hashLatency = metrics.getOrCreate(hashLatencyConfig);
+    }
+
+    /**
+     * Register gauges of hashing tasks waiting for a hashing thread. Hashing threads are shared by
+     * all virtual maps, so the total gauge is the same for all of them.
+     *
+     * @param metrics reference to the metrics system
+     * @param mapQueueDepth supplies the number of queued hashing tasks of this virtual map
+     * @param totalQueueDepth supplies the number of queued hashing tasks of all virtual maps
+     * @throws IllegalArgumentException if {@code metrics} is {@code null}
+     */
+    public void registerHashingQueueMetrics(
+            final Metrics metrics,
+            final Supplier<Integer> mapQueueDepth,
+            final Supplier<Integer> totalQueueDepth) {
+        CommonUtils.throwArgNull(metrics, "metrics");
+        metrics.getOrCreate(
+                new FunctionGauge.Config<>(
+                                STAT_CATEGORY,
+                                "vMapHashQueueDepth_" + label,
+                                Integer.class,
+                                mapQueueDepth)
+                        .withDescription(
+                                "the number of '"
+                                        + label
+                                        + "' hashing tasks waiting for a hashing thread"));
+        metrics.getOrCreate(
+                new FunctionGauge.Config<>(
+                                STAT_CATEGORY, "vMapHashQueueDepth", Integer.class, totalQueueDepth)
+                        .withDescription(
+                                "the number of hashing tasks of all virtual maps waiting for a"
+                                        + " hashing thread"));
+    }
+
+    /**
+     * Register a gauge of the off-heap memory held by the queues that track nodes during a
+     * reconnect. The queues of all virtual maps share the memory accounting, so the gauge is the
+     * same for all of them.
+     *
+     * @param metrics reference to the metrics system
+     * @param queueBytes supplies the number of bytes held by reconnect queues of all virtual maps
+     * @throws IllegalArgumentException if {@code metrics} is {@code null}
+     */
+    public void registerReconnectQueueMetrics(
+            final Metrics metrics, final Supplier<Long> queueBytes) {
+        CommonUtils.throwArgNull(metrics, "metrics");
+        metrics.getOrCreate(
+                new FunctionGauge.Config<>(
+                                STAT_CATEGORY, "vMapReconnectQueueBytes", Long.class, queueBytes)
+                        .withDescription(
+                                "the bytes of off-heap memory held by the queues that track nodes"
+                                        + " during reconnects of all virtual maps"));
     }
 
     /**
@@ -150,4 +250,32 @@ public class VirtualMapStatistics {
             this.flushBacklogSize.set(flushBacklogSize);
         }
     }
+
+    /**
+     * Record flush backpressure decisions made for the most recent copy of the virtual map.
+     *
+     * @param flushBackpressureMs how long the copy was delayed, in milliseconds
+     * @param sustainableCopyRate the estimated number of copies per second flushes can keep up
+     *     with, or zero if not estimated
+     */
+    public void recordFlushBackpressure(
+            final double flushBackpressureMs, final double sustainableCopyRate) {
+        if (this.flushBackpressure != null) {
+            this.flushBackpressure.update(flushBackpressureMs);
+        }
+        if (this.sustainableCopyRate != null) {
+            this.sustainableCopyRate.set(sustainableCopyRate);
+        }
+    }
+
+    /**
+     * Record the current hash latency for the virtual map.
+     *
+     * @param hashLatency the current hash latency
+     */
+    public void recordHashLatency(final double hashLatency) {
+        if (this.hashLatency != null) {
+            this.hashLatency.update(hashLatency);
+        }
+    }
 }
@@ -67,11 +67,13 @@ import com.swirlds.virtualmap.datasource.VirtualRecord;
 import com.swirlds.virtualmap.internal.RecordAccessor;
 import com.swirlds.virtualmap.internal.VirtualStateAccessor;
 import com.swirlds.virtualmap.internal.cache.VirtualNodeCache;
+import com.swirlds.virtualmap.internal.hash.IncrementalHasher;
 import com.swirlds.virtualmap.internal.hash.VirtualHashListener;
 import com.swirlds.virtualmap.internal.hash.VirtualHasher;
 import com.swirlds.virtualmap.internal.pipeline.VirtualPipeline;
 import com.swirlds.virtualmap.internal.pipeline.VirtualRoot;
 import com.swirlds.virtualmap.internal.reconnect.ConcurrentBlockingIterator;
+import com.swirlds.virtualmap.internal.reconnect.OffHeapBitSet;
 import com.swirlds.virtualmap.internal.reconnect.ReconnectHashListener;
 import com.swirlds.virtualmap.internal.reconnect.ReconnectState;
 import com.swirlds.virtualmap.internal.reconnect.VirtualLearnerTreeView;
@@ -80,11 +82,16 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -226,6 +233,13 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
     /** The hasher is responsible for hashing data in a virtual merkle tree. */
     private final VirtualHasher<K, V> hasher;
 
+    /**
+     * Hashes dirty leaves of this copy in the background while it is mutable. Null unless {@link
+     * VirtualMapSettings#isIncrementalHashingEnabled()}, and reset to null once this copy is
+     * hashed.
+     */
+    private IncrementalHasher<K, V> incrementalHasher;
+
     /**
      * The {@link VirtualPipeline}, shared across all copies of a given {@link VirtualRootNode},
      * maintains the lifecycle of the nodes, making sure they are merged or flushed or hashed in
@@ -238,7 +252,14 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
      * If true, then this copy of {@link VirtualRootNode} should eventually be flushed to disk. A
      * heuristic is used to determine which copy is flushed.
      */
-    private boolean shouldBeFlushed;
+    private volatile boolean shouldBeFlushed;
+
+    /**
+     * The number of dirty leaves in older copies since the last copy to be flushed, not including
+     * this copy. Only used when copies are flushed based on their size, see {@link
+     * VirtualMapSettings#getFlushThresholdDirtyLeaves()}.
+     */
+    private final long dirtyLeavesInUnflushedCopies;
 
     /** This latch is used to implement {@link #waitUntilFlushed()}. */
     private final CountDownLatch flushLatch = new CountDownLatch(1);
@@ -315,6 +336,7 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         this.cache = new VirtualNodeCache<>();
         this.hasher = new VirtualHasher<>();
         this.shouldBeFlushed = false;
+        this.dirtyLeavesInUnflushedCopies = 0;
         this.dataSourceBuilder =
                 enforce ? Objects.requireNonNull(dataSourceBuilder) : dataSourceBuilder;
     }
@@ -327,6 +349,10 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
     private VirtualRootNode(VirtualRootNode<K, V> source) {
         super(source);
         this.fastCopyVersion = source.fastCopyVersion + 1;
+        this.dirtyLeavesInUnflushedCopies =
+                source.shouldBeFlushed
+                        ? 0
+                        : source.dirtyLeavesInUnflushedCopies + source.cache.getDirtyLeafCount();
         this.dataSourceBuilder = source.dataSourceBuilder;
         this.dataSource = source.dataSource;
         this.cache = source.cache.copy();
@@ -368,14 +394,39 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
             return;
         }
 
+        // A root that is already initialized is attached to another VirtualMap when a subtree
+        // received by a failed reconnect is reused by the next attempt. It is already registered
+        // with its pipeline, so only the state accessor is replaced.
+        if (records != null) {
+            this.state = Objects.requireNonNull(state);
+            this.records = new RecordAccessorImpl<>(this.state, this.cache, this.dataSource);
+            return;
+        }
+
         this.state = Objects.requireNonNull(state);
+        // With size based flushes, it's only known if a copy should be flushed when the copy is
+        // made immutable, see copy()
         this.shouldBeFlushed =
-                fastCopyVersion != 0 && fastCopyVersion % settings.getFlushInterval() == 0;
+                settings.getFlushThresholdDirtyLeaves() == 0
+                        && fastCopyVersion != 0
+                        && fastCopyVersion % settings.getFlushInterval() == 0;
         if (this.dataSourceBuilder != null && this.dataSource == null) {
             this.dataSource = this.dataSourceBuilder.build(state.getLabel(), true);
         }
         this.records = new RecordAccessorImpl<>(this.state, this.cache, this.dataSource);
 
+        if (settings.isIncrementalHashingEnabled() && incrementalHasher == null && !isHashed()) {
+            final RecordAccessor<K, V> accessor = this.records;
+            incrementalHasher =
+                    hasher.newIncrementalHasher(
+                            path -> accessor.findLeafRecord(path, false),
+                            accessor::findInternalRecord,
+                            this.state::getFirstLeafPath,
+                            this.state::getLastLeafPath,
+                            settings.getIncrementalHashingQuietPeriod());
+            incrementalHasher.start();
+        }
+
         if (statistics == null) {
             // Only create statistics instance if we don't yet have statistics. During a reconnect
             // operation.
@@ -412,6 +463,15 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         return dataSource;
     }
 
+    /**
+     * Gets the {@link VirtualDataSourceBuilder} used to build this map's data sources.
+     *
+     * @return The data source builder. May be null during reconnect or deserialization.
+     */
+    public VirtualDataSourceBuilder<K, V> getDataSourceBuilder() {
+        return dataSourceBuilder;
+    }
+
     @SuppressWarnings("ClassEscapesDefinedScope")
     public VirtualNodeCache<K, V> getCache() {
         return cache;
@@ -503,6 +563,16 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         throwIfImmutable();
         throwIfDestroyed();
 
+        // With size based flushes, decide if this copy should be flushed before the new copy is
+        // created, as the new copy counts dirty leaves since the last copy to be flushed
+        final long flushThreshold = settings.getFlushThresholdDirtyLeaves();
+        if ((flushThreshold > 0)
+                && !shouldBeFlushed
+                && (dirtyLeavesInUnflushedCopies + cache.getDirtyLeafCount() >= flushThreshold)) {
+            shouldBeFlushed = true;
+            pipeline.registerFlush(this);
+        }
+
         // After creating the copy, mark it as immutable and then register it with the pipeline.
         // We're careful about this ordering because the pipeline runs background threads, and
         // it is crucial that the copy is made and this instance is marked immutable *before*
@@ -518,12 +588,18 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         }
 
         statistics.recordFlushBacklogSize(pipeline.getFlushBacklogSize());
+        statistics.recordFlushBackpressure(
+                pipeline.getLastFlushBackpressure().toNanos() / 1_000_000.0,
+                pipeline.getSustainableCopyRate());
         return copy;
     }
 
     /** {@inheritDoc} */
     @Override
     protected void destroyNode() {
+        if (incrementalHasher != null) {
+            incrementalHasher.stop();
+        }
         if (pipeline != null) {
             pipeline.destroyCopy();
         }
@@ -611,7 +687,11 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         throwIfImmutable();
         Objects.requireNonNull(key, NO_NULL_KEYS_ALLOWED_MESSAGE);
         final VirtualLeafRecord<K, V> rec = records.findLeafRecord(key, true);
-        return rec == null ? null : rec.getValue();
+        if (rec == null) {
+            return null;
+        }
+        touchForModify(rec.getPath());
+        return rec.getValue();
     }
 
     /**
@@ -629,6 +709,27 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         return value == null ? null : (V) value.asReadOnly();
     }
 
+    /**
+     * Gets the values associated with the given keys, like {@link #get(VirtualKey)} does for a
+     * single key. Values that are not in memory are read from the data source in a single batch.
+     *
+     * @param keys The keys. These must not be null.
+     * @return The values, in the same order as the keys. Values may be null, or will be read only.
+     */
+    public List<V> getAll(final Collection<K> keys) {
+        for (final K key : keys) {
+            Objects.requireNonNull(key, NO_NULL_KEYS_ALLOWED_MESSAGE);
+        }
+        final List<VirtualLeafRecord<K, V>> recs = records.findLeafRecords(keys, false);
+        final List<V> values = new ArrayList<>(recs.size());
+        for (final VirtualLeafRecord<K, V> rec : recs) {
+            final V value = rec == null ? null : rec.getValue();
+            //noinspection unchecked
+            values.add(value == null ? null : (V) value.asReadOnly());
+        }
+        return values;
+    }
+
     /**
      * Puts the key/value pair into the map. The key must not be null, but the value may be null.
      * The previous value, if it existed, is returned. If the entry was already in the map, the
@@ -713,6 +814,7 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
             cache.clearLeafPath(lastLeafPath);
             lastLeaf.setPath(leafToDeletePath);
             markDirty(lastLeaf);
+            touchMoved(lastLeafPath, leafToDeletePath);
             // NOTE: at this point, if leafToDelete was in the cache at some "path" index, it isn't
             // anymore!
             // The lastLeaf has taken its place in the path index.
@@ -740,11 +842,15 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
             cache.deleteInternal(lastLeafParent);
             sibling.setPath(lastLeafParent);
             markDirty(sibling);
+            touchMoved(lastLeafSibling, lastLeafParent);
 
             // Update the first & last leaf paths
             state.setFirstLeafPath(lastLeafParent); // replaced by the sibling, it is now first
             state.setLastLeafPath(lastLeafSibling - 1); // One left of the last leaf sibling
+            touch(lastLeafSibling);
         }
+        touch(leafToDeletePath);
+        touch(lastLeafPath);
         if (statistics != null) {
             statistics.setSize(state.size());
         }
@@ -990,6 +1096,15 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
             return;
         }
 
+        final long start = System.currentTimeMillis();
+
+        // Stop background hashing. Hashes of blocks that were not changed after they were hashed
+        // in the background are reused
+        final IncrementalHasher<K, V> incremental = incrementalHasher;
+        if (incremental != null) {
+            incremental.stop();
+        }
+
         // Make sure the cache is immutable for leaf changes but mutable for internal node changes
         cache.prepareForHashing();
 
@@ -1009,7 +1124,9 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
                                 .iterator(),
                         state.getFirstLeafPath(),
                         state.getLastLeafPath(),
-                        hashListener);
+                        hashListener,
+                        incremental == null ? null : incremental::getHash);
+        incrementalHasher = null;
 
         if (virtualHash == null) {
             final VirtualInternalRecord rootRecord =
@@ -1027,6 +1144,9 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         cache.seal();
 
         hashed.set(true);
+        if (statistics != null) {
+            statistics.recordHashLatency(System.currentTimeMillis() - (double) start);
+        }
     }
 
     /*
@@ -1161,6 +1281,9 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
      */
     public void registerMetrics(final Metrics metrics) {
         statistics.registerMetrics(metrics);
+        statistics.registerHashingQueueMetrics(
+                metrics, hasher::getHashingQueueDepth, VirtualHasher::getTotalHashingQueueDepth);
+        statistics.registerReconnectQueueMetrics(metrics, OffHeapBitSet::getAllocatedBytes);
         dataSource.registerMetrics(metrics);
     }
 
@@ -1262,6 +1385,78 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         }
     }
 
+    /**
+     * Ends a learner reconnect in which this map was received in bulk, as the data source and
+     * cache of the teacher, instead of leaf by leaf. The data source created for a leaf by leaf
+     * reconnect is closed and replaced. Before the received data is used, the root hash is
+     * recomputed from all received leaves and compared to the teacher's hash.
+     *
+     * @param receivedDataSource the data source opened from the teacher's snapshot files
+     * @param receivedCache the teacher's cache snapshot
+     * @param firstLeafPath the first leaf path of the teacher's tree, must not be empty
+     * @param lastLeafPath the last leaf path of the teacher's tree
+     * @param expectedHash the root hash of the teacher's tree
+     * @throws MerkleSynchronizationException if the received data doesn't match the expected hash
+     */
+    @SuppressWarnings("ClassEscapesDefinedScope")
+    public void endBulkLearnerReconnect(
+            final VirtualDataSource<K, V> receivedDataSource,
+            final VirtualNodeCache<K, V> receivedCache,
+            final long firstLeafPath,
+            final long lastLeafPath,
+            final Hash expectedHash) {
+        if (firstLeafPath < FIRST_LEFT_PATH || lastLeafPath < firstLeafPath) {
+            throw new MerkleSynchronizationException(
+                    "VirtualMap@" + getRoute() + " can't receive an empty tree in bulk");
+        }
+
+        final RecordAccessor<K, V> receivedRecords =
+                new RecordAccessorImpl<>(
+                        new ReconnectState(firstLeafPath, lastLeafPath),
+                        receivedCache,
+                        receivedDataSource);
+        // Leaves are copied, so verification doesn't change the hashes of the received records
+        final Hash hash =
+                hasher.hash(
+                        path -> receivedRecords.findLeafRecord(path, true),
+                        receivedRecords::findInternalRecord,
+                        LongStream.rangeClosed(firstLeafPath, lastLeafPath)
+                                .mapToObj(path -> receivedRecords.findLeafRecord(path, true))
+                                .iterator(),
+                        firstLeafPath,
+                        lastLeafPath);
+        if (!expectedHash.equals(hash)) {
+            throw new MerkleSynchronizationException(
+                    "VirtualMap@"
+                            + getRoute()
+                            + " received in bulk has hash "
+                            + hash
+                            + " but the teacher's hash is "
+                            + expectedHash);
+        }
+
+        // Statistics can only be registered when the node boots, see setupWithOriginalNode()
+        receivedDataSource.copyStatisticsFrom(dataSource);
+        try {
+            dataSource.close();
+        } catch (final IOException e) {
+            logger.error(
+                    EXCEPTION.getMarker(),
+                    "VirtualMap@{} failed to close the unused reconnect data source",
+                    getRoute(),
+                    e);
+        }
+
+        reconnectIterator.close();
+        reconnectRecords = null;
+        dataSource = receivedDataSource;
+        cache = receivedCache;
+        learnerTreeView = null;
+        super.setHash(hash);
+        postInit(fullyReconnectedState);
+        dataSource.startBackgroundCompaction();
+    }
+
     /**
      * Loads the leaf, sibling and sibling of parents on the path to root into OS and not in java
      * heap The OS cache helps in fast retrieval of values without costing us java heap
@@ -1282,6 +1477,29 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         }
     }
 
+    /**
+     * Loads the leaves, siblings and siblings of parents on the paths to root of a batch of keys
+     * into OS cache, like {@link #warm(VirtualKey)} does for a single key. Leaves are read from the
+     * data source in a single batch, and so are their siblings.
+     *
+     * @param keys keys to the leaf nodes
+     */
+    public void warmAll(final Collection<K> keys) {
+        final List<VirtualLeafRecord<K, V>> leafRecords = records.findLeafRecords(keys, false);
+        final long[] leafPaths =
+                leafRecords.stream()
+                        .filter(Objects::nonNull)
+                        .mapToLong(VirtualLeafRecord::getPath)
+                        .toArray();
+        // Warm the siblings of the leaves
+        records.findLeafRecordsByPath(
+                Arrays.stream(leafPaths).map(path -> getSiblingPath(path)).toArray(), false);
+        // Warm internal nodes (sibling on path to parent)
+        for (final long leafPath : leafPaths) {
+            warmInternalNodesForLeaf(leafPath);
+        }
+    }
+
     /**
      * @param leafPath path to the leaf record When the value in a leaf node is changed all the
      *     parent nodes up to the root need to be rehashed. When navigating from leaf->root, for
@@ -1411,6 +1629,7 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         final VirtualLeafRecord<K, V> rec = records.findLeafRecord(key, true);
         if (rec != null) {
             rec.setValue(value);
+            touch(rec.getPath());
             super.setHash(null);
             return true;
         }
@@ -1427,5 +1646,41 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
         // will change, the contract of the API is that the caller expects to change it, which
         // is good enough for us).
         cache.putLeaf(leaf);
+        touch(leaf.getPath());
+    }
+
+    /**
+     * Let the {@link IncrementalHasher}, if any, know that the leaf at the given path changed.
+     *
+     * @param path the changed path
+     */
+    private void touch(final long path) {
+        if (incrementalHasher != null) {
+            incrementalHasher.touch(path);
+        }
+    }
+
+    /**
+     * Let the {@link IncrementalHasher}, if any, know that the value of the leaf at the given path
+     * was handed out for modification, and may change until this copy is hashed.
+     *
+     * @param path the path of the leaf
+     */
+    private void touchForModify(final long path) {
+        if (incrementalHasher != null) {
+            incrementalHasher.touchForModify(path);
+        }
+    }
+
+    /**
+     * Let the {@link IncrementalHasher}, if any, know that a leaf was moved to a new path.
+     *
+     * @param from the old path of the leaf
+     * @param to the new path of the leaf
+     */
+    private void touchMoved(final long from, final long to) {
+        if (incrementalHasher != null) {
+            incrementalHasher.move(from, to);
+        }
     }
 }
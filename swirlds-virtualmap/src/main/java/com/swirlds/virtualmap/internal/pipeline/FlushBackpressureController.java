@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.pipeline;
+
+import java.time.Duration;
+import java.util.function.IntSupplier;
+
+/**
+ * Adaptive throttle for fast copies of a virtual map. It keeps moving averages of how long flushes
+ * take and how many copies are made between flushes. From them, it derives the interval between
+ * copies at which flushes keep up with copies. When the flush backlog is over its preferred size,
+ * copies are spaced by this interval, stretched in proportion to the backlog excess, so the backlog
+ * drains instead of growing.
+ *
+ * <p>Unlike a fixed sleep, a throttled copy waits on this controller and is released as soon as a
+ * flush brings the backlog back to its preferred size. Copies are never delayed for longer than the
+ * given maximum period.
+ *
+ * <p>All methods are synchronized. Copies and flushes happen on different threads.
+ */
+final class FlushBackpressureController {
+
+    /** Weight of the newest sample in moving averages */
+    private static final double SMOOTHING_FACTOR = 0.2;
+
+    /** How much the copy interval is stretched for every copy of backlog excess over the first */
+    private static final double BACKLOG_EXCESS_GAIN = 0.5;
+
+    /** Moving average of flush durations, in nanoseconds, or zero if nothing is flushed yet */
+    private double averageFlushNanos;
+
+    /** Moving average of the number of copies made between two flushes */
+    private double averageCopiesPerFlush = 1;
+
+    /** The number of copies made since the last flush completed */
+    private long copiesSinceLastFlush;
+
+    /** The earliest time, in {@link System#nanoTime()}, the next throttled copy may proceed */
+    private long nextCopyNanos;
+
+    /** How long the last copy was delayed, in nanoseconds */
+    private long lastDelayNanos;
+
+    /** Called when a new copy is made, before any backpressure is applied to it. */
+    synchronized void copyMade() {
+        copiesSinceLastFlush++;
+    }
+
+    /**
+     * Called when a flush is complete. Updates the moving averages and releases throttled copies,
+     * so they can check the backlog again.
+     *
+     * @param flushNanos how long the flush took, in nanoseconds
+     */
+    synchronized void flushCompleted(final long flushNanos) {
+        averageFlushNanos =
+                (averageFlushNanos == 0)
+                        ? flushNanos
+                        : smooth(averageFlushNanos, flushNanos);
+        averageCopiesPerFlush = smooth(averageCopiesPerFlush, Math.max(1, copiesSinceLastFlush));
+        copiesSinceLastFlush = 0;
+        notifyAll();
+    }
+
+    /**
+     * Delay the calling thread, if the flush backlog is over its preferred size.
+     *
+     * @param backlogExcess supplies the number of copies awaiting flushing over the preferred size
+     * @param maxDelay the maximum time to delay the calling thread
+     */
+    synchronized void applyBackpressure(final IntSupplier backlogExcess, final Duration maxDelay) {
+        final long start = System.nanoTime();
+        final int excess = backlogExcess.getAsInt();
+        if (excess <= 0) {
+            nextCopyNanos = start;
+            lastDelayNanos = 0;
+            return;
+        }
+
+        final long maxDeadline = start + maxDelay.toNanos();
+        final long deadline;
+        if (averageFlushNanos == 0) {
+            // nothing is flushed yet, so there is nothing to pace copies by. Wait for a flush
+            deadline = maxDeadline;
+        } else {
+            final double copyIntervalNanos =
+                    getSustainableCopyIntervalNanos() * (1 + BACKLOG_EXCESS_GAIN * (excess - 1));
+            deadline =
+                    Math.min(
+                            maxDeadline,
+                            Math.max(start, nextCopyNanos) + (long) copyIntervalNanos);
+        }
+        nextCopyNanos = deadline;
+
+        long now = start;
+        try {
+            while ((now < deadline) && (backlogExcess.getAsInt() > 0)) {
+                final long remainingNanos = deadline - now;
+                wait(remainingNanos / 1_000_000, (int) (remainingNanos % 1_000_000));
+                now = System.nanoTime();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            now = System.nanoTime();
+        }
+        if (now < deadline) {
+            // released early by a flush, don't hold the next copy to the old schedule
+            nextCopyNanos = now;
+        }
+        lastDelayNanos = now - start;
+    }
+
+    /**
+     * Get how long the last copy was delayed.
+     *
+     * @return the last copy delay, in nanoseconds
+     */
+    synchronized long getLastDelayNanos() {
+        return lastDelayNanos;
+    }
+
+    /**
+     * Get the estimated number of copies per second flushes can keep up with.
+     *
+     * @return the sustainable copy rate, or zero if nothing is flushed yet
+     */
+    synchronized double getSustainableCopyRate() {
+        return (averageFlushNanos == 0) ? 0 : 1_000_000_000.0 / getSustainableCopyIntervalNanos();
+    }
+
+    private double getSustainableCopyIntervalNanos() {
+        return averageFlushNanos / averageCopiesPerFlush;
+    }
+
+    private static double smooth(final double average, final double sample) {
+        return average + SMOOTHING_FACTOR * (sample - average);
+    }
+}
@@ -22,6 +22,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.utility.CompareTo;
+import com.swirlds.virtualmap.VirtualMapSettings;
 import com.swirlds.virtualmap.VirtualMapSettingsFactory;
 import java.nio.file.Path;
 import java.time.Duration;
@@ -141,6 +142,13 @@ public class VirtualPipeline {
     /** The number of copies waiting to be flushed. */
     private final AtomicInteger flushBacklog = new AtomicInteger(0);
 
+    /** Paces fast copies when the adaptive flush throttle is enabled. */
+    private final FlushBackpressureController flushBackpressureController =
+            new FlushBackpressureController();
+
+    /** How long the last fast copy was delayed by flush backpressure, in nanoseconds. */
+    private volatile long lastFlushBackpressureNanos;
+
     /** Create a new pipeline for a family of fast copies on a virtual root. */
     public VirtualPipeline() {
         copies = new PipelineList<>();
@@ -182,24 +190,69 @@ public class VirtualPipeline {
         return flushBacklog.get();
     }
 
+    /**
+     * Get how long the most recent fast copy was delayed because too many copies were awaiting
+     * flushing.
+     *
+     * @return the most recent flush backpressure delay
+     */
+    public Duration getLastFlushBackpressure() {
+        return Duration.ofNanos(lastFlushBackpressureNanos);
+    }
+
+    /**
+     * Get the estimated number of fast copies per second that flushes can keep up with. It's only
+     * estimated when the adaptive flush throttle is enabled.
+     *
+     * @return the sustainable copy rate, or zero if not estimated (yet)
+     */
+    public double getSustainableCopyRate() {
+        return flushBackpressureController.getSustainableCopyRate();
+    }
+
+    /**
+     * Let the pipeline know that a registered copy, which was not to be flushed when it was
+     * registered, is now to be flushed. It must be called while the copy is still mutable.
+     *
+     * @param copy the copy that is now to be flushed
+     */
+    public void registerFlush(final VirtualRoot copy) {
+        validatePipelineRegistration(copy);
+        if (copy.isImmutable()) {
+            throw new IllegalStateException("Only mutable copies may be registered for flushing");
+        }
+        if (!copy.shouldBeFlushed()) {
+            throw new IllegalStateException("copy is not to be flushed");
+        }
+        flushBacklog.getAndIncrement();
+    }
+
     /** Slow down the fast copy operation if there are too many copies that need to be flushed. */
     private void applyFlushBackpressure() {
-        final int backlogExcess =
-                flushBacklog.get() - VirtualMapSettingsFactory.get().getPreferredFlushQueueSize();
+        final VirtualMapSettings settings = VirtualMapSettingsFactory.get();
+        if (settings.isAdaptiveFlushThrottleEnabled()) {
+            flushBackpressureController.applyBackpressure(
+                    () -> flushBacklog.get() - settings.getPreferredFlushQueueSize(),
+                    settings.getMaximumFlushThrottlePeriod());
+            lastFlushBackpressureNanos = flushBackpressureController.getLastDelayNanos();
+            return;
+        }
+
+        final int backlogExcess = flushBacklog.get() - settings.getPreferredFlushQueueSize();
 
         if (backlogExcess <= 0) {
+            lastFlushBackpressureNanos = 0;
             return;
         }
 
         // Sleep time grows quadratically.
         final Duration computedSleepTime =
-                VirtualMapSettingsFactory.get()
-                        .getFlushThrottleStepSize()
+                settings.getFlushThrottleStepSize()
                         .multipliedBy((long) backlogExcess * backlogExcess);
 
-        final Duration maxSleepTime =
-                VirtualMapSettingsFactory.get().getMaximumFlushThrottlePeriod();
+        final Duration maxSleepTime = settings.getMaximumFlushThrottlePeriod();
         final Duration sleepTime = CompareTo.min(computedSleepTime, maxSleepTime);
+        lastFlushBackpressureNanos = sleepTime.toNanos();
 
         try {
             MILLISECONDS.sleep(sleepTime.toMillis());
@@ -231,6 +284,7 @@ public class VirtualPipeline {
             unhashedCopies.add(copy);
         }
         mostRecentCopy.set(copy);
+        flushBackpressureController.copyMade();
         synchronized (this) {
             if (alive) {
                 executorService.submit(this::doWork);
@@ -380,8 +434,10 @@ public class VirtualPipeline {
         if (!copy.isHashed()) {
             hashCopy(copy);
         }
+        final long start = System.nanoTime();
         copy.flush();
         flushBacklog.getAndDecrement();
+        flushBackpressureController.flushCompleted(System.nanoTime() - start);
     }
 
     /**
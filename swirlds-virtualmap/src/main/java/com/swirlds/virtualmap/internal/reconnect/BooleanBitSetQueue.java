@@ -15,34 +15,44 @@
  */
 package com.swirlds.virtualmap.internal.reconnect;
 
-import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 /**
- * A simple and fast implementation of a boolean queue, backed by one or more {@link BitSet}s. This
- * queue can handle a tremendous number of elements, even far exceeding {@link Long#MAX_VALUE}.
- * You'll run out of RAM first. This is not a thread-safe data structure.
+ * A simple and fast implementation of a boolean queue, backed by one or more {@link
+ * OffHeapBitSet}s. This queue can handle a tremendous number of elements, even far exceeding {@link
+ * Long#MAX_VALUE}. You'll run out of memory first. This is not a thread-safe data structure.
+ *
+ * <p>The bit sets are stored off the heap. A bit set that has been fully read is kept and reused
+ * for writing, so a queue whose reads keep up with its writes only ever holds a few bit sets.
  */
 class BooleanBitSetQueue {
-    /** The number of bits in each {@link BitSet}. */
+    /** The number of bits in each {@link OffHeapBitSet}. */
     private final int bitsPerSet;
 
     /**
-     * A {@link LinkedList} of {@link BitSet}s. The older bitsets are removed from the front of the
-     * list after they have been fully read, and newly added bitsets are added to the end of the
-     * queue when they are created. This is a backlog of bit sets that the reader has yet to get to.
+     * A {@link LinkedList} of {@link OffHeapBitSet}s. The older bitsets are removed from the front
+     * of the list after they have been fully read, and newly added bitsets are added to the end of
+     * the queue when they are created. This is a backlog of bit sets that the reader has yet to get
+     * to.
      */
-    private final LinkedList<BitSet> writeBacklog;
+    private final LinkedList<OffHeapBitSet> writeBacklog;
 
-    /** The active {@link BitSet} used for writing. Once it is filled up, a new one is created. */
-    private BitSet writeBitSet;
+    /**
+     * The active {@link OffHeapBitSet} used for writing. Once it is filled up, a new one is
+     * created, or the spare one is used.
+     */
+    private OffHeapBitSet writeBitSet;
 
     /**
-     * The active {@link BitSet} used for reading. Once it is fully read, a new one is removed from
-     * the head of {@link #writeBacklog} and used for reading.
+     * The active {@link OffHeapBitSet} used for reading. Once it is fully read, it is cleared and
+     * kept as the spare bit set, and a new one is removed from the head of {@link #writeBacklog}
+     * and used for reading.
      */
-    private BitSet readBitSet;
+    private OffHeapBitSet readBitSet;
+
+    /** A cleared bit set that has been fully read, to be reused for writing. May be null. */
+    private OffHeapBitSet spareBitSet;
 
     /**
      * The current index within {@link #writeBitSet} into which we will write the next boolean
@@ -69,7 +79,7 @@ class BooleanBitSetQueue {
 
         this.bitsPerSet = capacity;
         this.writeBacklog = new LinkedList<>();
-        this.writeBitSet = new BitSet(bitsPerSet);
+        this.writeBitSet = new OffHeapBitSet(bitsPerSet);
         this.readBitSet = writeBitSet;
     }
 
@@ -80,11 +90,16 @@ class BooleanBitSetQueue {
      */
     void add(final boolean value) {
         if (writeIndex >= bitsPerSet) {
-            writeBitSet = new BitSet(bitsPerSet);
+            writeBitSet = spareBitSet == null ? new OffHeapBitSet(bitsPerSet) : spareBitSet;
+            spareBitSet = null;
             writeBacklog.add(writeBitSet);
             writeIndex = 0;
         }
-        writeBitSet.set(writeIndex++, value);
+        // Bit sets start out cleared, so only true values need to be written
+        if (value) {
+            writeBitSet.set(writeIndex);
+        }
+        writeIndex++;
     }
 
     /**
@@ -101,6 +116,8 @@ class BooleanBitSetQueue {
         if (readIndex >= bitsPerSet) {
             // What happens if remove returns null? It really shouldn't be able to reach this code
             // in that condition...
+            readBitSet.clear();
+            spareBitSet = readBitSet;
             readBitSet = writeBacklog.remove();
             readIndex = 0;
         }
@@ -108,6 +125,23 @@ class BooleanBitSetQueue {
         return readBitSet.get(readIndex++);
     }
 
+    /**
+     * Drops the memory of all bit sets of this queue, including the spare one. The queue can't be
+     * used afterwards.
+     */
+    void close() {
+        // The write bit set is either the read bit set or the last one in the backlog, closing a
+        // bit set twice has no effect
+        readBitSet.close();
+        writeBitSet.close();
+        writeBacklog.forEach(OffHeapBitSet::close);
+        writeBacklog.clear();
+        if (spareBitSet != null) {
+            spareBitSet.close();
+            spareBitSet = null;
+        }
+    }
+
     /**
      * Gets whether the queue is empty.
      *
@@ -15,33 +15,44 @@
  */
 package com.swirlds.virtualmap.internal.reconnect;
 
-import java.util.BitSet;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A concurrent FIFO queue-like data structure of ever-increasing Long values implemented by an
  * array of BitSets that together support more than {@value Integer#MAX_VALUE} bits. This data
  * structure supports a single writer thread and a single reader thread.
+ *
+ * <p>The BitSets are {@link OffHeapBitSet}s, so a queue does not use heap in proportion to the
+ * range of its values. A BitSet that has been fully read is kept to be reused for the next range
+ * of values, so a queue whose reader keeps up with its writer only ever holds a few BitSets.
  */
 final class ConcurrentBitSetQueue {
 
     /**
-     * Maximum number of elements per BitSet. Currently, at 2^30 to improve performance on divisions
+     * Default maximum number of elements per BitSet, as a power of two. Currently, at 2^24 (2 MB of
+     * memory per BitSet), a power of two to improve performance on divisions
      */
-    private static final int LIMIT = 0x40000000;
+    private static final int DEFAULT_CHUNK_SHIFT = 24;
+
+    /** The largest supported number of elements per BitSet, as a power of two. */
+    private static final int MAX_CHUNK_SHIFT = 30;
+
+    /** Maximum number of elements per BitSet. Always a power of two. */
+    private final int limit;
 
     /**
-     * To speed up division, instead of doing {@code n / LIMIT}, we can compute it as {@code n >>
-     * lg(LIMIT)}, i.e., as {@code n >> RIGHT_SHIFTS_FOR_LIMIT_AS_DIVISOR}.
+     * To speed up division, instead of doing {@code n / limit}, we can compute it as {@code n >>
+     * lg(limit)}, i.e., as {@code n >> rightShiftsForLimitAsDivisor}.
      */
-    private static final int RIGHT_SHIFTS_FOR_LIMIT_AS_DIVISOR = 30;
+    private final int rightShiftsForLimitAsDivisor;
 
     /**
-     * Value to compute {@code n % LIMIT} with the &amp; operator to improve performance. Instead of
-     * {@code n % LIMIT}, we should use {@code n & DIVISOR}.
+     * Value to compute {@code n % limit} with the &amp; operator to improve performance. Instead of
+     * {@code n % limit}, we should use {@code n & divisor}.
      */
-    private static final int DIVISOR = LIMIT - 1;
+    private final int divisor;
 
     /** Map to keep track of the bits associated with each interval. */
     private final ConcurrentLinkedDeque<BitSetNode> bitsets;
@@ -49,6 +60,12 @@ final class ConcurrentBitSetQueue {
     /** Number of elements currently in the queue */
     private final AtomicLong size;
 
+    /**
+     * A cleared BitSet that was fully read, to be reused by the writer. Null if there is none. Set
+     * by the reader thread and taken by the writer thread.
+     */
+    private final AtomicReference<OffHeapBitSet> spareBitSet = new AtomicReference<>();
+
     /**
      * Value to keep track of the latest element added to guarantee a strictly increasing insertion.
      * No negative values are allowed, so the minimum value accepted is 0. This value is only
@@ -64,6 +81,24 @@ final class ConcurrentBitSetQueue {
 
     /** Creates a new {@link ConcurrentBitSetQueue}. */
     ConcurrentBitSetQueue() {
+        this(DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * Creates a new {@link ConcurrentBitSetQueue} that allocates BitSets of {@code 2^chunkShift}
+     * bits. A BitSet is allocated in full as soon as a value falls into its range, so queues that
+     * only ever hold values from a narrow range should use smaller chunks.
+     *
+     * @param chunkShift the number of bits per BitSet, as a power of two
+     * @throws IllegalArgumentException if chunkShift is not between 6 and 30
+     */
+    ConcurrentBitSetQueue(final int chunkShift) {
+        if (chunkShift < 6 || chunkShift > MAX_CHUNK_SHIFT) {
+            throw new IllegalArgumentException("chunkShift must be between 6 and 30");
+        }
+        this.rightShiftsForLimitAsDivisor = chunkShift;
+        this.limit = 1 << chunkShift;
+        this.divisor = limit - 1;
         this.size = new AtomicLong();
         this.bitsets = new ConcurrentLinkedDeque<>();
         this.indexForRemoval = 0;
@@ -86,16 +121,16 @@ final class ConcurrentBitSetQueue {
 
         final int index = getIndexInBitSetFor(value);
         final long bitSetIndex = getBitSetIndexFor(value);
-        final long offset = bitSetIndex * LIMIT;
+        final long offset = bitSetIndex * limit;
         final BitSetNode bitSetNode;
         if (bitsets.isEmpty() || bitsets.peekLast().offset != offset) {
-            bitSetNode = new BitSetNode(offset, new BitSet(LIMIT));
+            bitSetNode = new BitSetNode(offset, takeBitSet(), limit);
             bitsets.add(bitSetNode);
         } else {
             bitSetNode = bitsets.peekLast();
         }
 
-        final BitSet bitSet = bitSetNode.bitSet;
+        final OffHeapBitSet bitSet = bitSetNode.bitSet;
         bitSet.set(index);
 
         previousBitIndex = value;
@@ -119,13 +154,14 @@ final class ConcurrentBitSetQueue {
         bitSetNode = bitsets.peek();
         assert bitSetNode != null;
         if (bitSetNode.offsetEnd <= indexForRemoval || bitSetNode.bitSet.nextSetBit(index) < 0) {
-            bitsets.remove();
+            // The queue is not empty, so the writer has moved on to a later BitSet
+            recycleBitSet(bitsets.remove().bitSet);
             bitSetNode = bitsets.peek();
             assert bitSetNode != null;
             index = 0;
         }
 
-        final BitSet bitSet = bitSetNode.bitSet;
+        final OffHeapBitSet bitSet = bitSetNode.bitSet;
         final int setIndex = bitSet.nextSetBit(index);
         final long value = bitSetNode.offset + setIndex;
         indexForRemoval = value + 1;
@@ -133,6 +169,42 @@ final class ConcurrentBitSetQueue {
         return value;
     }
 
+    /**
+     * Get a BitSet for a new range of values. Called by the writer thread.
+     *
+     * @return a spare BitSet if there is one, otherwise a new BitSet
+     */
+    private OffHeapBitSet takeBitSet() {
+        final OffHeapBitSet spare = spareBitSet.getAndSet(null);
+        return spare == null ? new OffHeapBitSet(limit) : spare;
+    }
+
+    /**
+     * Keep a fully read BitSet to be reused by the writer. Called by the reader thread. If there
+     * already is a spare BitSet, this one is left to the garbage collector.
+     *
+     * @param bitSet the BitSet
+     */
+    private void recycleBitSet(final OffHeapBitSet bitSet) {
+        bitSet.clear();
+        spareBitSet.compareAndSet(null, bitSet);
+    }
+
+    /**
+     * Drops the memory of all BitSets of this queue, including the spare one. Must only be called
+     * once both the writer and the reader are done with this queue, it can't be used afterwards.
+     */
+    void close() {
+        BitSetNode bitSetNode;
+        while ((bitSetNode = bitsets.poll()) != null) {
+            bitSetNode.bitSet.close();
+        }
+        final OffHeapBitSet spare = spareBitSet.getAndSet(null);
+        if (spare != null) {
+            spare.close();
+        }
+    }
+
     /**
      * Returns true if this {@code ConcurrentBitSetQueue} contains no bits that are set to true.
      *
@@ -157,8 +229,8 @@ final class ConcurrentBitSetQueue {
      * @param value Value to set/retrieve
      * @return index of the BitSet this value should be set in
      */
-    static long getBitSetIndexFor(final long value) {
-        return value >> RIGHT_SHIFTS_FOR_LIMIT_AS_DIVISOR;
+    long getBitSetIndexFor(final long value) {
+        return value >> rightShiftsForLimitAsDivisor;
     }
 
     /**
@@ -167,19 +239,19 @@ final class ConcurrentBitSetQueue {
      * @param value Value to set/retrieve
      * @return index in the BitSet this value should be set in
      */
-    static int getIndexInBitSetFor(final long value) {
-        return (int) (value & DIVISOR);
+    int getIndexInBitSetFor(final long value) {
+        return (int) (value & divisor);
     }
 
     private static final class BitSetNode {
-        private final BitSet bitSet;
+        private final OffHeapBitSet bitSet;
         private final long offset;
         private final long offsetEnd;
 
-        private BitSetNode(final long offset, final BitSet bitset) {
+        private BitSetNode(final long offset, final OffHeapBitSet bitset, final int limit) {
             this.offset = offset;
             this.bitSet = bitset;
-            this.offsetEnd = offset + LIMIT;
+            this.offsetEnd = offset + limit;
         }
     }
 }
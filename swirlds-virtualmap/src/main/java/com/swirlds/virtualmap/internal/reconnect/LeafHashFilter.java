@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static com.swirlds.logging.LogMarker.RECONNECT;
+
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.threading.pool.StandardWorkGroup;
+import com.swirlds.virtualmap.datasource.VirtualDataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bloom filter of the hashes of the leaves a learner has stored in its data source. When the
+ * teacher asks if the learner already has a leaf, the learner normally has to read the original
+ * leaf from disk to compare hashes. If the teacher's hash is not in this filter, the learner
+ * definitely does not have a leaf with that hash, and the read can be skipped.
+ *
+ * <p>The filter is built on a background thread by reading the data source sequentially. Until it
+ * is complete, every hash may be present. Leaves that have been moved or deleted since they were
+ * written only cause false positives. Leaves written to the data source after the filter was
+ * started may be missing from it, in which case the teacher sends such a leaf again.
+ */
+final class LeafHashFilter {
+
+    private static final Logger logger = LogManager.getLogger(LeafHashFilter.class);
+
+    /**
+     * The size of the filter in bits for each leaf. Together with {@link #HASH_COUNT} this gives
+     * about 1% false positives.
+     */
+    private static final long BITS_PER_LEAF = 10;
+
+    /** The number of hashes computed for each leaf hash added to the filter. */
+    private static final int HASH_COUNT = 7;
+
+    private final VirtualDataSource<?, ?> dataSource;
+
+    /** The number of leaves in the learner's tree, used to size the filter. */
+    private final long leafCount;
+
+    /** The filter. Null until it has been completely built. */
+    private volatile BloomFilter<Hash> filter;
+
+    /** Set once the filter is no longer needed. */
+    private volatile boolean stopped;
+
+    /**
+     * Create a new filter.
+     *
+     * @param dataSource the data source of the learner's original tree
+     * @param leafCount the number of leaves in the learner's original tree
+     */
+    LeafHashFilter(final VirtualDataSource<?, ?> dataSource, final long leafCount) {
+        this.dataSource = dataSource;
+        this.leafCount = leafCount;
+    }
+
+    /**
+     * Start building the filter.
+     *
+     * @param workGroup the work group that manages the thread building the filter
+     */
+    void start(final StandardWorkGroup workGroup) {
+        workGroup.execute("leaf-hash-filter", this::build);
+    }
+
+    /**
+     * Check if the data source may contain a leaf with the given hash. May be called concurrently
+     * from multiple threads.
+     *
+     * @param hash the hash of a leaf
+     * @return false if the data source definitely does not contain a leaf with this hash
+     */
+    boolean mayContain(final Hash hash) {
+        final BloomFilter<Hash> completeFilter = filter;
+        return completeFilter == null || completeFilter.contains(hash);
+    }
+
+    /** Stop building the filter, if it is still being built. */
+    void stop() {
+        stopped = true;
+    }
+
+    private void build() {
+        final long start = System.currentTimeMillis();
+        final BloomFilter<Hash> newFilter =
+                new BloomFilter<>(
+                        HASH_COUNT, new HashBloomHasher(), Math.max(1, leafCount) * BITS_PER_LEAF);
+
+        try {
+            final boolean supported =
+                    dataSource.forEachLeafHash(
+                            hash -> {
+                                newFilter.add(hash);
+                                return !stopped;
+                            });
+            if (!supported || stopped) {
+                return;
+            }
+        } catch (final IOException | UncheckedIOException e) {
+            logger.warn(
+                    RECONNECT.getMarker(),
+                    "unable to build leaf hash filter, original leaves will be read from disk",
+                    e);
+            return;
+        }
+
+        filter = newFilter;
+        logger.info(
+                RECONNECT.getMarker(),
+                "built hash filter for {} leaves in {} ms",
+                leafCount,
+                System.currentTimeMillis() - start);
+    }
+}
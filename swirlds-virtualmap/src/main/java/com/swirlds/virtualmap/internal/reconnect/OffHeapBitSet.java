@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size set of bits stored in direct (off-heap) memory. Used as a chunk of {@link
+ * ConcurrentBitSetQueue} and {@link BooleanBitSetQueue}, so that the bookkeeping of a reconnect of
+ * a very large tree does not need heap in proportion to the size of the tree. Once a chunk has been
+ * fully read it can be {@link #clear() cleared} and reused.
+ *
+ * <p>A chunk that is no longer needed should be {@link #close() closed}, which drops its memory
+ * right away rather than when the chunk is garbage collected. The number of bytes held by all
+ * chunks that have been neither closed nor collected is available from {@link
+ * #getAllocatedBytes()}.
+ *
+ * <p>This class is not thread safe. A chunk may be written by one thread and read by another, as
+ * long as every read of a bit happens-after the write of that bit.
+ */
+public final class OffHeapBitSet {
+
+    /** Releases the accounting for chunks that have been garbage collected without a close. */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** The number of bytes held by all chunks that have been neither closed nor collected. */
+    private static final AtomicLong ALLOCATED_BYTES = new AtomicLong();
+
+    /** The bits, 64 per word. Null once this chunk is closed. */
+    private LongBuffer words;
+
+    /** Releases the accounting for this chunk, exactly once, on close or garbage collection. */
+    private final Cleaner.Cleanable cleanable;
+
+    /** The index of the highest word that may contain a set bit, or -1 if no bits are set. */
+    private int highestWord = -1;
+
+    /**
+     * Create a new chunk with all bits cleared.
+     *
+     * @param bitCount the number of bits, rounded up to a multiple of 64
+     * @throws IllegalArgumentException if bitCount is not positive
+     */
+    OffHeapBitSet(final int bitCount) {
+        if (bitCount <= 0) {
+            throw new IllegalArgumentException("bitCount must be positive");
+        }
+        final int wordCount = (int) (((long) bitCount + Long.SIZE - 1) / Long.SIZE);
+        final long bytes = (long) wordCount * Long.BYTES;
+        words =
+                ByteBuffer.allocateDirect((int) bytes)
+                        .order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+
+        ALLOCATED_BYTES.addAndGet(bytes);
+        cleanable = CLEANER.register(this, () -> ALLOCATED_BYTES.addAndGet(-bytes));
+    }
+
+    /**
+     * Get the number of bytes of direct memory held by all chunks that have been neither closed nor
+     * garbage collected.
+     *
+     * @return the number of bytes
+     */
+    public static long getAllocatedBytes() {
+        return ALLOCATED_BYTES.get();
+    }
+
+    /**
+     * Get the number of bits in this chunk.
+     *
+     * @return the number of bits
+     * @throws IllegalStateException if this chunk is closed
+     */
+    int size() {
+        throwIfClosed();
+        return words.capacity() * Long.SIZE;
+    }
+
+    /**
+     * Set a bit.
+     *
+     * @param index the index of the bit
+     * @throws IllegalStateException if this chunk is closed
+     */
+    void set(final int index) {
+        throwIfClosed();
+        final int word = index >>> 6;
+        words.put(word, words.get(word) | (1L << index));
+        if (word > highestWord) {
+            highestWord = word;
+        }
+    }
+
+    /**
+     * Get a bit.
+     *
+     * @param index the index of the bit
+     * @return true if the bit is set
+     */
+    boolean get(final int index) {
+        final int word = index >>> 6;
+        return word <= highestWord && (words.get(word) & (1L << index)) != 0;
+    }
+
+    /**
+     * Find the first set bit at or after an index.
+     *
+     * @param fromIndex the index to start at
+     * @return the index of the first set bit at or after fromIndex, or -1 if there is none
+     */
+    int nextSetBit(final int fromIndex) {
+        int word = fromIndex >>> 6;
+        if (word > highestWord) {
+            return -1;
+        }
+
+        long bits = words.get(word) & (-1L << fromIndex);
+        while (bits == 0) {
+            if (++word > highestWord) {
+                return -1;
+            }
+            bits = words.get(word);
+        }
+        return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+    }
+
+    /** Clear all bits, so that the chunk can be reused. */
+    void clear() {
+        for (int word = 0; word <= highestWord; word++) {
+            words.put(word, 0);
+        }
+        highestWord = -1;
+    }
+
+    /**
+     * Drop the memory of this chunk. A closed chunk has no bits set and can't be written or reused.
+     * Closing a chunk that is already closed has no effect.
+     */
+    void close() {
+        if (words != null) {
+            words = null;
+            highestWord = -1;
+            cleanable.clean();
+        }
+    }
+
+    /**
+     * Check if this chunk is closed.
+     *
+     * @return true if this chunk is closed
+     */
+    boolean isClosed() {
+        return words == null;
+    }
+
+    private void throwIfClosed() {
+        if (words == null) {
+            throw new IllegalStateException("OffHeapBitSet is closed");
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+import static com.swirlds.logging.LogMarker.RECONNECT;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.io.utility.TemporaryFileBuilder;
+import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import com.swirlds.common.threading.pool.StandardWorkGroup;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * When a virtual tree is received over several parallel streams, each stream delivers the nodes of
+ * one subtree (partition) in ascending path order. The hasher and the {@link ReconnectNodeRemover}
+ * require all nodes of the tree in ascending path order, so this class merges the partitions back
+ * into a single ordered sequence on a background thread.
+ *
+ * <p>A node can only be passed on once every unfinished partition has delivered a node with a
+ * larger path, so a partition that runs ahead of the others has to be buffered. Threads that add
+ * nodes never block: once a partition has more than a fixed number of nodes buffered in memory,
+ * further nodes are written to a temporary file until the merge has caught up. Blocking instead
+ * could stall every stream, since all of them share a single connection.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+final class ReconnectPartitionJoiner<K extends VirtualKey<? super K>, V extends VirtualValue> {
+
+    private static final Logger logger = LogManager.getLogger(ReconnectPartitionJoiner.class);
+
+    /** The total number of nodes buffered in memory across all partitions before spilling. */
+    private static final int MAX_BUFFERED_NODES = 200_000;
+
+    /** The minimum number of nodes a partition buffers in memory before spilling. */
+    private static final int MIN_BUFFERED_NODES_PER_PARTITION = 1_000;
+
+    /** The maximum time to wait for a partition before checking for interrupts. */
+    private static final long WAIT_INTERVAL_MS = 100;
+
+    /**
+     * A node received in a partition.
+     *
+     * @param path the path of the node
+     * @param leaf the leaf record, or null if the node is an internal node
+     * @param <K> the type of the key
+     * @param <V> the type of the value
+     */
+    private record ReceivedNode<K extends VirtualKey<? super K>, V extends VirtualValue>(
+            long path, VirtualLeafRecord<K, V> leaf) {}
+
+    private final List<Partition> partitions;
+
+    private final Consumer<VirtualLeafRecord<K, V>> leafHandler;
+
+    private final LongConsumer internalHandler;
+
+    /**
+     * Create a new joiner.
+     *
+     * @param partitionCount the number of partitions
+     * @param leafHandler called with every leaf, in path order
+     * @param internalHandler called with the path of every internal node, in path order
+     */
+    ReconnectPartitionJoiner(
+            final int partitionCount,
+            final Consumer<VirtualLeafRecord<K, V>> leafHandler,
+            final LongConsumer internalHandler) {
+        this.leafHandler = leafHandler;
+        this.internalHandler = internalHandler;
+
+        final int maxBuffered =
+                Math.max(MIN_BUFFERED_NODES_PER_PARTITION, MAX_BUFFERED_NODES / partitionCount);
+        partitions = new ArrayList<>(partitionCount);
+        for (int index = 0; index < partitionCount; index++) {
+            partitions.add(new Partition(maxBuffered));
+        }
+    }
+
+    /**
+     * Start the thread that merges the partitions.
+     *
+     * @param workGroup the work group that manages the thread
+     */
+    void start(final StandardWorkGroup workGroup) {
+        workGroup.execute("partition-joiner", this::run);
+    }
+
+    /**
+     * Add a leaf received in a partition. Leaves and internal nodes of a partition must be added in
+     * ascending path order.
+     *
+     * @param partition the index of the partition
+     * @param leaf the leaf
+     */
+    void addLeaf(final int partition, final VirtualLeafRecord<K, V> leaf) {
+        partitions.get(partition).add(new ReceivedNode<>(leaf.getPath(), leaf));
+    }
+
+    /**
+     * Add an internal node received in a partition. Leaves and internal nodes of a partition must
+     * be added in ascending path order.
+     *
+     * @param partition the index of the partition
+     * @param path the path of the internal node
+     */
+    void addInternal(final int partition, final long path) {
+        partitions.get(partition).add(new ReceivedNode<>(path, null));
+    }
+
+    /**
+     * Signal that no more nodes will be added to a partition.
+     *
+     * @param partition the index of the partition
+     */
+    void finishPartition(final int partition) {
+        partitions.get(partition).finish();
+    }
+
+    /** Release any temporary files. */
+    void close() {
+        for (final Partition partition : partitions) {
+            partition.close();
+        }
+    }
+
+    /** Merge the partitions until all of them are finished and drained. */
+    private void run() {
+        final ReceivedNode<K, V>[] heads = newHeadArray(partitions.size());
+        final boolean[] exhausted = new boolean[partitions.size()];
+
+        try {
+            while (true) {
+                int next = -1;
+                for (int index = 0; index < heads.length; index++) {
+                    if (heads[index] == null && !exhausted[index]) {
+                        heads[index] = partitions.get(index).take();
+                        exhausted[index] = heads[index] == null;
+                    }
+                    if (heads[index] != null
+                            && (next == -1 || heads[index].path() < heads[next].path())) {
+                        next = index;
+                    }
+                }
+
+                if (next == -1) {
+                    break;
+                }
+
+                final ReceivedNode<K, V> node = heads[next];
+                heads[next] = null;
+                if (node.leaf() == null) {
+                    internalHandler.accept(node.path());
+                } else {
+                    leafHandler.accept(node.leaf());
+                }
+            }
+        } catch (final InterruptedException e) {
+            logger.warn(RECONNECT.getMarker(), "partition joiner interrupted");
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            throw new MerkleSynchronizationException("unable to read spilled reconnect nodes", e);
+        } finally {
+            close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends VirtualKey<? super K>, V extends VirtualValue>
+            ReceivedNode<K, V>[] newHeadArray(final int length) {
+        return (ReceivedNode<K, V>[]) new ReceivedNode[length];
+    }
+
+    /** The nodes of one partition that have been received but not yet merged. */
+    private final class Partition {
+
+        private final int maxBuffered;
+
+        /** Nodes buffered in memory. Always precede the nodes in the spill file. */
+        private final Queue<ReceivedNode<K, V>> buffered = new ArrayDeque<>();
+
+        private Path spillFile;
+        private SerializableDataOutputStream spillOut;
+        private SerializableDataInputStream spillIn;
+
+        /** The number of nodes written to the spill file that have not yet been read. */
+        private long spilled;
+
+        /** True if nodes have been written to the spill file since the last flush. */
+        private boolean unflushed;
+
+        private boolean finished;
+
+        Partition(final int maxBuffered) {
+            this.maxBuffered = maxBuffered;
+        }
+
+        /** Called by the thread receiving the partition. */
+        synchronized void add(final ReceivedNode<K, V> node) {
+            if (spilled == 0 && buffered.size() < maxBuffered) {
+                buffered.add(node);
+            } else {
+                spill(node);
+            }
+            notifyAll();
+        }
+
+        /** Called by the thread receiving the partition. */
+        synchronized void finish() {
+            finished = true;
+            notifyAll();
+        }
+
+        /**
+         * Called by the merging thread. Blocks until a node is available.
+         *
+         * @return the next node, or null if the partition is finished and all of its nodes have
+         *     been taken
+         */
+        synchronized ReceivedNode<K, V> take() throws InterruptedException, IOException {
+            while (true) {
+                if (!buffered.isEmpty()) {
+                    return buffered.remove();
+                }
+                if (spilled > 0) {
+                    return readSpilled();
+                }
+                if (finished) {
+                    return null;
+                }
+                wait(WAIT_INTERVAL_MS);
+            }
+        }
+
+        private void spill(final ReceivedNode<K, V> node) {
+            try {
+                if (spillFile == null) {
+                    spillFile = TemporaryFileBuilder.buildTemporaryFile("reconnect-partition");
+                    spillOut =
+                            new SerializableDataOutputStream(
+                                    new BufferedOutputStream(Files.newOutputStream(spillFile)));
+                }
+                spillOut.writeLong(node.path());
+                spillOut.writeBoolean(node.leaf() != null);
+                if (node.leaf() != null) {
+                    spillOut.writeSerializable(node.leaf(), true);
+                }
+                spilled++;
+                unflushed = true;
+            } catch (final IOException e) {
+                throw new MerkleSynchronizationException("unable to spill reconnect node", e);
+            }
+        }
+
+        private ReceivedNode<K, V> readSpilled() throws IOException {
+            if (unflushed) {
+                spillOut.flush();
+                unflushed = false;
+            }
+            if (spillIn == null) {
+                spillIn =
+                        new SerializableDataInputStream(
+                                new BufferedInputStream(Files.newInputStream(spillFile)));
+            }
+
+            final long path = spillIn.readLong();
+            final boolean isLeaf = spillIn.readBoolean();
+            final VirtualLeafRecord<K, V> leaf = isLeaf ? spillIn.readSerializable() : null;
+            spilled--;
+            return new ReceivedNode<>(path, leaf);
+        }
+
+        synchronized void close() {
+            if (spillFile == null) {
+                return;
+            }
+            try {
+                if (spillIn != null) {
+                    spillIn.close();
+                }
+                spillOut.close();
+                Files.deleteIfExists(spillFile);
+            } catch (final IOException e) {
+                logger.error(EXCEPTION.getMarker(), "unable to delete spill file {}", spillFile, e);
+            }
+            spillFile = null;
+            spillIn = null;
+            spillOut = null;
+        }
+    }
+}
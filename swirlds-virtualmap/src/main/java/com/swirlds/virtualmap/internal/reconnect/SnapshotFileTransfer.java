@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Copies the files of a data source snapshot over the reconnect streams. Every file is written as
+ * its path relative to the snapshot folder, its length and its bytes, and the list of files is
+ * terminated by a single {@code false}.
+ */
+final class SnapshotFileTransfer {
+
+    /** The maximum length of a relative file path. */
+    private static final int MAX_PATH_LENGTH = 1024;
+
+    /** The size of the buffer used to copy file contents. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotFileTransfer() {}
+
+    /**
+     * Write all regular files in a folder and its sub-folders.
+     *
+     * @param directory the folder to write
+     * @param out the stream to write to
+     * @return the total number of file bytes written
+     * @throws IOException if a file can't be read or the stream can't be written
+     */
+    static long writeFiles(final Path directory, final SerializableDataOutputStream out)
+            throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Files::isRegularFile).sorted().forEach(files::add);
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long totalBytes = 0;
+        for (final Path file : files) {
+            final Path relativePath = directory.relativize(file);
+            final long length = Files.size(file);
+            out.writeBoolean(true);
+            out.writeNormalisedString(toTransferName(relativePath));
+            out.writeLong(length);
+
+            try (final InputStream fileIn = Files.newInputStream(file)) {
+                long remaining = length;
+                while (remaining > 0) {
+                    final int read =
+                            fileIn.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new IOException("file " + file + " was truncated while being sent");
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            totalBytes += length;
+        }
+        out.writeBoolean(false);
+        return totalBytes;
+    }
+
+    /**
+     * Read files written by {@link #writeFiles(Path, SerializableDataOutputStream)} into a folder.
+     *
+     * @param in the stream to read from
+     * @param directory the folder to write the files to, sub-folders are created as needed
+     * @return the total number of file bytes read
+     * @throws IOException if the stream can't be read or a file can't be written
+     */
+    static long readFiles(final SerializableDataInputStream in, final Path directory)
+            throws IOException {
+        final Path root = directory.toAbsolutePath().normalize();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long totalBytes = 0;
+        while (in.readBoolean()) {
+            final String name = in.readNormalisedString(MAX_PATH_LENGTH);
+            final long length = in.readLong();
+            if (length < 0) {
+                throw new MerkleSynchronizationException(
+                        "invalid length " + length + " for snapshot file " + name);
+            }
+
+            final Path file = toFile(root, name);
+            Files.createDirectories(file.getParent());
+
+            try (final OutputStream fileOut = Files.newOutputStream(file)) {
+                long remaining = length;
+                while (remaining > 0) {
+                    final int count = (int) Math.min(buffer.length, remaining);
+                    in.readFully(buffer, 0, count);
+                    fileOut.write(buffer, 0, count);
+                    remaining -= count;
+                }
+            }
+            totalBytes += length;
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Get the file a received name refers to, making sure that it is inside the destination folder.
+     */
+    private static Path toFile(final Path root, final String name) {
+        if (name == null || name.isEmpty()) {
+            throw new MerkleSynchronizationException("empty snapshot file name");
+        }
+        final Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new MerkleSynchronizationException("invalid snapshot file name " + name);
+        }
+        return file;
+    }
+
+    /** Convert a relative path to a name that is independent of the platform's separator. */
+    private static String toTransferName(final Path relativePath) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Path element : relativePath) {
+            if (!sb.isEmpty()) {
+                sb.append('/');
+            }
+            sb.append(element);
+        }
+        return sb.toString();
+    }
+}
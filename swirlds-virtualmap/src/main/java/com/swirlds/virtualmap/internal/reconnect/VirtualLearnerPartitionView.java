@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static com.swirlds.virtualmap.internal.Path.getChildPath;
+import static com.swirlds.virtualmap.internal.Path.getParentPath;
+import static com.swirlds.virtualmap.internal.Path.isLeft;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.merkle.MerkleNode;
+import com.swirlds.common.merkle.synchronization.internal.ExpectedLesson;
+import com.swirlds.common.merkle.synchronization.views.LearnerTreeView;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+
+/**
+ * A {@link LearnerTreeView} for one subtree of a virtual tree that is received over several
+ * parallel streams. Each partition tracks its own {@link ExpectedLesson}s. Received nodes are not
+ * handled directly, but passed to a {@link ReconnectPartitionJoiner} that hands the nodes of all
+ * partitions to the {@link VirtualLearnerTreeView} of the whole tree in path order.
+ *
+ * @param <K> The key
+ * @param <V> The value
+ */
+final class VirtualLearnerPartitionView<K extends VirtualKey<? super K>, V extends VirtualValue>
+        extends VirtualTreeViewBase<K, V> implements LearnerTreeView<Long> {
+
+    /**
+     * The queues of a partition only hold paths of a single subtree, so they use much smaller
+     * BitSets than the queues of the whole tree.
+     */
+    private static final int QUEUE_CHUNK_SHIFT = 20;
+
+    /** Initial capacity for the {@link BooleanBitSetQueue}s of a partition. */
+    private static final int EXPECTED_BIT_SET_INITIAL_CAPACITY = 64 * 1024;
+
+    /** The view of the whole tree. */
+    private final VirtualLearnerTreeView<K, V> parent;
+
+    /** Joins the nodes received in all partitions. */
+    private final ReconnectPartitionJoiner<K, V> joiner;
+
+    /** The index of this partition. */
+    private final int partitionIndex;
+
+    /** The path of the root of this partition. */
+    private final long partitionRoot;
+
+    /**
+     * As part of tracking {@link ExpectedLesson}s, this keeps track of the "nodeAlreadyPresent"
+     * boolean.
+     */
+    private final BooleanBitSetQueue expectedNodeAlreadyPresent =
+            new BooleanBitSetQueue(EXPECTED_BIT_SET_INITIAL_CAPACITY);
+
+    /**
+     * As part of tracking {@link ExpectedLesson}s, this keeps track of the combination of the
+     * parent and index of the lesson.
+     */
+    private final ConcurrentBitSetQueue expectedChildren =
+            new ConcurrentBitSetQueue(QUEUE_CHUNK_SHIFT);
+
+    /** As part of tracking {@link ExpectedLesson}s, this keeps track of the "original" long. */
+    private final BooleanBitSetQueue expectedOriginalExists =
+            new BooleanBitSetQueue(EXPECTED_BIT_SET_INITIAL_CAPACITY);
+
+    /**
+     * Create a new {@link VirtualLearnerPartitionView}.
+     *
+     * @param parent the view of the whole tree
+     * @param joiner joins the nodes received in all partitions
+     * @param partitionIndex the index of this partition
+     * @param partitionRoot the path of the root of this partition, must be an internal node
+     */
+    VirtualLearnerPartitionView(
+            final VirtualLearnerTreeView<K, V> parent,
+            final ReconnectPartitionJoiner<K, V> joiner,
+            final int partitionIndex,
+            final long partitionRoot) {
+        super(parent.root, parent.originalState, parent.reconnectState);
+        this.parent = parent;
+        this.joiner = joiner;
+        this.partitionIndex = partitionIndex;
+        this.partitionRoot = partitionRoot;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The root of a partition is an ordinary internal node, so the node is taken from the first
+     * lesson like any other node.
+     */
+    @Override
+    public boolean isRootOfState() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long getOriginalRoot() {
+        return partitionRoot <= originalState.getLastLeafPath() ? partitionRoot : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Hash getNodeHash(final Long originalChild) {
+        return parent.getNodeHash(originalChild);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean mayHaveHash(final Long originalChild, final Hash hash) {
+        return parent.mayHaveHash(originalChild, hash);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void expectLessonFor(
+            final Long parent,
+            final int childIndex,
+            final Long original,
+            final boolean nodeAlreadyPresent) {
+        expectedChildren.add(parent == null ? partitionRoot : getChildPath(parent, childIndex));
+        expectedNodeAlreadyPresent.add(nodeAlreadyPresent);
+        expectedOriginalExists.add(original != null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ExpectedLesson<Long> getNextExpectedLesson() {
+        final long child = expectedChildren.remove();
+        final long parent = getParentPath(child);
+        final int index = isLeft(child) ? 0 : 1;
+        final Long original = expectedOriginalExists.remove() ? child : null;
+        final boolean nodeAlreadyPresent = expectedNodeAlreadyPresent.remove();
+        return new ExpectedLesson<>(parent, index, original, nodeAlreadyPresent);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNextExpectedLesson() {
+        assert expectedOriginalExists.isEmpty() == expectedChildren.isEmpty()
+                        && expectedChildren.isEmpty() == expectedNodeAlreadyPresent.isEmpty()
+                : "All three should match";
+
+        return !expectedOriginalExists.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long deserializeLeaf(final SerializableDataInputStream in) throws IOException {
+        final VirtualLeafRecord<K, V> leaf = in.readSerializable();
+        joiner.addLeaf(partitionIndex, leaf);
+        return leaf.getPath();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long deserializeInternal(final SerializableDataInputStream in) throws IOException {
+        final long node = in.readLong();
+        joiner.addInternal(partitionIndex, node);
+        return node;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize() {
+        // no-op
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Called by the learner thread of this partition once it has finished, successfully or not.
+     */
+    @Override
+    public void close() {
+        expectedNodeAlreadyPresent.close();
+        expectedChildren.close();
+        expectedOriginalExists.close();
+        joiner.finishPartition(partitionIndex);
+        parent.partitionFinished();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void markForInitialization(final Long node) {
+        // no-op
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releaseNode(final Long node) {
+        // no-op
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setChild(final Long parent, final int childIndex, final Long child) {
+        // No-op
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long convertMerkleRootToViewType(final MerkleNode node) {
+        throw new UnsupportedOperationException("Nested virtual maps not supported");
+    }
+}
@@ -15,30 +15,49 @@
  */
 package com.swirlds.virtualmap.internal.reconnect;
 
+import static com.swirlds.logging.LogMarker.RECONNECT;
 import static com.swirlds.virtualmap.internal.Path.ROOT_PATH;
 import static com.swirlds.virtualmap.internal.Path.getChildPath;
 import static com.swirlds.virtualmap.internal.Path.getParentPath;
+import static com.swirlds.virtualmap.internal.Path.getPathForRankAndIndex;
 import static com.swirlds.virtualmap.internal.Path.isLeft;
+import static com.swirlds.virtualmap.internal.merkle.VirtualMapState.MAX_LABEL_LENGTH;
 
 import com.swirlds.common.crypto.CryptographyHolder;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.io.utility.FileUtils;
+import com.swirlds.common.io.utility.TemporaryFileBuilder;
 import com.swirlds.common.merkle.MerkleNode;
 import com.swirlds.common.merkle.synchronization.internal.ExpectedLesson;
+import com.swirlds.common.merkle.synchronization.settings.ReconnectSettings;
+import com.swirlds.common.merkle.synchronization.settings.ReconnectSettingsFactory;
 import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import com.swirlds.common.merkle.synchronization.views.BulkLearnerTreeView;
 import com.swirlds.common.merkle.synchronization.views.LearnerTreeView;
+import com.swirlds.common.merkle.synchronization.views.PartitionedLearnerTreeView;
 import com.swirlds.common.threading.manager.ThreadManager;
 import com.swirlds.common.threading.pool.StandardWorkGroup;
 import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualDataSource;
 import com.swirlds.virtualmap.datasource.VirtualKeySet;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.datasource.VirtualRecord;
 import com.swirlds.virtualmap.internal.RecordAccessor;
 import com.swirlds.virtualmap.internal.VirtualStateAccessor;
+import com.swirlds.virtualmap.internal.cache.VirtualNodeCache;
 import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * An implementation of {@link LearnerTreeView} for the virtual merkle. The learner during reconnect
@@ -46,11 +65,26 @@ import java.util.Objects;
  * This implementation uses {@link Long} as the representation of a node and corresponds directly to
  * the path of the node.
  *
+ * <p>If the teacher splits the tree into partitions, the partitions are received by {@link
+ * VirtualLearnerPartitionView}s, and this view receives the nodes of all partitions in path order
+ * from a {@link ReconnectPartitionJoiner}.
+ *
+ * <p>If the original tree has far fewer leaves than the teacher's tree, as configured by {@link
+ * ReconnectSettings#getBulkReconnectThreshold()}, this view asks the teacher to send the tree in
+ * bulk, as the files of a data source snapshot, which are then used in place of the original data.
+ *
+ * <p>If enabled by {@link ReconnectSettings#isLeafHashFilterEnabled()}, this view builds a {@link
+ * LeafHashFilter} of the original leaves, so leaves that cannot match the teacher's leaves are not
+ * read from disk.
+ *
  * @param <K> The key
  * @param <V> The value
  */
 public final class VirtualLearnerTreeView<K extends VirtualKey<? super K>, V extends VirtualValue>
-        extends VirtualTreeViewBase<K, V> implements LearnerTreeView<Long> {
+        extends VirtualTreeViewBase<K, V>
+        implements PartitionedLearnerTreeView<Long>, BulkLearnerTreeView<Long> {
+
+    private static final Logger logger = LogManager.getLogger(VirtualLearnerTreeView.class);
 
     /**
      * Some reasonable default initial capacity for the {@link BooleanBitSetQueue}s used for storing
@@ -94,6 +128,24 @@ public final class VirtualLearnerTreeView<K extends VirtualKey<? super K>, V ext
     /** True until we have handled our first leaf */
     private boolean firstLeaf = true;
 
+    /**
+     * The rank of the roots of the partitions the teacher split the tree into, or 0 if the tree is
+     * not split.
+     */
+    private int partitionRank;
+
+    /** Joins the nodes received in all partitions. Null if the tree is not split. */
+    private ReconnectPartitionJoiner<K, V> joiner;
+
+    /** The number of partitions whose learner threads have not yet finished. */
+    private final AtomicInteger unfinishedPartitions = new AtomicInteger();
+
+    /**
+     * A filter of the hashes of the original leaves in the data source. Null if the filter is
+     * disabled or the original tree is empty.
+     */
+    private LeafHashFilter leafHashFilter;
+
     /**
      * Create a new {@link VirtualLearnerTreeView}.
      *
@@ -171,6 +223,26 @@ public final class VirtualLearnerTreeView<K extends VirtualKey<? super K>, V ext
         return hash;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>An original leaf that is not in the cache would have to be read from the data source to
+     * get its hash, so the teacher's hash is checked against a filter of the leaf hashes in the
+     * data source first.
+     */
+    @Override
+    public boolean mayHaveHash(final Long originalChild, final Hash hash) {
+        if (leafHashFilter == null
+                || originalChild == null
+                || originalChild < originalState.getFirstLeafPath()) {
+            return true;
+        }
+        if (originalRecords.getCache().lookupLeafByPath(originalChild, false) != null) {
+            return true;
+        }
+        return leafHashFilter.mayContain(hash);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void expectLessonFor(
@@ -204,18 +276,128 @@ public final class VirtualLearnerTreeView<K extends VirtualKey<? super K>, V ext
         return !expectedOriginalExists.isEmpty();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public MerkleNode receiveBulk(
+            final SerializableDataInputStream in, final SerializableDataOutputStream out)
+            throws IOException {
+        final long teacherLeafCount = in.readLong();
+        final boolean accepted = isBulkReconnectNeeded(teacherLeafCount);
+        out.writeBoolean(accepted);
+        out.flush();
+        if (!accepted) {
+            return null;
+        }
+
+        final String label = in.readNormalisedString(MAX_LABEL_LENGTH);
+        final long firstLeafPath = in.readLong();
+        final long lastLeafPath = in.readLong();
+        final Hash hash = in.readSerializable(false, Hash::new);
+        final VirtualNodeCache<K, V> cache = in.readSerializable();
+
+        final Path directory = TemporaryFileBuilder.buildTemporaryDirectory("reconnect-snapshot");
+        final long bytes;
+        try {
+            bytes = SnapshotFileTransfer.readFiles(in, directory);
+        } catch (final IOException | RuntimeException e) {
+            FileUtils.deleteDirectory(directory);
+            encounteredKeys.close();
+            throw e;
+        }
+        logger.info(
+                RECONNECT.getMarker(),
+                "received virtual map {} in bulk, {} leaves in {} bytes of data source files",
+                label,
+                teacherLeafCount,
+                bytes);
+
+        final VirtualDataSource<K, V> dataSource =
+                root.getDataSourceBuilder().openSnapshot(label, directory);
+        try {
+            root.endBulkLearnerReconnect(dataSource, cache, firstLeafPath, lastLeafPath, hash);
+        } catch (final RuntimeException e) {
+            try {
+                dataSource.close();
+            } catch (final IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        } finally {
+            encounteredKeys.close();
+        }
+        return root;
+    }
+
+    /**
+     * Decide whether the tree should be received in bulk. This is the case if the original tree is
+     * small compared to the teacher's tree, since most leaves would be sent anyway.
+     *
+     * @param teacherLeafCount the number of leaves in the teacher's tree, or 0 if the teacher
+     *     can't send the tree in bulk
+     * @return true if the tree should be received in bulk
+     */
+    private boolean isBulkReconnectNeeded(final long teacherLeafCount) {
+        final double threshold = ReconnectSettingsFactory.get().getBulkReconnectThreshold();
+        if (teacherLeafCount == 0
+                || threshold <= 0
+                || !root.getDataSourceBuilder().isSnapshotTransferSupported()) {
+            return false;
+        }
+        return originalState.size() < threshold * teacherLeafCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<LearnerTreeView<Long>> partition(final SerializableDataInputStream in)
+            throws IOException {
+        partitionRank = in.readInt();
+        if (partitionRank == 0) {
+            return Collections.emptyList();
+        }
+
+        // The lesson for the root, which normally carries the first and last leaf paths, is not
+        // sent when the tree is split.
+        reconnectState.setFirstLeafPath(in.readLong());
+        reconnectState.setLastLeafPath(in.readLong());
+
+        final int partitionCount = 1 << partitionRank;
+        unfinishedPartitions.set(partitionCount);
+        joiner =
+                new ReconnectPartitionJoiner<>(
+                        partitionCount,
+                        this::handleLeaf,
+                        path -> nodeRemover.newInternalNode(path));
+
+        final List<LearnerTreeView<Long>> partitions = new ArrayList<>(partitionCount);
+        for (int index = 0; index < partitionCount; index++) {
+            partitions.add(
+                    new VirtualLearnerPartitionView<>(
+                            this, joiner, index, getPathForRankAndIndex(partitionRank, index)));
+        }
+        return partitions;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Long deserializeLeaf(final SerializableDataInputStream in) throws IOException {
+        final VirtualLeafRecord<K, V> leaf = in.readSerializable();
+        handleLeaf(leaf);
+        return leaf.getPath();
+    }
+
+    /**
+     * Handle a leaf received from the teacher. Leaves must be handled in path order.
+     *
+     * @param leaf the leaf
+     */
+    private void handleLeaf(final VirtualLeafRecord<K, V> leaf) {
         if (firstLeaf) {
             root.prepareForFirstLeaf();
             firstLeaf = false;
         }
 
-        final VirtualLeafRecord<K, V> leaf = in.readSerializable();
         nodeRemover.newLeafNode(leaf.getPath(), leaf.getKey());
         root.handleReconnectLeaf(leaf); // may block if hashing is slower than ingest
-        return leaf.getPath();
     }
 
     /** {@inheritDoc} */
@@ -257,14 +439,54 @@ public final class VirtualLearnerTreeView<K extends VirtualKey<? super K>, V ext
                         encounteredKeys,
                         originalState.getFirstLeafPath(),
                         originalState.getLastLeafPath());
+
+        if (ReconnectSettingsFactory.get().isLeafHashFilterEnabled() && originalState.size() > 0) {
+            leafHashFilter =
+                    new LeafHashFilter(originalRecords.getDataSource(), originalState.size());
+            leafHashFilter.start(workGroup);
+        }
+
+        if (joiner != null) {
+            final long firstLeafPath = reconnectState.getFirstLeafPath();
+            final long lastLeafPath = reconnectState.getLastLeafPath();
+            root.prepareReconnectHashing(firstLeafPath, lastLeafPath);
+            nodeRemover.setPathInformation(firstLeafPath, lastLeafPath);
+
+            // The internal nodes above the partitions are never sent by the teacher
+            final long firstPartitionPath = getPathForRankAndIndex(partitionRank, 0);
+            for (long path = ROOT_PATH; path < firstPartitionPath; path++) {
+                nodeRemover.newInternalNode(path);
+            }
+
+            joiner.start(workGroup);
+        }
+    }
+
+    /**
+     * Called by the view of each partition once the learner thread of the partition has finished.
+     */
+    void partitionFinished() {
+        if (unfinishedPartitions.decrementAndGet() == 0 && leafHashFilter != null) {
+            // The remaining work does not need the filter, so don't make it wait for the filter
+            leafHashFilter.stop();
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public void close() {
+        if (leafHashFilter != null) {
+            leafHashFilter.stop();
+        }
+        if (joiner != null) {
+            joiner.close();
+        }
         root.endLearnerReconnect();
         nodeRemover.close();
         encounteredKeys.close();
+        expectedNodeAlreadyPresent.close();
+        expectedChildren.close();
+        expectedOriginalExists.close();
     }
 
     /** {@inheritDoc} */
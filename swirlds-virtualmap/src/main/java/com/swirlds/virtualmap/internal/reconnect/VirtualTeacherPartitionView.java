@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.synchronization.views.TeacherTreeView;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link TeacherTreeView} for one subtree of a virtual tree that is sent over several parallel
+ * streams. Each partition keeps its own queues, but shares the records and the responses received
+ * from the learner with the {@link VirtualTeacherTreeView} of the whole tree.
+ *
+ * @param <K> The key
+ * @param <V> The value
+ */
+final class VirtualTeacherPartitionView<K extends VirtualKey<? super K>, V extends VirtualValue>
+        extends VirtualTreeViewBase<K, V> implements TeacherTreeView<Long> {
+
+    /**
+     * The queues of a partition only hold paths of a single subtree, so they use much smaller
+     * BitSets than the queues of the whole tree.
+     */
+    private static final int QUEUE_CHUNK_SHIFT = 20;
+
+    /** The view of the whole tree. */
+    private final VirtualTeacherTreeView<K, V> parent;
+
+    /** The path of the root of this partition. */
+    private final long partitionRoot;
+
+    /** A queue of the nodes (by path) that we are about to handle. */
+    private final ConcurrentBitSetQueue handleQueue = new ConcurrentBitSetQueue(QUEUE_CHUNK_SHIFT);
+
+    /** A queue of the nodes (by path) that we expect responses for. */
+    private final ConcurrentBitSetQueue expectedResponseQueue =
+            new ConcurrentBitSetQueue(QUEUE_CHUNK_SHIFT);
+
+    /**
+     * Create a new {@link VirtualTeacherPartitionView}.
+     *
+     * @param parent the view of the whole tree
+     * @param partitionRoot the path of the root of the partition, must be an internal node
+     */
+    VirtualTeacherPartitionView(
+            final VirtualTeacherTreeView<K, V> parent, final long partitionRoot) {
+        super(parent.root, parent.reconnectState, parent.reconnectState);
+        this.parent = parent;
+        this.partitionRoot = partitionRoot;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void waitUntilReady() throws InterruptedException {
+        parent.waitUntilReady();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long getRoot() {
+        return partitionRoot;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addToHandleQueue(final Long node) {
+        checkValidNode(node, reconnectState);
+        handleQueue.add(node);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long getNextNodeToHandle() {
+        return handleQueue.remove();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean areThereNodesToHandle() {
+        return !handleQueue.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long getChildAndPrepareForQueryResponse(final Long parent, final int childIndex) {
+        final long child = getChild(parent, childIndex);
+        expectedResponseQueue.add(child);
+        return child;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long getNodeForNextResponse() {
+        return expectedResponseQueue.remove();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isResponseExpected() {
+        return !expectedResponseQueue.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerResponseForNode(final Long node, final boolean learnerHasNode) {
+        parent.registerResponseForNode(node, learnerHasNode);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasLearnerConfirmedFor(final Long node) {
+        return parent.hasLearnerConfirmedFor(node);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void serializeLeaf(final SerializableDataOutputStream out, final Long leaf)
+            throws IOException {
+        parent.serializeLeaf(out, leaf);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void serializeInternal(final SerializableDataOutputStream out, final Long internal)
+            throws IOException {
+        parent.serializeInternal(out, internal);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Hash> getChildHashes(final Long parent) {
+        return this.parent.getChildHashes(parent);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isCustomReconnectRoot(final Long node) {
+        // The root of the virtual tree is never part of a partition
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Called once the sending and receiving threads of this partition have finished.
+     */
+    @Override
+    public void close() {
+        handleQueue.close();
+        expectedResponseQueue.close();
+    }
+}
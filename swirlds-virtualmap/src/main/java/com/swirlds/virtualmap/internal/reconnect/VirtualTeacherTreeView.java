@@ -19,16 +19,24 @@ import static com.swirlds.logging.LogMarker.RECONNECT;
 import static com.swirlds.virtualmap.internal.Path.INVALID_PATH;
 import static com.swirlds.virtualmap.internal.Path.ROOT_PATH;
 import static com.swirlds.virtualmap.internal.Path.getLeftChildPath;
+import static com.swirlds.virtualmap.internal.Path.getPathForRankAndIndex;
+import static com.swirlds.virtualmap.internal.Path.getRank;
 import static com.swirlds.virtualmap.internal.Path.getRightChildPath;
 
 import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.io.utility.FileUtils;
+import com.swirlds.common.io.utility.TemporaryFileBuilder;
 import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
+import com.swirlds.common.merkle.synchronization.views.BulkTeacherTreeView;
+import com.swirlds.common.merkle.synchronization.views.PartitionedTeacherTreeView;
 import com.swirlds.common.merkle.synchronization.views.TeacherTreeView;
 import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.threading.manager.ThreadManager;
 import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualDataSourceBuilder;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.datasource.VirtualRecord;
 import com.swirlds.virtualmap.internal.ConcurrentNodeStatusTracker;
@@ -37,6 +45,8 @@ import com.swirlds.virtualmap.internal.VirtualStateAccessor;
 import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
 import com.swirlds.virtualmap.internal.pipeline.VirtualPipeline;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -45,13 +55,17 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * An implementation of {@link TeacherTreeView} designed for virtual merkle trees.
+ * An implementation of {@link TeacherTreeView} designed for virtual merkle trees. The tree can be
+ * split into the subtrees rooted at a single rank, which are then sent in parallel by {@link
+ * VirtualTeacherPartitionView}s. If the learner asks for it, the whole tree is instead sent in
+ * bulk, as the files of a data source snapshot.
  *
  * @param <K> The key
  * @param <V> The value
  */
 public final class VirtualTeacherTreeView<K extends VirtualKey<? super K>, V extends VirtualValue>
-        extends VirtualTreeViewBase<K, V> implements TeacherTreeView<Long> {
+        extends VirtualTreeViewBase<K, V>
+        implements PartitionedTeacherTreeView<Long>, BulkTeacherTreeView<Long> {
 
     private static final Logger logger = LogManager.getLogger(VirtualTeacherTreeView.class);
 
@@ -116,6 +130,109 @@ public final class VirtualTeacherTreeView<K extends VirtualKey<? super K>, V ext
         return ROOT_PATH;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The tree is split into the subtrees rooted at the nodes of a single rank. All nodes above
+     * and at that rank must be internal nodes, so small trees are never split. The partitioning is
+     * written as the rank, followed by the first and last leaf paths if the rank is not zero. The
+     * first and last leaf paths are normally sent with the lesson for the root, which is not sent
+     * when the tree is split.
+     */
+    @Override
+    public List<TeacherTreeView<Long>> partition(
+            final int maxPartitions, final SerializableDataOutputStream out) throws IOException {
+        final int rank = getPartitionRank(maxPartitions, reconnectState.getFirstLeafPath());
+        out.writeInt(rank);
+        if (rank == 0) {
+            return Collections.emptyList();
+        }
+
+        out.writeLong(reconnectState.getFirstLeafPath());
+        out.writeLong(reconnectState.getLastLeafPath());
+
+        final int partitionCount = 1 << rank;
+        final List<TeacherTreeView<Long>> partitions = new ArrayList<>(partitionCount);
+        for (int index = 0; index < partitionCount; index++) {
+            partitions.add(
+                    new VirtualTeacherPartitionView<>(this, getPathForRankAndIndex(rank, index)));
+        }
+
+        logger.info(
+                RECONNECT.getMarker(),
+                "sending virtual tree as {} partitions at rank {}",
+                partitionCount,
+                rank);
+        return partitions;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The offer is the number of leaves in the tree, or 0 if the data source can't be sent as
+     * files. If the learner accepts, this view sends the label, the first and last leaf paths and
+     * the root hash, then the cache, which holds the changes not yet flushed to the data source,
+     * and finally the files of a snapshot of the data source.
+     */
+    @Override
+    public boolean sendBulk(
+            final SerializableDataInputStream in, final SerializableDataOutputStream out)
+            throws IOException {
+        final VirtualDataSourceBuilder<K, V> builder = root.getDataSourceBuilder();
+        final long firstLeafPath = reconnectState.getFirstLeafPath();
+        final long lastLeafPath = reconnectState.getLastLeafPath();
+        final boolean offered =
+                firstLeafPath != INVALID_PATH && builder.isSnapshotTransferSupported();
+        out.writeLong(offered ? lastLeafPath - firstLeafPath + 1 : 0);
+        out.flush();
+        if (!in.readBoolean()) {
+            return false;
+        }
+        if (!offered) {
+            throw new MerkleSynchronizationException(
+                    "learner accepted a bulk offer that was not made");
+        }
+
+        final Path directory = TemporaryFileBuilder.buildTemporaryDirectory("reconnect-snapshot");
+        try {
+            builder.snapshot(directory, records.getDataSource());
+
+            out.writeNormalisedString(reconnectState.getLabel());
+            out.writeLong(firstLeafPath);
+            out.writeLong(lastLeafPath);
+            out.writeSerializable(root.getHash(), false);
+            out.writeSerializable(records.getCache(), true);
+            final long bytes = SnapshotFileTransfer.writeFiles(directory, out);
+
+            logger.info(
+                    RECONNECT.getMarker(),
+                    "sent virtual map {} in bulk, {} leaves in {} bytes of data source files",
+                    reconnectState.getLabel(),
+                    lastLeafPath - firstLeafPath + 1,
+                    bytes);
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+        return true;
+    }
+
+    /**
+     * Get the rank whose nodes are the roots of the partitions of a tree.
+     *
+     * @param maxPartitions the maximum number of partitions
+     * @param firstLeafPath the first leaf path of the tree
+     * @return the rank, or 0 if the tree should not be split
+     */
+    static int getPartitionRank(final int maxPartitions, final long firstLeafPath) {
+        if (maxPartitions < 2 || firstLeafPath == INVALID_PATH) {
+            return 0;
+        }
+        // The number of partitions is rounded down to a power of two, and every partition root
+        // must be an internal node.
+        final int requestedRank = 31 - Integer.numberOfLeadingZeros(maxPartitions);
+        return Math.max(0, Math.min(requestedRank, getRank(firstLeafPath) - 1));
+    }
+
     /** {@inheritDoc} */
     @Override
     public void addToHandleQueue(final Long node) {
@@ -248,6 +365,9 @@ public final class VirtualTeacherTreeView<K extends VirtualKey<? super K>, V ext
         } catch (final InterruptedException e) {
             logger.error(RECONNECT.getMarker(), "Failed to close data source properly", e);
             Thread.currentThread().interrupt();
+        } finally {
+            handleQueue.close();
+            expectedResponseQueue.close();
         }
     }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLongObjectMapTest {
+
+    /** Mask of slots in a segment table before it is first resized */
+    private static final int INITIAL_MASK = 15;
+
+    /**
+     * Find keys that land in the first segment and have the given home slot in a table of the
+     * initial size.
+     */
+    private static long[] keysWithHomeSlot(final int homeSlot, final int count) {
+        final long[] keys = new long[count];
+        int found = 0;
+        for (long key = 0; found < count; key++) {
+            final long hash = ConcurrentLongObjectMap.hash(key);
+            if (((hash >>> 59) == 0) && (((int) hash & INITIAL_MASK) == homeSlot)) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    @DisplayName("Put, get and remove")
+    void putGetRemove() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        assertNull(map.get(1));
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.get(1));
+        assertEquals("a", map.put(1, "b"), "put should return the previous value");
+        assertEquals("b", map.get(1));
+        assertEquals(1, map.size());
+
+        // negative and extreme keys are keys like any other
+        map.put(-1, "minus one");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(Long.MAX_VALUE, "max");
+        assertEquals("minus one", map.get(-1));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertEquals(4, map.size());
+
+        // a null value removes the key
+        assertEquals("b", map.put(1, null));
+        assertNull(map.get(1));
+        assertNull(map.put(1, null), "removing a missing key is a no-op");
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    @DisplayName("Compute updates, adds and removes atomically")
+    void compute() {
+        final ConcurrentLongObjectMap<Integer> map = new ConcurrentLongObjectMap<>();
+        assertEquals(Integer.valueOf(1), map.compute(7, (k, v) -> (v == null) ? 1 : v + 1));
+        assertEquals(Integer.valueOf(2), map.compute(7, (k, v) -> (v == null) ? 1 : v + 1));
+        assertEquals(Integer.valueOf(2), map.get(7));
+        assertNull(map.compute(8, (k, v) -> null), "a null result for a missing key adds nothing");
+        assertEquals(1, map.size());
+        assertNull(map.compute(7, (k, v) -> null), "compute should return the new value");
+        assertNull(map.get(7));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    @DisplayName("Probe sequences wrap around the end of a table")
+    void wrapAround() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        // three keys with the last slot as home occupy the last slot and the first two slots
+        final long[] atEnd = keysWithHomeSlot(INITIAL_MASK, 3);
+        // a key with the first slot as home is pushed to the third slot
+        final long[] atStart = keysWithHomeSlot(0, 1);
+        for (final long key : atEnd) {
+            map.put(key, "end" + key);
+        }
+        map.put(atStart[0], "start" + atStart[0]);
+        for (final long key : atEnd) {
+            assertEquals("end" + key, map.get(key));
+        }
+        assertEquals("start" + atStart[0], map.get(atStart[0]));
+        // a missing key with a home slot in the cluster is probed past its end
+        assertNull(map.get(keysWithHomeSlot(INITIAL_MASK, 4)[3]));
+        assertNull(map.get(keysWithHomeSlot(0, 2)[1]));
+    }
+
+    @Test
+    @DisplayName("Removed entries are backward-shifted across the end of a table")
+    void backwardShiftDeletes() {
+        final long[] atEnd = keysWithHomeSlot(INITIAL_MASK, 3);
+        final long[] atStart = keysWithHomeSlot(0, 2);
+        final long[] atThird = keysWithHomeSlot(2, 1);
+        final long[] all = {atEnd[0], atEnd[1], atEnd[2], atStart[0], atStart[1], atThird[0]};
+
+        // remove every key in turn from a cluster that wraps around, all others must be found
+        for (final long removed : all) {
+            final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+            for (final long key : all) {
+                map.put(key, "v" + key);
+            }
+            assertEquals("v" + removed, map.put(removed, null));
+            assertNull(map.get(removed));
+            for (final long key : all) {
+                if (key != removed) {
+                    assertEquals("v" + key, map.get(key), "lost " + key + " removing " + removed);
+                }
+            }
+            // the freed slot can be reused
+            map.put(removed, "again");
+            assertEquals("again", map.get(removed));
+            assertEquals(all.length, map.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Random updates of colliding keys match a reference map")
+    void randomCollidingUpdates() {
+        // keys crowded around the end of the first segment table
+        final List<Long> pool = new ArrayList<>();
+        for (final int homeSlot : new int[] {13, 14, 15, 0, 1}) {
+            for (final long key : keysWithHomeSlot(homeSlot, 6)) {
+                pool.add(key);
+            }
+        }
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        final Map<Long, String> reference = new HashMap<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            final long key = pool.get(random.nextInt(pool.size()));
+            if (random.nextBoolean()) {
+                final String value = "v" + i;
+                assertEquals(reference.put(key, value), map.put(key, value));
+            } else {
+                assertEquals(reference.remove(key), map.put(key, null));
+            }
+            assertEquals(reference.size(), map.size());
+            for (final long k : pool) {
+                assertEquals(reference.get(k), map.get(k), "mismatch for key " + k);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Tables are resized as they fill up and entries survive resizing")
+    void resize() {
+        final ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        final int count = 100_000;
+        for (long key = 0; key < count; key++) {
+            map.put(key, key);
+        }
+        assertEquals(count, map.size());
+        for (long key = 0; key < count; key++) {
+            assertEquals(Long.valueOf(key), map.get(key));
+        }
+        assertNull(map.get(count));
+
+        for (long key = 0; key < count; key += 2) {
+            map.put(key, null);
+        }
+        assertEquals(count / 2, map.size());
+        for (long key = 0; key < count; key++) {
+            assertEquals((key % 2 == 0) ? null : Long.valueOf(key), map.get(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Keys and forEach visit every entry once")
+    void keysAndForEach() {
+        final ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        final int count = 5_000;
+        for (long key = 0; key < count; key++) {
+            map.put(key * 3, key);
+        }
+        final long[] keys = map.keys();
+        Arrays.sort(keys);
+        final long[] expected = new long[count];
+        for (int i = 0; i < count; i++) {
+            expected[i] = i * 3L;
+        }
+        assertArrayEquals(expected, keys);
+
+        final Map<Long, Long> visited = new HashMap<>();
+        map.forEach((k, v) -> assertNull(visited.put(k, v), "visited twice " + k));
+        assertEquals(count, visited.size());
+        visited.forEach((k, v) -> assertEquals(k.longValue(), v * 3));
+    }
+
+    @Test
+    @DisplayName("Readers always find stable entries while writers resize and shift tables")
+    void concurrentReadersDuringWrites() throws InterruptedException {
+        final ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        final int stableCount = 2_000;
+        // stable keys are never updated, odd keys are churned by the writers
+        for (long key = 0; key < stableCount; key++) {
+            map.put(key * 2, key * 2);
+        }
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            final Random random = new Random(r);
+            final Thread reader =
+                    new Thread(
+                            () -> {
+                                try {
+                                    start.await();
+                                    while (writing.get()) {
+                                        final long stable = 2L * random.nextInt(stableCount);
+                                        assertEquals(Long.valueOf(stable), map.get(stable));
+                                        final long churned = 2L * random.nextInt(100_000) + 1;
+                                        final Long value = map.get(churned);
+                                        if (value != null) {
+                                            assertEquals(Long.valueOf(churned), value);
+                                        }
+                                    }
+                                } catch (final Throwable e) {
+                                    error.compareAndSet(null, e);
+                                }
+                            },
+                            "reader-" + r);
+            readers.add(reader);
+            reader.start();
+        }
+
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            final int writer = w;
+            final Thread thread =
+                    new Thread(
+                            () -> {
+                                try {
+                                    start.await();
+                                    for (int round = 0; round < 5; round++) {
+                                        // each writer churns its own odd keys
+                                        for (long k = writer; k < 50_000; k += 2) {
+                                            map.put(2 * k + 1, 2 * k + 1);
+                                        }
+                                        for (long k = writer; k < 50_000; k += 2) {
+                                            map.put(2 * k + 1, null);
+                                        }
+                                    }
+                                } catch (final Throwable e) {
+                                    error.compareAndSet(null, e);
+                                }
+                            },
+                            "writer-" + w);
+            writers.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        for (final Thread thread : writers) {
+            thread.join();
+        }
+        writing.set(false);
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError("a reader or writer failed", error.get());
+        }
+        assertEquals(stableCount, map.size());
+        for (long key = 0; key < stableCount; key++) {
+            assertEquals(Long.valueOf(key * 2), map.get(key * 2));
+        }
+    }
+}
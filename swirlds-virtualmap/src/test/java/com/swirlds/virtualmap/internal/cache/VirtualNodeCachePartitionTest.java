@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.virtualmap.DefaultVirtualMapSettings;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualMapSettings;
+import com.swirlds.virtualmap.VirtualMapSettingsFactory;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class VirtualNodeCachePartitionTest {
+
+    /** A tree of 1024 leaves */
+    private static final long FIRST_LEAF_PATH = 1023;
+
+    private static final long LAST_LEAF_PATH = 2046;
+
+    /** Leaf changes in each of the two versions of a cache */
+    private static final int NUM_OF_CHANGES = 3_000;
+
+    private VirtualMapSettings originalSettings;
+
+    @BeforeEach
+    void saveSettings() {
+        originalSettings = VirtualMapSettingsFactory.get();
+    }
+
+    @AfterEach
+    void restoreSettings() {
+        VirtualMapSettingsFactory.configure(originalSettings);
+    }
+
+    private static void configurePartitions(final int numPartitions) {
+        final VirtualMapSettings settings =
+                mock(VirtualMapSettings.class, delegatesTo(new DefaultVirtualMapSettings()));
+        when(settings.getNumDirtyLeafPartitions()).thenReturn(numPartitions);
+        VirtualMapSettingsFactory.configure(settings);
+    }
+
+    private static VirtualLeafRecord<LongKey, LongValue> leaf(
+            final long path, final LongKey key, final long value) {
+        return new VirtualLeafRecord<>(path, null, key, new LongValue(value));
+    }
+
+    /**
+     * Randomly add, update, move and delete leaves with paths in the given range, in two versions
+     * of a cache. The older version is then merged into the newer one, so the newer one has
+     * mutations of both versions for some paths and keys.
+     */
+    private static VirtualNodeCache<LongKey, LongValue> mutatedCache(
+            final long seed, final long firstPath, final long lastPath) {
+        final Random random = new Random(seed);
+        final int numOfPaths = (int) (lastPath - firstPath + 1);
+        final Map<Long, LongKey> keysByPath = new HashMap<>();
+        long nextKey = 0;
+        final VirtualNodeCache<LongKey, LongValue> older = new VirtualNodeCache<>();
+        VirtualNodeCache<LongKey, LongValue> cache = older;
+        for (int version = 0; version < 2; version++) {
+            for (int i = 0; i < NUM_OF_CHANGES; i++) {
+                final long path = firstPath + random.nextInt(numOfPaths);
+                final LongKey key = keysByPath.get(path);
+                if (key == null) {
+                    final LongKey newKey = new LongKey(nextKey++);
+                    cache.putLeaf(leaf(path, newKey, random.nextLong()));
+                    keysByPath.put(path, newKey);
+                    continue;
+                }
+                switch (random.nextInt(3)) {
+                    case 0 -> cache.putLeaf(leaf(path, key, random.nextLong()));
+                    case 1 -> {
+                        final long toPath = firstPath + random.nextInt(numOfPaths);
+                        if (!keysByPath.containsKey(toPath)) {
+                            cache.clearLeafPath(path);
+                            cache.putLeaf(leaf(toPath, key, random.nextLong()));
+                            keysByPath.remove(path);
+                            keysByPath.put(toPath, key);
+                        }
+                    }
+                    default -> {
+                        cache.deleteLeaf(leaf(path, key, random.nextLong()));
+                        keysByPath.remove(path);
+                    }
+                }
+            }
+            if (version == 0) {
+                cache = older.copy();
+            }
+        }
+        // a newer copy, so the cache under test is no longer the mutable one
+        cache.copy();
+        older.seal();
+        cache.seal();
+        older.merge();
+        return cache;
+    }
+
+    private static List<VirtualLeafRecord<LongKey, LongValue>> sequentialDirtyLeaves(
+            final VirtualNodeCache<LongKey, LongValue> cache,
+            final long firstPath,
+            final long lastPath) {
+        configurePartitions(0);
+        return cache.dirtyLeaves(firstPath, lastPath).toList();
+    }
+
+    private static Set<LongKey> deletedKeys(
+            final VirtualNodeCache<LongKey, LongValue> cache, final int numPartitions) {
+        configurePartitions(numPartitions);
+        final List<LongKey> keys = cache.deletedLeaves().map(VirtualLeafRecord::getKey).toList();
+        final Set<LongKey> uniqueKeys = Set.copyOf(keys);
+        assertEquals(keys.size(), uniqueKeys.size(), "deleted leaves should not be duplicated");
+        return uniqueKeys;
+    }
+
+    private static void assertSortedByPath(
+            final List<VirtualLeafRecord<LongKey, LongValue>> leaves) {
+        for (int i = 1; i < leaves.size(); i++) {
+            assertTrue(
+                    leaves.get(i - 1).getPath() < leaves.get(i).getPath(),
+                    "dirty leaves should be sorted by path without duplicates");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 8, 64, 2048})
+    @DisplayName("Dirty leaves in partitions match sequentially extracted dirty leaves")
+    void partitionedMatchesSequential(final int numPartitions) {
+        final VirtualNodeCache<LongKey, LongValue> cache =
+                mutatedCache(numPartitions, FIRST_LEAF_PATH, LAST_LEAF_PATH);
+        // the whole range, and a narrower one that leaves out some of the dirty leaves
+        for (final long[] range :
+                new long[][] {
+                    {FIRST_LEAF_PATH, LAST_LEAF_PATH}, {FIRST_LEAF_PATH + 100, LAST_LEAF_PATH - 77}
+                }) {
+            final List<VirtualLeafRecord<LongKey, LongValue>> expected =
+                    sequentialDirtyLeaves(cache, range[0], range[1]);
+            assertFalse(expected.isEmpty(), "the test should have dirty leaves");
+
+            configurePartitions(numPartitions);
+            final List<VirtualLeafRecord<LongKey, LongValue>> partitioned =
+                    cache.dirtyLeaves(range[0], range[1]).toList();
+            assertEquals(expected, partitioned, "partitions should have the same dirty leaves");
+            assertSortedByPath(partitioned);
+
+            final List<Stream<VirtualLeafRecord<LongKey, LongValue>>> partitions =
+                    cache.dirtyLeavesByPartition(range[0], range[1], numPartitions);
+            assertEquals(numPartitions, partitions.size(), "one stream per partition");
+            assertEquals(
+                    expected,
+                    partitions.stream().flatMap(partition -> partition).toList(),
+                    "concatenated partitions should have the same dirty leaves");
+        }
+
+        final Set<LongKey> deleted = deletedKeys(cache, 0);
+        assertFalse(deleted.isEmpty(), "the test should have deleted leaves");
+        assertEquals(deleted, deletedKeys(cache, numPartitions), "deleted leaves should match");
+    }
+
+    @Test
+    @DisplayName("A single partition has all dirty leaves in path order")
+    void singlePartition() {
+        final VirtualNodeCache<LongKey, LongValue> cache =
+                mutatedCache(1, FIRST_LEAF_PATH, LAST_LEAF_PATH);
+        final List<VirtualLeafRecord<LongKey, LongValue>> expected =
+                sequentialDirtyLeaves(cache, FIRST_LEAF_PATH, LAST_LEAF_PATH);
+
+        final List<Stream<VirtualLeafRecord<LongKey, LongValue>>> partitions =
+                cache.dirtyLeavesByPartition(FIRST_LEAF_PATH, LAST_LEAF_PATH, 1);
+        assertEquals(1, partitions.size(), "a single partition expected");
+        assertEquals(expected, partitions.get(0).toList(), "the partition should have all leaves");
+    }
+
+    @Test
+    @DisplayName("Partitions without dirty leaves are empty")
+    void emptyPartitions() {
+        // dirty leaves only in the lower half of the leaf path range
+        final long lastDirtyPath = FIRST_LEAF_PATH + (LAST_LEAF_PATH - FIRST_LEAF_PATH) / 2;
+        final VirtualNodeCache<LongKey, LongValue> cache =
+                mutatedCache(2, FIRST_LEAF_PATH, lastDirtyPath);
+        final List<VirtualLeafRecord<LongKey, LongValue>> expected =
+                sequentialDirtyLeaves(cache, FIRST_LEAF_PATH, LAST_LEAF_PATH);
+
+        final List<List<VirtualLeafRecord<LongKey, LongValue>>> partitions =
+                cache.dirtyLeavesByPartition(FIRST_LEAF_PATH, LAST_LEAF_PATH, 4).stream()
+                        .map(Stream::toList)
+                        .toList();
+        assertEquals(4, partitions.size(), "one list per partition");
+        assertFalse(partitions.get(0).isEmpty(), "the first partition should have dirty leaves");
+        assertTrue(partitions.get(2).isEmpty(), "the third partition should be empty");
+        assertTrue(partitions.get(3).isEmpty(), "the last partition should be empty");
+        assertEquals(
+                expected,
+                partitions.stream().flatMap(List::stream).toList(),
+                "concatenated partitions should have the same dirty leaves");
+
+        // a cache without any changes has only empty partitions
+        final VirtualNodeCache<LongKey, LongValue> unchanged = new VirtualNodeCache<>();
+        unchanged.copy();
+        unchanged.seal();
+        assertTrue(
+                unchanged.dirtyLeavesByPartition(FIRST_LEAF_PATH, LAST_LEAF_PATH, 4).stream()
+                        .flatMap(partition -> partition)
+                        .toList()
+                        .isEmpty(),
+                "an unchanged cache should have no dirty leaves");
+        configurePartitions(4);
+        assertEquals(0, unchanged.deletedLeaves().count(), "no deleted leaves expected");
+    }
+
+    private static final class LongKey implements VirtualKey<LongKey> {
+        private long key;
+
+        LongKey(final long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getClassId() {
+            return 0x52e0c1f7a94d3b68L;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void serialize(final SerializableDataOutputStream out) throws IOException {
+            out.writeLong(key);
+        }
+
+        @Override
+        public void deserialize(final SerializableDataInputStream in, final int version)
+                throws IOException {
+            key = in.readLong();
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buffer) {
+            buffer.putLong(key);
+        }
+
+        @Override
+        public void deserialize(final ByteBuffer buffer, final int version) {
+            key = buffer.getLong();
+        }
+
+        @Override
+        public int compareTo(final LongKey other) {
+            return Long.compare(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return (o instanceof LongKey other) && (key == other.key);
+        }
+    }
+
+    private static final class LongValue implements VirtualValue {
+        private long value;
+
+        LongValue(final long value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getClassId() {
+            return 0x52e0c1f7a94d3b69L;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void serialize(final SerializableDataOutputStream out) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public void deserialize(final SerializableDataInputStream in, final int version)
+                throws IOException {
+            value = in.readLong();
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buffer) {
+            buffer.putLong(value);
+        }
+
+        @Override
+        public void deserialize(final ByteBuffer buffer, final int version) {
+            value = buffer.getLong();
+        }
+
+        @Override
+        public LongValue copy() {
+            return new LongValue(value);
+        }
+
+        @Override
+        public VirtualValue asReadOnly() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.hash;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HashingEngineTest {
+
+    /**
+     * Occupy the only thread of a single threaded engine until the returned latch is released.
+     */
+    private static CountDownLatch blockEngine(final HashingEngine.Lane lane)
+            throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        lane.execute(
+                () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        assertTrue(started.await(5, TimeUnit.SECONDS), "the blocking task should start");
+        return release;
+    }
+
+    @Test
+    @DisplayName("Lanes with pending tasks take turns")
+    void roundRobinBetweenLanes() throws InterruptedException {
+        final HashingEngine engine = new HashingEngine(1, "round-robin-test");
+        final HashingEngine.Lane a = engine.newLane();
+        final HashingEngine.Lane b = engine.newLane();
+        final HashingEngine.Lane c = engine.newLane();
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(7);
+
+        final CountDownLatch release = blockEngine(a);
+        // lane a queues a lot of work before lanes b and c queue theirs
+        for (int i = 1; i <= 4; i++) {
+            final String name = "a" + i;
+            a.execute(
+                    () -> {
+                        order.add(name);
+                        done.countDown();
+                    });
+        }
+        for (int i = 1; i <= 2; i++) {
+            final String name = "b" + i;
+            b.execute(
+                    () -> {
+                        order.add(name);
+                        done.countDown();
+                    });
+        }
+        c.execute(
+                () -> {
+                    order.add("c1");
+                    done.countDown();
+                });
+        assertEquals(7, engine.getQueueDepth());
+        assertEquals(4, a.getQueueDepth());
+        assertEquals(2, b.getQueueDepth());
+        assertEquals(1, c.getQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS), "all tasks should run");
+        assertEquals(List.of("a1", "b1", "c1", "a2", "b2", "a3", "a4"), order);
+        assertEquals(0, engine.getQueueDepth());
+        assertEquals(0, a.getQueueDepth());
+        assertEquals(0, b.getQueueDepth());
+        assertEquals(0, c.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("A lane that becomes idle goes to the back of the line when it queues again")
+    void idleLaneRequeues() throws InterruptedException {
+        final HashingEngine engine = new HashingEngine(1, "requeue-test");
+        final HashingEngine.Lane a = engine.newLane();
+        final HashingEngine.Lane b = engine.newLane();
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(3);
+
+        final CountDownLatch release = blockEngine(b);
+        a.execute(
+                () -> {
+                    order.add("a1");
+                    // queued while lane b is waiting for its turn
+                    a.execute(
+                            () -> {
+                                order.add("a2");
+                                done.countDown();
+                            });
+                    done.countDown();
+                });
+        b.execute(
+                () -> {
+                    order.add("b1");
+                    done.countDown();
+                });
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS), "all tasks should run");
+        assertEquals(List.of("a1", "b1", "a2"), order);
+    }
+
+    @Test
+    @DisplayName("Concurrent hashing of many maps never uses more threads than the parallelism")
+    void boundedUnderConcurrentHashing() throws InterruptedException {
+        final int parallelism = 3;
+        final int numOfMaps = 12;
+        final int numOfRanks = 20;
+        final HashingEngine engine = new HashingEngine(parallelism, "bounded-test");
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger tasksRun = new AtomicInteger();
+        final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        // like VirtualHasher.hash(), every map fans out a batch of tasks per rank and waits for
+        // the batch to complete before it moves on to the next rank
+        final List<Thread> hashers = new ArrayList<>();
+        for (int m = 0; m < numOfMaps; m++) {
+            final HashingEngine.Lane lane = engine.newLane();
+            final Thread hasher =
+                    new Thread(
+                            () -> {
+                                try {
+                                    for (int rank = 0; rank < numOfRanks; rank++) {
+                                        final CountDownLatch latch =
+                                                new CountDownLatch(parallelism);
+                                        for (int t = 0; t < parallelism; t++) {
+                                            lane.execute(
+                                                    () -> {
+                                                        final int r = running.incrementAndGet();
+                                                        maxRunning.accumulateAndGet(r, Math::max);
+                                                        threadNames.add(
+                                                                Thread.currentThread().getName());
+                                                        try {
+                                                            Thread.sleep(1);
+                                                        } catch (final InterruptedException e) {
+                                                            Thread.currentThread().interrupt();
+                                                        }
+                                                        running.decrementAndGet();
+                                                        tasksRun.incrementAndGet();
+                                                        latch.countDown();
+                                                    });
+                                        }
+                                        if (!latch.await(30, TimeUnit.SECONDS)) {
+                                            throw new AssertionError("rank didn't complete");
+                                        }
+                                    }
+                                } catch (final Throwable e) {
+                                    error.compareAndSet(null, e);
+                                }
+                            },
+                            "hasher-" + m);
+            hashers.add(hasher);
+            hasher.start();
+        }
+        for (final Thread hasher : hashers) {
+            hasher.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError("a hasher failed", error.get());
+        }
+
+        assertEquals(numOfMaps * numOfRanks * parallelism, tasksRun.get());
+        assertTrue(
+                maxRunning.get() <= parallelism,
+                "too many tasks ran at once: " + maxRunning.get());
+        assertTrue(
+                threadNames.size() <= parallelism, "too many hashing threads: " + threadNames);
+        for (final String name : threadNames) {
+            assertTrue(name.startsWith("bounded-test-"), "unexpected thread " + name);
+        }
+        assertEquals(0, engine.getQueueDepth());
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.hash;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IncrementalHasherTest {
+
+    /** A tree of 4096 leaves, with 4 blocks of 1024 leaves at rank 2 */
+    private static final long FIRST_LEAF_PATH = 4095;
+
+    private static final long LAST_LEAF_PATH = 8190;
+
+    private static final Duration QUIET_PERIOD = Duration.ofMillis(10);
+
+    /** Long enough for every quiet block to be hashed in the background */
+    private static final long BACKGROUND_HASHING_MILLIS = 500;
+
+    private final VirtualHasher<LongKey, LongValue> hasher = new VirtualHasher<>();
+
+    private final Map<Long, VirtualLeafRecord<LongKey, LongValue>> leaves =
+            new ConcurrentHashMap<>();
+
+    private final Map<Long, VirtualInternalRecord> internals = new ConcurrentHashMap<>();
+
+    private IncrementalHasher<LongKey, LongValue> incremental;
+
+    @BeforeEach
+    void createHashedTree() {
+        for (long path = FIRST_LEAF_PATH; path <= LAST_LEAF_PATH; path++) {
+            leaves.put(path, leaf(path, new LongKey(path), new LongValue(path)));
+        }
+        hasher.hash(
+                leaves::get,
+                internals::get,
+                LongStream.rangeClosed(FIRST_LEAF_PATH, LAST_LEAF_PATH)
+                        .mapToObj(leaves::get)
+                        .iterator(),
+                FIRST_LEAF_PATH,
+                LAST_LEAF_PATH,
+                new VirtualHashListener<>() {
+                    @Override
+                    public void onInternalHashed(final VirtualInternalRecord internal) {
+                        internals.put(internal.getPath(), internal);
+                    }
+                });
+        incremental =
+                new IncrementalHasher<>(
+                        leaves::get,
+                        internals::get,
+                        () -> FIRST_LEAF_PATH,
+                        () -> LAST_LEAF_PATH,
+                        QUIET_PERIOD,
+                        Runnable::run);
+        incremental.start();
+    }
+
+    @AfterEach
+    void stopHasher() {
+        incremental.stop();
+    }
+
+    private static VirtualLeafRecord<LongKey, LongValue> leaf(
+            final long path, final LongKey key, final LongValue value) {
+        return new VirtualLeafRecord<>(path, null, key, value);
+    }
+
+    /** Replace the value of a leaf, like a put of an existing key */
+    private void put(final long path, final long value) {
+        final VirtualLeafRecord<LongKey, LongValue> old = leaves.get(path);
+        leaves.put(path, leaf(path, old.getKey(), new LongValue(value)));
+        incremental.touch(path);
+    }
+
+    /** Hash the tree with the given dirty leaves, using the given precomputed hashes */
+    private Hash hash(final SortedSet<Long> dirtyPaths, final LongFunction<Hash> precomputed) {
+        return hasher.hash(
+                leaves::get,
+                internals::get,
+                dirtyPaths.stream().map(leaves::get).iterator(),
+                FIRST_LEAF_PATH,
+                LAST_LEAF_PATH,
+                null,
+                precomputed);
+    }
+
+    /** Hash the tree from scratch, with all leaves dirty */
+    private Hash fullRehash() {
+        final SortedSet<Long> all = new TreeSet<>();
+        LongStream.rangeClosed(FIRST_LEAF_PATH, LAST_LEAF_PATH).forEach(all::add);
+        return hash(all, null);
+    }
+
+    @Test
+    @DisplayName("Values changed after getForModify are rehashed, quiet blocks are reused")
+    void valuesModifiedAfterGetForModify() throws InterruptedException {
+        final SortedSet<Long> dirty = new TreeSet<>();
+        // puts in the first block
+        for (long path = FIRST_LEAF_PATH; path < FIRST_LEAF_PATH + 10; path++) {
+            put(path, -path);
+            dirty.add(path);
+        }
+        // getForModify in the last block, the value is changed once the block is quiet
+        final long modifiedPath = 8000;
+        final LongValue modified = leaves.get(modifiedPath).getValue();
+        incremental.touchForModify(modifiedPath);
+        dirty.add(modifiedPath);
+
+        Thread.sleep(BACKGROUND_HASHING_MILLIS);
+        modified.setValue(42);
+        incremental.stop();
+
+        assertNotNull(incremental.getHash(FIRST_LEAF_PATH), "the quiet block should be reused");
+        assertNull(incremental.getHash(modifiedPath), "a modifiable value should be rehashed");
+        assertEquals(1, incremental.getFinalBlockCount());
+        final Hash incrementalRoot = hash(dirty, incremental::getHash);
+        assertEquals(fullRehash(), incrementalRoot, "root hash differs from a full rehash");
+    }
+
+    @Test
+    @DisplayName("Modifiable values moved to another block are rehashed")
+    void modifiableValuesMoved() throws InterruptedException {
+        // a value handed out for modification in the last block
+        final long fromPath = 8100;
+        final VirtualLeafRecord<LongKey, LongValue> moved = leaves.get(fromPath);
+        incremental.touchForModify(fromPath);
+
+        // swapped with a leaf of the second block, like the last leaf is moved on a remove
+        final long toPath = 5500;
+        final VirtualLeafRecord<LongKey, LongValue> other = leaves.get(toPath);
+        leaves.put(toPath, leaf(toPath, moved.getKey(), moved.getValue()));
+        leaves.put(fromPath, leaf(fromPath, other.getKey(), other.getValue()));
+        incremental.move(fromPath, toPath);
+        incremental.move(toPath, fromPath);
+
+        Thread.sleep(BACKGROUND_HASHING_MILLIS);
+        moved.getValue().setValue(42);
+        incremental.stop();
+
+        assertNull(incremental.getHash(toPath), "a moved modifiable value should be rehashed");
+        assertEquals(0, incremental.getFinalBlockCount());
+        final SortedSet<Long> dirty = new TreeSet<>(Set.of(fromPath, toPath));
+        final Hash incrementalRoot = hash(dirty, incremental::getHash);
+        assertEquals(fullRehash(), incrementalRoot, "root hash differs from a full rehash");
+    }
+
+    private static final class LongKey implements VirtualKey<LongKey> {
+        private long key;
+
+        LongKey(final long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getClassId() {
+            return 0x3c6e5a1d8b29f047L;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void serialize(final SerializableDataOutputStream out) throws IOException {
+            out.writeLong(key);
+        }
+
+        @Override
+        public void deserialize(final SerializableDataInputStream in, final int version)
+                throws IOException {
+            key = in.readLong();
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buffer) {
+            buffer.putLong(key);
+        }
+
+        @Override
+        public void deserialize(final ByteBuffer buffer, final int version) {
+            key = buffer.getLong();
+        }
+
+        @Override
+        public int compareTo(final LongKey other) {
+            return Long.compare(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return (o instanceof LongKey other) && (key == other.key);
+        }
+    }
+
+    private static final class LongValue implements VirtualValue {
+        private long value;
+
+        LongValue(final long value) {
+            this.value = value;
+        }
+
+        void setValue(final long value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getClassId() {
+            return 0x3c6e5a1d8b29f048L;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void serialize(final SerializableDataOutputStream out) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public void deserialize(final SerializableDataInputStream in, final int version)
+                throws IOException {
+            value = in.readLong();
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buffer) {
+            buffer.putLong(value);
+        }
+
+        @Override
+        public void deserialize(final ByteBuffer buffer, final int version) {
+            value = buffer.getLong();
+        }
+
+        @Override
+        public LongValue copy() {
+            return new LongValue(value);
+        }
+
+        @Override
+        public VirtualValue asReadOnly() {
+            return this;
+        }
+    }
+}
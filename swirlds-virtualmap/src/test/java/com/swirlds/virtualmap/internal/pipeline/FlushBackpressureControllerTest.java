@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class FlushBackpressureControllerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    /** Long enough to never be reached, unless a test is broken */
+    private static final Duration NO_LIMIT = Duration.ofSeconds(30);
+
+    @Test
+    @DisplayName("Copies are not delayed while the backlog is within its preferred size")
+    void noBacklogNoDelay() {
+        final FlushBackpressureController controller = new FlushBackpressureController();
+        controller.flushCompleted(100 * MILLIS);
+        controller.copyMade();
+        final long start = System.nanoTime();
+        controller.applyBackpressure(() -> 0, NO_LIMIT);
+        controller.applyBackpressure(() -> -1, NO_LIMIT);
+        assertEquals(0, controller.getLastDelayNanos());
+        assertTrue(System.nanoTime() - start < 50 * MILLIS, "copies should not wait");
+    }
+
+    @Test
+    @DisplayName("Sustainable copy rate follows flush durations and copies per flush")
+    void sustainableCopyRate() {
+        final FlushBackpressureController controller = new FlushBackpressureController();
+        assertEquals(0, controller.getSustainableCopyRate(), "nothing is flushed yet");
+
+        // the first flush sets the average: one copy per 10ms flush
+        controller.copyMade();
+        controller.flushCompleted(10 * MILLIS);
+        assertEquals(100, controller.getSustainableCopyRate(), 1e-6);
+
+        // 3 copies per flush moves the average copies per flush to 1 + 0.2 * (3 - 1)
+        controller.copyMade();
+        controller.copyMade();
+        controller.copyMade();
+        controller.flushCompleted(10 * MILLIS);
+        assertEquals(140, controller.getSustainableCopyRate(), 1e-6);
+
+        // a flush with no copies counts as one copy per flush
+        controller.flushCompleted(10 * MILLIS);
+        assertEquals(100 * (1.4 + 0.2 * (1 - 1.4)), controller.getSustainableCopyRate(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Copies are spaced by the sustainable interval, stretched by the backlog excess")
+    void delayGrowsWithBacklogExcess() {
+        final FlushBackpressureController controller = new FlushBackpressureController();
+        controller.copyMade();
+        controller.flushCompleted(100 * MILLIS);
+
+        // one copy over the preferred backlog: one sustainable interval
+        controller.applyBackpressure(() -> 1, NO_LIMIT);
+        final long delayAtOne = controller.getLastDelayNanos();
+        assertTrue(delayAtOne >= 100 * MILLIS, "delay too short: " + delayAtOne);
+
+        // three copies over: the interval is stretched by 1 + 0.5 * (3 - 1)
+        controller.applyBackpressure(() -> 3, NO_LIMIT);
+        final long delayAtThree = controller.getLastDelayNanos();
+        assertTrue(delayAtThree >= 200 * MILLIS, "delay too short: " + delayAtThree);
+        assertTrue(delayAtThree < 5_000 * MILLIS, "delay too long: " + delayAtThree);
+    }
+
+    @Test
+    @DisplayName("Delays never exceed the maximum period")
+    void delayIsCapped() {
+        final FlushBackpressureController controller = new FlushBackpressureController();
+        // before any flush, a throttled copy waits for the maximum period
+        controller.applyBackpressure(() -> 1, Duration.ofMillis(100));
+        assertTrue(controller.getLastDelayNanos() >= 100 * MILLIS);
+        assertTrue(controller.getLastDelayNanos() < 5_000 * MILLIS);
+
+        // a sustainable interval of 10s is capped as well
+        controller.copyMade();
+        controller.flushCompleted(10_000 * MILLIS);
+        controller.applyBackpressure(() -> 10, Duration.ofMillis(100));
+        assertTrue(controller.getLastDelayNanos() >= 100 * MILLIS);
+        assertTrue(controller.getLastDelayNanos() < 5_000 * MILLIS);
+    }
+
+    @Test
+    @DisplayName("A flush that drains the backlog releases a throttled copy")
+    void flushReleasesThrottledCopy() throws InterruptedException {
+        final FlushBackpressureController controller = new FlushBackpressureController();
+        final AtomicInteger backlogExcess = new AtomicInteger(1);
+        final AtomicLong delay = new AtomicLong(-1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread copier =
+                new Thread(
+                        () -> {
+                            controller.copyMade();
+                            controller.applyBackpressure(backlogExcess::get, NO_LIMIT);
+                            delay.set(controller.getLastDelayNanos());
+                            done.countDown();
+                        },
+                        "copier");
+        copier.start();
+
+        // nothing is flushed yet, so the copy waits for a flush
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS), "the copy should be throttled");
+        backlogExcess.set(0);
+        controller.flushCompleted(10 * MILLIS);
+        assertTrue(done.await(5, TimeUnit.SECONDS), "the flush should release the copy");
+        copier.join();
+        assertTrue(delay.get() >= 200 * MILLIS, "delay too short: " + delay.get());
+
+        // the next copy isn't held to the schedule of the released one
+        controller.applyBackpressure(backlogExcess::get, NO_LIMIT);
+        assertEquals(0, controller.getLastDelayNanos());
+    }
+
+    @Test
+    @DisplayName("An interrupted copy stops waiting and keeps its interrupt status")
+    void interruptReleasesThrottledCopy() throws InterruptedException {
+        final FlushBackpressureController controller = new FlushBackpressureController();
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread copier =
+                new Thread(
+                        () -> {
+                            controller.applyBackpressure(() -> 1, NO_LIMIT);
+                            if (Thread.currentThread().isInterrupted()) {
+                                done.countDown();
+                            }
+                        },
+                        "copier");
+        copier.start();
+        Thread.sleep(100);
+        copier.interrupt();
+        assertTrue(done.await(5, TimeUnit.SECONDS), "the interrupted copy should return");
+        copier.join();
+    }
+}
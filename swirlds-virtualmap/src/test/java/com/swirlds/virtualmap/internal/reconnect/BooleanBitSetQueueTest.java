@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BooleanBitSetQueueTest {
+
+    /** Not a multiple of 64, so bit sets are not filled up to their size */
+    private static final int CAPACITY = 100;
+
+    @Test
+    @DisplayName("Capacity must be positive")
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new BooleanBitSetQueue(0));
+    }
+
+    @Test
+    @DisplayName("Removing from an empty queue fails")
+    void removeFromEmpty() {
+        final BooleanBitSetQueue queue = new BooleanBitSetQueue(CAPACITY);
+        assertTrue(queue.isEmpty());
+        assertThrows(NoSuchElementException.class, queue::remove);
+        queue.add(true);
+        assertFalse(queue.isEmpty());
+        assertTrue(queue.remove());
+        assertThrows(NoSuchElementException.class, queue::remove);
+    }
+
+    @Test
+    @DisplayName("Values across bit set boundaries are removed in order")
+    void bitSetBoundaries() {
+        final Random random = new Random(3);
+        final BooleanBitSetQueue queue = new BooleanBitSetQueue(CAPACITY);
+        final ArrayDeque<Boolean> expected = new ArrayDeque<>();
+        for (int round = 0; round < 200; round++) {
+            // add more than is removed on average, so the backlog holds several bit sets
+            final int adds = random.nextInt(3 * CAPACITY);
+            for (int i = 0; i < adds; i++) {
+                final boolean value = random.nextBoolean();
+                queue.add(value);
+                expected.add(value);
+            }
+            final int removes = random.nextInt(2 * CAPACITY);
+            for (int i = 0; i < removes && !expected.isEmpty(); i++) {
+                assertEquals(expected.remove(), queue.remove(), "wrong value in round " + round);
+            }
+        }
+        while (!expected.isEmpty()) {
+            assertEquals(expected.remove(), queue.remove());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    /** Remove as many values as a bit set holds, then add as many */
+    private static void readThenWrite(final BooleanBitSetQueue queue) {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(queue.remove());
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            queue.add(true);
+        }
+    }
+
+    @Test
+    @DisplayName("A fully read bit set is reused for writing")
+    void bitSetIsRecycled() {
+        final BooleanBitSetQueue queue = new BooleanBitSetQueue(CAPACITY);
+        // fill the first bit set, then one value in the second
+        for (int i = 0; i <= CAPACITY; i++) {
+            queue.add(true);
+        }
+        // a fully read bit set is only recycled on the next read, so the first round allocates
+        readThenWrite(queue);
+        final long allocated = OffHeapBitSet.getAllocatedBytes();
+        for (int round = 0; round < 100; round++) {
+            readThenWrite(queue);
+        }
+        // other bit sets may be garbage collected meanwhile, which only lowers the count
+        assertTrue(
+                OffHeapBitSet.getAllocatedBytes() <= allocated,
+                "no bit sets should be allocated while reads keep up with writes");
+    }
+
+    @Test
+    @DisplayName("Closing a queue releases the memory of all its bit sets")
+    void closeReleasesMemory() {
+        final BooleanBitSetQueue queue = new BooleanBitSetQueue(CAPACITY);
+        // a spare bit set, a read bit set and two bit sets in the backlog
+        for (int i = 0; i < 4 * CAPACITY; i++) {
+            queue.add(true);
+        }
+        for (int i = 0; i <= CAPACITY; i++) {
+            queue.remove();
+        }
+        final long allocated = OffHeapBitSet.getAllocatedBytes();
+        queue.close();
+        // other bit sets may be garbage collected meanwhile, which only lowers the count
+        assertTrue(
+                OffHeapBitSet.getAllocatedBytes() <= allocated - 4 * 128 / 8,
+                "the memory of all bit sets should be released");
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentBitSetQueueTest {
+
+    /** The smallest chunks, 64 values each, so tests cross many chunk boundaries */
+    private static final int CHUNK_SHIFT = 6;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    @Test
+    @DisplayName("Chunk size must be supported")
+    void invalidChunkShift() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentBitSetQueue(5));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentBitSetQueue(31));
+    }
+
+    @Test
+    @DisplayName("Values must be strictly increasing and the queue must not be empty on remove")
+    void invalidUse() {
+        final ConcurrentBitSetQueue queue = new ConcurrentBitSetQueue(CHUNK_SHIFT);
+        assertThrows(IllegalStateException.class, queue::remove);
+        queue.add(10);
+        assertThrows(IllegalArgumentException.class, () -> queue.add(10));
+        assertThrows(IllegalArgumentException.class, () -> queue.add(9));
+    }
+
+    @Test
+    @DisplayName("Values at chunk boundaries and in skipped chunks are removed in order")
+    void chunkBoundaries() {
+        final ConcurrentBitSetQueue queue = new ConcurrentBitSetQueue(CHUNK_SHIFT);
+        final long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 1_023, 1_024, 100_000, 100_001};
+        for (final long value : values) {
+            queue.add(value);
+        }
+        assertEquals(values.length, queue.size());
+        for (final long value : values) {
+            assertEquals(value, queue.remove());
+        }
+        assertTrue(queue.isEmpty());
+
+        // the queue is reused after it was empty, within the same chunk and in a later one
+        queue.add(100_002);
+        queue.add(200_000);
+        assertEquals(100_002, queue.remove());
+        assertEquals(200_000, queue.remove());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    @DisplayName("A fully read chunk is reused for a later range of values")
+    void chunkIsRecycled() {
+        final ConcurrentBitSetQueue queue = new ConcurrentBitSetQueue(CHUNK_SHIFT);
+        queue.add(0);
+        queue.add(CHUNK_SIZE);
+        final long allocated = OffHeapBitSet.getAllocatedBytes();
+        assertEquals(0, queue.remove());
+        // moving to the second chunk leaves the first one as a spare
+        assertEquals(CHUNK_SIZE, queue.remove());
+        for (long value = 2 * CHUNK_SIZE; value < 100 * CHUNK_SIZE; value += CHUNK_SIZE) {
+            queue.add(value);
+            assertEquals(value, queue.remove());
+        }
+        // other bit sets may be garbage collected meanwhile, which only lowers the count
+        assertTrue(
+                OffHeapBitSet.getAllocatedBytes() <= allocated,
+                "no chunks should be allocated while the reader keeps up");
+    }
+
+    @Test
+    @DisplayName("Values added by one thread are removed in order by another")
+    void concurrentAddRemove() throws InterruptedException {
+        final ConcurrentBitSetQueue queue = new ConcurrentBitSetQueue(CHUNK_SHIFT);
+        final int count = 200_000;
+        final long[] values = new long[count];
+        final Random random = new Random(11);
+        long value = -1;
+        for (int i = 0; i < count; i++) {
+            // mostly dense, sometimes skipping several chunks
+            value += (random.nextInt(100) == 0) ? 1 + random.nextInt(5 * CHUNK_SIZE) : 1;
+            values[i] = value;
+        }
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final Thread writer =
+                new Thread(
+                        () -> {
+                            for (final long v : values) {
+                                queue.add(v);
+                            }
+                        },
+                        "bit-set-queue-writer");
+        final Thread reader =
+                new Thread(
+                        () -> {
+                            try {
+                                int removed = 0;
+                                while (removed < count) {
+                                    if (!queue.isEmpty()) {
+                                        assertEquals(values[removed], queue.remove());
+                                        removed++;
+                                    }
+                                }
+                            } catch (final Throwable e) {
+                                error.set(e);
+                            }
+                        },
+                        "bit-set-queue-reader");
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join(30_000);
+        if (error.get() != null) {
+            throw new AssertionError("the reader failed", error.get());
+        }
+        assertTrue(!reader.isAlive() && queue.isEmpty(), "all values should be removed");
+    }
+
+    @Test
+    @DisplayName("Closing a queue releases the memory of all its chunks")
+    void closeReleasesMemory() {
+        final ConcurrentBitSetQueue queue = new ConcurrentBitSetQueue(CHUNK_SHIFT);
+        queue.add(0);
+        queue.add(CHUNK_SIZE);
+        queue.remove();
+        queue.remove();
+        // a spare chunk, then three chunks in the queue
+        for (long value = 2 * CHUNK_SIZE; value < 5 * CHUNK_SIZE; value += CHUNK_SIZE) {
+            queue.add(value);
+        }
+        final long allocated = OffHeapBitSet.getAllocatedBytes();
+        queue.close();
+        // other bit sets may be garbage collected meanwhile, which only lowers the count
+        assertTrue(
+                OffHeapBitSet.getAllocatedBytes() <= allocated - 4 * CHUNK_SIZE / 8,
+                "the memory of all chunks should be released");
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.crypto.DigestType;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.metrics.Metrics;
+import com.swirlds.common.threading.pool.StandardWorkGroup;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualDataSource;
+import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
+import com.swirlds.virtualmap.datasource.VirtualKeySet;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LeafHashFilterTest {
+
+    private static final int LEAF_COUNT = 1_000;
+
+    private static List<Hash> randomHashes(final Random random, final int count) {
+        final List<Hash> hashes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final byte[] bytes = new byte[DigestType.SHA_384.digestLength()];
+            random.nextBytes(bytes);
+            hashes.add(new Hash(bytes, DigestType.SHA_384));
+        }
+        return hashes;
+    }
+
+    private static StandardWorkGroup buildWorkGroup() {
+        return new StandardWorkGroup(getStaticThreadManager(), "leaf-hash-filter-test", null);
+    }
+
+    @Test
+    @DisplayName("Every hash may be present until the filter is built")
+    void mayContainBeforeAndAfterBuild() throws InterruptedException {
+        final Random random = new Random(1);
+        final List<Hash> stored = randomHashes(random, LEAF_COUNT);
+        final List<Hash> absent = randomHashes(random, LEAF_COUNT);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final LeafHashFilter filter =
+                new LeafHashFilter(new HashListDataSource<>(stored, release), LEAF_COUNT);
+        final StandardWorkGroup workGroup = buildWorkGroup();
+        filter.start(workGroup);
+
+        for (final Hash hash : absent) {
+            assertTrue(filter.mayContain(hash), "all hashes may be present while building");
+        }
+
+        release.countDown();
+        workGroup.waitForTermination();
+        assertFalse(workGroup.hasExceptions(), "building the filter should not fail");
+
+        for (final Hash hash : stored) {
+            assertTrue(filter.mayContain(hash), "stored hashes must always be reported");
+        }
+        int falsePositives = 0;
+        for (final Hash hash : absent) {
+            if (filter.mayContain(hash)) {
+                falsePositives++;
+            }
+        }
+        // about 1% is expected
+        assertTrue(falsePositives < LEAF_COUNT / 20, "too many false positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Stale and duplicate hashes only add false positives")
+    void staleAndDuplicateHashes() throws InterruptedException {
+        final Random random = new Random(2);
+        final List<Hash> current = randomHashes(random, LEAF_COUNT);
+        final List<Hash> stale = randomHashes(random, LEAF_COUNT / 2);
+        final List<Hash> absent = randomHashes(random, LEAF_COUNT);
+
+        // Old versions of leaves and leaves written twice, as read from several data files
+        final List<Hash> passed = new ArrayList<>(stale);
+        passed.addAll(current);
+        passed.addAll(current.subList(0, LEAF_COUNT / 2));
+
+        final LeafHashFilter filter =
+                new LeafHashFilter(new HashListDataSource<>(passed, null), LEAF_COUNT);
+        final StandardWorkGroup workGroup = buildWorkGroup();
+        filter.start(workGroup);
+        workGroup.waitForTermination();
+
+        for (final Hash hash : current) {
+            assertTrue(filter.mayContain(hash), "current hashes must always be reported");
+        }
+        int falsePositives = 0;
+        for (final Hash hash : absent) {
+            if (filter.mayContain(hash)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < LEAF_COUNT / 10, "too many false positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("A filter that is stopped while building is never used")
+    void stoppedWhileBuilding() throws InterruptedException {
+        final Random random = new Random(3);
+        final List<Hash> stored = randomHashes(random, LEAF_COUNT);
+        final List<Hash> absent = randomHashes(random, LEAF_COUNT);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final LeafHashFilter filter =
+                new LeafHashFilter(new HashListDataSource<>(stored, release), LEAF_COUNT);
+        final StandardWorkGroup workGroup = buildWorkGroup();
+        filter.start(workGroup);
+        filter.stop();
+        release.countDown();
+        workGroup.waitForTermination();
+
+        for (final Hash hash : absent) {
+            assertTrue(filter.mayContain(hash), "an incomplete filter must not be used");
+        }
+    }
+
+    @Test
+    @DisplayName("Data sources that cannot pass their leaf hashes are never filtered")
+    void unsupportedDataSource() throws InterruptedException {
+        final List<Hash> absent = randomHashes(new Random(4), LEAF_COUNT);
+
+        final LeafHashFilter filter =
+                new LeafHashFilter(new HashListDataSource<>(null, null), LEAF_COUNT);
+        final StandardWorkGroup workGroup = buildWorkGroup();
+        filter.start(workGroup);
+        workGroup.waitForTermination();
+
+        for (final Hash hash : absent) {
+            assertTrue(filter.mayContain(hash), "an unsupported data source must not be filtered");
+        }
+    }
+
+    /**
+     * A data source that only passes a list of hashes to {@link #forEachLeafHash(Predicate)},
+     * optionally waiting for a latch first.
+     */
+    private static final class HashListDataSource<
+                    K extends VirtualKey<? super K>, V extends VirtualValue>
+            implements VirtualDataSource<K, V> {
+
+        /** Null if the operation is not supported. */
+        private final List<Hash> hashes;
+
+        /** Null if there is no need to wait. */
+        private final CountDownLatch release;
+
+        HashListDataSource(final List<Hash> hashes, final CountDownLatch release) {
+            this.hashes = hashes;
+            this.release = release;
+        }
+
+        @Override
+        public boolean forEachLeafHash(final Predicate<Hash> action) throws IOException {
+            if (hashes == null) {
+                return false;
+            }
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            for (final Hash hash : hashes) {
+                if (!action.test(hash)) {
+                    break;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void saveRecords(
+                final long firstLeafPath,
+                final long lastLeafPath,
+                final Stream<VirtualInternalRecord> internalRecords,
+                final Stream<VirtualLeafRecord<K, V>> leafRecordsToAddOrUpdate,
+                final Stream<VirtualLeafRecord<K, V>> leafRecordsToDelete) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VirtualLeafRecord<K, V> loadLeafRecord(final K key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VirtualLeafRecord<K, V> loadLeafRecord(final long path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long findKey(final K key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VirtualInternalRecord loadInternalRecord(
+                final long path, final boolean deserialize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Hash loadLeafHash(final long path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void snapshot(final Path snapshotDirectory) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void copyStatisticsFrom(final VirtualDataSource<K, V> that) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void registerMetrics(final Metrics metrics) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VirtualKeySet<K> buildKeySet() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016-2022 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class OffHeapBitSetTest {
+
+    /** Not a multiple of 64, so the last word is only partly used */
+    private static final int BIT_COUNT = 1_000;
+
+    private static void assertSameBits(final BitSet expected, final OffHeapBitSet actual) {
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "wrong bit " + i);
+            final int next = expected.nextSetBit(i);
+            assertEquals(
+                    next < actual.size() ? next : -1,
+                    actual.nextSetBit(i),
+                    "wrong next set bit from " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Bit count must be positive")
+    void invalidBitCount() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapBitSet(0));
+    }
+
+    @Test
+    @DisplayName("Size is rounded up to whole words")
+    void size() {
+        assertEquals(1024, new OffHeapBitSet(BIT_COUNT).size());
+        assertEquals(64, new OffHeapBitSet(1).size());
+        assertEquals(64, new OffHeapBitSet(64).size());
+    }
+
+    @Test
+    @DisplayName("Bits at word boundaries are set and found")
+    void wordBoundaries() {
+        final OffHeapBitSet bitSet = new OffHeapBitSet(BIT_COUNT);
+        final BitSet expected = new BitSet();
+        assertEquals(-1, bitSet.nextSetBit(0), "no bits should be set");
+        for (final int index : new int[] {0, 63, 64, 127, 128, 511, 512, 1023}) {
+            bitSet.set(index);
+            expected.set(index);
+        }
+        assertSameBits(expected, bitSet);
+    }
+
+    @Test
+    @DisplayName("Random bits are set and found")
+    void randomBits() {
+        final Random random = new Random(7);
+        final OffHeapBitSet bitSet = new OffHeapBitSet(BIT_COUNT);
+        final BitSet expected = new BitSet();
+        for (int i = 0; i < 200; i++) {
+            final int index = random.nextInt(bitSet.size());
+            bitSet.set(index);
+            expected.set(index);
+        }
+        assertSameBits(expected, bitSet);
+    }
+
+    @Test
+    @DisplayName("A cleared bit set has no bits set and can be reused")
+    void clearAndReuse() {
+        final OffHeapBitSet bitSet = new OffHeapBitSet(BIT_COUNT);
+        bitSet.set(5);
+        bitSet.set(700);
+        bitSet.clear();
+        assertSameBits(new BitSet(), bitSet);
+
+        bitSet.set(64);
+        final BitSet expected = new BitSet();
+        expected.set(64);
+        assertSameBits(expected, bitSet);
+    }
+
+    @Test
+    @DisplayName("Closing a bit set releases its memory")
+    void closeReleasesMemory() {
+        final OffHeapBitSet bitSet = new OffHeapBitSet(BIT_COUNT);
+        bitSet.set(1);
+        final long allocated = OffHeapBitSet.getAllocatedBytes();
+        assertTrue(allocated >= BIT_COUNT / 8, "the bit set memory should be counted");
+
+        bitSet.close();
+        assertTrue(bitSet.isClosed());
+        // other bit sets may be garbage collected meanwhile, which only lowers the count
+        assertTrue(
+                OffHeapBitSet.getAllocatedBytes() <= allocated - 1024 / 8,
+                "the bit set memory should be released");
+        assertFalse(bitSet.get(1), "a closed bit set has no bits set");
+        assertEquals(-1, bitSet.nextSetBit(0), "a closed bit set has no bits set");
+        assertThrows(IllegalStateException.class, () -> bitSet.set(1));
+
+        // a second close has no effect
+        final long released = OffHeapBitSet.getAllocatedBytes();
+        bitSet.close();
+        assertTrue(OffHeapBitSet.getAllocatedBytes() <= released);
+    }
+}